@@ -0,0 +1,88 @@
+package com.evanv.taskapp.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+
+import androidx.room.Room;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.evanv.taskapp.logic.Event;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.threeten.bp.LocalDate;
+
+import java.util.List;
+
+/**
+ * Instrumented test for TaskAppRepository.archivePastEvents, checking a past event is moved into
+ * the archive_table, where the stats read it from, and out of the event_table, on an in-memory
+ * database.
+ *
+ * @author Evan Voogd
+ */
+@RunWith(AndroidJUnit4.class)
+public class ArchivePastEventsTest {
+    private static final long TIMEOUT_MS = 5000;                     // Longest to wait for writes
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 12); // Day the app is opened
+
+    private TaskAppRoomDatabase mDb;       // The in-memory database
+    private TaskAppRepository mRepository; // The repository under test
+
+    /**
+     * Create a repository over an empty in-memory database.
+     */
+    @Before
+    public void setUp() {
+        Application application = (Application) InstrumentationRegistry.getInstrumentation()
+                .getTargetContext().getApplicationContext();
+
+        mDb = Room.inMemoryDatabaseBuilder(application, TaskAppRoomDatabase.class).build();
+        mRepository = new TaskAppRepository(application, mDb);
+        mRepository.load(TODAY);
+    }
+
+    /**
+     * Close the in-memory database, which drops it.
+     */
+    @After
+    public void tearDown() {
+        mDb.close();
+    }
+
+    /**
+     * Checks an event from yesterday is moved to the archive with its name, start and length,
+     * while an event today is left in the event_table.
+     */
+    @Test
+    public void movesPastEventToArchive() {
+        LocalDate yesterday = TODAY.minusDays(1);
+        Event past = new Event("Lecture", 75, yesterday.atTime(9, 30));
+        Event current = new Event("Seminar", 60, TODAY.atTime(14, 0));
+
+        mRepository.insert(past);
+        mRepository.insert(current);
+        mRepository.archivePastEvents(TODAY);
+        mRepository.flush();
+        assertTrue(mRepository.getWriteQueue().awaitIdle(TIMEOUT_MS));
+
+        // Still there for the stats to read
+        List<ArchivedItem> archived = mRepository.getArchiveBetween(yesterday, yesterday);
+        assertEquals(1, archived.size());
+        assertEquals(past.getID(), archived.get(0).getItemID());
+        assertEquals("Lecture", archived.get(0).getName());
+        assertEquals(75, archived.get(0).getMinutes());
+
+        // But gone from the live table
+        List<Event> live = mRepository.getEventsBetween(yesterday.atStartOfDay(),
+                TODAY.plusDays(1).atStartOfDay());
+        assertEquals(1, live.size());
+        assertEquals(current.getID(), live.get(0).getID());
+        assertTrue(mRepository.getArchiveBetween(TODAY, TODAY).isEmpty());
+    }
+}
@@ -0,0 +1,64 @@
+package com.evanv.taskapp.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * Dao for ArchivedItems, defines queries used for interfacing with the archive_table.
+ *
+ * @author Evan Voogd
+ */
+@Dao
+public interface ArchiveDao {
+    /**
+     * Insert several archive rows at once.
+     *
+     * @param items The rows to insert
+     * @return The ID of each new row, in the same order as items
+     */
+    @Insert
+    List<Long> insertAll(List<ArchivedItem> items);
+
+    /**
+     * Copy every event that started before a time into the archive_table. Call deleteEventsBefore
+     * with the same time in the same transaction to finish moving them.
+     *
+     * @param before The epoch second events must start before to be archived
+     */
+    @Query("INSERT INTO archive_table (item_id, is_event, name, day, start, minutes, project) "
+            + "SELECT id, 1, name, do_date / 86400, do_date, length, -1 FROM event_table "
+            + "WHERE do_date < :before")
+    void archiveEventsBefore(long before);
+
+    /**
+     * Delete every event that started before a time from the event_table.
+     *
+     * @param before The epoch second events must start before to be deleted
+     * @return The number of events deleted
+     */
+    @Query("DELETE FROM event_table WHERE do_date < :before")
+    int deleteEventsBefore(long before);
+
+    /**
+     * Count the events that started before a time and are still in the event_table.
+     *
+     * @param before The epoch second events must start before to be counted
+     * @return The number of events to archive
+     */
+    @Query("SELECT COUNT(*) FROM event_table WHERE do_date < :before")
+    int countEventsBefore(long before);
+
+    /**
+     * Get the archived tasks and events between two days.
+     *
+     * @param start The epoch day of the first day to get rows for
+     * @param end The epoch day of the last day to get rows for
+     * @return A List of the rows from start to end, inclusive, in order of day
+     */
+    @Query("SELECT * FROM archive_table WHERE day BETWEEN :start AND :end ORDER BY day ASC, "
+            + "start ASC")
+    List<ArchivedItem> getBetween(long start, long end);
+}
@@ -0,0 +1,157 @@
+package com.evanv.taskapp.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import com.evanv.taskapp.logic.Task;
+
+import org.threeten.bp.LocalDate;
+
+/**
+ * A row of the archive_table, a completed task or past event moved out of the task_table or
+ * event_table so those only hold what can still be scheduled. Only what a history view needs is
+ * kept, and rows are indexed by day so they can be read back a date range at a time.
+ *
+ * @author Evan Voogd
+ */
+@Entity(tableName = "archive_table", indices = {@Index("day")})
+public class ArchivedItem {
+    @PrimaryKey(autoGenerate = true)
+    @ColumnInfo(name = "id")
+    private long mID;              // PrimaryKey for the archive row
+    @ColumnInfo(name = "item_id")
+    private final long mItemID;    // ID the task/event had in its own table
+    @ColumnInfo(name = "is_event")
+    private final boolean mIsEvent; // true for a past event, false for a completed task
+    @NonNull
+    @ColumnInfo(name = "name")
+    private final String mName;    // Name of the task/event
+    @ColumnInfo(name = "day")
+    private final long mDay;       // Epoch day the event happened or the task was completed
+    @ColumnInfo(name = "start")
+    private final long mStart;     // Epoch second the event started, or 0 for a task
+    @ColumnInfo(name = "minutes")
+    private final int mMinutes;    // Length of the event, or time to complete of the task
+    @ColumnInfo(name = "project")
+    private final long mProject;   // ID of the task's project, or -1 for none or an event
+
+    /**
+     * Creates a new archive row.
+     *
+     * @param itemID ID the task/event had in its own table
+     * @param isEvent true for a past event, false for a completed task
+     * @param name Name of the task/event
+     * @param day Epoch day the event happened or the task was completed
+     * @param start Epoch second the event started, or 0 for a task
+     * @param minutes Length of the event, or time to complete of the task
+     * @param project ID of the task's project, or -1 for none or an event
+     */
+    public ArchivedItem(long itemID, boolean isEvent, @NonNull String name, long day, long start,
+                        int minutes, long project) {
+        mItemID = itemID;
+        mIsEvent = isEvent;
+        mName = name;
+        mDay = day;
+        mStart = start;
+        mMinutes = minutes;
+        mProject = project;
+    }
+
+    /**
+     * Creates the archive row for a completed task.
+     *
+     * @param task The task that was completed
+     * @param completed The day it was completed
+     */
+    @Ignore
+    public ArchivedItem(Task task, LocalDate completed) {
+        this(task.getID(), false, task.getName(), completed.toEpochDay(), 0,
+                task.getTimeToComplete(), task.getProjectID());
+    }
+
+    /**
+     * Get the ID of the archive row.
+     *
+     * @return The ID of the row
+     */
+    public long getID() {
+        return mID;
+    }
+
+    /**
+     * Set the ID of the archive row. Only used by Room and when the row is inserted.
+     *
+     * @param id The ID of the row
+     */
+    public void setID(long id) {
+        mID = id;
+    }
+
+    /**
+     * Get the ID the task/event had in its own table.
+     *
+     * @return The ID of the archived task/event
+     */
+    public long getItemID() {
+        return mItemID;
+    }
+
+    /**
+     * Check if the row is a past event rather than a completed task.
+     *
+     * @return true for an event, false for a task
+     */
+    public boolean isEvent() {
+        return mIsEvent;
+    }
+
+    /**
+     * Get the name of the task/event.
+     *
+     * @return The name
+     */
+    @NonNull
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Get the epoch day the event happened or the task was completed.
+     *
+     * @return The day, as LocalDate.toEpochDay()
+     */
+    public long getDay() {
+        return mDay;
+    }
+
+    /**
+     * Get the epoch second the event started.
+     *
+     * @return The start time in UTC epoch seconds, or 0 for a task
+     */
+    public long getStart() {
+        return mStart;
+    }
+
+    /**
+     * Get the length of the event, or time to complete of the task.
+     *
+     * @return The time in minutes
+     */
+    public int getMinutes() {
+        return mMinutes;
+    }
+
+    /**
+     * Get the ID of the task's project.
+     *
+     * @return The project's ID, or -1 for none or an event
+     */
+    public long getProject() {
+        return mProject;
+    }
+}
@@ -0,0 +1,727 @@
+package com.evanv.taskapp.db;
+
+import com.evanv.taskapp.logic.Event;
+import com.evanv.taskapp.logic.Label;
+import com.evanv.taskapp.logic.Project;
+import com.evanv.taskapp.logic.RecurrenceRule;
+import com.evanv.taskapp.logic.Series;
+import com.evanv.taskapp.logic.Task;
+
+import org.threeten.bp.DateTimeException;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneOffset;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams every project, label, series, task and event to or from a backup file, with the links to
+ * the calendars they were imported or mirrored from, so a sync after restoring a backup updates
+ * the events it added before rather than adding them again. The file is a header followed by one
+ * length-prefixed record per row, each task's parents and labels inline, and an end record holding
+ * the number of rows. A file is checked from end to end before anything is replaced, so a damaged
+ * or cut off backup is rejected rather than half restored. Rows are read from the database a page
+ * at a time and written through one fixed-size buffer, and read back the same way and handed to
+ * the database in batches, so memory use doesn't grow with the size of the database. IDs are
+ * kept, so every link between rows survives the round trip.
+ *
+ * @author Evan Voogd
+ */
+public class Backup {
+    private static final int MAGIC = 0x54455850;     // "TEXP", first int of every backup
+    private static final int FORMAT_VERSION = 3;     // Bumped whenever the layout changes
+    private static final int BUFFER_BYTES = 1 << 16; // Size of the buffer the file goes through
+    static final int PAGE_SIZE = 1000;               // Rows read or written at once
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Types of record
+    private static final byte END = 0;
+    private static final byte PROJECT = 1;
+    private static final byte LABEL = 2;
+    private static final byte SERIES = 3;
+    private static final byte TASK = 4;
+    private static final byte EVENT = 5;
+    private static final byte IMPORTED = 6;
+    private static final byte SYNC_STATE = 7;
+
+    /**
+     * Reads the rows to back up. Tasks and events are read a page at a time, in order of ID, and
+     * links to imported events in order of source and UID; projects, labels, series and
+     * high-water marks are few, so they're read all at once.
+     */
+    interface Source {
+        /**
+         * Get every project.
+         *
+         * @return a list of all projects
+         */
+        List<Project> getProjects();
+
+        /**
+         * Get every label.
+         *
+         * @return a list of all labels
+         */
+        List<Label> getLabels();
+
+        /**
+         * Get every recurring series.
+         *
+         * @return a list of all series
+         */
+        List<Series> getSeries();
+
+        /**
+         * Get a page of tasks, with their parent and label IDs.
+         *
+         * @param after The ID the tasks must be past
+         * @param count The most tasks to get
+         *
+         * @return the next tasks with IDs past after, in order of ID
+         */
+        List<Task> getTasksAfter(long after, int count);
+
+        /**
+         * Get a page of events.
+         *
+         * @param after The ID the events must be past
+         * @param count The most events to get
+         *
+         * @return the next events with IDs past after, in order of ID
+         */
+        List<Event> getEventsAfter(long after, int count);
+
+        /**
+         * Get a page of links to imported or mirrored events.
+         *
+         * @param source The source the links must be at or past
+         * @param uid The UID the links must be past, if their source is source
+         * @param count The most links to get
+         *
+         * @return the next links past (source, uid), in order of source then UID
+         */
+        List<ImportedEvent> getImportedAfter(String source, String uid, int count);
+
+        /**
+         * Get the high-water mark of every calendar being mirrored.
+         *
+         * @return a list of all high-water marks
+         */
+        List<CalendarSyncState> getSyncStates();
+    }
+
+    /**
+     * Writes the rows read back from a backup.
+     */
+    interface Sink {
+        /**
+         * Delete every project, label, series, task and event, with every link between tasks
+         * and labels, every link to an imported event and every high-water mark. Called once,
+         * after the whole file has been checked and before the first batch.
+         */
+        void clear();
+
+        /**
+         * Write a batch of rows, with their IDs and each task's parents and labels. Links to
+         * imported events come after the events and series they point to.
+         *
+         * @param batch The rows to write
+         */
+        void write(Batch batch);
+    }
+
+    /**
+     * A batch of rows read back from a backup.
+     */
+    static class Batch {
+        final List<Project> mProjects = new ArrayList<>(); // Projects in the batch
+        final List<Label> mLabels = new ArrayList<>();     // Labels in the batch
+        final List<Series> mSeries = new ArrayList<>();    // Series in the batch
+        final List<Task> mTasks = new ArrayList<>();       // Tasks in the batch
+        final List<Event> mEvents = new ArrayList<>();     // Events in the batch
+        final List<ImportedEvent> mImported = new ArrayList<>();  // Links in the batch
+        final List<CalendarSyncState> mSyncStates = new ArrayList<>(); // High-water marks
+
+        /**
+         * Get the number of rows in the batch.
+         *
+         * @return The number of rows
+         */
+        int size() {
+            return mProjects.size() + mLabels.size() + mSeries.size() + mTasks.size()
+                    + mEvents.size() + mImported.size() + mSyncStates.size();
+        }
+    }
+
+    /**
+     * Write every row from a source to a backup file, replacing anything already there.
+     *
+     * @param file The file to write
+     * @param source Reads the rows to back up
+     *
+     * @return The number of rows written
+     *
+     * @throws IOException If the file couldn't be written
+     */
+    static long write(File file, Source source) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel()) {
+            channel.truncate(0);
+            Writer out = new Writer(channel);
+
+            out.mBuffer.putInt(MAGIC);
+            out.mBuffer.putInt(FORMAT_VERSION);
+
+            long rows = 0;
+            for (Project p : source.getProjects()) {
+                out.begin(PROJECT);
+                out.putLong(p.getID());
+                out.putString(p.getName());
+                out.putInt(p.getColor());
+                out.putString(p.getGoal());
+                out.end();
+                rows++;
+            }
+            for (Label l : source.getLabels()) {
+                out.begin(LABEL);
+                out.putLong(l.getID());
+                out.putString(l.getName());
+                out.putInt(l.getColor());
+                out.end();
+                rows++;
+            }
+            for (Series s : source.getSeries()) {
+                out.begin(SERIES);
+                out.putLong(s.getID());
+                out.putInt(s.isEvent() ? 1 : 0);
+                out.putString(s.getName());
+                out.putString(s.getRule().toString());
+                out.putLong(s.getStart().toEpochSecond(ZoneOffset.UTC));
+                out.putInt(s.getLength());
+                out.putInt(s.getDueOffset());
+                out.putInt(s.getPriority());
+                out.putLong(s.getProject());
+                out.putIDs(s.getLabels());
+                out.putIDs(s.getParents());
+                out.putLong(s.getThrough().toEpochDay());
+                out.end();
+                rows++;
+            }
+
+            List<Task> tasks = source.getTasksAfter(0, PAGE_SIZE);
+            while (!tasks.isEmpty()) {
+                for (Task t : tasks) {
+                    out.begin(TASK);
+                    out.putLong(t.getID());
+                    out.putString(t.getName());
+                    out.putLong(t.getEarlyDate().toEpochDay());
+                    out.putLong(t.getDoDate() == null ? Long.MIN_VALUE
+                            : t.getDoDate().toEpochDay());
+                    out.putLong(t.getDueDate().toEpochDay());
+                    out.putInt(t.getTimeToComplete());
+                    out.putInt(t.getPriority());
+                    out.putLong(t.getProjectID());
+                    out.putIDs(t.getParentArr());
+                    out.putIDs(t.getLabelIDs());
+                    out.end();
+                }
+
+                rows += tasks.size();
+                tasks = source.getTasksAfter(tasks.get(tasks.size() - 1).getID(), PAGE_SIZE);
+            }
+
+            List<Event> events = source.getEventsAfter(0, PAGE_SIZE);
+            while (!events.isEmpty()) {
+                for (Event e : events) {
+                    out.begin(EVENT);
+                    out.putLong(e.getID());
+                    out.putString(e.getName());
+                    out.putInt(e.getLength());
+                    out.putLong(e.getDoDate().toEpochSecond(ZoneOffset.UTC));
+                    out.end();
+                }
+
+                rows += events.size();
+                events = source.getEventsAfter(events.get(events.size() - 1).getID(),
+                        PAGE_SIZE);
+            }
+
+            List<ImportedEvent> links = source.getImportedAfter("", "", PAGE_SIZE);
+            while (!links.isEmpty()) {
+                for (ImportedEvent link : links) {
+                    out.begin(IMPORTED);
+                    out.putString(link.getSource());
+                    out.putString(link.getUID());
+                    out.putLong(link.getItemID());
+                    out.putInt(link.isSeries() ? 1 : 0);
+                    out.putLong(link.getVersion());
+                    out.end();
+                }
+
+                rows += links.size();
+                ImportedEvent last = links.get(links.size() - 1);
+                links = source.getImportedAfter(last.getSource(), last.getUID(), PAGE_SIZE);
+            }
+
+            for (CalendarSyncState state : source.getSyncStates()) {
+                out.begin(SYNC_STATE);
+                out.putLong(state.getCalendar());
+                out.putLong(state.getDigest());
+                out.putInt(state.getCount());
+                out.end();
+                rows++;
+            }
+
+            out.begin(END);
+            out.putLong(rows);
+            out.end();
+            out.flush();
+            channel.force(false);
+
+            return rows;
+        }
+    }
+
+    /**
+     * Check a backup file from end to end without writing anything: every record must be whole
+     * and readable, and the end record must be last and hold the number of rows before it.
+     *
+     * @param file The file to check
+     *
+     * @return The number of rows in the file
+     *
+     * @throws IOException If the file couldn't be read, isn't a backup or is damaged
+     */
+    static long check(File file) throws IOException {
+        return decode(file, null);
+    }
+
+    /**
+     * Read every row back from a backup file into a sink, replacing what the sink held. The whole
+     * file is checked before the sink is cleared, so a file that isn't a backup, is damaged or is
+     * cut off leaves the sink as it was. The file is read again to restore it, so the caller
+     * should make clear and every write one transaction, which an error then rolls back.
+     *
+     * @param file The file to read
+     * @param sink Writes the rows read back
+     *
+     * @return The number of rows read
+     *
+     * @throws IOException If the file couldn't be read, isn't a backup or is damaged
+     */
+    static long read(File file, Sink sink) throws IOException {
+        long rows = check(file);
+
+        sink.clear();
+        if (decode(file, sink) != rows) {
+            throw new IOException("Backup changed while it was read");
+        }
+
+        return rows;
+    }
+
+    /**
+     * Decode every record in a backup file, handing the rows to a sink in batches if there is one.
+     *
+     * @param file The file to read
+     * @param sink Writes the rows read back, or null to only check them
+     *
+     * @return The number of rows read
+     *
+     * @throws IOException If the file couldn't be read, isn't a backup or is damaged
+     */
+    private static long decode(File file, Sink sink) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            Reader in = new Reader(channel);
+
+            ByteBuffer header = in.next(8);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException("Not a backup");
+            }
+
+            long rows = 0;
+            Batch batch = new Batch();
+            while (true) {
+                ByteBuffer record = in.next(in.next(4).getInt());
+                if (!record.hasRemaining()) {
+                    throw new IOException("Damaged record");
+                }
+
+                byte type = record.get();
+                if (type == END) {
+                    if (record.remaining() != 8 || record.getLong() != rows) {
+                        throw new IOException("Backup is missing rows");
+                    }
+                    if (!in.atEnd()) {
+                        throw new IOException("Data after the end of the backup");
+                    }
+                    break;
+                }
+
+                try {
+                    decodeRecord(type, record, batch);
+                } catch (BufferUnderflowException | IllegalArgumentException
+                         | DateTimeException e) {
+                    throw new IOException("Damaged record", e);
+                }
+                if (record.hasRemaining()) {
+                    throw new IOException("Damaged record");
+                }
+
+                rows++;
+                if (batch.size() >= PAGE_SIZE) {
+                    if (sink != null) {
+                        sink.write(batch);
+                    }
+                    batch = new Batch();
+                }
+            }
+
+            if (sink != null && batch.size() > 0) {
+                sink.write(batch);
+            }
+
+            return rows;
+        }
+    }
+
+    /**
+     * Decode one record, other than the end record, into a batch.
+     *
+     * @param type The type of record
+     * @param record The record, positioned just past its type
+     * @param batch The batch to add its row to
+     *
+     * @throws IOException If the record is of an unknown type
+     */
+    private static void decodeRecord(byte type, ByteBuffer record, Batch batch)
+            throws IOException {
+        switch (type) {
+            case PROJECT: {
+                long id = record.getLong();
+                Project p = new Project(getString(record), record.getInt(), getString(record));
+                p.setID(id);
+                batch.mProjects.add(p);
+                break;
+            }
+            case LABEL: {
+                long id = record.getLong();
+                Label l = new Label(getString(record), record.getInt());
+                l.setID(id);
+                batch.mLabels.add(l);
+                break;
+            }
+            case SERIES: {
+                long id = record.getLong();
+                Series s = new Series(record.getInt() != 0, getString(record),
+                        RecurrenceRule.parse(getString(record)),
+                        LocalDateTime.ofEpochSecond(record.getLong(), 0, ZoneOffset.UTC),
+                        record.getInt(), record.getInt(), record.getInt(),
+                        record.getLong(), getIDs(record), getIDs(record),
+                        LocalDate.ofEpochDay(record.getLong()));
+                s.setID(id);
+                batch.mSeries.add(s);
+                break;
+            }
+            case TASK: {
+                long id = record.getLong();
+                String name = getString(record);
+                LocalDate early = LocalDate.ofEpochDay(record.getLong());
+                long doDay = record.getLong();
+                LocalDate due = LocalDate.ofEpochDay(record.getLong());
+                Task t = new Task(name, early, due, doDay == Long.MIN_VALUE ? null
+                        : LocalDate.ofEpochDay(doDay), record.getInt(), record.getInt(),
+                        record.getLong());
+                t.setID(id);
+                t.getParentArr().addAll(getIDs(record));
+                t.getLabelIDs().addAll(getIDs(record));
+                batch.mTasks.add(t);
+                break;
+            }
+            case EVENT: {
+                long id = record.getLong();
+                String name = getString(record);
+                int length = record.getInt();
+                Event e = new Event(name, length,
+                        LocalDateTime.ofEpochSecond(record.getLong(), 0, ZoneOffset.UTC));
+                e.setID(id);
+                batch.mEvents.add(e);
+                break;
+            }
+            case IMPORTED: {
+                String source = getString(record);
+                String uid = getString(record);
+                if (source == null || uid == null) {
+                    throw new IOException("Damaged record");
+                }
+                batch.mImported.add(new ImportedEvent(source, uid, record.getLong(),
+                        record.getInt() != 0, record.getLong()));
+                break;
+            }
+            case SYNC_STATE:
+                batch.mSyncStates.add(new CalendarSyncState(record.getLong(), record.getLong(),
+                        record.getInt()));
+                break;
+            default:
+                throw new IOException("Unknown record type " + type);
+        }
+    }
+
+    /**
+     * Read a string written by Writer.putString.
+     *
+     * @param record The record, positioned at the string
+     *
+     * @return The string, or null if null was written
+     */
+    private static String getString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+
+        if (length > record.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Read a list of IDs written by Writer.putIDs.
+     *
+     * @param record The record, positioned at the list
+     *
+     * @return The IDs
+     */
+    private static ArrayList<Long> getIDs(ByteBuffer record) {
+        int count = record.getInt();
+        if (count < 0 || count > record.remaining() / 8) {
+            throw new BufferUnderflowException();
+        }
+
+        ArrayList<Long> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(record.getLong());
+        }
+        return ids;
+    }
+
+    /**
+     * Writes records to a channel through one buffer. Each record is built in a scratch buffer
+     * first, so its length is known and a record bigger than expected only grows the scratch.
+     */
+    private static class Writer {
+        private final FileChannel mChannel;  // Where the records go
+        private final ByteBuffer mBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES); // To write
+        private ByteBuffer mRecord = ByteBuffer.allocate(1024); // The record being built
+
+        /**
+         * Creates a writer.
+         *
+         * @param channel Where the records go
+         */
+        Writer(FileChannel channel) {
+            mChannel = channel;
+        }
+
+        /**
+         * Start a new record.
+         *
+         * @param type The type of record
+         */
+        void begin(byte type) {
+            mRecord.clear();
+            mRecord.put(type);
+        }
+
+        /**
+         * Finish the record, copying it into the buffer with its length in front.
+         *
+         * @throws IOException If the buffer couldn't be flushed to make room
+         */
+        void end() throws IOException {
+            mRecord.flip();
+
+            if (mBuffer.remaining() < 4 + mRecord.remaining()) {
+                flush();
+            }
+
+            mBuffer.putInt(mRecord.remaining());
+            if (mBuffer.remaining() < mRecord.remaining()) {
+                // Too big for the buffer even when it's empty, so bypass it
+                flush();
+                while (mRecord.hasRemaining()) {
+                    mChannel.write(mRecord);
+                }
+            }
+            else {
+                mBuffer.put(mRecord);
+            }
+        }
+
+        /**
+         * Write whatever is in the buffer to the channel.
+         *
+         * @throws IOException If the channel couldn't be written
+         */
+        void flush() throws IOException {
+            mBuffer.flip();
+            while (mBuffer.hasRemaining()) {
+                mChannel.write(mBuffer);
+            }
+            mBuffer.clear();
+        }
+
+        /**
+         * Add an int to the record.
+         *
+         * @param value The int
+         */
+        void putInt(int value) {
+            room(4);
+            mRecord.putInt(value);
+        }
+
+        /**
+         * Add a long to the record.
+         *
+         * @param value The long
+         */
+        void putLong(long value) {
+            room(8);
+            mRecord.putLong(value);
+        }
+
+        /**
+         * Add a string to the record, as its UTF-8 length then bytes, or -1 for null.
+         *
+         * @param value The string, or null
+         */
+        void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+
+            byte[] bytes = value.getBytes(UTF_8);
+            putInt(bytes.length);
+            room(bytes.length);
+            mRecord.put(bytes);
+        }
+
+        /**
+         * Add a list of IDs to the record, as a count then each ID.
+         *
+         * @param ids The IDs
+         */
+        void putIDs(List<Long> ids) {
+            putInt(ids.size());
+            room(8 * ids.size());
+            for (long id : ids) {
+                mRecord.putLong(id);
+            }
+        }
+
+        /**
+         * Make sure the record has room for some more bytes, growing it if it doesn't.
+         *
+         * @param bytes The number of bytes about to be added
+         */
+        private void room(int bytes) {
+            if (mRecord.remaining() >= bytes) {
+                return;
+            }
+
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(mRecord.capacity() * 2,
+                    mRecord.position() + bytes));
+            mRecord.flip();
+            bigger.put(mRecord);
+            mRecord = bigger;
+        }
+    }
+
+    /**
+     * Reads records from a channel through one buffer, refilling it as it's used up.
+     */
+    private static class Reader {
+        private final FileChannel mChannel; // Where the records come from
+        private ByteBuffer mBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES); // Read, not used
+
+        /**
+         * Creates a reader.
+         *
+         * @param channel Where the records come from
+         */
+        Reader(FileChannel channel) {
+            mChannel = channel;
+            mBuffer.flip();
+        }
+
+        /**
+         * Get the next bytes of the file. The returned buffer is only valid until next is called
+         * again.
+         *
+         * @param bytes The number of bytes to get
+         *
+         * @return A buffer holding exactly the next bytes
+         *
+         * @throws IOException If the file ends first or couldn't be read
+         */
+        ByteBuffer next(int bytes) throws IOException {
+            if (bytes < 0) {
+                throw new IOException("Damaged record");
+            }
+
+            if (mBuffer.remaining() < bytes) {
+                // Checked before growing the buffer, so a damaged length can't exhaust memory
+                if (bytes - mBuffer.remaining() > mChannel.size() - mChannel.position()) {
+                    throw new IOException("Backup ends early");
+                }
+
+                if (mBuffer.capacity() < bytes) {
+                    ByteBuffer bigger = ByteBuffer.allocateDirect(bytes);
+                    bigger.put(mBuffer);
+                    mBuffer = bigger;
+                }
+                else {
+                    mBuffer.compact();
+                }
+
+                while (mBuffer.position() < bytes) {
+                    if (mChannel.read(mBuffer) < 0) {
+                        throw new IOException("Backup ends early");
+                    }
+                }
+                mBuffer.flip();
+            }
+
+            ByteBuffer slice = mBuffer.slice();
+            slice.limit(bytes);
+            mBuffer.position(mBuffer.position() + bytes);
+            return slice;
+        }
+
+        /**
+         * Check if every byte of the file has been read.
+         *
+         * @return true if there's nothing left to read
+         *
+         * @throws IOException If the file couldn't be read
+         */
+        boolean atEnd() throws IOException {
+            return !mBuffer.hasRemaining() && mChannel.position() >= mChannel.size();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.evanv.taskapp.db;
+
+import androidx.room.Dao;
+import androidx.room.Delete;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * Dao for CalendarSyncStates, defines queries used for interfacing with the calendar_sync table.
+ *
+ * @author Evan Voogd
+ */
+@Dao
+public interface CalendarSyncDao {
+    /**
+     * Insert or replace the high-water marks of several calendars.
+     *
+     * @param states The high-water marks to write
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertAll(List<CalendarSyncState> states);
+
+    /**
+     * Delete the high-water marks of several calendars, e.g. because they were removed.
+     *
+     * @param states The high-water marks to delete
+     */
+    @Delete
+    void deleteAll(List<CalendarSyncState> states);
+
+    /**
+     * Get the high-water mark of every calendar being mirrored.
+     *
+     * @return A List of every high-water mark
+     */
+    @Query("SELECT * FROM calendar_sync")
+    List<CalendarSyncState> getAll();
+}
@@ -0,0 +1,64 @@
+package com.evanv.taskapp.db;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * A row of the calendar_sync table, the high-water mark for one device calendar mirrored into the
+ * event_table: a digest of every occurrence it had in the window last synced. If the calendar's
+ * occurrences still hash to the same digest, nothing changed, so the sync skips it without
+ * reading its links or writing anything.
+ *
+ * @author Evan Voogd
+ */
+@Entity(tableName = "calendar_sync")
+public class CalendarSyncState {
+    @PrimaryKey
+    @ColumnInfo(name = "calendar")
+    private final long mCalendar; // ID of the calendar in the device's calendar provider
+    @ColumnInfo(name = "digest")
+    private final long mDigest;   // Hash of the window and every occurrence in it
+    @ColumnInfo(name = "count")
+    private final int mCount;     // Number of occurrences in the window
+
+    /**
+     * Creates a new high-water mark for a calendar.
+     *
+     * @param calendar ID of the calendar in the device's calendar provider
+     * @param digest Hash of the window and every occurrence in it
+     * @param count Number of occurrences in the window
+     */
+    public CalendarSyncState(long calendar, long digest, int count) {
+        mCalendar = calendar;
+        mDigest = digest;
+        mCount = count;
+    }
+
+    /**
+     * Get the ID of the calendar in the device's calendar provider.
+     *
+     * @return The calendar's ID
+     */
+    public long getCalendar() {
+        return mCalendar;
+    }
+
+    /**
+     * Get the hash of the window last synced and every occurrence in it.
+     *
+     * @return The digest
+     */
+    public long getDigest() {
+        return mDigest;
+    }
+
+    /**
+     * Get the number of occurrences in the window last synced.
+     *
+     * @return The number of occurrences
+     */
+    public int getCount() {
+        return mCount;
+    }
+}
@@ -0,0 +1,149 @@
+package com.evanv.taskapp.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+import androidx.room.TypeConverters;
+
+import com.evanv.taskapp.logic.Task;
+
+import org.threeten.bp.LocalDate;
+
+import java.util.ArrayList;
+
+/**
+ * A row of the completion_log, recording one task being completed. Rows are only ever appended;
+ * the totals statistics screens show are kept in the completion_stats table as rows are written,
+ * so they never need to scan the log.
+ *
+ * @author Evan Voogd
+ */
+@Entity(tableName = "completion_log", indices = {@Index("day")})
+@TypeConverters(Converters.class)
+public class Completion {
+    @PrimaryKey(autoGenerate = true)
+    @ColumnInfo(name = "id")
+    private long mID;                     // PrimaryKey for the log entry
+    @ColumnInfo(name = "task")
+    private final long mTask;             // ID of the task completed
+    @ColumnInfo(name = "project")
+    private final long mProject;          // ID of the task's project, or -1 for none
+    @NonNull
+    @ColumnInfo(name = "labels")
+    private final ArrayList<Long> mLabels; // IDs of the task's labels
+    @ColumnInfo(name = "estimated")
+    private final int mEstimated;         // Minutes the task was estimated to take
+    @ColumnInfo(name = "timed")
+    private final int mTimed;             // Minutes the timer ran for it, or -1 if not timed
+    @ColumnInfo(name = "day")
+    private final long mDay;              // Epoch day the task was completed
+
+    /**
+     * Creates a new log entry.
+     *
+     * @param task ID of the task completed
+     * @param project ID of the task's project, or -1 for none
+     * @param labels IDs of the task's labels
+     * @param estimated Minutes the task was estimated to take
+     * @param timed Minutes the timer ran for it, or -1 if it wasn't timed
+     * @param day Epoch day the task was completed
+     */
+    public Completion(long task, long project, @NonNull ArrayList<Long> labels, int estimated,
+                      int timed, long day) {
+        mTask = task;
+        mProject = project;
+        mLabels = labels;
+        mEstimated = estimated;
+        mTimed = timed;
+        mDay = day;
+    }
+
+    /**
+     * Creates the log entry for a task being completed.
+     *
+     * @param task The task that was completed
+     * @param timed Minutes the timer ran for it, or -1 if it wasn't timed
+     * @param completed The day it was completed
+     */
+    @Ignore
+    public Completion(Task task, int timed, LocalDate completed) {
+        this(task.getID(), task.getProjectID(), new ArrayList<>(task.getLabelIDs()),
+                task.getTimeToComplete(), timed, completed.toEpochDay());
+    }
+
+    /**
+     * Get the ID of the log entry.
+     *
+     * @return The ID of the row
+     */
+    public long getID() {
+        return mID;
+    }
+
+    /**
+     * Set the ID of the log entry. Only used by Room and when the row is inserted.
+     *
+     * @param id The ID of the row
+     */
+    public void setID(long id) {
+        mID = id;
+    }
+
+    /**
+     * Get the ID of the task completed.
+     *
+     * @return The task's ID
+     */
+    public long getTask() {
+        return mTask;
+    }
+
+    /**
+     * Get the ID of the task's project.
+     *
+     * @return The project's ID, or -1 for none
+     */
+    public long getProject() {
+        return mProject;
+    }
+
+    /**
+     * Get the IDs of the task's labels.
+     *
+     * @return The labels' IDs
+     */
+    @NonNull
+    public ArrayList<Long> getLabels() {
+        return mLabels;
+    }
+
+    /**
+     * Get the minutes the task was estimated to take.
+     *
+     * @return The estimate, in minutes
+     */
+    public int getEstimated() {
+        return mEstimated;
+    }
+
+    /**
+     * Get the minutes the timer ran for the task.
+     *
+     * @return The time, in minutes, or -1 if it wasn't timed
+     */
+    public int getTimed() {
+        return mTimed;
+    }
+
+    /**
+     * Get the epoch day the task was completed.
+     *
+     * @return The day, as LocalDate.toEpochDay()
+     */
+    public long getDay() {
+        return mDay;
+    }
+}
@@ -0,0 +1,84 @@
+package com.evanv.taskapp.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * Dao for the completion_log and the completion_stats totals kept alongside it.
+ *
+ * @author Evan Voogd
+ */
+@Dao
+public interface CompletionDao {
+    /**
+     * Append several entries to the completion_log. Call addStats with their rollUp in the same
+     * transaction so the totals stay in step with the log.
+     *
+     * @param completions The entries to append
+     * @return The ID of each new row, in the same order as completions
+     */
+    @Insert
+    List<Long> insertAll(List<Completion> completions);
+
+    /**
+     * Make sure a row of totals exists, starting it at zero if it doesn't.
+     *
+     * @param kind CompletionStats.DAY, PROJECT or LABEL
+     * @param key Epoch day, project ID or label ID
+     */
+    @Query("INSERT OR IGNORE INTO completion_stats (kind, `key`, completed, estimated, "
+            + "timed_completed, timed_estimated, timed) VALUES (:kind, :key, 0, 0, 0, 0, 0)")
+    void startStats(int kind, long key);
+
+    /**
+     * Add to a row of totals, which must already exist.
+     *
+     * @param kind CompletionStats.DAY, PROJECT or LABEL
+     * @param key Epoch day, project ID or label ID
+     * @param completed Number of tasks completed
+     * @param estimated Minutes those tasks were estimated to take
+     * @param timedCompleted Number of those tasks that were timed
+     * @param timedEstimated Minutes the timed tasks were estimated to take
+     * @param timed Minutes the timed tasks actually took
+     */
+    @Query("UPDATE completion_stats SET completed = completed + :completed, "
+            + "estimated = estimated + :estimated, "
+            + "timed_completed = timed_completed + :timedCompleted, "
+            + "timed_estimated = timed_estimated + :timedEstimated, timed = timed + :timed "
+            + "WHERE kind = :kind AND `key` = :key")
+    void addToStats(int kind, long key, long completed, long estimated, long timedCompleted,
+                    long timedEstimated, long timed);
+
+    /**
+     * Get the totals for every day, project or label.
+     *
+     * @param kind CompletionStats.DAY, PROJECT or LABEL
+     * @return A List of the rows of that kind
+     */
+    @Query("SELECT * FROM completion_stats WHERE kind = :kind ORDER BY `key` ASC")
+    List<CompletionStats> getStats(int kind);
+
+    /**
+     * Get the totals for each day between two days. Days nothing was completed on have no row.
+     *
+     * @param start The epoch day of the first day to get totals for
+     * @param end The epoch day of the last day to get totals for
+     * @return A List of the rows from start to end, inclusive, in order of day
+     */
+    @Query("SELECT * FROM completion_stats WHERE kind = 0 AND `key` BETWEEN :start AND :end "
+            + "ORDER BY `key` ASC")
+    List<CompletionStats> getDailyStats(long start, long end);
+
+    /**
+     * Get the entries of the completion_log between two days.
+     *
+     * @param start The epoch day of the first day to get entries for
+     * @param end The epoch day of the last day to get entries for
+     * @return A List of the entries from start to end, inclusive, in the order they were logged
+     */
+    @Query("SELECT * FROM completion_log WHERE day BETWEEN :start AND :end ORDER BY id ASC")
+    List<Completion> getLog(long start, long end);
+}
@@ -0,0 +1,170 @@
+package com.evanv.taskapp.db;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A row of the completion_stats table, the running totals of every completion for one day,
+ * project or label. Keyed by (kind, key), so the totals for a project or label are one lookup and
+ * the totals for a range of days are one range of the primary key, however long the log is.
+ *
+ * @author Evan Voogd
+ */
+@Entity(tableName = "completion_stats", primaryKeys = {"kind", "key"})
+public class CompletionStats {
+    public static final int DAY = 0;     // Totals for an epoch day
+    public static final int PROJECT = 1; // Totals for a project, -1 for tasks without one
+    public static final int LABEL = 2;   // Totals for a label
+
+    @ColumnInfo(name = "kind")
+    private final int mKind;         // DAY, PROJECT or LABEL
+    @ColumnInfo(name = "key")
+    private final long mKey;         // Epoch day, project ID or label ID
+    @ColumnInfo(name = "completed")
+    private long mCompleted;         // Number of tasks completed
+    @ColumnInfo(name = "estimated")
+    private long mEstimated;         // Minutes those tasks were estimated to take
+    @ColumnInfo(name = "timed_completed")
+    private long mTimedCompleted;    // Number of those tasks that were timed
+    @ColumnInfo(name = "timed_estimated")
+    private long mTimedEstimated;    // Minutes the timed tasks were estimated to take
+    @ColumnInfo(name = "timed")
+    private long mTimed;             // Minutes the timed tasks actually took
+
+    /**
+     * Creates a row of totals.
+     *
+     * @param kind DAY, PROJECT or LABEL
+     * @param key Epoch day, project ID or label ID
+     * @param completed Number of tasks completed
+     * @param estimated Minutes those tasks were estimated to take
+     * @param timedCompleted Number of those tasks that were timed
+     * @param timedEstimated Minutes the timed tasks were estimated to take
+     * @param timed Minutes the timed tasks actually took
+     */
+    public CompletionStats(int kind, long key, long completed, long estimated,
+                           long timedCompleted, long timedEstimated, long timed) {
+        mKind = kind;
+        mKey = key;
+        mCompleted = completed;
+        mEstimated = estimated;
+        mTimedCompleted = timedCompleted;
+        mTimedEstimated = timedEstimated;
+        mTimed = timed;
+    }
+
+    /**
+     * Total up a batch of completions into how much each day, project and label's row must grow.
+     *
+     * @param completions The completions being logged
+     *
+     * @return One row of amounts to add for each day, project and label the completions touch
+     */
+    static List<CompletionStats> rollUp(List<Completion> completions) {
+        Map<String, CompletionStats> deltas = new LinkedHashMap<>();
+
+        for (Completion c : completions) {
+            add(deltas, DAY, c.getDay(), c);
+            add(deltas, PROJECT, c.getProject(), c);
+            for (long label : c.getLabels()) {
+                add(deltas, LABEL, label, c);
+            }
+        }
+
+        return new ArrayList<>(deltas.values());
+    }
+
+    /**
+     * Add a completion to the amounts for one row.
+     *
+     * @param deltas The amounts for each row, by kind and key
+     * @param kind DAY, PROJECT or LABEL
+     * @param key Epoch day, project ID or label ID
+     * @param c The completion
+     */
+    private static void add(Map<String, CompletionStats> deltas, int kind, long key,
+                            Completion c) {
+        String id = kind + ":" + key;
+        CompletionStats delta = deltas.get(id);
+        if (delta == null) {
+            delta = new CompletionStats(kind, key, 0, 0, 0, 0, 0);
+            deltas.put(id, delta);
+        }
+
+        delta.mCompleted++;
+        delta.mEstimated += c.getEstimated();
+        if (c.getTimed() >= 0) {
+            delta.mTimedCompleted++;
+            delta.mTimedEstimated += c.getEstimated();
+            delta.mTimed += c.getTimed();
+        }
+    }
+
+    /**
+     * Get what the totals are for.
+     *
+     * @return DAY, PROJECT or LABEL
+     */
+    public int getKind() {
+        return mKind;
+    }
+
+    /**
+     * Get the day, project or label the totals are for.
+     *
+     * @return The epoch day, project ID or label ID
+     */
+    public long getKey() {
+        return mKey;
+    }
+
+    /**
+     * Get the number of tasks completed.
+     *
+     * @return The number of completions
+     */
+    public long getCompleted() {
+        return mCompleted;
+    }
+
+    /**
+     * Get the minutes the completed tasks were estimated to take.
+     *
+     * @return The total estimate, in minutes
+     */
+    public long getEstimated() {
+        return mEstimated;
+    }
+
+    /**
+     * Get the number of completed tasks that were timed.
+     *
+     * @return The number of timed completions
+     */
+    public long getTimedCompleted() {
+        return mTimedCompleted;
+    }
+
+    /**
+     * Get the minutes the timed tasks were estimated to take, to compare against getTimed.
+     *
+     * @return The total estimate of the timed tasks, in minutes
+     */
+    public long getTimedEstimated() {
+        return mTimedEstimated;
+    }
+
+    /**
+     * Get the minutes the timed tasks actually took.
+     *
+     * @return The total timed, in minutes
+     */
+    public long getTimed() {
+        return mTimed;
+    }
+}
@@ -2,6 +2,8 @@ package com.evanv.taskapp.db;
 
 import androidx.room.TypeConverter;
 
+import com.evanv.taskapp.logic.RecurrenceRule;
+
 import org.threeten.bp.LocalDate;
 
 import org.threeten.bp.LocalDateTime;
@@ -105,4 +107,26 @@ public class Converters {
 
         return sb.toString();
     }
+
+    /**
+     * Convert a String to a RecurrenceRule, useful for storing the rule of a recurring series.
+     *
+     * @param value The String form of the rule, from RecurrenceRule.toString()
+     * @return The RecurrenceRule
+     */
+    @TypeConverter
+    public static RecurrenceRule toRecurrenceRule(String value) {
+        return RecurrenceRule.parse(value);
+    }
+
+    /**
+     * Convert a RecurrenceRule to a String, useful for storing the rule of a recurring series.
+     *
+     * @param rule The rule to convert
+     * @return The String form of the rule
+     */
+    @TypeConverter
+    public static String fromRecurrenceRule(RecurrenceRule rule) {
+        return rule.toString();
+    }
 }
@@ -0,0 +1,199 @@
+package com.evanv.taskapp.db;
+
+import com.evanv.taskapp.logic.Event;
+import com.evanv.taskapp.logic.Label;
+import com.evanv.taskapp.logic.Project;
+import com.evanv.taskapp.logic.Task;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Loads every task, event, project and label at startup, with each table's query submitted to an
+ * executor so they can run at the same time. Each getter only waits on its own table, so the
+ * LogicSubsystem can wire projects and labels into the tasks while events are still loading.
+ * Tasks also wait on the task_dependency and task_label tables, which hold their parents and
+ * labels. Overdue tasks are read by their own query on the doDate index, so the LogicSubsystem
+ * gets them without checking every task's date.
+ *
+ * @author Evan Voogd
+ */
+class EntityLoader {
+    private final Future<List<Task>> mOverdueRows; // Tasks scheduled before today, without links
+    private final Future<List<Task>> mTaskRows;    // Tasks scheduled from today on, without links
+    private final Future<List<TaskDependency>> mDependencies; // Every row of task_dependency
+    private final Future<List<TaskLabel>> mTaskLabels;        // Every row of task_label
+    private List<Task> mTasks;                     // Every task with its parents and labels
+    private List<Task> mOverdue;                   // The overdue tasks in mTasks
+    private final Future<List<Event>> mEvents;     // Every event from today on
+    private final Future<List<Project>> mProjects; // Every project in the project_table
+    private final Future<List<Label>> mLabels;     // Every label in the label_table
+
+    /**
+     * Starts loading every table. Events are submitted last, as they're needed last.
+     *
+     * @param taskDao Dao for the task table
+     * @param eventDao Dao for the event table
+     * @param projectDao Dao for the project table
+     * @param labelDao Dao for the label table
+     * @param dependencyDao Dao for the task_dependency table
+     * @param taskLabelDao Dao for the task_label table
+     * @param today Epoch day of today's date. Tasks scheduled before it are overdue.
+     * @param eventsFrom Epoch second of the start of today. Events before it are in the past,
+     *                   so aren't loaded.
+     * @param executor Runs the queries. A pool with a thread per table loads them all at once,
+     *                 while running them on the calling thread loads them one after another.
+     */
+    EntityLoader(TaskDao taskDao, EventDao eventDao, ProjectDao projectDao, LabelDao labelDao,
+                 TaskDependencyDao dependencyDao, TaskLabelDao taskLabelDao, long today,
+                 long eventsFrom, Executor executor) {
+        mOverdueRows = submit(executor, () -> taskDao.getOverdueTasks(today));
+        mTaskRows = submit(executor, () -> taskDao.getTasksFrom(today));
+        mDependencies = submit(executor, dependencyDao::getDependencies);
+        mTaskLabels = submit(executor, taskLabelDao::getTaskLabels);
+        mProjects = submit(executor, projectDao::getProjects);
+        mLabels = submit(executor, labelDao::getLabels);
+        mEvents = submit(executor, () -> eventDao.getEventsFrom(eventsFrom));
+    }
+
+    /**
+     * Get every task, waiting for them to load if they haven't.
+     *
+     * @return a list of all tasks, or null if loading was interrupted
+     */
+    synchronized List<Task> getTasks() {
+        if (mTasks == null) {
+            List<Task> overdue = await(mOverdueRows);
+            List<Task> current = await(mTaskRows);
+            List<TaskDependency> dependencies = await(mDependencies);
+            List<TaskLabel> taskLabels = await(mTaskLabels);
+
+            if (overdue == null || current == null || dependencies == null
+                    || taskLabels == null) {
+                return null;
+            }
+
+            List<Task> tasks = new ArrayList<>(overdue.size() + current.size());
+            tasks.addAll(overdue);
+            tasks.addAll(current);
+
+            attachLinks(tasks, dependencies, taskLabels);
+            mOverdue = overdue;
+            mTasks = tasks;
+        }
+
+        return mTasks;
+    }
+
+    /**
+     * Get the tasks scheduled before today, waiting for every task to load if they haven't. They
+     * are the same objects as in getTasks.
+     *
+     * @return a list of the overdue tasks, or null if loading was interrupted
+     */
+    synchronized List<Task> getOverdueTasks() {
+        return getTasks() == null ? null : mOverdue;
+    }
+
+    /**
+     * Get every event from today on, waiting for them to load if they haven't.
+     *
+     * @return a list of all events not in the past, or null if loading was interrupted
+     */
+    List<Event> getEvents() {
+        return await(mEvents);
+    }
+
+    /**
+     * Get every project, waiting for them to load if they haven't.
+     *
+     * @return a list of all projects, or null if loading was interrupted
+     */
+    List<Project> getProjects() {
+        return await(mProjects);
+    }
+
+    /**
+     * Get every label, waiting for them to load if they haven't.
+     *
+     * @return a list of all labels, or null if loading was interrupted
+     */
+    List<Label> getLabels() {
+        return await(mLabels);
+    }
+
+    /**
+     * Give tasks read from the task_table their parent and label IDs. Rows for tasks that aren't
+     * in the list are skipped, so the rows can be for more tasks than were read.
+     *
+     * @param tasks The tasks to give links to
+     * @param dependencies Rows of task_dependency
+     * @param taskLabels Rows of task_label
+     */
+    static void attachLinks(List<Task> tasks, List<TaskDependency> dependencies,
+                            List<TaskLabel> taskLabels) {
+        HashMap<Long, Task> byID = new HashMap<>();
+        for (Task t : tasks) {
+            byID.put(t.getID(), t);
+        }
+
+        for (TaskDependency dependency : dependencies) {
+            Task child = byID.get(dependency.getChild());
+
+            if (child != null) {
+                child.getParentArr().add(dependency.getParent());
+            }
+        }
+
+        for (TaskLabel taskLabel : taskLabels) {
+            Task task = byID.get(taskLabel.getTask());
+
+            if (task != null) {
+                task.getLabelIDs().add(taskLabel.getLabel());
+            }
+        }
+    }
+
+    /**
+     * Run a query on an executor.
+     *
+     * @param executor The executor to run the query on
+     * @param query The query to run
+     * @param <T> The type of the query's result
+     *
+     * @return The future result of the query
+     */
+    private static <T> Future<T> submit(Executor executor, Callable<T> query) {
+        FutureTask<T> toReturn = new FutureTask<>(query);
+        executor.execute(toReturn);
+
+        return toReturn;
+    }
+
+    /**
+     * Wait for a query to finish.
+     *
+     * @param future The future result of the query
+     * @param <T> The type of the query's result
+     *
+     * @return The result of the query, or null if the wait was interrupted
+     */
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            // A failed query would have thrown on the calling thread when loading serially
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
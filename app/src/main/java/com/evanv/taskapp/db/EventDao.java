@@ -19,30 +19,29 @@ import java.util.List;
 public interface EventDao {
 
     /**
-     * Insert an event into the event_table
+     * Insert several events into the event_table at once.
      *
-     * @param event The event to be added
-     * @return The ID of the event to be added
+     * @param events The events to insert
+     * @return The ID of each new row, in the same order as events
      */
     @Insert
-    long insert(Event event);
+    List<Long> insertAll(List<Event> events);
 
     /**
-     * Update an event in the event_table. As long as the ID is the same, any other field can be
-     * changed
+     * Update several events in the event_table, matching each by its ID.
      *
-     * @param event The updated event
+     * @param events The events to update
      */
     @Update
-    void update(Event event);
+    void updateAll(List<Event> events);
 
     /**
-     * Delete an event in the event_table
+     * Delete several events from the event_table.
      *
-     * @param event The event to be deleted
+     * @param events The events to delete
      */
     @Delete
-    void deleteEvent(Event event);
+    void deleteAll(List<Event> events);
 
     /**
      * Get a List of Events in the event_table
@@ -51,4 +50,35 @@ public interface EventDao {
      */
     @Query("SELECT * from event_table ORDER BY do_date ASC")
     List<Event> getEvents();
+
+    /**
+     * Get the events starting between two times. Times are stored as epoch seconds in UTC, so
+     * the bounds are too.
+     *
+     * @param start The epoch second of the earliest start time to get events for
+     * @param end The epoch second the events must start before
+     * @return A List of Events starting in [start, end), in order of start time
+     */
+    @Query("SELECT * from event_table WHERE do_date >= :start AND do_date < :end " +
+            "ORDER BY do_date ASC")
+    List<Event> getEventsBetween(long start, long end);
+
+    /**
+     * Get the events starting at or after a time, skipping every event in the past.
+     *
+     * @param start The epoch second of the earliest start time to get events for
+     * @return A List of Events starting at or after start, in order of start time
+     */
+    @Query("SELECT * from event_table WHERE do_date >= :start ORDER BY do_date ASC")
+    List<Event> getEventsFrom(long start);
+
+    /**
+     * Get a page of events in order of ID, for reading every event without holding them all.
+     *
+     * @param after The ID the events must be past
+     * @param count The most events to get
+     * @return A List of the next count events with IDs past after, in order of ID
+     */
+    @Query("SELECT * from event_table WHERE id > :after ORDER BY id ASC LIMIT :count")
+    List<Event> getEventsAfter(long after, int count);
 }
@@ -0,0 +1,122 @@
+package com.evanv.taskapp.db;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Hands out IDs for new rows in-process, so an item has its final ID as soon as it's created
+ * instead of after its insert reaches the database. IDs are reserved a block at a time: the end of
+ * each block is written to the id_block table as a high-water mark before any ID from it can be
+ * committed, so IDs are never reused, even if the app is killed with writes still queued.
+ *
+ * @author Evan Voogd
+ */
+class IdAllocator {
+    static final String TASKS = "task_table";       // Key for task IDs
+    static final String EVENTS = "event_table";     // Key for event IDs
+    static final String PROJECTS = "project_table"; // Key for project IDs
+    static final String LABELS = "label_table";     // Key for label IDs
+    static final String SERIES = "series_table";    // Key for series IDs
+    private static final long BLOCK_SIZE = 256;     // Number of IDs reserved at once
+
+    private final IdBlockDao mDao;             // Reads the high-water marks
+    private final Reserver mReserver;          // Writes a new high-water mark
+    private final HashMap<String, long[]> mRanges = new HashMap<>(); // {next, end} per table
+    private boolean mLoaded;                   // Have the high-water marks been read
+
+    /**
+     * Writes the high-water mark of a newly reserved block. The write must be committed no
+     * later than any row using an ID from the block.
+     */
+    interface Reserver {
+        /**
+         * Write a new high-water mark.
+         *
+         * @param block The table and the end of its new block
+         */
+        void reserve(IdBlock block);
+    }
+
+    /**
+     * Creates an allocator. Doesn't touch the database until load or next is called.
+     *
+     * @param dao Dao for the id_block table
+     * @param reserver Writes the high-water mark of each block reserved
+     */
+    IdAllocator(IdBlockDao dao, Reserver reserver) {
+        mDao = dao;
+        mReserver = reserver;
+    }
+
+    /**
+     * Read where each table's IDs left off. Blocks, so must not be called from the UI thread.
+     * Does nothing if they've already been read.
+     */
+    synchronized void load() {
+        if (mLoaded) {
+            return;
+        }
+
+        // Rows inserted before blocks were used, or after a destructive migration, may be past
+        // the stored mark, so start past both
+        read(mDao.getUsedIDs());
+        read(mDao.getBlocks());
+        mLoaded = true;
+    }
+
+    /**
+     * Move each table's next ID past the rows now in it, for after rows were written with IDs
+     * that didn't come from the allocator, e.g. by restoring a backup. Blocks, so must not be
+     * called from the UI thread.
+     */
+    synchronized void advance() {
+        load();
+        read(mDao.getUsedIDs());
+    }
+
+    /**
+     * Get a new ID for a row of a table, reserving another block if the current one is used up.
+     * Only touches the database if load hasn't been called yet.
+     *
+     * @param table The table the ID is for, e.g. TASKS
+     *
+     * @return A positive ID never handed out before for the table
+     */
+    synchronized long next(String table) {
+        load();
+
+        long[] range = mRanges.get(table);
+        if (range == null) {
+            range = new long[] {1, 1};
+            mRanges.put(table, range);
+        }
+
+        if (range[0] >= range[1]) {
+            range[1] = range[0] + BLOCK_SIZE;
+            mReserver.reserve(new IdBlock(table, range[1]));
+        }
+
+        return range[0]++;
+    }
+
+    /**
+     * Move each table's next ID up to at least its high-water mark. Nothing is reserved, so the
+     * first next call for each table reserves a block.
+     *
+     * @param blocks The high-water mark of each table
+     */
+    private void read(List<IdBlock> blocks) {
+        for (IdBlock block : blocks) {
+            long[] range = mRanges.get(block.getName());
+
+            if (range == null) {
+                mRanges.put(block.getName(), new long[] {block.getHighWater(),
+                        block.getHighWater()});
+            }
+            else if (block.getHighWater() > range[0]) {
+                range[0] = block.getHighWater();
+                range[1] = block.getHighWater();
+            }
+        }
+    }
+}
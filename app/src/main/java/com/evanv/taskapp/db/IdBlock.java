@@ -0,0 +1,52 @@
+package com.evanv.taskapp.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * A row of the id_block table, recording how far IdAllocator has handed out IDs for one table.
+ * Every ID below the high-water mark may be in use, so after a restart IDs start from it.
+ *
+ * @author Evan Voogd
+ */
+@Entity(tableName = "id_block")
+public class IdBlock {
+    @PrimaryKey
+    @NonNull
+    @ColumnInfo(name = "name")
+    private final String mName;     // Name of the table the IDs are for
+    @ColumnInfo(name = "high_water")
+    private final long mHighWater;  // Every ID handed out is below this
+
+    /**
+     * Creates a new high-water mark.
+     *
+     * @param name Name of the table the IDs are for
+     * @param highWater Every ID handed out is below this
+     */
+    public IdBlock(@NonNull String name, long highWater) {
+        mName = name;
+        mHighWater = highWater;
+    }
+
+    /**
+     * Get the name of the table the IDs are for.
+     *
+     * @return The name of the table
+     */
+    @NonNull
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Get the high-water mark, which every ID handed out is below.
+     *
+     * @return The high-water mark
+     */
+    public long getHighWater() {
+        return mHighWater;
+    }
+}
@@ -0,0 +1,45 @@
+package com.evanv.taskapp.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+/**
+ * Dao for IdBlocks, defines queries used for interfacing with the id_block table.
+ *
+ * @author Evan Voogd
+ */
+@Dao
+public interface IdBlockDao {
+    /**
+     * Write several high-water marks, replacing the old mark for each table.
+     *
+     * @param blocks The new high-water marks
+     */
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertAll(List<IdBlock> blocks);
+
+    /**
+     * Get the high-water mark of every table that has one.
+     *
+     * @return A list of every row in the id_block table
+     */
+    @Query("SELECT * FROM id_block")
+    List<IdBlock> getBlocks();
+
+    /**
+     * Get one past the largest ID in each table, as a high-water mark for tables written before
+     * IDs were allocated in blocks.
+     *
+     * @return A list with the high-water mark implied by the rows of each table
+     */
+    @Query("SELECT 'task_table' AS name, IFNULL(MAX(id), 0) + 1 AS high_water FROM task_table "
+            + "UNION ALL SELECT 'event_table', IFNULL(MAX(id), 0) + 1 FROM event_table "
+            + "UNION ALL SELECT 'project_table', IFNULL(MAX(id), 0) + 1 FROM project_table "
+            + "UNION ALL SELECT 'label_table', IFNULL(MAX(id), 0) + 1 FROM label_table "
+            + "UNION ALL SELECT 'series_table', IFNULL(MAX(id), 0) + 1 FROM series_table")
+    List<IdBlock> getUsedIDs();
+}
@@ -0,0 +1,113 @@
+package com.evanv.taskapp.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+
+/**
+ * A row of the imported_event table, linking an event read from another calendar to the event or
+ * series it was added as. Keyed by (source, uid) so importing the same file again skips the
+ * events already added, rather than adding them twice. Events mirrored from the device's calendars
+ * also keep a version, so an occurrence is only rewritten when it changes.
+ *
+ * @author Evan Voogd
+ */
+@Entity(tableName = "imported_event", primaryKeys = {"source", "uid"})
+public class ImportedEvent {
+    public static final String ICS = "ics"; // Source of events imported from iCalendar files
+    // Prefix of the source of events mirrored from a device calendar, followed by its ID
+    public static final String CALENDAR = "calendar:";
+
+    @NonNull
+    @ColumnInfo(name = "source")
+    private final String mSource;  // Where the event came from, e.g. ICS
+    @NonNull
+    @ColumnInfo(name = "uid")
+    private final String mUID;     // The event's UID in its source
+    @ColumnInfo(name = "item_id")
+    private final long mItemID;    // ID of the Event or Series it was added as
+    @ColumnInfo(name = "is_series")
+    private final boolean mSeries; // Is item_id the ID of a Series rather than an Event
+    @ColumnInfo(name = "version", defaultValue = "0")
+    private final long mVersion;   // Hash of the event as it was last read, 0 if never re-read
+
+    /**
+     * Creates a new link between an imported event and the event or series it was added as.
+     *
+     * @param source Where the event came from, e.g. ICS
+     * @param uid The event's UID in its source
+     * @param itemID ID of the Event or Series it was added as
+     * @param series Is itemID the ID of a Series rather than an Event
+     * @param version Hash of the event as it was last read, 0 if it's never re-read
+     */
+    public ImportedEvent(@NonNull String source, @NonNull String uid, long itemID,
+                         boolean series, long version) {
+        mSource = source;
+        mUID = uid;
+        mItemID = itemID;
+        mSeries = series;
+        mVersion = version;
+    }
+
+    /**
+     * Creates a new link for an event that's imported once and never re-read.
+     *
+     * @param source Where the event came from, e.g. ICS
+     * @param uid The event's UID in its source
+     * @param itemID ID of the Event or Series it was added as
+     * @param series Is itemID the ID of a Series rather than an Event
+     */
+    @Ignore
+    public ImportedEvent(@NonNull String source, @NonNull String uid, long itemID,
+                         boolean series) {
+        this(source, uid, itemID, series, 0);
+    }
+
+    /**
+     * Get where the event came from.
+     *
+     * @return The source, e.g. ICS
+     */
+    @NonNull
+    public String getSource() {
+        return mSource;
+    }
+
+    /**
+     * Get the event's UID in its source.
+     *
+     * @return The UID
+     */
+    @NonNull
+    public String getUID() {
+        return mUID;
+    }
+
+    /**
+     * Get the ID of the Event or Series the event was added as.
+     *
+     * @return The ID
+     */
+    public long getItemID() {
+        return mItemID;
+    }
+
+    /**
+     * Get whether the event was added as a Series rather than an Event.
+     *
+     * @return true if getItemID is the ID of a Series
+     */
+    public boolean isSeries() {
+        return mSeries;
+    }
+
+    /**
+     * Get the hash of the event as it was last read.
+     *
+     * @return The version, 0 if the event is never re-read
+     */
+    public long getVersion() {
+        return mVersion;
+    }
+}
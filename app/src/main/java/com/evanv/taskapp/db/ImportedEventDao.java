@@ -0,0 +1,77 @@
+package com.evanv.taskapp.db;
+
+import androidx.room.Dao;
+import androidx.room.Delete;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Update;
+
+import java.util.List;
+
+/**
+ * Dao for ImportedEvents, defines queries used for interfacing with the imported_event table.
+ *
+ * @author Evan Voogd
+ */
+@Dao
+public interface ImportedEventDao {
+    /**
+     * Insert several links into the imported_event table. Links for a UID that's already there
+     * are skipped.
+     *
+     * @param events The links to be added
+     * @return The rowid of each new row, or -1 for links that were skipped
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    List<Long> insertAll(List<ImportedEvent> events);
+
+    /**
+     * Find which of some UIDs have already been imported from a source. SQLite limits the number
+     * of parameters, so pass at most a few hundred UIDs at a time.
+     *
+     * @param source Where the events came from, e.g. ImportedEvent.ICS
+     * @param uids The UIDs to look for
+     * @return The UIDs in uids that have been imported from source
+     */
+    @Query("SELECT uid FROM imported_event WHERE source = :source AND uid IN (:uids)")
+    List<String> getImported(String source, List<String> uids);
+
+    /**
+     * Get every link for events from a source, e.g. to compare against what the source has now.
+     *
+     * @param source Where the events came from, e.g. ImportedEvent.CALENDAR + 3
+     * @return Every link from source
+     */
+    @Query("SELECT * FROM imported_event WHERE source = :source")
+    List<ImportedEvent> getAll(String source);
+
+    /**
+     * Get a page of links in order of source then UID, for reading every link without holding
+     * them all.
+     *
+     * @param source The source the links must be at or past
+     * @param uid The UID the links must be past, if their source is source
+     * @param count The most links to get
+     * @return The next count links past (source, uid), in order of source then UID
+     */
+    @Query("SELECT * FROM imported_event WHERE source > :source OR (source = :source AND "
+            + "uid > :uid) ORDER BY source ASC, uid ASC LIMIT :count")
+    List<ImportedEvent> getAfter(String source, String uid, int count);
+
+    /**
+     * Update the versions of several links, e.g. because the events they point to were rewritten.
+     *
+     * @param events The links to update
+     */
+    @Update
+    void updateAll(List<ImportedEvent> events);
+
+    /**
+     * Delete several links, e.g. because the events were removed from their source.
+     *
+     * @param events The links to delete
+     */
+    @Delete
+    void deleteAll(List<ImportedEvent> events);
+}
@@ -17,32 +17,31 @@ import java.util.List;
  */
 @Dao
 public interface LabelDao {
+
     /**
-     * Insert a label into the label_table
-     *
-     * @param label The label to be added
+     * Insert several labels into the label_table at once.
      *
-     * @return The ID of the label to be added
+     * @param labels The labels to insert
+     * @return The ID of each new row, in the same order as labels
      */
     @Insert
-    long insert(Label label);
+    List<Long> insertAll(List<Label> labels);
 
     /**
-     * Update a Label in the label_table. As long as the ID is the same, any other field can be
-     * changed
+     * Update several labels in the label_table, matching each by its ID.
      *
-     * @param label The updated event
+     * @param labels The labels to update
      */
     @Update
-    void update(Label label);
+    void updateAll(List<Label> labels);
 
     /**
-     * Delete a label in the label_table
+     * Delete several labels from the label_table.
      *
-     * @param label The Label to be deleted
+     * @param labels The labels to delete
      */
     @Delete
-    void delete(Label label);
+    void deleteAll(List<Label> labels);
 
     /**
      * Get a List of Labels in the label_table
@@ -0,0 +1,533 @@
+package com.evanv.taskapp.db;
+
+import com.evanv.taskapp.logic.Event;
+import com.evanv.taskapp.logic.Label;
+import com.evanv.taskapp.logic.Project;
+import com.evanv.taskapp.logic.Task;
+
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneOffset;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary copy of every task, event, project and label, so warm starts can skip building
+ * the model from Room rows (including parsing each task's parents and labels from their CSV
+ * columns). Fields are stored as one array per field, parents and labels as CSR lists (an offset
+ * array and one flat array of IDs), and tasks in the order of the last optimized schedule so
+ * they're bucketed into days in order. Strings share one UTF-8 table.
+ *
+ * The file is memory mapped when read. Its header holds a stamp, normally the database's schema
+ * version, and the snapshot is only used if the stamp matches. The repository deletes the
+ * snapshot before any write reaches the database, so a snapshot on disk is never older than the
+ * database; anything unexpected in the file makes read return null so the caller can fall back
+ * to a full load.
+ *
+ * @author Evan Voogd
+ */
+public class ModelSnapshot {
+    private static final int MAGIC = 0x54534e50;   // "TSNP", first and last int of every snapshot
+    private static final int FORMAT_VERSION = 1;   // Bumped whenever the layout changes
+    private static final int HEADER_BYTES = 16;    // Magic, format, stamp and payload length
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final List<Task> mTasks;       // Every task, in schedule order
+    private final List<Event> mEvents;     // Every event, in order of start time
+    private final List<Project> mProjects; // Every project
+    private final List<Label> mLabels;     // Every label
+
+    /**
+     * Creates a snapshot from decoded lists.
+     *
+     * @param tasks Every task
+     * @param events Every event
+     * @param projects Every project
+     * @param labels Every label
+     */
+    private ModelSnapshot(List<Task> tasks, List<Event> events, List<Project> projects,
+                          List<Label> labels) {
+        mTasks = tasks;
+        mEvents = events;
+        mProjects = projects;
+        mLabels = labels;
+    }
+
+    /**
+     * Get every task in the snapshot.
+     *
+     * @return a list of all tasks, in the order they're scheduled
+     */
+    public List<Task> getTasks() {
+        return mTasks;
+    }
+
+    /**
+     * Get every event in the snapshot.
+     *
+     * @return a list of all events
+     */
+    public List<Event> getEvents() {
+        return mEvents;
+    }
+
+    /**
+     * Get every project in the snapshot.
+     *
+     * @return a list of all projects
+     */
+    public List<Project> getProjects() {
+        return mProjects;
+    }
+
+    /**
+     * Get every label in the snapshot.
+     *
+     * @return a list of all labels
+     */
+    public List<Label> getLabels() {
+        return mLabels;
+    }
+
+    /**
+     * Encode the model into a snapshot. Only reads the persisted fields, so must be called on the
+     * thread that changes the model, but the result can be written from any thread.
+     *
+     * @param stamp Stamp a snapshot must match to be read back
+     * @param tasks Every task
+     * @param events Every event
+     * @param projects Every project
+     * @param labels Every label
+     *
+     * @return The encoded snapshot
+     */
+    public static byte[] encode(int stamp, List<Task> tasks, List<Event> events,
+                                List<Project> projects, List<Label> labels) {
+        // Tasks in schedule order, so reading them back fills each day's bucket in order
+        List<Task> sorted = new ArrayList<>(tasks);
+        Collections.sort(sorted, (t1, t2) -> t1.getDoDate().compareTo(t2.getDoDate()));
+
+        StringTable strings = new StringTable();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try {
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            // Intern every string first so the table can be written ahead of the tables using it
+            int[] projectNames = new int[projects.size()];
+            int[] projectGoals = new int[projects.size()];
+            for (int i = 0; i < projects.size(); i++) {
+                projectNames[i] = strings.add(projects.get(i).getName());
+                projectGoals[i] = strings.add(projects.get(i).getGoal());
+            }
+            int[] labelNames = new int[labels.size()];
+            for (int i = 0; i < labels.size(); i++) {
+                labelNames[i] = strings.add(labels.get(i).getName());
+            }
+            int[] taskNames = new int[sorted.size()];
+            for (int i = 0; i < sorted.size(); i++) {
+                taskNames[i] = strings.add(sorted.get(i).getName());
+            }
+            int[] eventNames = new int[events.size()];
+            for (int i = 0; i < events.size(); i++) {
+                eventNames[i] = strings.add(events.get(i).getName());
+            }
+
+            strings.write(out);
+
+            out.writeInt(projects.size());
+            for (Project p : projects) {
+                out.writeLong(p.getID());
+            }
+            writeInts(out, projectNames);
+            for (Project p : projects) {
+                out.writeInt(p.getColor());
+            }
+            writeInts(out, projectGoals);
+
+            out.writeInt(labels.size());
+            for (Label l : labels) {
+                out.writeLong(l.getID());
+            }
+            writeInts(out, labelNames);
+            for (Label l : labels) {
+                out.writeInt(l.getColor());
+            }
+
+            out.writeInt(sorted.size());
+            for (Task t : sorted) {
+                out.writeLong(t.getID());
+            }
+            writeInts(out, taskNames);
+            for (Task t : sorted) {
+                out.writeLong(t.getEarlyDate().toEpochDay());
+            }
+            for (Task t : sorted) {
+                out.writeLong(t.getDoDate().toEpochDay());
+            }
+            for (Task t : sorted) {
+                out.writeLong(t.getDueDate().toEpochDay());
+            }
+            for (Task t : sorted) {
+                out.writeInt(t.getTimeToComplete());
+            }
+            for (Task t : sorted) {
+                out.writeInt(t.getPriority());
+            }
+            for (Task t : sorted) {
+                out.writeLong(t.getProjectID());
+            }
+            writeCsr(out, sorted, true);
+            writeCsr(out, sorted, false);
+
+            out.writeInt(events.size());
+            for (Event e : events) {
+                out.writeLong(e.getID());
+            }
+            writeInts(out, eventNames);
+            for (Event e : events) {
+                out.writeLong(e.getDoDate().toEpochSecond(ZoneOffset.UTC));
+            }
+            for (Event e : events) {
+                out.writeInt(e.getLength());
+            }
+
+            out.writeInt(MAGIC);
+            out.flush();
+        } catch (IOException e) {
+            // Can't happen writing to memory
+            throw new IllegalStateException(e);
+        }
+
+        byte[] payload = bytes.toByteArray();
+        ByteBuffer toReturn = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        toReturn.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(stamp).putInt(payload.length);
+        toReturn.put(payload);
+
+        return toReturn.array();
+    }
+
+    /**
+     * Write an encoded snapshot to a temporary file next to where it'll go, so it can be moved
+     * into place in one step once it's known to still be current.
+     *
+     * @param encoded The encoded snapshot
+     * @param file Where the snapshot will go
+     *
+     * @return The temporary file, or null if it couldn't be written
+     */
+    public static File writeTemp(byte[] encoded, File file) {
+        File temp = new File(file.getPath() + ".tmp");
+
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(encoded);
+            out.getFD().sync();
+            return temp;
+        } catch (IOException e) {
+            e.printStackTrace();
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Read a snapshot, memory mapping the file.
+     *
+     * @param file The snapshot file
+     * @param stamp Stamp the snapshot must have been written with
+     *
+     * @return The snapshot, or null if there isn't one or it can't be used
+     */
+    public static ModelSnapshot read(File file, int stamp) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), stamp);
+        } catch (IOException | RuntimeException e) {
+            // Truncated or otherwise damaged, so load from the database instead
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Decode a snapshot.
+     *
+     * @param in The encoded snapshot
+     * @param stamp Stamp the snapshot must have been written with
+     *
+     * @return The snapshot, or null if it's a different format, has a different stamp or is
+     *         incomplete
+     */
+    static ModelSnapshot decode(ByteBuffer in, int stamp) {
+        if (in.remaining() < HEADER_BYTES || in.getInt() != MAGIC ||
+                in.getInt() != FORMAT_VERSION || in.getInt() != stamp ||
+                in.getInt() != in.remaining() || in.getInt(in.limit() - 4) != MAGIC) {
+            return null;
+        }
+
+        String[] strings = readStrings(in);
+
+        int numProjects = in.getInt();
+        long[] projectIDs = readLongs(in, numProjects);
+        int[] projectNames = readInts(in, numProjects);
+        int[] projectColors = readInts(in, numProjects);
+        int[] projectGoals = readInts(in, numProjects);
+
+        List<Project> projects = new ArrayList<>(numProjects);
+        for (int i = 0; i < numProjects; i++) {
+            Project p = new Project(strings[projectNames[i]], projectColors[i],
+                    string(strings, projectGoals[i]));
+            p.setID(projectIDs[i]);
+            projects.add(p);
+        }
+
+        int numLabels = in.getInt();
+        long[] labelIDs = readLongs(in, numLabels);
+        int[] labelNames = readInts(in, numLabels);
+        int[] labelColors = readInts(in, numLabels);
+
+        List<Label> labels = new ArrayList<>(numLabels);
+        for (int i = 0; i < numLabels; i++) {
+            Label l = new Label(strings[labelNames[i]], labelColors[i]);
+            l.setID(labelIDs[i]);
+            labels.add(l);
+        }
+
+        int numTasks = in.getInt();
+        long[] taskIDs = readLongs(in, numTasks);
+        int[] taskNames = readInts(in, numTasks);
+        long[] earlyDates = readLongs(in, numTasks);
+        long[] doDates = readLongs(in, numTasks);
+        long[] dueDates = readLongs(in, numTasks);
+        int[] ttcs = readInts(in, numTasks);
+        int[] priorities = readInts(in, numTasks);
+        long[] taskProjects = readLongs(in, numTasks);
+        int[] parentStarts = readInts(in, numTasks + 1);
+        long[] parents = readLongs(in, parentStarts[numTasks]);
+        int[] labelStarts = readInts(in, numTasks + 1);
+        long[] taskLabels = readLongs(in, labelStarts[numTasks]);
+
+        List<Task> tasks = new ArrayList<>(numTasks);
+        for (int i = 0; i < numTasks; i++) {
+            Task t = new Task(strings[taskNames[i]], LocalDate.ofEpochDay(earlyDates[i]),
+                    LocalDate.ofEpochDay(dueDates[i]), LocalDate.ofEpochDay(doDates[i]), ttcs[i],
+                    slice(parents, parentStarts[i], parentStarts[i + 1]), priorities[i],
+                    taskProjects[i], slice(taskLabels, labelStarts[i], labelStarts[i + 1]));
+            t.setID(taskIDs[i]);
+            tasks.add(t);
+        }
+
+        int numEvents = in.getInt();
+        long[] eventIDs = readLongs(in, numEvents);
+        int[] eventNames = readInts(in, numEvents);
+        long[] eventStarts = readLongs(in, numEvents);
+        int[] eventLengths = readInts(in, numEvents);
+
+        List<Event> events = new ArrayList<>(numEvents);
+        for (int i = 0; i < numEvents; i++) {
+            Event e = new Event(strings[eventNames[i]], eventLengths[i],
+                    LocalDateTime.ofEpochSecond(eventStarts[i], 0, ZoneOffset.UTC));
+            e.setID(eventIDs[i]);
+            events.add(e);
+        }
+
+        // Everything was read and nothing more is left, so the snapshot wasn't cut short
+        if (in.getInt() != MAGIC || in.hasRemaining()) {
+            return null;
+        }
+
+        return new ModelSnapshot(tasks, events, projects, labels);
+    }
+
+    /**
+     * Write a CSR list of each task's parent or label IDs: an offset for each task plus one past
+     * the end, then every ID.
+     *
+     * @param out Where to write
+     * @param tasks The tasks, in the order they're written
+     * @param parents true to write parent IDs, false to write label IDs
+     *
+     * @throws IOException If out can't be written to
+     */
+    private static void writeCsr(DataOutputStream out, List<Task> tasks, boolean parents)
+            throws IOException {
+        int offset = 0;
+        out.writeInt(offset);
+        for (Task t : tasks) {
+            offset += (parents ? t.getParentArr() : t.getLabelIDs()).size();
+            out.writeInt(offset);
+        }
+
+        for (Task t : tasks) {
+            for (long id : parents ? t.getParentArr() : t.getLabelIDs()) {
+                out.writeLong(id);
+            }
+        }
+    }
+
+    /**
+     * Write an array of ints.
+     *
+     * @param out Where to write
+     * @param values The ints to write
+     *
+     * @throws IOException If out can't be written to
+     */
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Read an array of ints in one bulk copy.
+     *
+     * @param in The buffer to read from
+     * @param count How many ints to read
+     *
+     * @return The ints
+     */
+    private static int[] readInts(ByteBuffer in, int count) {
+        int[] toReturn = new int[count];
+        in.asIntBuffer().get(toReturn);
+        in.position(in.position() + count * 4);
+
+        return toReturn;
+    }
+
+    /**
+     * Read an array of longs in one bulk copy.
+     *
+     * @param in The buffer to read from
+     * @param count How many longs to read
+     *
+     * @return The longs
+     */
+    private static long[] readLongs(ByteBuffer in, int count) {
+        long[] toReturn = new long[count];
+        in.asLongBuffer().get(toReturn);
+        in.position(in.position() + count * 8);
+
+        return toReturn;
+    }
+
+    /**
+     * Read the string table.
+     *
+     * @param in The buffer to read from
+     *
+     * @return Every string, by index
+     */
+    private static String[] readStrings(ByteBuffer in) {
+        int count = in.getInt();
+        int[] offsets = readInts(in, count + 1);
+        byte[] blob = new byte[offsets[count]];
+        in.get(blob);
+
+        String[] toReturn = new String[count];
+        for (int i = 0; i < count; i++) {
+            toReturn[i] = new String(blob, offsets[i], offsets[i + 1] - offsets[i], UTF_8);
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Look up a string that may be null.
+     *
+     * @param strings The string table
+     * @param index Index into the table, or -1 for null
+     *
+     * @return The string, or null if index is -1
+     */
+    private static String string(String[] strings, int index) {
+        return index == -1 ? null : strings[index];
+    }
+
+    /**
+     * Copy part of an array of IDs into a list.
+     *
+     * @param ids The array of IDs
+     * @param start First index to copy
+     * @param end Index after the last one to copy
+     *
+     * @return The IDs from start up to end
+     */
+    private static ArrayList<Long> slice(long[] ids, int start, int end) {
+        ArrayList<Long> toReturn = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            toReturn.add(ids[i]);
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Table of the strings in a snapshot, each stored once.
+     */
+    private static class StringTable {
+        private final Map<String, Integer> mIndices = new HashMap<>(); // Index of each string
+        private final ByteArrayOutputStream mBlob = new ByteArrayOutputStream(); // UTF-8 strings
+        private final List<Integer> mOffsets = new ArrayList<>(); // Start of each string in mBlob
+
+        /**
+         * Add a string to the table if it isn't already.
+         *
+         * @param s The string to add, or null
+         *
+         * @return The index of the string, or -1 if it's null
+         */
+        int add(String s) {
+            if (s == null) {
+                return -1;
+            }
+
+            Integer index = mIndices.get(s);
+            if (index == null) {
+                index = mOffsets.size();
+                mIndices.put(s, index);
+                mOffsets.add(mBlob.size());
+
+                byte[] bytes = s.getBytes(UTF_8);
+                mBlob.write(bytes, 0, bytes.length);
+            }
+
+            return index;
+        }
+
+        /**
+         * Write the table: the number of strings, the offset of each plus the end, then the
+         * bytes of every string.
+         *
+         * @param out Where to write
+         *
+         * @throws IOException If out can't be written to
+         */
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(mOffsets.size());
+            for (int offset : mOffsets) {
+                out.writeInt(offset);
+            }
+            out.writeInt(mBlob.size());
+            mBlob.writeTo(out);
+        }
+    }
+}
@@ -19,30 +19,29 @@ import java.util.List;
 public interface ProjectDao {
 
     /**
-     * Insert a project into the project_table
+     * Insert several projects into the project_table at once.
      *
-     * @param project The project to be added
-     * @return The ID of the project to be added
+     * @param projects The projects to insert
+     * @return The ID of each new row, in the same order as projects
      */
     @Insert
-    long insert(Project project);
+    List<Long> insertAll(List<Project> projects);
 
     /**
-     * Update a Project in the project_table. As long as the ID is the same, any other field can be
-     * changed
+     * Update several projects in the project_table, matching each by its ID.
      *
-     * @param project The updated event
+     * @param projects The projects to update
      */
     @Update
-    void update(Project project);
+    void updateAll(List<Project> projects);
 
     /**
-     * Delete a project in the project_table
+     * Delete several projects from the project_table.
      *
-     * @param project The Project to be deleted
+     * @param projects The projects to delete
      */
     @Delete
-    void deleteProject(Project project);
+    void deleteAll(List<Project> projects);
 
     /**
      * Get a List of Projects in the project_table
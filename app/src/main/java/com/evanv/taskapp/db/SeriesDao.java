@@ -0,0 +1,53 @@
+package com.evanv.taskapp.db;
+
+import androidx.room.Dao;
+import androidx.room.Delete;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Update;
+
+import com.evanv.taskapp.logic.Series;
+
+import java.util.List;
+
+/**
+ * Dao for Series, defines queries used for interfacing with the series_table
+ *
+ * @author Evan Voogd
+ */
+@Dao
+public interface SeriesDao {
+
+    /**
+     * Insert several series into the series_table at once.
+     *
+     * @param series The series to insert
+     * @return The ID of each new row, in the same order as series
+     */
+    @Insert
+    List<Long> insertAll(List<Series> series);
+
+    /**
+     * Update several series in the series_table, matching each by its ID.
+     *
+     * @param series The series to update
+     */
+    @Update
+    void updateAll(List<Series> series);
+
+    /**
+     * Delete several series from the series_table.
+     *
+     * @param series The series to delete
+     */
+    @Delete
+    void deleteAll(List<Series> series);
+
+    /**
+     * Get a List of every series in the series_table
+     *
+     * @return A list of every series in the series_table
+     */
+    @Query("SELECT * from series_table")
+    List<Series> getSeries();
+}
@@ -3,522 +3,1159 @@ package com.evanv.taskapp.db;
 import android.app.Application;
 
 import com.evanv.taskapp.logic.Event;
+import com.evanv.taskapp.logic.Identifiable;
 import com.evanv.taskapp.logic.Label;
 import com.evanv.taskapp.logic.Project;
+import com.evanv.taskapp.logic.Series;
 import com.evanv.taskapp.logic.Task;
 
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneOffset;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
- * Repository to interface with Room DB.
+ * Repository to interface with Room DB. Also keeps a ModelSnapshot of the model next to the
+ * database so warm starts can skip loading from Room. Every write goes through write, which
+ * deletes the snapshot before the database changes, so a snapshot on disk always matches the
+ * database, then hands it to a WriteQueue that commits writes in batched transactions.
  *
  * @author Evan Voogd
  */
 public class TaskAppRepository {
+    private static final int LOAD_THREADS = 6; // One thread per table loaded at startup
+    private static final int MAX_IDS = 400;    // IDs per IN (...), under SQLite's variable limit
+    private static final String SNAPSHOT_FILE = "model.snapshot"; // Name of the snapshot file
+    private static final long BACKUP_WAIT_MS = 10000; // Longest to wait for writes before a backup
+    // Tables a backup replaces, cleared before it's restored
+    private static final String[] BACKUP_TABLES = {"project_table", "label_table", "series_table",
+            "task_table", "event_table", "task_dependency", "task_label", "imported_event",
+            "calendar_sync"};
+    private final TaskAppRoomDatabase mDb;    // The database, for backups
     private final TaskDao mTaskDao;           // Dao for the task table
     private final EventDao mEventDao;         // Dao for the event table
     private final ProjectDao mProjectDao;     // Dao for the project table
     private final LabelDao mLabelDao;         // Dao for the label table
-    private final List<Task> mAllTasks;       // List of all tasks
-    private final List<Event> mAllEvents;     // List of all events
-    private final List<Project> mAllProjects; // List of all projects
-    private final List<Label> mAllLabels;     // List of all labels
+    private final SeriesDao mSeriesDao;       // Dao for the series table
+    private final TaskDependencyDao mDependencyDao; // Dao for the task_dependency table
+    private final TaskLabelDao mTaskLabelDao; // Dao for the task_label table
+    private final ArchiveDao mArchiveDao;     // Dao for the archive_table
+    private final CompletionDao mCompletionDao; // Dao for the completion_log and its totals
+    private final ImportedEventDao mImportedDao; // Dao for the imported_event table
+    private final CalendarSyncDao mSyncDao;   // Dao for the calendar_sync table
+    private final WriteQueue.Table<Task> mTasks;           // Writes to the task table
+    private final WriteQueue.Table<Event> mEvents;         // Writes to the event table
+    private final WriteQueue.Table<Project> mProjects;     // Writes to the project table
+    private final WriteQueue.Table<Label> mLabels;         // Writes to the label table
+    private final WriteQueue.Table<Series> mSeriesTable;   // Writes to the series table
+    private final WriteQueue.Table<IdBlock> mIdBlocks;     // Writes to the id_block table
+    private final WriteQueue.Table<ArchivedItem> mArchive; // Writes to the archive_table
+    private final WriteQueue.Table<Completion> mCompletions; // Appends to the completion_log
+    private final WriteQueue.Table<LocalDate> mPastEvents; // Archives events before a date
+    private final WriteQueue.Table<ImportedEvent> mImported; // Writes to the imported_event table
+    private final WriteQueue.Table<CalendarSyncState> mSyncStates; // Writes to calendar_sync
+    private final IdAllocator mIds;           // Gives new items their IDs
+    private final WriteQueue mQueue;          // Commits every write, in batches
+    private EntityLoader mLoader;             // Every task/event/project/label, once loaded
+    private ModelSnapshot mSnapshot;          // The model read from the snapshot, if it was used
+    private LocalDate mToday;                 // The date the model was loaded on
+    private final File mSnapshotFile;         // Where the snapshot is kept
+    private final Object mWriteLock = new Object(); // Guards the fields below
+    private long mGeneration;                 // Number of writes started
+    private boolean mSnapshotValid;           // Does the snapshot file match the database
+    private boolean mModelStale;              // Was a backup restored since the model loaded
+    private Runnable mIdleListener;           // Called when the write queue empties
 
     /**
-     * Constructs a new repository
+     * Constructs a new repository. Doesn't touch the database, so it's safe to call from the UI
+     * thread; call load before using the getAll methods.
      *
      * @param application The current application
      */
     TaskAppRepository(Application application) {
-        TaskAppRoomDatabase db = TaskAppRoomDatabase.getDatabase(application);
+        this(application, TaskAppRoomDatabase.getDatabase(application));
+    }
+
+    /**
+     * Constructs a new repository over a given database, e.g. an in-memory one for tests.
+     *
+     * @param application The current application
+     * @param db The database to read and write
+     */
+    TaskAppRepository(Application application, TaskAppRoomDatabase db) {
+        mDb = db;
         mTaskDao = db.taskDao();
         mEventDao = db.eventDao();
         mProjectDao = db.projectDao();
         mLabelDao = db.labelDao();
-        mAllTasks = mTaskDao.getTasks();
-        mAllEvents = mEventDao.getEvents();
-        mAllProjects = mProjectDao.getProjects();
-        mAllLabels = mLabelDao.getLabels();
+        mSeriesDao = db.seriesDao();
+        mDependencyDao = db.taskDependencyDao();
+        mTaskLabelDao = db.taskLabelDao();
+        mArchiveDao = db.archiveDao();
+        mCompletionDao = db.completionDao();
+        mImportedDao = db.importedEventDao();
+        mSyncDao = db.calendarSyncDao();
+        IdBlockDao idBlockDao = db.idBlockDao();
+
+        mTasks = new WriteQueue.Table<Task>() {
+            List<Long> insert(List<Task> items) { return mTaskDao.insertAll(items); }
+            void update(List<Task> items) { mTaskDao.updateAll(items); }
+            void delete(List<Task> items) { mTaskDao.deleteAll(items); }
+
+            void inserted(Task item, long id) { item.setID(id); }
+
+            void written(List<Task> items, int type) {
+                writeLinks(items, type);
+            }
+
+            // writeLinks took the flag, but the links it wrote were rolled back with the task
+            void rolledBack(Task item) { item.markLinksChanged(); }
+        };
+        mEvents = new WriteQueue.Table<Event>() {
+            List<Long> insert(List<Event> items) { return mEventDao.insertAll(items); }
+            void update(List<Event> items) { mEventDao.updateAll(items); }
+            void delete(List<Event> items) { mEventDao.deleteAll(items); }
+            void inserted(Event item, long id) { item.setID(id); }
+        };
+        mProjects = new WriteQueue.Table<Project>() {
+            List<Long> insert(List<Project> items) { return mProjectDao.insertAll(items); }
+            void update(List<Project> items) { mProjectDao.updateAll(items); }
+            void delete(List<Project> items) { mProjectDao.deleteAll(items); }
+
+            void inserted(Project item, long id) { item.setID(id); }
+        };
+        mLabels = new WriteQueue.Table<Label>() {
+            List<Long> insert(List<Label> items) { return mLabelDao.insertAll(items); }
+            void update(List<Label> items) { mLabelDao.updateAll(items); }
+            void delete(List<Label> items) { mLabelDao.deleteAll(items); }
+            void inserted(Label item, long id) { item.setID(id); }
+
+            void written(List<Label> items, int type) {
+                if (type == WriteQueue.DELETE) {
+                    for (List<Long> ids : chunkIDs(items)) {
+                        mTaskLabelDao.deleteTasksWith(ids);
+                    }
+                }
+            }
+        };
+        mSeriesTable = new WriteQueue.Table<Series>() {
+            List<Long> insert(List<Series> items) { return mSeriesDao.insertAll(items); }
+            void update(List<Series> items) { mSeriesDao.updateAll(items); }
+            void delete(List<Series> items) { mSeriesDao.deleteAll(items); }
+            void inserted(Series item, long id) { item.setID(id); }
+        };
+        mIdBlocks = new WriteQueue.Table<IdBlock>() {
+            // High-water marks are only ever replaced, which is queued as an update
+            void update(List<IdBlock> items) { idBlockDao.upsertAll(items); }
+        };
+
+        mArchive = new WriteQueue.Table<ArchivedItem>() {
+            List<Long> insert(List<ArchivedItem> items) { return mArchiveDao.insertAll(items); }
+            // Archive rows are never changed once written
+            void inserted(ArchivedItem item, long id) { item.setID(id); }
+        };
+        mCompletions = new WriteQueue.Table<Completion>() {
+            List<Long> insert(List<Completion> items) { return mCompletionDao.insertAll(items); }
+            // The log is append-only
+            void inserted(Completion item, long id) { item.setID(id); }
+
+            void written(List<Completion> items, int type) {
+                // Keep the totals in step with the log, in the same transaction
+                for (CompletionStats delta : CompletionStats.rollUp(items)) {
+                    mCompletionDao.startStats(delta.getKind(), delta.getKey());
+                    mCompletionDao.addToStats(delta.getKind(), delta.getKey(),
+                            delta.getCompleted(), delta.getEstimated(),
+                            delta.getTimedCompleted(), delta.getTimedEstimated(),
+                            delta.getTimed());
+                }
+            }
+        };
+        mPastEvents = new WriteQueue.Table<LocalDate>() {
+            // Archiving is queued as an update, so it runs in a batch after the day's inserts
+            void update(List<LocalDate> items) { archiveEvents(items); }
+        };
+        mImported = new WriteQueue.Table<ImportedEvent>() {
+            List<Long> insert(List<ImportedEvent> items) { return mImportedDao.insertAll(items); }
+            void update(List<ImportedEvent> items) { mImportedDao.updateAll(items); }
+            void delete(List<ImportedEvent> items) { mImportedDao.deleteAll(items); }
+        };
+        mSyncStates = new WriteQueue.Table<CalendarSyncState>() {
+            // High-water marks are only ever replaced, which is queued as an update
+            void update(List<CalendarSyncState> items) { mSyncDao.upsertAll(items); }
+            void delete(List<CalendarSyncState> items) { mSyncDao.deleteAll(items); }
+        };
+
+        mQueue = new WriteQueue(Arrays.asList(mIdBlocks, mProjects, mLabels, mTasks, mEvents,
+                mSeriesTable, mImported, mSyncStates, mArchive, mCompletions, mPastEvents),
+                db::runInTransaction, this::onQueueIdle);
+
+        // A block's high-water mark is queued before any row using its IDs, so it's committed in
+        // the same transaction or an earlier one
+        mIds = new IdAllocator(idBlockDao, block -> write(mIdBlocks, block, WriteQueue.UPDATE));
+
+        // Not backed up, as it could be restored without the database it matches
+        mSnapshotFile = new File(application.getNoBackupFilesDir(), SNAPSHOT_FILE);
     }
 
     /**
-     * Gets a list of all tasks upon start of app. LiveData not used due to race conditions inherent
-     * to app.
+     * Loads every task, event, project and label from the snapshot if it's current. If it isn't,
+     * starts loading them from the database instead, each on its own thread so the queries run on
+     * separate read connections at the same time, and returns right away; the getAll methods wait
+     * for their own table to finish loading. Either way, must not be called from the UI thread.
      *
-     * @return a list of all tasks
+     * @param today Today's date. Events before it are in the past, so aren't loaded.
      */
-    List<Task> getAllTasks() {
-        return mAllTasks;
+    void load(LocalDate today) {
+        mToday = today;
+
+        // Read where IDs left off now, so new items don't wait on the database for theirs
+        mIds.load();
+
+        ModelSnapshot snapshot = ModelSnapshot.read(mSnapshotFile, TaskAppRoomDatabase.VERSION);
+
+        synchronized (mWriteLock) {
+            mSnapshotValid = snapshot != null;
+            mModelStale = false;
+
+            if (snapshot == null) {
+                // Missing, from another schema or damaged, so it's no use to anyone
+                //noinspection ResultOfMethodCallIgnored
+                mSnapshotFile.delete();
+            }
+        }
+
+        if (snapshot != null) {
+            mSnapshot = snapshot;
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(LOAD_THREADS);
+        mLoader = new EntityLoader(mTaskDao, mEventDao, mProjectDao, mLabelDao, mDependencyDao,
+                mTaskLabelDao, today.toEpochDay(),
+                today.atStartOfDay().toEpochSecond(ZoneOffset.UTC), executor);
+
+        // Already running tasks finish, then the threads exit
+        executor.shutdown();
     }
 
     /**
-     * Gets a list of all events upon start of app. LiveData not used due to race conditions
-     * inherent to app.
+     * Gets the tasks scheduled between two dates straight from the database, without loading
+     * every task. Blocks, so must not be called from the UI thread.
      *
-     * @return a list of all events
+     * @param start The first date to get tasks for
+     * @param end The last date to get tasks for
+     *
+     * @return a list of the tasks scheduled between start and end, inclusive
      */
-    List<Event> getAllEvents() {
-        return mAllEvents;
+    List<Task> getTasksBetween(LocalDate start, LocalDate end) {
+        return withLinks(mTaskDao.getTasksBetween(start.toEpochDay(), end.toEpochDay()));
     }
 
     /**
-     * Gets a list of all projects upon start of app. LiveData not used due to race conditions
-     * inherent to app.
+     * Gets the tasks that depend on a task straight from the database, without loading every
+     * task. Blocks, so must not be called from the UI thread.
      *
-     * @return a list of all projects
+     * @param parentID The ID of the task
+     *
+     * @return a list of the tasks that can't be done until the task is
      */
-    List<Project> getAllProjects() {
-        return mAllProjects;
+    List<Task> queryChildren(long parentID) {
+        return withLinks(mDependencyDao.getChildren(parentID));
     }
 
     /**
-     * Gets a list of all labels upon start of app. LiveData not used due to race conditions
-     * inherent to app.
+     * Gets the tasks with a label straight from the database, without loading every task.
+     * Blocks, so must not be called from the UI thread.
      *
-     * @return a list of all projects
+     * @param labelID The ID of the label
+     *
+     * @return a list of the tasks with the label
      */
-    List<Label> getAllLabels() {
-        return mAllLabels;
+    List<Task> queryTasksWith(long labelID) {
+        return withLinks(mTaskLabelDao.getTasksWith(labelID));
     }
 
     /**
-     * Asynchronously inserts a task into the task_table
+     * Gets the tasks due between two dates straight from the database, using the index on
+     * dueDate. Blocks, so must not be called from the UI thread.
      *
-     * @param task Task to be inserted
+     * @param start The first due date to get tasks for
+     * @param end The last due date to get tasks for
+     *
+     * @return a list of the tasks due between start and end, inclusive
      */
-    public void insert(Task task) {
-        (new Thread(new insertTaskAsyncTask(mTaskDao, task))).start();
+    List<Task> queryTasksDueBetween(LocalDate start, LocalDate end) {
+        return withLinks(mTaskDao.getTasksDueBetween(start.toEpochDay(), end.toEpochDay()));
     }
 
     /**
-     * Asynchronously inserts an event into the event_table
+     * Gets the tasks either due or scheduled between two dates straight from the database.
+     * Blocks, so must not be called from the UI thread.
      *
-     * @param event Event to be inserted
+     * @param start The first date to get tasks for
+     * @param end The last date to get tasks for
+     *
+     * @return a list of the tasks due or scheduled between start and end, inclusive
      */
-    public void insert(Event event) {
-        (new Thread(new insertEventAsyncTask(mEventDao, event))).start();
+    List<Task> queryTasksDueOrScheduledBetween(LocalDate start, LocalDate end) {
+        return withLinks(mTaskDao.getTasksDueOrScheduledBetween(start.toEpochDay(),
+                end.toEpochDay()));
     }
 
     /**
-     * Asynchronously inserts a project into the project_table
+     * Gets the tasks in a project straight from the database, using the index on project.
+     * Blocks, so must not be called from the UI thread.
      *
-     * @param project Project to be inserted
+     * @param projectID The ID of the project
+     *
+     * @return a list of the tasks in the project
      */
-    public void insert(Project project) {
-        (new Thread(new insertProjectAsyncTask(mProjectDao, project))).start();
+    List<Task> queryTasksIn(long projectID) {
+        return withLinks(mTaskDao.getTasksIn(projectID));
     }
 
     /**
-     * Asynchronously inserts a label into the label_table
+     * Give tasks read straight from the task_table their parent and label IDs, reading only the
+     * rows of the link tables for those tasks.
      *
-     * @param label Label to be inserted
+     * @param tasks The tasks read
+     *
+     * @return tasks
      */
-    public void insert(Label label) {
-        (new Thread(new insertLabelAsyncTask(mLabelDao, label))).start();
+    private List<Task> withLinks(List<Task> tasks) {
+        List<TaskDependency> dependencies = new ArrayList<>();
+        List<TaskLabel> taskLabels = new ArrayList<>();
+
+        for (List<Long> ids : chunkIDs(tasks)) {
+            dependencies.addAll(mDependencyDao.getParentsOf(ids));
+            taskLabels.addAll(mTaskLabelDao.getLabelsOf(ids));
+        }
+
+        EntityLoader.attachLinks(tasks, dependencies, taskLabels);
+
+        return tasks;
     }
 
     /**
-     * Asynchronously updates a task in the task_table
+     * Gets the events starting between two times straight from the database, without loading
+     * every event. Blocks, so must not be called from the UI thread.
      *
-     * @param task Task to be updated
+     * @param start The earliest start time to get events for
+     * @param end The time the events must start before
+     *
+     * @return a list of the events starting in [start, end), in order of start time
      */
-    public void update(Task task) {
-        (new Thread(new updateTaskAsyncTask(mTaskDao, task))).start();
+    List<Event> getEventsBetween(LocalDateTime start, LocalDateTime end) {
+        return mEventDao.getEventsBetween(start.toEpochSecond(ZoneOffset.UTC),
+                end.toEpochSecond(ZoneOffset.UTC));
     }
 
     /**
-     * Asynchronously updates an event in the event_table
+     * Gets the completed tasks and past events archived between two dates. Blocks, so must not be
+     * called from the UI thread.
      *
-     * @param event Event to be updated
+     * @param start The first date to get archived items for
+     * @param end The last date to get archived items for
+     *
+     * @return a list of the items archived between start and end, inclusive, in order of date
      */
-    public void update(Event event) {
-        (new Thread(new updateEventAsyncTask(mEventDao, event))).start();
+    List<ArchivedItem> getArchiveBetween(LocalDate start, LocalDate end) {
+        return mArchiveDao.getBetween(start.toEpochDay(), end.toEpochDay());
     }
 
     /**
-     * Asynchronously updates a project in the project_table
+     * Gets the completion totals for each day between two dates. Reads one row per day, however
+     * many tasks have been completed. Blocks, so must not be called from the UI thread.
      *
-     * @param project Project to be updated
+     * @param start The first date to get totals for
+     * @param end The last date to get totals for
+     *
+     * @return a list of the totals for each day tasks were completed between start and end,
+     * inclusive, in order of date
      */
-    public void update(Project project) {
-        (new Thread(new updateProjectAsyncTask(mProjectDao, project))).start();
+    List<CompletionStats> getDailyStats(LocalDate start, LocalDate end) {
+        return mCompletionDao.getDailyStats(start.toEpochDay(), end.toEpochDay());
     }
 
     /**
-     * Asynchronously updates a label in the label_table
+     * Gets the completion totals for every project or every label. Blocks, so must not be called
+     * from the UI thread.
      *
-     * @param label Label to be updated
+     * @param kind CompletionStats.PROJECT or CompletionStats.LABEL
+     *
+     * @return a list of the totals for each project or label anything has been completed in
      */
-    public void update(Label label) {
-        (new Thread(new updateLabelAsyncTask(mLabelDao, label))).start();
+    List<CompletionStats> getStats(int kind) {
+        return mCompletionDao.getStats(kind);
     }
 
     /**
-     * Asynchronously deletes a task in the task_table
+     * Gets the completion_log entries between two dates. Blocks, so must not be called from the UI
+     * thread.
      *
-     * @param task Task to be deleted
+     * @param start The first date to get entries for
+     * @param end The last date to get entries for
+     *
+     * @return a list of the tasks completed between start and end, inclusive, in the order they
+     * were completed
      */
-    public void delete(Task task) {
-        (new Thread(new deleteTaskAsyncTask(mTaskDao, task))).start();
+    List<Completion> getCompletionsBetween(LocalDate start, LocalDate end) {
+        return mCompletionDao.getLog(start.toEpochDay(), end.toEpochDay());
     }
 
     /**
-     * Asynchronously deletes an event in the event_table
+     * Finds which of some events have already been imported from a source, so importing the same
+     * file again doesn't add them twice. Blocks, so must not be called from the UI thread.
      *
-     * @param event Event to be deleted
+     * @param source Where the events came from, e.g. ImportedEvent.ICS
+     * @param uids The UIDs of the events
+     *
+     * @return The UIDs in uids that have already been imported from source
      */
-    public void delete(Event event) {
-        (new Thread(new deleteEventAsyncTask(mEventDao, event))).start();
+    Set<String> getImported(String source, List<String> uids) {
+        Set<String> imported = new HashSet<>();
+
+        for (int i = 0; i < uids.size(); i += MAX_IDS) {
+            imported.addAll(mImportedDao.getImported(source,
+                    uids.subList(i, Math.min(i + MAX_IDS, uids.size()))));
+        }
+
+        return imported;
     }
 
     /**
-     * Asynchronously deletes a project in the project_table
+     * Gets every link to an event imported from a source. Blocks, so must not be called from the
+     * UI thread.
      *
-     * @param project Project to be deleted
+     * @param source Where the events came from, e.g. ImportedEvent.CALENDAR + 3
+     *
+     * @return Every link from source
      */
-    public void delete(Project project) {
-        (new Thread(new deleteProjectAsyncTask(mProjectDao, project))).start();
+    List<ImportedEvent> getImportedLinks(String source) {
+        return mImportedDao.getAll(source);
     }
 
     /**
-     * Asynchronously deletes a label in the label_table
+     * Gets the high-water mark of every device calendar being mirrored. Blocks, so must not be
+     * called from the UI thread.
      *
-     * @param label Label to be deleted
+     * @return Every calendar's high-water mark
      */
-    public void delete(Label label) {
-        (new Thread(new deleteLabelAsyncTask(mLabelDao, label))).start();
+    List<CalendarSyncState> getSyncStates() {
+        return mSyncDao.getAll();
     }
 
     /**
-     * Runnable that inserts a task into the db
+     * Gets every project straight from the database. Blocks, so must not be called from the UI
+     * thread.
+     *
+     * @return a list of all projects
      */
-    private static class insertTaskAsyncTask implements Runnable {
-        private final TaskDao mAsyncTaskDao; // The Dao used to interface with the database
-        private final Task mTask;            // The Task to be inserted into the database
+    List<Project> queryProjects() {
+        return mProjectDao.getProjects();
+    }
 
-        /**
-         * Initializes the thread with the task to be added and the Dao to interface with
-         *
-         * @param dao The Dao to use to interface with the database
-         * @param task The task to add to the database
-         */
-        insertTaskAsyncTask(TaskDao dao, Task task) {
-            mAsyncTaskDao = dao;
-            mTask = task;
-        }
+    /**
+     * Gets every label straight from the database. Blocks, so must not be called from the UI
+     * thread.
+     *
+     * @return a list of all labels
+     */
+    List<Label> queryLabels() {
+        return mLabelDao.getLabels();
+    }
+
+    /**
+     * Gets a list of all tasks upon start of app, waiting for them to load if they haven't.
+     * LiveData not used due to race conditions inherent to app.
+     *
+     * @return a list of all tasks
+     */
+    List<Task> getAllTasks() {
+        return mSnapshot != null ? mSnapshot.getTasks() : mLoader.getTasks();
+    }
 
-        /**
-         * The code to be ran asynchronously - insert a task and update the id.
-         */
-        @Override
-        public void run() {
-            long id = mAsyncTaskDao.insert(mTask);
+    /**
+     * Gets the tasks scheduled before the day the model was loaded on, waiting for them to load
+     * if they haven't. When loading from the database they come from their own query on the
+     * doDate index; a snapshot already holds every task, so its overdue ones are picked out.
+     *
+     * @return a list of the overdue tasks, each one also in getAllTasks
+     */
+    List<Task> getOverdueTasks() {
+        if (mSnapshot == null) {
+            return mLoader.getOverdueTasks();
+        }
 
-            // Due to the complex relationships between Tasks (and in the future Projects/Labels) we
-            // must keep the internal data structure separate from the Room DB. To ensure tasks can
-            // still be deleted/updated despite this, we must manually update the id after it is
-            // inserted into the database.
-            mTask.setID(id);
+        List<Task> overdue = new ArrayList<>();
+        for (Task t : mSnapshot.getTasks()) {
+            if (t.getDoDate().isBefore(mToday)) {
+                overdue.add(t);
+            }
         }
+
+        return overdue;
     }
 
     /**
-     * Runnable that inserts an Event into the DB
+     * Gets a list of all events from today on upon start of app, waiting for them to load if they
+     * haven't. LiveData not used due to race conditions inherent to app.
+     *
+     * @return a list of all events not in the past. A snapshot can also hold events that have
+     * passed since it was written.
      */
-    private static class insertEventAsyncTask implements Runnable {
-        private final EventDao mAsyncEventDao; // The Dao used to interface with the database
-        private final Event mEvent;            // The Event to be inserted into the database
+    List<Event> getAllEvents() {
+        return mSnapshot != null ? mSnapshot.getEvents() : mLoader.getEvents();
+    }
 
-        /**
-         * Initializes the thread with the event to be added and the Dao to interface with
-         *
-         * @param dao The Dao used to interface with the database
-         * @param event The Event to be inserted into the database
-         */
-        insertEventAsyncTask(EventDao dao, Event event) {
-            mAsyncEventDao = dao;
-            mEvent = event;
-        }
+    /**
+     * Gets a list of all projects upon start of app, waiting for them to load if they haven't.
+     * LiveData not used due to race conditions inherent to app.
+     *
+     * @return a list of all projects
+     */
+    List<Project> getAllProjects() {
+        return mSnapshot != null ? mSnapshot.getProjects() : mLoader.getProjects();
+    }
 
-        /**
-         * The code to be ran asynchronously - insert an Event and update the id.
-         */
-        @Override
-        public void run() {
-            long id = mAsyncEventDao.insert(mEvent);
-            mEvent.setID(id);
+    /**
+     * Gets a list of all labels upon start of app, waiting for them to load if they haven't.
+     * LiveData not used due to race conditions inherent to app.
+     *
+     * @return a list of all projects
+     */
+    List<Label> getAllLabels() {
+        return mSnapshot != null ? mSnapshot.getLabels() : mLoader.getLabels();
+    }
+
+    /**
+     * Gets every recurring series straight from the database. There are only ever a few, so they
+     * aren't part of the snapshot. Blocks, so must not be called from the UI thread.
+     *
+     * @return a list of all series
+     */
+    List<Series> getAllSeries() {
+        return mSeriesDao.getSeries();
+    }
+
+    /**
+     * Set a listener to be called whenever the last pending write finishes, i.e. when a set of
+     * changes has been committed to the database. Called on the write queue's thread.
+     *
+     * @param listener The listener, or null for none
+     */
+    void setIdleListener(Runnable listener) {
+        synchronized (mWriteLock) {
+            mIdleListener = listener;
         }
     }
 
     /**
-     * Runnable that inserts a Project into the DB
+     * Snapshot the model, if every write to the database has finished, so the next start can read
+     * it instead of the database. Encodes on the calling thread, which must be the thread that
+     * changes the model, and writes the file in the background. If another write starts before the
+     * file is written, the snapshot is thrown away.
+     *
+     * @param tasks Every task
+     * @param events Every event
+     * @param projects Every project
+     * @param labels Every label
      */
-    private static class insertProjectAsyncTask implements Runnable {
-        private final ProjectDao mAsyncProjectDao; // The Dao used to interface with the database
-        private final Project mProject;            // The Project to be inserted into the database
+    void saveSnapshot(List<Task> tasks, List<Event> events, List<Project> projects,
+                      List<Label> labels) {
+        long generation;
+        synchronized (mWriteLock) {
+            // The model could be ahead of the database, e.g. a new task without its ID yet. The
+            // write will call the idle listener when it finishes, so try again then. After a
+            // backup is restored it's behind instead, until it's loaded again.
+            if (!mQueue.isIdle() || mSnapshotValid || mModelStale) {
+                return;
+            }
 
-        /**
-         * Initializes the thread with the event to be added and the Dao to interface with.
-         *
-         * @param dao The Dao used to interface with the database.
-         * @param project The Project to be inserted into the database.
-         */
-        public insertProjectAsyncTask(ProjectDao dao, Project project) {
-            mAsyncProjectDao = dao;
-            mProject = project;
+            generation = mGeneration;
         }
 
-        /**
-         * The code to be run asynchronously - insert a Project and update the ID.
-         */
-        public void run() {
-            long id = mAsyncProjectDao.insert(mProject);
-            mProject.setID(id);
+        byte[] encoded = ModelSnapshot.encode(TaskAppRoomDatabase.VERSION, tasks, events,
+                projects, labels);
 
-            // Make sure that all projects have correct project ID.
-            for (Task t : mProject.getTasks()) {
-                t.setProject(mProject);
+        (new Thread(() -> {
+            File temp = ModelSnapshot.writeTemp(encoded, mSnapshotFile);
+
+            if (temp == null) {
+                return;
             }
-        }
+
+            synchronized (mWriteLock) {
+                if (generation == mGeneration && temp.renameTo(mSnapshotFile)) {
+                    mSnapshotValid = true;
+                }
+                else {
+                    //noinspection ResultOfMethodCallIgnored
+                    temp.delete();
+                }
+            }
+        })).start();
     }
 
     /**
-     * Runnable that inserts a Label into the DB
+     * Write the parents and labels of tasks that were just written to the task_table. Inserted
+     * tasks get theirs added; updated tasks only have theirs rewritten if they changed, so e.g.
+     * moving every task in an optimize doesn't touch the link tables; deleted tasks have every
+     * dependency on or from them removed. Runs on the write queue's thread, in its transaction.
+     *
+     * @param tasks The tasks written
+     * @param type WriteQueue.INSERT, UPDATE or DELETE
      */
-    private static class insertLabelAsyncTask implements Runnable {
-        private final LabelDao mAsyncLabelDao; // The Dao used to interface with the database
-        private final Label mLabel;            // The Label to be inserted into the database
+    private void writeLinks(List<Task> tasks, int type) {
+        if (type == WriteQueue.DELETE) {
+            for (List<Long> ids : chunkIDs(tasks)) {
+                mDependencyDao.deleteAllOf(ids);
+                mTaskLabelDao.deleteLabelsOf(ids);
+            }
 
-        /**
-         * Initializes the thread with the event to be added and the Dao to interface with.
-         *
-         * @param dao The Dao used to interface with the database.
-         * @param label The Label to be inserted into the database.
-         */
-        public insertLabelAsyncTask(LabelDao dao, Label label) {
-            mAsyncLabelDao = dao;
-            mLabel = label;
+            return;
         }
 
-        /**
-         * The code to be run asynchronously - insert a Label and update the ID.
-         */
-        public void run() {
-            long id = mAsyncLabelDao.insert(mLabel);
-            mLabel.setID(id);
+        List<Task> changed = new ArrayList<>();
+        for (Task t : tasks) {
+            // Always take the flag, so an inserted task isn't rewritten by its next update
+            if (t.takeLinksChanged() || type == WriteQueue.INSERT) {
+                changed.add(t);
+            }
+        }
+
+        if (type == WriteQueue.UPDATE) {
+            for (List<Long> ids : chunkIDs(changed)) {
+                mDependencyDao.deleteParentsOf(ids);
+                mTaskLabelDao.deleteLabelsOf(ids);
+            }
+        }
+
+        List<TaskDependency> dependencies = new ArrayList<>();
+        List<TaskLabel> taskLabels = new ArrayList<>();
+        for (Task t : changed) {
+            for (long parent : t.getParentArr()) {
+                dependencies.add(new TaskDependency(t.getID(), parent));
+            }
+            for (long label : t.getLabelIDs()) {
+                taskLabels.add(new TaskLabel(t.getID(), label));
+            }
+        }
+
+        if (!dependencies.isEmpty()) {
+            mDependencyDao.insertAll(dependencies);
+        }
+        if (!taskLabels.isEmpty()) {
+            mTaskLabelDao.insertAll(taskLabels);
         }
     }
 
     /**
-     * Runnable that updates a Task currently in the DB
+     * Write every project, label, series, task and event to a backup file, with the links to the
+     * calendars events were imported or mirrored from, streaming them a page at a time. Waits for
+     * queued writes first, so the backup matches the model. Blocks, so must not be called from the
+     * UI thread.
+     *
+     * @param file The file to write
+     *
+     * @return The number of rows written
+     *
+     * @throws IOException If the file couldn't be written, or queued writes didn't finish
      */
-    private static class updateTaskAsyncTask implements Runnable {
-        private final TaskDao mAsyncTaskDao; // The Dao used to interface with the database
-        private final Task mTask;            // The Task to be updated in the database
-
-        /**
-         * Initializes the thread with the task to be updated and the Dao to interface with
-         *
-         * @param dao The Dao to use to interface with the database
-         * @param task The task to updated in the database
-         */
-        updateTaskAsyncTask(TaskDao dao, Task task) {
-            mAsyncTaskDao = dao;
-            mTask = task;
+    long exportTo(File file) throws IOException {
+        if (!mQueue.awaitIdle(BACKUP_WAIT_MS)) {
+            throw new IOException("Writes still queued");
         }
 
-        /**
-         * The code to be ran asynchronously - update a task
-         */
-        @Override
-        public void run() {
-            mAsyncTaskDao.update(mTask);
-        }
+        return Backup.write(file, new Backup.Source() {
+            public List<Project> getProjects() { return mProjectDao.getProjects(); }
+            public List<Label> getLabels() { return mLabelDao.getLabels(); }
+            public List<Series> getSeries() { return mSeriesDao.getSeries(); }
+
+            public List<Task> getTasksAfter(long after, int count) {
+                return withLinks(mTaskDao.getTasksAfter(after, count));
+            }
+
+            public List<Event> getEventsAfter(long after, int count) {
+                return mEventDao.getEventsAfter(after, count);
+            }
+
+            public List<ImportedEvent> getImportedAfter(String source, String uid, int count) {
+                return mImportedDao.getAfter(source, uid, count);
+            }
+
+            public List<CalendarSyncState> getSyncStates() { return mSyncDao.getAll(); }
+        });
     }
 
     /**
-     * Runnable that updates an Event currently in the DB
+     * Replace every project, label, series, task and event, and every link to an imported or
+     * mirrored event, with those in a backup file, in one transaction. The whole file is checked
+     * before anything is deleted, and any error while restoring rolls the transaction back, so a
+     * bad file leaves the database as it was. The archive and completion log are kept. The loaded
+     * model no longer matches the database afterwards, so it isn't snapshotted again until load is
+     * called. Blocks, so must not be called from the UI thread.
+     *
+     * @param file The file to read
+     *
+     * @return The number of rows read
+     *
+     * @throws IOException If the file couldn't be read, isn't a backup or is damaged, or queued
+     * writes didn't finish
      */
-    private static class updateEventAsyncTask implements Runnable {
-        private final EventDao mAsyncEventDao; // The Dao used to interface with the database
-        private final Event mEvent;            // The Event to be updated in the database
+    long importFrom(File file) throws IOException {
+        if (!mQueue.awaitIdle(BACKUP_WAIT_MS)) {
+            throw new IOException("Writes still queued");
+        }
+
+        // Fails before anything is written, so the snapshot is still good
+        Backup.check(file);
 
-        /**
-         * Initializes the thread with the event to be updated and the Dao to interface with
-         *
-         * @param dao The Dao used to interface with the database
-         * @param event The Event to be updated in the database
-         */
-        updateEventAsyncTask(EventDao dao, Event event) {
-            mAsyncEventDao = dao;
-            mEvent = event;
+        synchronized (mWriteLock) {
+            invalidateSnapshot();
+            mModelStale = true;
         }
 
-        /**
-         * The code to be ran asynchronously - update an event
-         */
-        @Override
-        public void run() {
-            mAsyncEventDao.update(mEvent);
+        Backup.Sink sink = new Backup.Sink() {
+            public void clear() {
+                for (String table : BACKUP_TABLES) {
+                    mDb.getOpenHelper().getWritableDatabase().execSQL("DELETE FROM " + table);
+                }
+            }
+
+            public void write(Backup.Batch batch) {
+                writeBatch(batch);
+            }
+        };
+
+        // Room rethrows an IOException from the file as it is, after rolling back
+        long rows = mDb.runInTransaction(() -> Backup.read(file, sink));
+
+        // Restored IDs didn't come from the allocator, so new ones must start past them
+        mIds.advance();
+
+        return rows;
+    }
+
+    /**
+     * Insert a batch of rows read back from a backup, keeping their IDs, with each task's parents
+     * and labels. Must be run in a transaction.
+     *
+     * @param batch The rows to insert
+     */
+    private void writeBatch(Backup.Batch batch) {
+        if (!batch.mProjects.isEmpty()) {
+            mProjectDao.insertAll(batch.mProjects);
+        }
+        if (!batch.mLabels.isEmpty()) {
+            mLabelDao.insertAll(batch.mLabels);
+        }
+        if (!batch.mSeries.isEmpty()) {
+            mSeriesDao.insertAll(batch.mSeries);
+        }
+        if (!batch.mEvents.isEmpty()) {
+            mEventDao.insertAll(batch.mEvents);
+        }
+        if (!batch.mTasks.isEmpty()) {
+            mTaskDao.insertAll(batch.mTasks);
+            writeLinks(batch.mTasks, WriteQueue.INSERT);
+        }
+        if (!batch.mImported.isEmpty()) {
+            mImportedDao.insertAll(batch.mImported);
+        }
+        if (!batch.mSyncStates.isEmpty()) {
+            mSyncDao.upsertAll(batch.mSyncStates);
         }
     }
 
     /**
-     * Runnable that updates a Project currently in the DB
+     * Move every event before the latest of some dates from the event_table to the archive_table.
+     * If there are none, nothing is written, so the snapshot is kept. Runs on the write queue's
+     * thread, in its transaction.
+     *
+     * @param dates The dates queued by archivePastEvents
      */
-    private static class updateProjectAsyncTask implements Runnable {
-        private final ProjectDao mAsyncProjectDao; // The Dao used to interface with the database
-        private final Project mProject;            // The Project to be updated in the database
+    private void archiveEvents(List<LocalDate> dates) {
+        LocalDate latest = dates.get(0);
+        for (LocalDate date : dates) {
+            if (date.isAfter(latest)) {
+                latest = date;
+            }
+        }
 
-        /**
-         * Initializes the thread with the project to be updated and the Dao to interface with.
-         *
-         * @param dao The Dao used to interface with the database.
-         * @param project The Project to be updated in the database.
-         */
-        public updateProjectAsyncTask(ProjectDao dao, Project project) {
-            mAsyncProjectDao = dao;
-            mProject = project;
+        long before = latest.atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        if (mArchiveDao.countEventsBefore(before) == 0) {
+            return;
         }
 
-        /**
-         * The code to be run asynchronously - insert a Project and update the ID.
-         */
-        public void run() {
-            mAsyncProjectDao.update(mProject);
+        synchronized (mWriteLock) {
+            invalidateSnapshot();
         }
+
+        mArchiveDao.archiveEventsBefore(before);
+        mArchiveDao.deleteEventsBefore(before);
     }
 
     /**
-     * Runnable that updates a Label currently in the DB
+     * Split the IDs of some items into lists short enough to bind to one IN (...) query.
+     *
+     * @param items The items
+     *
+     * @return The IDs of the items, in lists of at most MAX_IDS
      */
-    private static class updateLabelAsyncTask implements Runnable {
-        private final LabelDao mAsyncLabelDao; // The Dao used to interface with the database
-        private final Label mLabel;            // The Label to be updated in the database
+    private static List<List<Long>> chunkIDs(List<? extends Identifiable> items) {
+        List<List<Long>> chunks = new ArrayList<>();
 
-        /**
-         * Initializes the thread with the Label to be updated and the Dao to interface with.
-         *
-         * @param dao   The Dao used to interface with the database.
-         * @param label The Label to be updated in the database.
-         */
-        public updateLabelAsyncTask(LabelDao dao, Label label) {
-            mAsyncLabelDao = dao;
-            mLabel = label;
+        for (int i = 0; i < items.size(); i += MAX_IDS) {
+            List<Long> chunk = new ArrayList<>();
+            for (int j = i; j < Math.min(i + MAX_IDS, items.size()); j++) {
+                chunk.add(items.get(j).getID());
+            }
+            chunks.add(chunk);
         }
 
-        /**
-         * The code to be run asynchronously - insert a Label and update the ID.
-         */
-        public void run() {
-            mAsyncLabelDao.update(mLabel);
-        }
+        return chunks;
+    }
+
+    /**
+     * Commit whatever writes are queued now instead of waiting for more to join them, e.g. because
+     * the app is going into the background. Doesn't block.
+     */
+    void flush() {
+        mQueue.flush();
     }
 
     /**
-     * Runnable that deletes a task from the task_table
+     * Get the queue writes go through, for its depth and commit latency.
+     *
+     * @return The write queue
      */
-    private static class deleteTaskAsyncTask implements Runnable {
-        private final TaskDao mAsyncTaskDao; // The Dao used to interface with the database
-        private final Task mTask;            // The Task to be deleted from the database
+    WriteQueue getWriteQueue() {
+        return mQueue;
+    }
 
-        /**
-         * Initializes the thread with the task to be deleted and the Dao to interface with
-         *
-         * @param dao The Dao to use to interface with the database
-         * @param task The task to deleted in the database
-         */
-        deleteTaskAsyncTask(TaskDao dao, Task task) {
-            mAsyncTaskDao = dao;
-            mTask = task;
+    /**
+     * Called by the write queue when a commit leaves it empty, to pass it on to the idle listener.
+     */
+    private void onQueueIdle() {
+        Runnable listener;
+
+        synchronized (mWriteLock) {
+            listener = mIdleListener;
         }
 
-        /**
-         * The code to be ran asynchronously - delete a task
-         */
-        @Override
-        public void run() {
-            mAsyncTaskDao.deleteTask(mTask);
+        if (listener != null) {
+            listener.run();
         }
     }
 
     /**
-     * Runnable that deletes an Event currently in the DB
+     * Queue a write to the database. The snapshot is deleted first, as it won't match the
+     * database once the write is done.
+     *
+     * @param table The table to write to
+     * @param item The item to write
+     * @param type WriteQueue.INSERT, UPDATE or DELETE
+     * @param <T> The type of the item
      */
-    private static class deleteEventAsyncTask implements Runnable {
-        private final EventDao mAsyncEventDao; // The Dao used to interface with the database
-        private final Event mEvent;            // The Event to be deleted from into the database
+    private <T> void write(WriteQueue.Table<T> table, T item, int type) {
+        synchronized (mWriteLock) {
+            invalidateSnapshot();
 
-        /**
-         * Initializes the thread with the event to be deleted and the Dao to interface with
-         *
-         * @param dao The Dao used to interface with the database
-         * @param event The Event to be deleted in the database
-         */
-        deleteEventAsyncTask(EventDao dao, Event event) {
-            mAsyncEventDao = dao;
-            mEvent = event;
+            // Queued while still holding the lock, so saveSnapshot can't see an empty queue
+            // after the generation has moved on
+            mQueue.enqueue(table, item, type);
         }
+    }
+
+    /**
+     * Delete the snapshot, as a write is about to make it stale, and make sure one being written
+     * now is thrown away. Must hold mWriteLock.
+     */
+    private void invalidateSnapshot() {
+        mGeneration++;
 
-        /**
-         * The code to be ran asynchronously - delete an event
-         */
-        @Override
-        public void run() {
-            mAsyncEventDao.deleteEvent(mEvent);
+        if (mSnapshotValid) {
+            //noinspection ResultOfMethodCallIgnored
+            mSnapshotFile.delete();
+            mSnapshotValid = false;
         }
     }
 
     /**
-     * Runnable that deletes a Project
+     * Give a task its ID, if it doesn't have one yet. Call when it's created, so it can be linked
+     * to other items by ID before it's inserted.
+     *
+     * @param task Task to give an ID
      */
-    private static class deleteProjectAsyncTask implements Runnable {
-        private final ProjectDao mAsyncProjectDao; // The Dao used to interface with the database
-        private final Project mProject;            // The Project to be deleted from the database
-
-        /**
-         * Initializes the thread with the event to be deleted and the Dao to interface with.
-         *
-         * @param dao The Dao used to interface with the database.
-         * @param project The Project to be deleted from the database.
-         */
-        public deleteProjectAsyncTask(ProjectDao dao, Project project) {
-            mAsyncProjectDao = dao;
-            mProject = project;
+    public void assignID(Task task) {
+        if (task.getID() == 0) {
+            task.setID(mIds.next(IdAllocator.TASKS));
         }
+    }
 
-        /**
-         * The code to be run asynchronously - insert a Project and update the ID.
-         */
-        public void run() {
-            mAsyncProjectDao.deleteProject(mProject);
+    /**
+     * Give an event its ID, if it doesn't have one yet. Call when it's created, so it can be linked
+     * to other items by ID before it's inserted.
+     *
+     * @param event Event to give an ID
+     */
+    public void assignID(Event event) {
+        if (event.getID() == 0) {
+            event.setID(mIds.next(IdAllocator.EVENTS));
         }
     }
 
     /**
-     * Runnable that deletes a Label
+     * Give a project its ID, if it doesn't have one yet. Call when it's created, so it can be linked
+     * to other items by ID before it's inserted.
+     *
+     * @param project Project to give an ID
      */
-    private static class deleteLabelAsyncTask implements Runnable {
-        private final LabelDao mAsyncLabelDao; // The Dao used to interface with the database
-        private final Label mLabel;            // The Label to be updated in the database
+    public void assignID(Project project) {
+        if (project.getID() == 0) {
+            project.setID(mIds.next(IdAllocator.PROJECTS));
+        }
+    }
 
-        /**
-         * Initializes the thread with the Label to be deleted and the Dao to interface with.
-         *
-         * @param dao The Dao used to interface with the database.
-         * @param label The Label to be deleted from the database.
-         */
-        public deleteLabelAsyncTask(LabelDao dao, Label label) {
-            mAsyncLabelDao = dao;
-            mLabel = label;
+    /**
+     * Give a label its ID, if it doesn't have one yet. Call when it's created, so it can be linked
+     * to other items by ID before it's inserted.
+     *
+     * @param label Label to give an ID
+     */
+    public void assignID(Label label) {
+        if (label.getID() == 0) {
+            label.setID(mIds.next(IdAllocator.LABELS));
         }
+    }
 
-        /**
-         * The code to be run asynchronously - insert a Label and update the ID.
-         */
-        public void run() {
-            mAsyncLabelDao.delete(mLabel);
+    /**
+     * Give a series its ID, if it doesn't have one yet. Call when it's created, so it can be linked
+     * to other items by ID before it's inserted.
+     *
+     * @param series Series to give an ID
+     */
+    public void assignID(Series series) {
+        if (series.getID() == 0) {
+            series.setID(mIds.next(IdAllocator.SERIES));
         }
     }
 
+    /**
+     * Asynchronously inserts a task into the task_table
+     *
+     * @param task Task to be inserted
+     */
+    public void insert(Task task) {
+        assignID(task);
+        write(mTasks, task, WriteQueue.INSERT);
+    }
+
+    /**
+     * Asynchronously inserts an event into the event_table
+     *
+     * @param event Event to be inserted
+     */
+    public void insert(Event event) {
+        assignID(event);
+        write(mEvents, event, WriteQueue.INSERT);
+    }
+
+    /**
+     * Asynchronously inserts a project into the project_table
+     *
+     * @param project Project to be inserted
+     */
+    public void insert(Project project) {
+        assignID(project);
+        write(mProjects, project, WriteQueue.INSERT);
+    }
+
+    /**
+     * Asynchronously inserts a label into the label_table
+     *
+     * @param label Label to be inserted
+     */
+    public void insert(Label label) {
+        assignID(label);
+        write(mLabels, label, WriteQueue.INSERT);
+    }
+
+    /**
+     * Asynchronously inserts a series into the series_table
+     *
+     * @param series Series to be inserted
+     */
+    public void insert(Series series) {
+        assignID(series);
+        write(mSeriesTable, series, WriteQueue.INSERT);
+    }
+
+    /**
+     * Asynchronously updates a task in the task_table
+     *
+     * @param task Task to be updated
+     */
+    public void update(Task task) {
+        write(mTasks, task, WriteQueue.UPDATE);
+    }
+
+    /**
+     * Asynchronously updates an event in the event_table
+     *
+     * @param event Event to be updated
+     */
+    public void update(Event event) {
+        write(mEvents, event, WriteQueue.UPDATE);
+    }
+
+    /**
+     * Asynchronously updates a project in the project_table
+     *
+     * @param project Project to be updated
+     */
+    public void update(Project project) {
+        write(mProjects, project, WriteQueue.UPDATE);
+    }
+
+    /**
+     * Asynchronously updates a label in the label_table
+     *
+     * @param label Label to be updated
+     */
+    public void update(Label label) {
+        write(mLabels, label, WriteQueue.UPDATE);
+    }
+
+    /**
+     * Asynchronously updates a series in the series_table
+     *
+     * @param series Series to be updated
+     */
+    public void update(Series series) {
+        write(mSeriesTable, series, WriteQueue.UPDATE);
+    }
+
+    /**
+     * Asynchronously deletes a task in the task_table
+     *
+     * @param task Task to be deleted
+     */
+    public void delete(Task task) {
+        write(mTasks, task, WriteQueue.DELETE);
+    }
+
+    /**
+     * Asynchronously moves a completed task from the task_table to the archive_table. The archive
+     * row is queued first, so if the two are split across commits the task is never lost, at
+     * worst left in both tables.
+     *
+     * @param task Task that was completed
+     * @param completed The day it was completed
+     */
+    public void archive(Task task, LocalDate completed) {
+        write(mArchive, new ArchivedItem(task, completed), WriteQueue.INSERT);
+        write(mTasks, task, WriteQueue.DELETE);
+    }
+
+    /**
+     * Asynchronously appends a completion to the completion_log, adding it to the totals for its
+     * day, project and labels in the same transaction.
+     *
+     * @param completion The completion to log
+     */
+    public void logCompletion(Completion completion) {
+        write(mCompletions, completion, WriteQueue.INSERT);
+    }
+
+    /**
+     * Queue moving every event before a date from the event_table to the archive_table, so the
+     * event_table only holds events that can still be displayed. Runs in the background once the
+     * write queue gets to it; if there's nothing to move, the database isn't written to.
+     *
+     * @param today Today's date. Events that started before it are archived.
+     */
+    public void archivePastEvents(LocalDate today) {
+        // Not through write, as the snapshot only needs deleting if something is moved
+        mQueue.enqueue(mPastEvents, today, WriteQueue.UPDATE);
+    }
+
+    /**
+     * Asynchronously records that an event from another calendar was added, so it's skipped if
+     * it's imported again. Queue it after inserting the event or series it was added as, so it's
+     * never committed before them.
+     *
+     * @param link The imported event and the event or series it was added as
+     */
+    public void linkImported(ImportedEvent link) {
+        write(mImported, link, WriteQueue.INSERT);
+    }
+
+    /**
+     * Asynchronously updates the version of a link to an imported event, or deletes it, e.g.
+     * because the event changed or was removed from its source.
+     *
+     * @param link The link, with its new version
+     * @param delete true to delete the link rather than update it
+     */
+    public void relinkImported(ImportedEvent link, boolean delete) {
+        write(mImported, link, delete ? WriteQueue.DELETE : WriteQueue.UPDATE);
+    }
+
+    /**
+     * Asynchronously replaces the high-water mark of a device calendar, or deletes it because the
+     * calendar is no longer being mirrored.
+     *
+     * @param state The calendar's new high-water mark
+     * @param delete true to delete the high-water mark rather than replace it
+     */
+    public void setSyncState(CalendarSyncState state, boolean delete) {
+        write(mSyncStates, state, delete ? WriteQueue.DELETE : WriteQueue.UPDATE);
+    }
+
+    /**
+     * Asynchronously deletes an event in the event_table
+     *
+     * @param event Event to be deleted
+     */
+    public void delete(Event event) {
+        write(mEvents, event, WriteQueue.DELETE);
+    }
+
+    /**
+     * Asynchronously deletes a project in the project_table
+     *
+     * @param project Project to be deleted
+     */
+    public void delete(Project project) {
+        write(mProjects, project, WriteQueue.DELETE);
+    }
+
+    /**
+     * Asynchronously deletes a label in the label_table
+     *
+     * @param label Label to be deleted
+     */
+    public void delete(Label label) {
+        write(mLabels, label, WriteQueue.DELETE);
+    }
+
+    /**
+     * Asynchronously deletes a series in the series_table
+     *
+     * @param series Series to be deleted
+     */
+    public void delete(Series series) {
+        write(mSeriesTable, series, WriteQueue.DELETE);
+    }
 }
@@ -5,10 +5,13 @@ import android.content.Context;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import com.evanv.taskapp.logic.Event;
 import com.evanv.taskapp.logic.Label;
 import com.evanv.taskapp.logic.Project;
+import com.evanv.taskapp.logic.Series;
 import com.evanv.taskapp.logic.Task;
 
 /**
@@ -17,11 +20,213 @@ import com.evanv.taskapp.logic.Task;
  *
  * @author Evan Voogd
  */
-@Database(entities = {Task.class, Event.class, Project.class, Label.class}, version = 6,
+@Database(entities = {Task.class, Event.class, Project.class, Label.class, Series.class,
+        TaskDependency.class, TaskLabel.class, IdBlock.class, ArchivedItem.class,
+        Completion.class, CompletionStats.class, ImportedEvent.class,
+        CalendarSyncState.class},
+        version = TaskAppRoomDatabase.VERSION,
         exportSchema = false)
 public abstract class TaskAppRoomDatabase extends RoomDatabase {
+    static final int VERSION = 14; // Schema version, also stamped on model snapshots
     private static volatile TaskAppRoomDatabase INSTANCE; // The singleton of the Room DB
 
+    // Adds the series_table, keeping every existing task and event
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        /**
+         * Create the series_table.
+         *
+         * @param database The database being migrated
+         */
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `series_table` (`id` INTEGER PRIMARY "
+                    + "KEY AUTOINCREMENT NOT NULL, `is_event` INTEGER NOT NULL, `name` TEXT NOT "
+                    + "NULL, `rule` TEXT NOT NULL, `start` INTEGER NOT NULL, `length` INTEGER NOT "
+                    + "NULL, `due_offset` INTEGER NOT NULL, `priority` INTEGER NOT NULL, "
+                    + "`project` INTEGER NOT NULL, `labels` TEXT NOT NULL, `parents` TEXT NOT "
+                    + "NULL, `through` INTEGER NOT NULL)");
+        }
+    };
+
+    // Moves each task's parents and labels out of comma separated columns of the task_table into
+    // the task_dependency and task_label tables, keeping every task's links
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        /**
+         * Create the link tables, fill them by splitting the old columns, then rebuild the
+         * task_table without those columns, as SQLite can't drop a column.
+         *
+         * @param database The database being migrated
+         */
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `task_dependency` (`child` INTEGER NOT "
+                    + "NULL, `parent` INTEGER NOT NULL, PRIMARY KEY(`child`, `parent`))");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_task_dependency_parent` ON "
+                    + "`task_dependency` (`parent`)");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `task_label` (`task` INTEGER NOT NULL, "
+                    + "`label` INTEGER NOT NULL, PRIMARY KEY(`task`, `label`))");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_task_label_label` ON "
+                    + "`task_label` (`label`)");
+
+            database.execSQL(splitInto("task_dependency (child, parent)", "parents_list"));
+            database.execSQL(splitInto("task_label (task, label)", "IFNULL(labels, '')"));
+
+            database.execSQL("CREATE TABLE IF NOT EXISTS `task_table_new` (`id` INTEGER PRIMARY "
+                    + "KEY AUTOINCREMENT NOT NULL, `name` TEXT NOT NULL, `earlyDate` INTEGER NOT "
+                    + "NULL, `doDate` INTEGER, `dueDate` INTEGER NOT NULL, `ttc` INTEGER NOT NULL, "
+                    + "`priority` INTEGER NOT NULL, `project` INTEGER NOT NULL)");
+            database.execSQL("INSERT INTO task_table_new (id, name, earlyDate, doDate, dueDate, "
+                    + "ttc, priority, project) SELECT id, name, earlyDate, doDate, dueDate, ttc, "
+                    + "priority, project FROM task_table");
+
+            // Keep counting IDs from where the old table was, so IDs of deleted tasks that could
+            // still be in a link row aren't handed out again
+            database.execSQL("DELETE FROM sqlite_sequence WHERE name = 'task_table_new'");
+            database.execSQL("INSERT INTO sqlite_sequence (name, seq) SELECT 'task_table_new', "
+                    + "seq FROM sqlite_sequence WHERE name = 'task_table'");
+
+            database.execSQL("DROP TABLE task_table");
+            database.execSQL("ALTER TABLE task_table_new RENAME TO task_table");
+        }
+
+        /**
+         * Build a statement that splits a comma separated column of the task_table, e.g.
+         * "3,5,", into one row per ID of a link table, paired with the task's ID.
+         *
+         * @param table The link table and its (task, ID) columns
+         * @param column The expression for the comma separated IDs
+         *
+         * @return The INSERT statement
+         */
+        private String splitInto(String table, String column) {
+            // A comma is added so the last ID is split off even without the usual trailing one
+            return "WITH RECURSIVE split(id, item, rest) AS (SELECT id, '', " + column
+                    + " || ',' FROM task_table UNION ALL SELECT id, substr(rest, 1, instr(rest, ',') - 1)"
+                    + ", substr(rest, instr(rest, ',') + 1) FROM split WHERE rest <> '') "
+                    + "INSERT OR IGNORE INTO " + table + " SELECT id, CAST(item AS INTEGER) FROM "
+                    + "split WHERE item <> ''";
+        }
+    };
+
+    // Indexes the date and project columns the range queries search by
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        /**
+         * Create the indexes on task_table and event_table.
+         *
+         * @param database The database being migrated
+         */
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            for (String column : new String[] {"doDate", "dueDate", "earlyDate", "project"}) {
+                database.execSQL("CREATE INDEX IF NOT EXISTS `index_task_table_" + column
+                        + "` ON `task_table` (`" + column + "`)");
+            }
+
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_event_table_do_date` ON "
+                    + "`event_table` (`do_date`)");
+        }
+    };
+
+    // Adds the id_block table, starting each table's IDs where AUTOINCREMENT left off
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        /**
+         * Create the id_block table and copy each table's last ID into it.
+         *
+         * @param database The database being migrated
+         */
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `id_block` (`name` TEXT NOT NULL, "
+                    + "`high_water` INTEGER NOT NULL, PRIMARY KEY(`name`))");
+            database.execSQL("INSERT INTO id_block (name, high_water) SELECT name, seq + 1 FROM "
+                    + "sqlite_sequence WHERE name IN ('task_table', 'event_table', "
+                    + "'project_table', 'label_table', 'series_table')");
+        }
+    };
+
+    // Adds the archive_table that completed tasks and past events are moved into
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        /**
+         * Create the archive_table and its index on day.
+         *
+         * @param database The database being migrated
+         */
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `archive_table` (`id` INTEGER PRIMARY "
+                    + "KEY AUTOINCREMENT NOT NULL, `item_id` INTEGER NOT NULL, `is_event` INTEGER "
+                    + "NOT NULL, `name` TEXT NOT NULL, `day` INTEGER NOT NULL, `start` INTEGER NOT "
+                    + "NULL, `minutes` INTEGER NOT NULL, `project` INTEGER NOT NULL)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_archive_table_day` ON "
+                    + "`archive_table` (`day`)");
+        }
+    };
+
+    // Adds the completion_log and its completion_stats totals, starting them from the tasks
+    // already in the archive_table
+    static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        /**
+         * Create the completion_log and completion_stats tables, then fill them from the archive.
+         * Archived tasks have no labels or timer recorded, so they're logged without them.
+         *
+         * @param database The database being migrated
+         */
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `completion_log` (`id` INTEGER PRIMARY "
+                    + "KEY AUTOINCREMENT NOT NULL, `task` INTEGER NOT NULL, `project` INTEGER NOT "
+                    + "NULL, `labels` TEXT NOT NULL, `estimated` INTEGER NOT NULL, `timed` "
+                    + "INTEGER NOT NULL, `day` INTEGER NOT NULL)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_completion_log_day` ON "
+                    + "`completion_log` (`day`)");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `completion_stats` (`kind` INTEGER NOT "
+                    + "NULL, `key` INTEGER NOT NULL, `completed` INTEGER NOT NULL, `estimated` "
+                    + "INTEGER NOT NULL, `timed_completed` INTEGER NOT NULL, `timed_estimated` "
+                    + "INTEGER NOT NULL, `timed` INTEGER NOT NULL, PRIMARY KEY(`kind`, `key`))");
+
+            database.execSQL("INSERT INTO completion_log (task, project, labels, estimated, "
+                    + "timed, day) SELECT item_id, project, '', minutes, -1, day FROM "
+                    + "archive_table WHERE is_event = 0 ORDER BY id");
+            database.execSQL("INSERT INTO completion_stats SELECT " + CompletionStats.DAY
+                    + ", day, COUNT(*), SUM(estimated), 0, 0, 0 FROM completion_log GROUP BY day");
+            database.execSQL("INSERT INTO completion_stats SELECT " + CompletionStats.PROJECT
+                    + ", project, COUNT(*), SUM(estimated), 0, 0, 0 FROM completion_log GROUP BY "
+                    + "project");
+        }
+    };
+
+    // Adds the imported_event table that links events read from other calendars to their copies
+    static final Migration MIGRATION_12_13 = new Migration(12, 13) {
+        /**
+         * Create the imported_event table.
+         *
+         * @param database The database being migrated
+         */
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `imported_event` (`source` TEXT NOT "
+                    + "NULL, `uid` TEXT NOT NULL, `item_id` INTEGER NOT NULL, `is_series` INTEGER "
+                    + "NOT NULL, PRIMARY KEY(`source`, `uid`))");
+        }
+    };
+
+    // Adds the calendar_sync table and versions imported events, for mirroring device calendars
+    static final Migration MIGRATION_13_14 = new Migration(13, 14) {
+        /**
+         * Create the calendar_sync table and add the version column to imported_event.
+         *
+         * @param database The database being migrated
+         */
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE `imported_event` ADD COLUMN `version` INTEGER NOT NULL "
+                    + "DEFAULT 0");
+            database.execSQL("CREATE TABLE IF NOT EXISTS `calendar_sync` (`calendar` INTEGER NOT "
+                    + "NULL, `digest` INTEGER NOT NULL, `count` INTEGER NOT NULL, PRIMARY KEY("
+                    + "`calendar`))");
+        }
+    };
+
     /**
      * Get the database for the app. Generates the singleton if it hasn't been already.
      *
@@ -32,9 +237,14 @@ public abstract class TaskAppRoomDatabase extends RoomDatabase {
         if (INSTANCE == null) {
             synchronized (TaskAppRoomDatabase.class) {
                 if (INSTANCE == null) {
-                    // Create database here if not already created
+                    // Create database here if not already created. Write-ahead logging lets the
+                    // startup loads each read on their own connection at the same time.
                     INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
                             TaskAppRoomDatabase.class, "taskapp_database")
+                            .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+                            .addMigrations(MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9,
+                                    MIGRATION_9_10, MIGRATION_10_11, MIGRATION_11_12,
+                                    MIGRATION_12_13, MIGRATION_13_14)
                             .fallbackToDestructiveMigration().build();
                 }
             }
@@ -70,4 +280,60 @@ public abstract class TaskAppRoomDatabase extends RoomDatabase {
      * @return a Dao to interface with the label_table
      */
     public abstract LabelDao labelDao();
+
+    /**
+     * Gets a Dao to interface with the series_table
+     *
+     * @return a Dao to interface with the series_table
+     */
+    public abstract SeriesDao seriesDao();
+
+    /**
+     * Gets a Dao to interface with the task_dependency table
+     *
+     * @return a Dao to interface with the task_dependency table
+     */
+    public abstract TaskDependencyDao taskDependencyDao();
+
+    /**
+     * Gets a Dao to interface with the task_label table
+     *
+     * @return a Dao to interface with the task_label table
+     */
+    public abstract TaskLabelDao taskLabelDao();
+
+    /**
+     * Gets a Dao to interface with the id_block table
+     *
+     * @return a Dao to interface with the id_block table
+     */
+    public abstract IdBlockDao idBlockDao();
+
+    /**
+     * Gets a Dao to interface with the archive_table
+     *
+     * @return a Dao to interface with the archive_table
+     */
+    public abstract ArchiveDao archiveDao();
+
+    /**
+     * Gets a Dao to interface with the completion_log and completion_stats tables
+     *
+     * @return a Dao to interface with the completion_log and completion_stats tables
+     */
+    public abstract CompletionDao completionDao();
+
+    /**
+     * Gets a Dao to interface with the imported_event table
+     *
+     * @return a Dao to interface with the imported_event table
+     */
+    public abstract ImportedEventDao importedEventDao();
+
+    /**
+     * Gets a Dao to interface with the calendar_sync table
+     *
+     * @return a Dao to interface with the calendar_sync table
+     */
+    public abstract CalendarSyncDao calendarSyncDao();
 }
@@ -7,13 +7,21 @@ import androidx.lifecycle.AndroidViewModel;
 import com.evanv.taskapp.logic.Event;
 import com.evanv.taskapp.logic.Label;
 import com.evanv.taskapp.logic.Project;
+import com.evanv.taskapp.logic.Series;
 import com.evanv.taskapp.logic.Task;
 
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 
 /**
  * ViewModel to interface with the repository. Only gets initial state as internal data structures
- * keep synchronized themselves, so there's no need to sync besides at the start.
+ * keep synchronized themselves, so there's no need to sync besides at the start. Creating it
+ * doesn't touch the database, so it can be created on the UI thread and loaded in the background.
  *
  * @author Evan Voogd
  */
@@ -21,11 +29,6 @@ public class TaskAppViewModel extends AndroidViewModel {
     // Repository that interfaces with the database
     private final TaskAppRepository mRepository;
 
-    private final List<Task> mAllTasks;       // List of all tasks in DB at start of app
-    private final List<Event> mAllEvents;     // List of all events in DB at start of app
-    private final List<Project> mAllProjects; // List of all projects in DB at start of app
-    private final List<Label> mAllLabels;     // List of all labels in DB at start of app
-
     /**
      * Constructs a ViewModel to interface with a Repository
      *
@@ -34,10 +37,240 @@ public class TaskAppViewModel extends AndroidViewModel {
     public TaskAppViewModel (Application application) {
         super(application);
         mRepository = new TaskAppRepository(application);
-        mAllTasks = mRepository.getAllTasks();
-        mAllEvents = mRepository.getAllEvents();
-        mAllProjects = mRepository.getAllProjects();
-        mAllLabels = mRepository.getAllLabels();
+    }
+
+    /**
+     * Starts loading every task, event, project and label from the database in the background.
+     * Events in the past aren't loaded. The getAll methods wait for their own table to load, so
+     * must not be called from the UI thread.
+     *
+     * @param today Today's date
+     */
+    public void load(LocalDate today) { mRepository.load(today); }
+
+    /**
+     * Gets the tasks scheduled between two dates without loading every task. Blocks, so must not
+     * be called from the UI thread.
+     *
+     * @param start The first date to get tasks for
+     * @param end The last date to get tasks for
+     *
+     * @return a list of the tasks scheduled between start and end, inclusive
+     */
+    public List<Task> getTasksBetween(LocalDate start, LocalDate end) {
+        return mRepository.getTasksBetween(start, end);
+    }
+
+    /**
+     * Gets the events starting between two times without loading every event. Blocks, so must
+     * not be called from the UI thread.
+     *
+     * @param start The earliest start time to get events for
+     * @param end The time the events must start before
+     *
+     * @return a list of the events starting in [start, end), in order of start time
+     */
+    public List<Event> getEventsBetween(LocalDateTime start, LocalDateTime end) {
+        return mRepository.getEventsBetween(start, end);
+    }
+
+    /**
+     * Gets the tasks that depend on a task without loading every task. Blocks, so must not be
+     * called from the UI thread.
+     *
+     * @param parentID The ID of the task
+     *
+     * @return a list of the tasks that can't be done until the task is
+     */
+    public List<Task> queryChildren(long parentID) {
+        return mRepository.queryChildren(parentID);
+    }
+
+    /**
+     * Gets the tasks with a label without loading every task. Blocks, so must not be called from
+     * the UI thread.
+     *
+     * @param labelID The ID of the label
+     *
+     * @return a list of the tasks with the label
+     */
+    public List<Task> queryTasksWith(long labelID) {
+        return mRepository.queryTasksWith(labelID);
+    }
+
+    /**
+     * Gets the tasks due between two dates without loading every task. Blocks, so must not be
+     * called from the UI thread.
+     *
+     * @param start The first due date to get tasks for
+     * @param end The last due date to get tasks for
+     *
+     * @return a list of the tasks due between start and end, inclusive
+     */
+    public List<Task> queryTasksDueBetween(LocalDate start, LocalDate end) {
+        return mRepository.queryTasksDueBetween(start, end);
+    }
+
+    /**
+     * Gets the tasks either due or scheduled between two dates without loading every task.
+     * Blocks, so must not be called from the UI thread.
+     *
+     * @param start The first date to get tasks for
+     * @param end The last date to get tasks for
+     *
+     * @return a list of the tasks due or scheduled between start and end, inclusive
+     */
+    public List<Task> queryTasksDueOrScheduledBetween(LocalDate start, LocalDate end) {
+        return mRepository.queryTasksDueOrScheduledBetween(start, end);
+    }
+
+    /**
+     * Gets the tasks in a project without loading every task. Blocks, so must not be called from
+     * the UI thread.
+     *
+     * @param projectID The ID of the project
+     *
+     * @return a list of the tasks in the project
+     */
+    public List<Task> queryTasksIn(long projectID) {
+        return mRepository.queryTasksIn(projectID);
+    }
+
+    /**
+     * Gets the completed tasks and past events archived between two dates. Blocks, so must not be
+     * called from the UI thread.
+     *
+     * @param start The first date to get archived items for
+     * @param end The last date to get archived items for
+     *
+     * @return a list of the items archived between start and end, inclusive, in order of date
+     */
+    public List<ArchivedItem> getArchiveBetween(LocalDate start, LocalDate end) {
+        return mRepository.getArchiveBetween(start, end);
+    }
+
+    /**
+     * Gets the completion totals for each day between two dates, without reading the completion
+     * log. Blocks, so must not be called from the UI thread.
+     *
+     * @param start The first date to get totals for
+     * @param end The last date to get totals for
+     *
+     * @return a list of the totals for each day tasks were completed between start and end,
+     * inclusive, in order of date
+     */
+    public List<CompletionStats> getDailyStats(LocalDate start, LocalDate end) {
+        return mRepository.getDailyStats(start, end);
+    }
+
+    /**
+     * Gets the completion totals for every project or every label, without reading the
+     * completion log. Blocks, so must not be called from the UI thread.
+     *
+     * @param kind CompletionStats.PROJECT or CompletionStats.LABEL
+     *
+     * @return a list of the totals for each project or label anything has been completed in
+     */
+    public List<CompletionStats> getStats(int kind) {
+        return mRepository.getStats(kind);
+    }
+
+    /**
+     * Gets the tasks completed between two dates from the completion log. Blocks, so must not be
+     * called from the UI thread.
+     *
+     * @param start The first date to get entries for
+     * @param end The last date to get entries for
+     *
+     * @return a list of the tasks completed between start and end, inclusive, in the order they
+     * were completed
+     */
+    public List<Completion> getCompletionsBetween(LocalDate start, LocalDate end) {
+        return mRepository.getCompletionsBetween(start, end);
+    }
+
+    /**
+     * Finds which of some events have already been imported from a source. Blocks, so must not
+     * be called from the UI thread.
+     *
+     * @param source Where the events came from, e.g. ImportedEvent.ICS
+     * @param uids The UIDs of the events
+     *
+     * @return The UIDs in uids that have already been imported from source
+     */
+    public Set<String> getImported(String source, List<String> uids) {
+        return mRepository.getImported(source, uids);
+    }
+
+    /**
+     * Gets every link to an event imported from a source. Blocks, so must not be called from the
+     * UI thread.
+     *
+     * @param source Where the events came from, e.g. ImportedEvent.CALENDAR + 3
+     *
+     * @return Every link from source
+     */
+    public List<ImportedEvent> getImportedLinks(String source) {
+        return mRepository.getImportedLinks(source);
+    }
+
+    /**
+     * Gets the high-water mark of every device calendar being mirrored. Blocks, so must not be
+     * called from the UI thread.
+     *
+     * @return Every calendar's high-water mark
+     */
+    public List<CalendarSyncState> getSyncStates() {
+        return mRepository.getSyncStates();
+    }
+
+    /**
+     * Writes every project, label, series, task and event to a backup file, once queued writes
+     * are done. Blocks, so must not be called from the UI thread.
+     *
+     * @param file The file to write
+     *
+     * @return The number of rows written
+     *
+     * @throws IOException If the file couldn't be written
+     */
+    public long exportTo(File file) throws IOException {
+        return mRepository.exportTo(file);
+    }
+
+    /**
+     * Replaces every project, label, series, task and event with those in a backup file, or
+     * leaves them as they were if it can't be read. The loaded model is stale afterwards, so the
+     * caller must discard it and load it again. Blocks, so must not be called from the UI thread.
+     *
+     * @param file The file to read
+     *
+     * @return The number of rows read
+     *
+     * @throws IOException If the file couldn't be read or isn't a backup
+     */
+    public long importFrom(File file) throws IOException {
+        return mRepository.importFrom(file);
+    }
+
+    /**
+     * Gets every project straight from the database, whether or not load has been called.
+     * Blocks, so must not be called from the UI thread.
+     *
+     * @return a list of all projects
+     */
+    public List<Project> queryProjects() {
+        return mRepository.queryProjects();
+    }
+
+    /**
+     * Gets every label straight from the database, whether or not load has been called. Blocks,
+     * so must not be called from the UI thread.
+     *
+     * @return a list of all labels
+     */
+    public List<Label> queryLabels() {
+        return mRepository.queryLabels();
     }
 
     /**
@@ -46,15 +279,22 @@ public class TaskAppViewModel extends AndroidViewModel {
      *
      * @return a list of all tasks
      */
-    public List<Task> getAllTasks() { return mAllTasks; }
+    public List<Task> getAllTasks() { return mRepository.getAllTasks(); }
 
     /**
-     * Gets a list of all events upon start of app. LiveData not used due to race conditions
-     * inherent to app.
+     * Gets the tasks that were overdue upon start of app. Each one is also in getAllTasks.
      *
-     * @return a list of all events
+     * @return a list of the tasks scheduled before the day the app was started on
      */
-    public List<Event> getAllEvents() { return mAllEvents; }
+    public List<Task> getOverdueTasks() { return mRepository.getOverdueTasks(); }
+
+    /**
+     * Gets a list of all events from today on upon start of app. LiveData not used due to race
+     * conditions inherent to app.
+     *
+     * @return a list of all events not in the past
+     */
+    public List<Event> getAllEvents() { return mRepository.getAllEvents(); }
 
     /**
      * Gets a list of all projects upon start of app. LiveData not used due to race conditions
@@ -63,7 +303,7 @@ public class TaskAppViewModel extends AndroidViewModel {
      * @return a list of all projects
      */
     public List<Project> getAllProjects() {
-        return mAllProjects;
+        return mRepository.getAllProjects();
     }
 
     /**
@@ -73,9 +313,98 @@ public class TaskAppViewModel extends AndroidViewModel {
      * @return a list of all labels
      */
     public List<Label> getAllLabels() {
-        return mAllLabels;
+        return mRepository.getAllLabels();
     }
 
+    /**
+     * Gets every recurring series straight from the database. Blocks, so must not be called from
+     * the UI thread.
+     *
+     * @return a list of all series
+     */
+    public List<Series> getAllSeries() {
+        return mRepository.getAllSeries();
+    }
+
+    /**
+     * Set a listener to be called whenever every pending write to the database has finished.
+     * Called on a background thread.
+     *
+     * @param listener The listener, or null for none
+     */
+    public void setIdleListener(Runnable listener) {
+        mRepository.setIdleListener(listener);
+    }
+
+    /**
+     * Commit whatever writes are queued now instead of waiting for more to join them. Called when
+     * the app goes into the background, so nothing waits in memory while it might be killed.
+     * Doesn't block.
+     */
+    public void flush() { mRepository.flush(); }
+
+    /**
+     * Get the queue writes to the database go through, for its depth and commit latency.
+     *
+     * @return The write queue
+     */
+    public WriteQueue getWriteQueue() { return mRepository.getWriteQueue(); }
+
+    /**
+     * Snapshot the model so the next start can skip loading from the database. Does nothing if
+     * writes are still pending or the snapshot is already current. Must be called on the thread
+     * that changes the model.
+     *
+     * @param tasks Every task
+     * @param events Every event
+     * @param projects Every project
+     * @param labels Every label
+     */
+    public void saveSnapshot(List<Task> tasks, List<Event> events, List<Project> projects,
+                             List<Label> labels) {
+        mRepository.saveSnapshot(tasks, events, projects, labels);
+    }
+
+    /**
+     * Give a task its ID without waiting for it to be inserted, so it can be linked to other
+     * items by ID straight away. Does nothing if it already has one.
+     *
+     * @param task Task to give an ID
+     */
+    public void assignID(Task task) { mRepository.assignID(task); }
+
+    /**
+     * Give an event its ID without waiting for it to be inserted, so it can be linked to other
+     * items by ID straight away. Does nothing if it already has one.
+     *
+     * @param event Event to give an ID
+     */
+    public void assignID(Event event) { mRepository.assignID(event); }
+
+    /**
+     * Give a project its ID without waiting for it to be inserted, so it can be linked to other
+     * items by ID straight away. Does nothing if it already has one.
+     *
+     * @param project Project to give an ID
+     */
+    public void assignID(Project project) { mRepository.assignID(project); }
+
+    /**
+     * Give a label its ID without waiting for it to be inserted, so it can be linked to other
+     * items by ID straight away. Does nothing if it already has one.
+     *
+     * @param label Label to give an ID
+     */
+    public void assignID(Label label) { mRepository.assignID(label); }
+
+    /**
+     * Give a series its ID without waiting for it to be inserted, so it can be linked to other
+     * items by ID straight away. Does nothing if it already has one.
+     *
+     * @param series Series to give an ID
+     */
+    public void assignID(Series series) { mRepository.assignID(series); }
+
     /**
      * Asynchronously inserts a task into the task_table
      *
@@ -148,6 +477,56 @@ public class TaskAppViewModel extends AndroidViewModel {
      */
     public void delete(Task task) { mRepository.delete(task); }
 
+    /**
+     * Asynchronously moves a completed task from the task_table to the archive_table
+     *
+     * @param task Task that was completed
+     * @param completed The day it was completed
+     */
+    public void archive(Task task, LocalDate completed) { mRepository.archive(task, completed); }
+
+    /**
+     * Asynchronously appends a completion to the completion log and adds it to the totals
+     *
+     * @param completion The completion to log
+     */
+    public void logCompletion(Completion completion) { mRepository.logCompletion(completion); }
+
+    /**
+     * Moves every event before a date to the archive_table in the background, once the writes
+     * already queued are done.
+     *
+     * @param today Today's date. Events that started before it are archived.
+     */
+    public void archivePastEvents(LocalDate today) { mRepository.archivePastEvents(today); }
+
+    /**
+     * Asynchronously records that an event from another calendar was added
+     *
+     * @param link The imported event and the event or series it was added as
+     */
+    public void linkImported(ImportedEvent link) { mRepository.linkImported(link); }
+
+    /**
+     * Asynchronously updates or deletes a link to an imported event
+     *
+     * @param link The link, with its new version
+     * @param delete true to delete the link rather than update it
+     */
+    public void relinkImported(ImportedEvent link, boolean delete) {
+        mRepository.relinkImported(link, delete);
+    }
+
+    /**
+     * Asynchronously replaces or deletes the high-water mark of a device calendar
+     *
+     * @param state The calendar's new high-water mark
+     * @param delete true to delete the high-water mark rather than replace it
+     */
+    public void setSyncState(CalendarSyncState state, boolean delete) {
+        mRepository.setSyncState(state, delete);
+    }
+
     /**
      * Asynchronously deletes an event in the event_table
      *
@@ -172,4 +551,31 @@ public class TaskAppViewModel extends AndroidViewModel {
     public void delete(Label label) {
         mRepository.delete(label);
     }
+
+    /**
+     * Asynchronously inserts a series into the series_table
+     *
+     * @param series Series to be inserted
+     */
+    public void insert(Series series) {
+        mRepository.insert(series);
+    }
+
+    /**
+     * Asynchronously updates a series in the series_table
+     *
+     * @param series Series to be updated.
+     */
+    public void update(Series series) {
+        mRepository.update(series);
+    }
+
+    /**
+     * Asynchronously deletes a series in the series_table
+     *
+     * @param series Series to be deleted.
+     */
+    public void delete(Series series) {
+        mRepository.delete(series);
+    }
 }
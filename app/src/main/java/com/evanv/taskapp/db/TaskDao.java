@@ -19,37 +19,99 @@ import java.util.List;
 public interface TaskDao {
 
     /**
-     * Insert a task into the task_table
+     * Insert several tasks into the task_table at once.
      *
-     * @param task The task to insert
-     * @return The ID of the new task, which serves as it's primary key
+     * @param tasks The tasks to insert
+     * @return The ID of each new row, in the same order as tasks
      */
     @Insert
-    long insert(Task task);
+    List<Long> insertAll(List<Task> tasks);
 
     /**
-     * Update a task in the task_table. Any field can be changed as long as it's ID matches one in
-     * the table, as it serves as the Primary Key.
+     * Update several tasks in the task_table, matching each by its ID.
      *
-     * @param task The task to be updated.
+     * @param tasks The tasks to update
      */
     @Update
-    void update(Task task);
+    void updateAll(List<Task> tasks);
 
     /**
-     * Delete a task in the task_table.
+     * Delete several tasks from the task_table.
      *
-     * @param task The task to be deleted.
+     * @param tasks The tasks to delete
      */
     @Delete
-    void deleteTask(Task task);
+    void deleteAll(List<Task> tasks);
 
     /**
-     * Get all tasks in the task_table.
+     * Get the tasks scheduled for a date or later, i.e. every task that isn't overdue.
      *
-     * @return A List of Tasks in the task_table
+     * @param today The epoch day of today's date
+     * @return A List of Tasks scheduled for today or later
      */
-    @Query("SELECT * from task_table")
-    List<Task> getTasks();
+    @Query("SELECT * from task_table WHERE doDate >= :today")
+    List<Task> getTasksFrom(long today);
+
+    /**
+     * Get the tasks scheduled before a date, i.e. the ones that weren't completed on the day
+     * they were scheduled for.
+     *
+     * @param today The epoch day of today's date
+     * @return A List of Tasks scheduled before today
+     */
+    @Query("SELECT * from task_table WHERE doDate < :today")
+    List<Task> getOverdueTasks(long today);
+
+    /**
+     * Get the tasks scheduled between two dates. Dates are stored as epoch days, so the bounds
+     * are too.
+     *
+     * @param startDay The epoch day of the first date to get tasks for
+     * @param endDay The epoch day of the last date to get tasks for
+     * @return A List of Tasks scheduled between startDay and endDay, inclusive
+     */
+    @Query("SELECT * from task_table WHERE doDate BETWEEN :startDay AND :endDay")
+    List<Task> getTasksBetween(long startDay, long endDay);
+
+    /**
+     * Get the tasks due between two dates, using the index on dueDate.
+     *
+     * @param startDay The epoch day of the first due date to get tasks for
+     * @param endDay The epoch day of the last due date to get tasks for
+     * @return A List of Tasks due between startDay and endDay, inclusive
+     */
+    @Query("SELECT * from task_table WHERE dueDate BETWEEN :startDay AND :endDay")
+    List<Task> getTasksDueBetween(long startDay, long endDay);
+
+    /**
+     * Get the tasks either due or scheduled between two dates. SQLite answers the OR with both
+     * the dueDate and doDate indexes instead of scanning the table.
+     *
+     * @param startDay The epoch day of the first date to get tasks for
+     * @param endDay The epoch day of the last date to get tasks for
+     * @return A List of Tasks due or scheduled between startDay and endDay, inclusive
+     */
+    @Query("SELECT * from task_table WHERE doDate BETWEEN :startDay AND :endDay " +
+            "OR dueDate BETWEEN :startDay AND :endDay")
+    List<Task> getTasksDueOrScheduledBetween(long startDay, long endDay);
+
+    /**
+     * Get the tasks in a project, using the index on project.
+     *
+     * @param project The ID of the project
+     * @return A List of the Tasks in the project
+     */
+    @Query("SELECT * from task_table WHERE project = :project")
+    List<Task> getTasksIn(long project);
+
+    /**
+     * Get a page of tasks in order of ID, for reading every task without holding them all.
+     *
+     * @param after The ID the tasks must be past
+     * @param count The most tasks to get
+     * @return A List of the next count tasks with IDs past after, in order of ID
+     */
+    @Query("SELECT * from task_table WHERE id > :after ORDER BY id ASC LIMIT :count")
+    List<Task> getTasksAfter(long after, int count);
 }
 
@@ -0,0 +1,50 @@
+package com.evanv.taskapp.db;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+
+/**
+ * A row of the task_dependency table, saying one task can't be done until another is. Keyed by
+ * (child, parent) so a task's parents are a range of the primary key, with an index on parent for
+ * the reverse lookup of a task's children.
+ *
+ * @author Evan Voogd
+ */
+@Entity(tableName = "task_dependency", primaryKeys = {"child", "parent"},
+        indices = {@Index("parent")})
+public class TaskDependency {
+    @ColumnInfo(name = "child")
+    private final long mChild;  // ID of the task that depends on parent
+    @ColumnInfo(name = "parent")
+    private final long mParent; // ID of the task that must be done first
+
+    /**
+     * Creates a new dependency.
+     *
+     * @param child ID of the task that depends on parent
+     * @param parent ID of the task that must be done first
+     */
+    public TaskDependency(long child, long parent) {
+        mChild = child;
+        mParent = parent;
+    }
+
+    /**
+     * Get the ID of the task that depends on the parent.
+     *
+     * @return The ID of the dependent task
+     */
+    public long getChild() {
+        return mChild;
+    }
+
+    /**
+     * Get the ID of the task that must be done first.
+     *
+     * @return The ID of the prerequisite task
+     */
+    public long getParent() {
+        return mParent;
+    }
+}
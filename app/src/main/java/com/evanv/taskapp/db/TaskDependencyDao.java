@@ -0,0 +1,86 @@
+package com.evanv.taskapp.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.evanv.taskapp.logic.Task;
+
+import java.util.List;
+
+/**
+ * Dao for TaskDependencies, defines queries used for interfacing with the task_dependency table.
+ * Lets a task's parents or children be found without loading every task.
+ *
+ * @author Evan Voogd
+ */
+@Dao
+public interface TaskDependencyDao {
+    /**
+     * Insert several dependencies into the task_dependency table. Dependencies that are already
+     * there are skipped.
+     *
+     * @param dependencies The dependencies to be added
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertAll(List<TaskDependency> dependencies);
+
+    /**
+     * Delete every dependency of some tasks on their parents, e.g. before writing their current
+     * parents.
+     *
+     * @param children The IDs of the tasks whose parents should be cleared
+     */
+    @Query("DELETE FROM task_dependency WHERE child IN (:children)")
+    void deleteParentsOf(List<Long> children);
+
+    /**
+     * Delete every dependency involving some tasks, either as the child or the parent, e.g.
+     * because the tasks were deleted.
+     *
+     * @param tasks The IDs of the tasks
+     */
+    @Query("DELETE FROM task_dependency WHERE child IN (:tasks) OR parent IN (:tasks)")
+    void deleteAllOf(List<Long> tasks);
+
+    /**
+     * Get every dependency in the task_dependency table.
+     *
+     * @return A list of every dependency
+     */
+    @Query("SELECT * FROM task_dependency")
+    List<TaskDependency> getDependencies();
+
+    /**
+     * Get the dependencies of some tasks on their parents.
+     *
+     * @param children The IDs of the tasks
+     *
+     * @return A list of every dependency whose child is one of the tasks
+     */
+    @Query("SELECT * FROM task_dependency WHERE child IN (:children)")
+    List<TaskDependency> getParentsOf(List<Long> children);
+
+    /**
+     * Get the tasks a task depends on.
+     *
+     * @param child The ID of the task
+     *
+     * @return A list of the task's prerequisites
+     */
+    @Query("SELECT task_table.* FROM task_table INNER JOIN task_dependency "
+            + "ON task_table.id = task_dependency.parent WHERE task_dependency.child = :child")
+    List<Task> getParents(long child);
+
+    /**
+     * Get the tasks that depend on a task. Uses the index on parent.
+     *
+     * @param parent The ID of the task
+     *
+     * @return A list of the tasks that can't be done until the task is
+     */
+    @Query("SELECT task_table.* FROM task_table INNER JOIN task_dependency "
+            + "ON task_table.id = task_dependency.child WHERE task_dependency.parent = :parent")
+    List<Task> getChildren(long parent);
+}
@@ -0,0 +1,50 @@
+package com.evanv.taskapp.db;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+
+/**
+ * A row of the task_label table, saying a task has a label. Keyed by (task, label) so a task's
+ * labels are a range of the primary key, with an index on label for finding every task with a
+ * label.
+ *
+ * @author Evan Voogd
+ */
+@Entity(tableName = "task_label", primaryKeys = {"task", "label"},
+        indices = {@Index("label")})
+public class TaskLabel {
+    @ColumnInfo(name = "task")
+    private final long mTask;  // ID of the task
+    @ColumnInfo(name = "label")
+    private final long mLabel; // ID of the label it has
+
+    /**
+     * Creates a new task/label pair.
+     *
+     * @param task ID of the task
+     * @param label ID of the label it has
+     */
+    public TaskLabel(long task, long label) {
+        mTask = task;
+        mLabel = label;
+    }
+
+    /**
+     * Get the ID of the task.
+     *
+     * @return The ID of the task
+     */
+    public long getTask() {
+        return mTask;
+    }
+
+    /**
+     * Get the ID of the label the task has.
+     *
+     * @return The ID of the label
+     */
+    public long getLabel() {
+        return mLabel;
+    }
+}
@@ -0,0 +1,74 @@
+package com.evanv.taskapp.db;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.evanv.taskapp.logic.Task;
+
+import java.util.List;
+
+/**
+ * Dao for TaskLabels, defines queries used for interfacing with the task_label table. Lets the
+ * tasks with a label be found without loading every task.
+ *
+ * @author Evan Voogd
+ */
+@Dao
+public interface TaskLabelDao {
+    /**
+     * Insert several task/label pairs into the task_label table. Pairs that are already there are
+     * skipped.
+     *
+     * @param taskLabels The pairs to be added
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertAll(List<TaskLabel> taskLabels);
+
+    /**
+     * Delete every label of some tasks, e.g. before writing their current labels, or because the
+     * tasks were deleted.
+     *
+     * @param tasks The IDs of the tasks whose labels should be cleared
+     */
+    @Query("DELETE FROM task_label WHERE task IN (:tasks)")
+    void deleteLabelsOf(List<Long> tasks);
+
+    /**
+     * Delete every task/label pair for some labels, e.g. because the labels were deleted.
+     *
+     * @param labels The IDs of the labels
+     */
+    @Query("DELETE FROM task_label WHERE label IN (:labels)")
+    void deleteTasksWith(List<Long> labels);
+
+    /**
+     * Get every task/label pair in the task_label table.
+     *
+     * @return A list of every pair
+     */
+    @Query("SELECT * FROM task_label")
+    List<TaskLabel> getTaskLabels();
+
+    /**
+     * Get the labels of some tasks.
+     *
+     * @param tasks The IDs of the tasks
+     *
+     * @return A list of every pair whose task is one of the tasks
+     */
+    @Query("SELECT * FROM task_label WHERE task IN (:tasks)")
+    List<TaskLabel> getLabelsOf(List<Long> tasks);
+
+    /**
+     * Get the tasks with a label. Uses the index on label.
+     *
+     * @param label The ID of the label
+     *
+     * @return A list of the tasks with the label
+     */
+    @Query("SELECT task_table.* FROM task_table INNER JOIN task_label "
+            + "ON task_table.id = task_label.task WHERE task_label.label = :label")
+    List<Task> getTasksWith(long label);
+}
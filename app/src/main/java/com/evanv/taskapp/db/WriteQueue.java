@@ -0,0 +1,599 @@
+package com.evanv.taskapp.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Single-writer queue for changes to the database. Writes are queued instead of each getting a
+ * thread of its own, and one thread commits them in batches, each batch in one transaction. While
+ * a change waits in the queue, later changes to the same object are folded into it, so e.g. a
+ * task moved several times by one optimize is only written once, and two writes to the same row
+ * can't race each other out of order. A batch that fails to commit is retried with a backoff; a
+ * change still failing after MAX_RETRIES tries is committed apart from the rest, split off in
+ * halves until it fails alone, and then dropped, so one bad change can't stall every other write.
+ *
+ * @author Evan Voogd
+ */
+public class WriteQueue {
+    static final int INSERT = 0; // Insert the item, setting its ID
+    static final int UPDATE = 1; // Update the item's row
+    static final int DELETE = 2; // Delete the item's row
+    private static final long DELAY_MS = 100; // Time to wait for more writes before committing
+    private static final long MAX_RETRY_MS = 30000; // Longest to wait before retrying a commit
+    static final int MAX_RETRIES = 4; // Failed commits before a change is tried apart from others
+    private static final String[] TYPE_NAMES = {"insert", "update", "delete"}; // For the log
+
+    private final List<Table<?>> mTables;     // Tables, in the order their inserts must happen
+    private final Executor mTransaction;      // Runs a batch in one transaction
+    private final Runnable mIdleListener;     // Called when the queue is empty after a commit
+    private final Object mLock = new Object(); // Guards the fields below
+    // The queued change for each item, by identity, as the same row can be in more than one object
+    private IdentityHashMap<Object, Op<?>> mPending = new IdentityHashMap<>();
+    private int mInFlight;                    // Number of changes in the batch being committed
+    private long mSequence;                   // Number of changes queued, orders a batch
+    private boolean mFlushRequested;          // Should the next batch be committed without waiting
+    private long mCommits;                    // Number of batches committed
+    private long mWrites;                     // Number of changes committed
+    private long mCoalesced;                  // Number of changes folded into one already queued
+    private long mLastCommitNanos;            // Time taken to commit the last batch
+    private long mMaxCommitNanos;             // Longest time taken to commit a batch
+    private long mTotalCommitNanos;           // Time taken to commit every batch
+    private long mFailures;                   // Number of commits that failed
+    private long mDropped;                    // Number of changes dropped after failing alone
+    private long mRetryMs;                    // Wait before retrying a failed commit, 0 if none
+
+    /**
+     * A table the queue can write to, wrapping the list-based methods of its Dao. Tables only
+     * override the changes they take: the rest throw, so queueing a change a table doesn't
+     * support fails its commit instead of being dropped.
+     *
+     * @param <T> The type of item stored in the table
+     */
+    abstract static class Table<T> {
+        /**
+         * Insert items into the table. Throws by default.
+         *
+         * @param items The items to insert
+         *
+         * @return The ID of each item, in the same order
+         */
+        List<Long> insert(List<T> items) {
+            throw new UnsupportedOperationException("Table doesn't take inserts");
+        }
+
+        /**
+         * Update the rows of items in the table. Throws by default.
+         *
+         * @param items The items to update
+         */
+        void update(List<T> items) {
+            throw new UnsupportedOperationException("Table doesn't take updates");
+        }
+
+        /**
+         * Delete the rows of items in the table. Throws by default.
+         *
+         * @param items The items to delete
+         */
+        void delete(List<T> items) {
+            throw new UnsupportedOperationException("Table doesn't take deletes");
+        }
+
+        /**
+         * Called after an item is inserted, with the ID of its row. Does nothing by default.
+         *
+         * @param item The item that was inserted
+         * @param id The ID of its row
+         */
+        void inserted(T item, long id) {
+        }
+
+        /**
+         * Called after every change of one type to the table in a batch has been written, in the
+         * same transaction, for writing anything kept in other tables. Does nothing by default.
+         *
+         * @param items The items written, with their IDs set if they were inserted
+         * @param type INSERT, UPDATE or DELETE
+         */
+        void written(List<T> items, int type) {
+        }
+
+        /**
+         * Called after a transaction that wrote an item is rolled back, for undoing anything
+         * written() marked as saved, so the change is written in full when it's retried. Does
+         * nothing by default.
+         *
+         * @param item The item that wasn't written
+         */
+        void rolledBack(T item) {
+        }
+    }
+
+    /**
+     * A change waiting in the queue.
+     *
+     * @param <T> The type of the item changed
+     */
+    private static class Op<T> {
+        private final Table<T> mTable; // Table the item is stored in
+        private final T mItem;         // The item to write
+        private int mType;             // INSERT, UPDATE or DELETE
+        private long mSequence;        // When the item was last changed, orders a batch
+        private int mFailures;         // Number of failed commits the change was in
+
+        /**
+         * Creates a new change.
+         *
+         * @param table Table the item is stored in
+         * @param item The item to write
+         * @param type INSERT, UPDATE or DELETE
+         * @param sequence When the item was changed
+         */
+        Op(Table<T> table, T item, int type, long sequence) {
+            mTable = table;
+            mItem = item;
+            mType = type;
+            mSequence = sequence;
+        }
+    }
+
+    /**
+     * Creates a queue and starts its writer thread.
+     *
+     * @param tables Every table the queue writes to. Inserts are committed in this order, so a
+     *               table should come after the ones whose IDs its rows hold.
+     * @param transaction Runs a batch of writes in one transaction
+     * @param idleListener Called on the writer thread whenever a commit leaves the queue empty,
+     *                     or null for none
+     */
+    WriteQueue(List<Table<?>> tables, Executor transaction, Runnable idleListener) {
+        mTables = tables;
+        mTransaction = transaction;
+        mIdleListener = idleListener;
+
+        Thread writer = new Thread(this::run, "WriteQueue");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queue a change to an item. If the item already has a change queued, the two are folded
+     * into one: an insert followed by updates is one insert of the latest values, an insert
+     * followed by a delete never reaches the database, and anything followed by a delete is a
+     * delete.
+     *
+     * @param table Table the item is stored in
+     * @param item The item to write
+     * @param type INSERT, UPDATE or DELETE
+     * @param <T> The type of the item
+     */
+    <T> void enqueue(Table<T> table, T item, int type) {
+        synchronized (mLock) {
+            mSequence++;
+            Op<?> queued = mPending.get(item);
+
+            if (queued == null) {
+                mPending.put(item, new Op<>(table, item, type, mSequence));
+                mLock.notifyAll();
+                return;
+            }
+
+            mCoalesced++;
+            queued.mSequence = mSequence;
+
+            if (!fold(queued, type)) {
+                mPending.remove(item);
+            }
+        }
+    }
+
+    /**
+     * Fold a later change to an item into the change queued for it.
+     *
+     * @param queued The change queued for the item, which is updated
+     * @param type The type of the later change
+     *
+     * @return false if the two cancel out, so nothing needs writing
+     */
+    private static boolean fold(Op<?> queued, int type) {
+        if (queued.mType == INSERT) {
+            return type != DELETE;
+        }
+
+        if (type == DELETE) {
+            queued.mType = DELETE;
+        }
+        else if (queued.mType == DELETE && type == INSERT) {
+            // Still in the table, so putting it back is just writing its values again
+            queued.mType = UPDATE;
+        }
+
+        return true;
+    }
+
+    /**
+     * Put the changes of a batch that failed to commit back in the queue, so they're retried
+     * rather than lost. Changes made to the same items since the batch was taken are folded in
+     * after them, as they were made later. Must be called holding mLock.
+     *
+     * @param batch The changes that weren't committed
+     */
+    private void requeue(List<Op<?>> batch) {
+        for (Op<?> failed : batch) {
+            Op<?> later = mPending.put(failed.mItem, failed);
+
+            if (later != null) {
+                // A later change may fix what failed, so it gets a fresh set of retries
+                failed.mSequence = later.mSequence;
+                failed.mFailures = 0;
+                if (!fold(failed, later.mType)) {
+                    mPending.remove(failed.mItem);
+                }
+            }
+        }
+    }
+
+    /**
+     * Commit whatever is queued now instead of waiting for more writes to join it, e.g. because
+     * the app is going into the background. Doesn't block.
+     */
+    public void flush() {
+        synchronized (mLock) {
+            mFlushRequested = true;
+            mLock.notifyAll();
+        }
+    }
+
+    /**
+     * Commit whatever is queued now, and wait until every queued change has been committed.
+     *
+     * @param timeoutMs The longest to wait, in milliseconds
+     *
+     * @return true if the queue is empty, false if it timed out first
+     */
+    public boolean awaitIdle(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+
+        synchronized (mLock) {
+            mFlushRequested = true;
+            mLock.notifyAll();
+
+            while (!isIdle()) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) {
+                    return false;
+                }
+
+                try {
+                    mLock.wait(left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Check if every queued change has been committed.
+     *
+     * @return true if nothing is queued or being committed
+     */
+    public boolean isIdle() {
+        synchronized (mLock) {
+            return mPending.isEmpty() && mInFlight == 0;
+        }
+    }
+
+    /**
+     * Get the number of changes not yet committed, including the batch being committed.
+     *
+     * @return The depth of the queue
+     */
+    public int getDepth() {
+        synchronized (mLock) {
+            return mPending.size() + mInFlight;
+        }
+    }
+
+    /**
+     * Get the number of batches committed.
+     *
+     * @return The number of transactions committed
+     */
+    public long getCommits() {
+        synchronized (mLock) {
+            return mCommits;
+        }
+    }
+
+    /**
+     * Get the number of changes committed. Doesn't count changes folded into another.
+     *
+     * @return The number of rows written
+     */
+    public long getWrites() {
+        synchronized (mLock) {
+            return mWrites;
+        }
+    }
+
+    /**
+     * Get the number of commits that failed. Their changes are requeued and retried.
+     *
+     * @return The number of failed transactions
+     */
+    public long getFailures() {
+        synchronized (mLock) {
+            return mFailures;
+        }
+    }
+
+    /**
+     * Get the number of changes dropped because they kept failing to commit even on their own.
+     *
+     * @return The number of changes lost
+     */
+    public long getDropped() {
+        synchronized (mLock) {
+            return mDropped;
+        }
+    }
+
+    /**
+     * Get the number of changes folded into a change already queued for the same item.
+     *
+     * @return The number of writes saved by coalescing
+     */
+    public long getCoalesced() {
+        synchronized (mLock) {
+            return mCoalesced;
+        }
+    }
+
+    /**
+     * Get the time taken to commit the last batch.
+     *
+     * @return The latency of the last commit, in milliseconds
+     */
+    public double getLastCommitMs() {
+        synchronized (mLock) {
+            return mLastCommitNanos / 1e6;
+        }
+    }
+
+    /**
+     * Get the longest time taken to commit a batch.
+     *
+     * @return The worst commit latency, in milliseconds
+     */
+    public double getMaxCommitMs() {
+        synchronized (mLock) {
+            return mMaxCommitNanos / 1e6;
+        }
+    }
+
+    /**
+     * Get the average time taken to commit a batch.
+     *
+     * @return The mean commit latency, in milliseconds, or 0 if nothing has been committed
+     */
+    public double getAverageCommitMs() {
+        synchronized (mLock) {
+            return mCommits == 0 ? 0 : mTotalCommitNanos / 1e6 / mCommits;
+        }
+    }
+
+    /**
+     * The writer thread. Waits for changes, gives later ones a moment to join them, then commits
+     * them all in one transaction, forever.
+     */
+    private void run() {
+        //noinspection InfiniteLoopStatement
+        while (true) {
+            List<Op<?>> batch;
+
+            synchronized (mLock) {
+                try {
+                    while (mPending.isEmpty()) {
+                        mLock.wait();
+                    }
+
+                    // After a failure, wait out the backoff even if a flush is requested
+                    long delay = Math.max(DELAY_MS, mRetryMs);
+                    long deadline = System.currentTimeMillis() + delay;
+                    long left = delay;
+                    while ((mRetryMs > 0 || !mFlushRequested) && left > 0) {
+                        mLock.wait(left);
+                        left = deadline - System.currentTimeMillis();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                mFlushRequested = false;
+                batch = new ArrayList<>(mPending.values());
+                mPending = new IdentityHashMap<>();
+                mInFlight = batch.size();
+            }
+
+            // Changes that keep failing are committed apart, so they can't hold the rest back
+            List<Op<?>> fresh = new ArrayList<>();
+            List<Op<?>> suspects = new ArrayList<>();
+            for (Op<?> op : batch) {
+                (op.mFailures < MAX_RETRIES ? fresh : suspects).add(op);
+            }
+
+            List<Op<?>> failed = new ArrayList<>();
+            if (!fresh.isEmpty() && tryCommit(fresh) != null) {
+                failed.addAll(fresh);
+            }
+            isolate(suspects);
+
+            boolean idle;
+            synchronized (mLock) {
+                mInFlight = 0;
+
+                if (failed.isEmpty()) {
+                    mRetryMs = 0;
+                }
+                else {
+                    // Nothing in the batch was written, so keep it and back off, and don't
+                    // report the queue idle, as the database is behind
+                    for (Op<?> op : failed) {
+                        op.mFailures++;
+                    }
+                    mRetryMs = Math.min(MAX_RETRY_MS, Math.max(DELAY_MS, mRetryMs * 2));
+                    requeue(failed);
+                }
+
+                idle = failed.isEmpty() && mPending.isEmpty();
+                mLock.notifyAll();
+            }
+
+            if (idle && mIdleListener != null) {
+                mIdleListener.run();
+            }
+        }
+    }
+
+    /**
+     * Commit some changes in one transaction, recording how long it took.
+     *
+     * @param ops The changes to commit
+     *
+     * @return null if they were committed, or the error if the transaction was rolled back
+     */
+    private RuntimeException tryCommit(List<Op<?>> ops) {
+        long start = System.nanoTime();
+        try {
+            mTransaction.execute(() -> commit(ops));
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+
+            for (Op<?> op : ops) {
+                rolledBack(op);
+            }
+            synchronized (mLock) {
+                mFailures++;
+            }
+            return e;
+        }
+        long nanos = System.nanoTime() - start;
+
+        synchronized (mLock) {
+            mCommits++;
+            mWrites += ops.size();
+            mLastCommitNanos = nanos;
+            mMaxCommitNanos = Math.max(mMaxCommitNanos, nanos);
+            mTotalCommitNanos += nanos;
+        }
+        return null;
+    }
+
+    /**
+     * Commit changes that have failed MAX_RETRIES times. If they fail together they're split in
+     * halves, the earlier half first, until the ones that fail are alone; each of those is
+     * dropped, so the rest are still written.
+     *
+     * @param ops The changes to commit
+     */
+    private void isolate(List<Op<?>> ops) {
+        if (ops.isEmpty()) {
+            return;
+        }
+
+        RuntimeException error = tryCommit(ops);
+        if (error == null) {
+            return;
+        }
+
+        if (ops.size() == 1) {
+            Op<?> op = ops.get(0);
+            new IllegalStateException("Dropped " + TYPE_NAMES[op.mType] + " of " + op.mItem
+                    + " after " + (op.mFailures + 1) + " failed commits", error)
+                    .printStackTrace();
+
+            synchronized (mLock) {
+                mDropped++;
+            }
+            return;
+        }
+
+        // Earlier changes first, so an insert is still written before updates that follow it
+        Collections.sort(ops, (a, b) -> Long.compare(a.mSequence, b.mSequence));
+        int half = ops.size() / 2;
+        isolate(new ArrayList<>(ops.subList(0, half)));
+        isolate(new ArrayList<>(ops.subList(half, ops.size())));
+    }
+
+    /**
+     * Tell a change's table it wasn't written after all.
+     *
+     * @param op The change that was rolled back
+     * @param <T> The type of item changed
+     */
+    private static <T> void rolledBack(Op<T> op) {
+        op.mTable.rolledBack(op.mItem);
+    }
+
+    /**
+     * Write a batch of changes. Every insert goes first, table by table, so the IDs they're given
+     * are set before any update writes them into another row, then every update, then every
+     * delete. Within each, changes are written in the order they were made.
+     *
+     * @param batch The changes to write
+     */
+    private void commit(List<Op<?>> batch) {
+        Collections.sort(batch, (a, b) -> Long.compare(a.mSequence, b.mSequence));
+
+        for (int type = INSERT; type <= DELETE; type++) {
+            for (Table<?> table : mTables) {
+                write(table, batch, type);
+            }
+        }
+    }
+
+    /**
+     * Write every change of one type to one table.
+     *
+     * @param table The table to write to
+     * @param batch Every change in the batch
+     * @param type The type of change to write
+     * @param <T> The type of item stored in the table
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> void write(Table<T> table, List<Op<?>> batch, int type) {
+        List<T> items = new ArrayList<>();
+        for (Op<?> op : batch) {
+            if (op.mTable == table && op.mType == type) {
+                items.add(((Op<T>) op).mItem);
+            }
+        }
+
+        if (items.isEmpty()) {
+            return;
+        }
+
+        if (type == INSERT) {
+            List<Long> ids = table.insert(items);
+
+            for (int i = 0; i < items.size(); i++) {
+                table.inserted(items.get(i), ids.get(i));
+            }
+        }
+        else if (type == UPDATE) {
+            table.update(items);
+        }
+        else {
+            table.delete(items);
+        }
+
+        table.written(items, type);
+    }
+}
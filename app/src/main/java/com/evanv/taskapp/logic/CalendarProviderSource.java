@@ -0,0 +1,85 @@
+package com.evanv.taskapp.logic;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.CalendarContract;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the device's calendars from its calendar provider, for CalendarSync. Needs the
+ * READ_CALENDAR permission. Only the columns that are mirrored are read, and occurrences come
+ * from the Instances table, so recurring events are already expanded by the provider.
+ *
+ * @author Evan Voogd
+ */
+public class CalendarProviderSource implements CalendarSync.Source {
+    // Columns read from the Instances table, in the order they're read
+    private static final String[] INSTANCE_COLUMNS = {CalendarContract.Instances.EVENT_ID,
+            CalendarContract.Instances.BEGIN, CalendarContract.Instances.END,
+            CalendarContract.Instances.TITLE, CalendarContract.Instances.ALL_DAY};
+
+    private final ContentResolver mResolver; // Resolver for the calendar provider
+
+    /**
+     * Creates a source for the device's calendars.
+     *
+     * @param resolver Resolver for the calendar provider
+     */
+    public CalendarProviderSource(ContentResolver resolver) {
+        mResolver = resolver;
+    }
+
+    /**
+     * Get the calendars shown in the device's calendar app.
+     *
+     * @return The ID of each visible calendar
+     */
+    @Override
+    public List<Long> getCalendars() {
+        List<Long> calendars = new ArrayList<>();
+
+        try (Cursor cursor = mResolver.query(CalendarContract.Calendars.CONTENT_URI,
+                new String[]{CalendarContract.Calendars._ID},
+                CalendarContract.Calendars.VISIBLE + " = 1", null, null)) {
+            while (cursor != null && cursor.moveToNext()) {
+                calendars.add(cursor.getLong(0));
+            }
+        }
+
+        return calendars;
+    }
+
+    /**
+     * Get the occurrences of a calendar's events that overlap a window, leaving out deleted
+     * events that haven't been synced away yet.
+     *
+     * @param calendar ID of the calendar
+     * @param begin Start of the window, in epoch milliseconds
+     * @param end End of the window, in epoch milliseconds
+     *
+     * @return The occurrences
+     */
+    @Override
+    public List<CalendarSync.Instance> getInstances(long calendar, long begin, long end) {
+        Uri.Builder builder = CalendarContract.Instances.CONTENT_URI.buildUpon();
+        ContentUris.appendId(builder, begin);
+        ContentUris.appendId(builder, end);
+
+        List<CalendarSync.Instance> instances = new ArrayList<>();
+        try (Cursor cursor = mResolver.query(builder.build(), INSTANCE_COLUMNS,
+                CalendarContract.Instances.CALENDAR_ID + " = ? AND "
+                        + CalendarContract.Events.DELETED + " = 0",
+                new String[]{Long.toString(calendar)}, null)) {
+            while (cursor != null && cursor.moveToNext()) {
+                instances.add(new CalendarSync.Instance(cursor.getLong(0), cursor.getLong(1),
+                        cursor.getLong(2), cursor.getString(3), cursor.getInt(4) != 0));
+            }
+        }
+
+        return instances;
+    }
+}
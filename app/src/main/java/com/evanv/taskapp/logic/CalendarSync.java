@@ -0,0 +1,292 @@
+package com.evanv.taskapp.logic;
+
+import com.evanv.taskapp.db.CalendarSyncState;
+import com.evanv.taskapp.db.ImportedEvent;
+
+import org.threeten.bp.Instant;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneId;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Works out how the events mirrored from the device's calendars need to change to match them.
+ * Each occurrence in the window is mirrored as its own event, linked to it in the imported_event
+ * table by its event's ID and start, along with a hash of its name and times. Each calendar keeps
+ * a digest of every occurrence it had in the window last synced as its high-water mark, so a
+ * calendar that hasn't changed costs one query of the source and nothing else: its links aren't
+ * read and nothing is written. Only calendars whose digest changed are compared occurrence by
+ * occurrence, giving the occurrences to add, rewrite and remove as one change set.
+ *
+ * @author Evan Voogd
+ */
+public class CalendarSync {
+    /**
+     * The device's calendars, or a fake for tests.
+     */
+    public interface Source {
+        /**
+         * Get the calendars to mirror.
+         *
+         * @return The ID of each calendar
+         */
+        List<Long> getCalendars();
+
+        /**
+         * Get the occurrences of a calendar's events that overlap a window.
+         *
+         * @param calendar ID of the calendar
+         * @param begin Start of the window, in epoch milliseconds
+         * @param end End of the window, in epoch milliseconds
+         *
+         * @return The occurrences, in any order
+         */
+        List<Instance> getInstances(long calendar, long begin, long end);
+    }
+
+    /**
+     * What was mirrored last time, normally read from the database.
+     */
+    public interface Store {
+        /**
+         * Get the high-water mark of every calendar being mirrored.
+         *
+         * @return Every calendar's high-water mark
+         */
+        List<CalendarSyncState> getSyncStates();
+
+        /**
+         * Get every link to an occurrence mirrored from a calendar.
+         *
+         * @param source ImportedEvent.CALENDAR followed by the calendar's ID
+         *
+         * @return Every link from source
+         */
+        List<ImportedEvent> getLinks(String source);
+    }
+
+    /**
+     * One occurrence of an event in a calendar.
+     */
+    public static class Instance {
+        private final long mEvent;     // ID of the event in the calendar
+        private final long mBegin;     // Start, in epoch milliseconds
+        private final long mEnd;       // End, in epoch milliseconds
+        private final String mTitle;   // Name of the event, null if it has none
+        private final boolean mAllDay; // Does it take up whole days rather than a time
+
+        /**
+         * Creates a new occurrence.
+         *
+         * @param event ID of the event in the calendar
+         * @param begin Start, in epoch milliseconds
+         * @param end End, in epoch milliseconds
+         * @param title Name of the event, null if it has none
+         * @param allDay Does it take up whole days rather than a time
+         */
+        public Instance(long event, long begin, long end, String title, boolean allDay) {
+            mEvent = event;
+            mBegin = begin;
+            mEnd = end;
+            mTitle = title;
+            mAllDay = allDay;
+        }
+    }
+
+    /**
+     * An occurrence to mirror as an event.
+     */
+    static class Occurrence {
+        final String mSource;        // ImportedEvent.CALENDAR followed by the calendar's ID
+        final String mUID;           // The occurrence's event ID and start, e.g. "12@1705330800000"
+        final String mName;          // Name of the event, null if it has none
+        final LocalDateTime mStart;  // Start, in local time
+        final int mLength;           // Length in minutes
+        final long mVersion;         // Hash of the name and times
+        final long mEventID;         // ID of the event mirroring it, -1 if there isn't one yet
+
+        /**
+         * Creates a new occurrence to mirror.
+         *
+         * @param source ImportedEvent.CALENDAR followed by the calendar's ID
+         * @param uid The occurrence's event ID and start
+         * @param name Name of the event, null if it has none
+         * @param start Start, in local time
+         * @param length Length in minutes
+         * @param version Hash of the name and times
+         * @param eventID ID of the event mirroring it, -1 if there isn't one yet
+         */
+        Occurrence(String source, String uid, String name, LocalDateTime start, int length,
+                   long version, long eventID) {
+            mSource = source;
+            mUID = uid;
+            mName = name;
+            mStart = start;
+            mLength = length;
+            mVersion = version;
+            mEventID = eventID;
+        }
+    }
+
+    /**
+     * Every change needed to bring the mirrored events in line with the device's calendars.
+     */
+    public static class ChangeSet {
+        final List<Occurrence> mAdded = new ArrayList<>();     // Occurrences new to the window
+        final List<Occurrence> mChanged = new ArrayList<>();   // Occurrences already mirrored
+        final List<ImportedEvent> mRemoved = new ArrayList<>(); // Links to removed occurrences
+        final List<CalendarSyncState> mSynced = new ArrayList<>();    // New high-water marks
+        final List<CalendarSyncState> mForgotten = new ArrayList<>(); // Calendars now gone
+
+        /**
+         * Check if nothing needs to change, so applying the change set can be skipped.
+         *
+         * @return true if there are no changes
+         */
+        public boolean isEmpty() {
+            return mAdded.isEmpty() && mChanged.isEmpty() && mRemoved.isEmpty()
+                    && mSynced.isEmpty() && mForgotten.isEmpty();
+        }
+
+        /**
+         * Get the number of occurrences added, changed or removed.
+         *
+         * @return The number of events the change set adds, rewrites or deletes
+         */
+        public int size() {
+            return mAdded.size() + mChanged.size() + mRemoved.size();
+        }
+    }
+
+    /**
+     * Compare the device's calendars against what was mirrored last time.
+     *
+     * @param source The device's calendars
+     * @param store What was mirrored last time
+     * @param zone Zone to convert times into, normally ZoneId.systemDefault()
+     * @param from First day of the window to mirror, normally today
+     * @param to Last day of the window to mirror, normally the horizon
+     *
+     * @return The changes to make, empty if nothing changed
+     */
+    static ChangeSet read(Source source, Store store, ZoneId zone, LocalDate from, LocalDate to) {
+        long begin = from.atStartOfDay(zone).toInstant().toEpochMilli();
+        long end = to.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+
+        Map<Long, CalendarSyncState> states = new HashMap<>();
+        for (CalendarSyncState state : store.getSyncStates()) {
+            states.put(state.getCalendar(), state);
+        }
+
+        ChangeSet changes = new ChangeSet();
+        Set<Long> calendars = new HashSet<>();
+
+        for (long calendar : source.getCalendars()) {
+            calendars.add(calendar);
+            String name = ImportedEvent.CALENDAR + calendar;
+
+            // Occurrences that started before the window are over or in progress, so skip them
+            List<Instance> instances = new ArrayList<>();
+            for (Instance instance : source.getInstances(calendar, begin, end)) {
+                if (!instance.mAllDay && instance.mBegin >= begin && instance.mBegin < end) {
+                    instances.add(instance);
+                }
+            }
+
+            // The window is part of the digest, so it changes each day as the window moves
+            long digest = mix(begin * 31 + end);
+            for (Instance instance : instances) {
+                digest += mix(version(instance) ^ uid(instance).hashCode());
+            }
+
+            CalendarSyncState state = states.get(calendar);
+            if (state != null && state.getDigest() == digest
+                    && state.getCount() == instances.size()) {
+                continue;
+            }
+
+            Map<String, ImportedEvent> links = new HashMap<>();
+            if (state != null) {
+                for (ImportedEvent link : store.getLinks(name)) {
+                    links.put(link.getUID(), link);
+                }
+            }
+
+            for (Instance instance : instances) {
+                String uid = uid(instance);
+                long version = version(instance);
+                ImportedEvent link = links.remove(uid);
+
+                if (link == null || link.getVersion() != version) {
+                    LocalDateTime start = Instant.ofEpochMilli(instance.mBegin).atZone(zone)
+                            .toLocalDateTime();
+                    int length = (int) Math.max(0, (instance.mEnd - instance.mBegin) / 60000);
+                    Occurrence occurrence = new Occurrence(name, uid, instance.mTitle, start,
+                            length, version, link == null ? -1 : link.getItemID());
+
+                    (link == null ? changes.mAdded : changes.mChanged).add(occurrence);
+                }
+            }
+
+            // Anything left is no longer in the calendar, or has passed
+            changes.mRemoved.addAll(links.values());
+            changes.mSynced.add(new CalendarSyncState(calendar, digest, instances.size()));
+        }
+
+        for (CalendarSyncState state : states.values()) {
+            if (!calendars.contains(state.getCalendar())) {
+                changes.mRemoved.addAll(store.getLinks(ImportedEvent.CALENDAR
+                        + state.getCalendar()));
+                changes.mForgotten.add(state);
+            }
+        }
+
+        return changes;
+    }
+
+    /**
+     * Get the UID an occurrence is linked by, which stays the same until it's moved.
+     *
+     * @param instance The occurrence
+     *
+     * @return The UID, the event's ID and the occurrence's start
+     */
+    private static String uid(Instance instance) {
+        return instance.mEvent + "@" + instance.mBegin;
+    }
+
+    /**
+     * Hash the parts of an occurrence that are mirrored, so a change to any of them is noticed.
+     *
+     * @param instance The occurrence
+     *
+     * @return The hash, never 0
+     */
+    private static long version(Instance instance) {
+        long hash = mix(instance.mBegin);
+        hash = mix(hash ^ instance.mEnd);
+        hash = mix(hash ^ (instance.mTitle == null ? 0 : instance.mTitle.hashCode()));
+
+        // 0 is the version of links that are never re-read
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Scramble the bits of a number, so sums and XORs of hashes don't cancel out.
+     *
+     * @param x The number
+     *
+     * @return The scrambled number
+     */
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xbf58476d1ce4e5b9L;
+        x = (x ^ (x >>> 27)) * 0x94d049bb133111ebL;
+        return x ^ (x >>> 31);
+    }
+}
@@ -0,0 +1,632 @@
+package com.evanv.taskapp.logic;
+
+import java.util.Arrays;
+
+/**
+ * A compressed set of non-negative ints, laid out like a Roaring bitmap. Values are split into
+ * chunks of 65536 by their high 16 bits. A chunk with few values stores them as a sorted array of
+ * their low 16 bits, and a chunk with many values stores them as a 65536 bit bitmap, so the set
+ * stays small whether it's sparse or dense and intersections/unions work a chunk at a time.
+ *
+ * @author Evan Voogd
+ */
+public class CompressedBitmap {
+    // Chunks with more values than this are stored as a bitmap instead of an array, the point at
+    // which a sorted array of chars takes more space than the 8kB bitmap.
+    private static final int MAX_ARRAY_SIZE = 4096;
+    private static final int BITMAP_WORDS = 1024; // Number of longs in a bitmap chunk
+
+    private char[] mKeys;            // High 16 bits of the values in each chunk, sorted
+    private Container[] mContainers; // mContainers[i] holds the low 16 bits for mKeys[i]
+    private int mSize;               // Number of chunks in use
+
+    /**
+     * Creates an empty bitmap.
+     */
+    public CompressedBitmap() {
+        mKeys = new char[4];
+        mContainers = new Container[4];
+        mSize = 0;
+    }
+
+    /**
+     * Add a value to the set.
+     *
+     * @param value The value to add, must not be negative
+     */
+    public void add(int value) {
+        char key = (char) (value >>> 16);
+        int i = indexOf(key);
+
+        if (i < 0) {
+            i = -i - 1;
+            insertChunk(i, key, new ArrayContainer());
+        }
+
+        mContainers[i] = mContainers[i].add((char) value);
+    }
+
+    /**
+     * Remove a value from the set.
+     *
+     * @param value The value to remove
+     */
+    public void remove(int value) {
+        int i = indexOf((char) (value >>> 16));
+
+        if (i < 0) {
+            return;
+        }
+
+        mContainers[i] = mContainers[i].remove((char) value);
+
+        if (mContainers[i].cardinality() == 0) {
+            removeChunk(i);
+        }
+    }
+
+    /**
+     * Check if a value is in the set.
+     *
+     * @param value The value to check
+     *
+     * @return true if the value is in the set, false otherwise.
+     */
+    public boolean contains(int value) {
+        int i = indexOf((char) (value >>> 16));
+
+        return i >= 0 && mContainers[i].contains((char) value);
+    }
+
+    /**
+     * Get the number of values in the set.
+     *
+     * @return The number of values in the set
+     */
+    public int cardinality() {
+        int total = 0;
+
+        for (int i = 0; i < mSize; i++) {
+            total += mContainers[i].cardinality();
+        }
+
+        return total;
+    }
+
+    /**
+     * Check if the set is empty.
+     *
+     * @return true if the set has no values, false otherwise.
+     */
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * Intersect this set with another. Neither set is modified.
+     *
+     * @param other The set to intersect with
+     *
+     * @return A new set containing the values in both sets
+     */
+    public CompressedBitmap and(CompressedBitmap other) {
+        CompressedBitmap toReturn = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+
+        // Only chunks present in both sets can have values in the intersection
+        while (i < mSize && j < other.mSize) {
+            if (mKeys[i] < other.mKeys[j]) {
+                i++;
+            }
+            else if (mKeys[i] > other.mKeys[j]) {
+                j++;
+            }
+            else {
+                Container c = mContainers[i].and(other.mContainers[j]);
+
+                if (c.cardinality() != 0) {
+                    toReturn.insertChunk(toReturn.mSize, mKeys[i], c);
+                }
+
+                i++;
+                j++;
+            }
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Union this set with another. Neither set is modified.
+     *
+     * @param other The set to union with
+     *
+     * @return A new set containing the values in either set
+     */
+    public CompressedBitmap or(CompressedBitmap other) {
+        CompressedBitmap toReturn = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+
+        while (i < mSize || j < other.mSize) {
+            if (j == other.mSize || (i < mSize && mKeys[i] < other.mKeys[j])) {
+                toReturn.insertChunk(toReturn.mSize, mKeys[i], mContainers[i].copy());
+                i++;
+            }
+            else if (i == mSize || mKeys[i] > other.mKeys[j]) {
+                toReturn.insertChunk(toReturn.mSize, other.mKeys[j],
+                        other.mContainers[j].copy());
+                j++;
+            }
+            else {
+                toReturn.insertChunk(toReturn.mSize, mKeys[i],
+                        mContainers[i].or(other.mContainers[j]));
+                i++;
+                j++;
+            }
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Get every value in the set.
+     *
+     * @return The values in the set, in increasing order
+     */
+    public int[] toArray() {
+        return toArray(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Get the smallest values in the set, without looking at the rest.
+     *
+     * @param limit Maximum number of values to get
+     *
+     * @return Up to limit of the values in the set, in increasing order
+     */
+    public int[] toArray(int limit) {
+        int[] toReturn = new int[Math.min(limit, cardinality())];
+        int offset = 0;
+
+        for (int i = 0; i < mSize && offset < toReturn.length; i++) {
+            offset = mContainers[i].fill(toReturn, offset, mKeys[i] << 16);
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Find the chunk with the given key.
+     *
+     * @param key The high 16 bits of the chunk
+     *
+     * @return The index of the chunk, or (-(insertion point) - 1) if there is no such chunk
+     */
+    private int indexOf(char key) {
+        // Almost every set has a single chunk, so check the last one before searching
+        if (mSize > 0 && mKeys[mSize - 1] == key) {
+            return mSize - 1;
+        }
+
+        return Arrays.binarySearch(mKeys, 0, mSize, key);
+    }
+
+    /**
+     * Insert a chunk at the given index.
+     *
+     * @param i Index to insert at, must keep mKeys sorted
+     * @param key High 16 bits of the chunk
+     * @param container The values in the chunk
+     */
+    private void insertChunk(int i, char key, Container container) {
+        if (mSize == mKeys.length) {
+            mKeys = Arrays.copyOf(mKeys, mSize * 2);
+            mContainers = Arrays.copyOf(mContainers, mSize * 2);
+        }
+
+        System.arraycopy(mKeys, i, mKeys, i + 1, mSize - i);
+        System.arraycopy(mContainers, i, mContainers, i + 1, mSize - i);
+        mKeys[i] = key;
+        mContainers[i] = container;
+        mSize++;
+    }
+
+    /**
+     * Remove the chunk at the given index.
+     *
+     * @param i Index of the chunk to remove
+     */
+    private void removeChunk(int i) {
+        System.arraycopy(mKeys, i + 1, mKeys, i, mSize - i - 1);
+        System.arraycopy(mContainers, i + 1, mContainers, i, mSize - i - 1);
+        mSize--;
+        mContainers[mSize] = null;
+    }
+
+    /**
+     * The low 16 bits of the values in a single chunk.
+     */
+    private interface Container {
+        /**
+         * Add a value to the chunk.
+         *
+         * @param value Low 16 bits of the value
+         *
+         * @return The container now holding the chunk, which may be a new container
+         */
+        Container add(char value);
+
+        /**
+         * Remove a value from the chunk.
+         *
+         * @param value Low 16 bits of the value
+         *
+         * @return The container now holding the chunk, which may be a new container
+         */
+        Container remove(char value);
+
+        /**
+         * Check if a value is in the chunk.
+         *
+         * @param value Low 16 bits of the value
+         *
+         * @return true if the value is in the chunk, false otherwise.
+         */
+        boolean contains(char value);
+
+        /**
+         * Get the number of values in the chunk.
+         *
+         * @return The number of values in the chunk
+         */
+        int cardinality();
+
+        /**
+         * Intersect with another chunk, without modifying either.
+         *
+         * @param other The chunk to intersect with
+         *
+         * @return A new container with the values in both chunks
+         */
+        Container and(Container other);
+
+        /**
+         * Union with another chunk, without modifying either.
+         *
+         * @param other The chunk to union with
+         *
+         * @return A new container with the values in either chunk
+         */
+        Container or(Container other);
+
+        /**
+         * Copy the chunk.
+         *
+         * @return A new container with the same values
+         */
+        Container copy();
+
+        /**
+         * Write the values in the chunk to an array, in increasing order, stopping once the array
+         * is full.
+         *
+         * @param out Array to write to
+         * @param offset Index in out to start writing at
+         * @param high The high 16 bits of the chunk, already shifted into place
+         *
+         * @return The index in out after the last value written
+         */
+        int fill(int[] out, int offset, int high);
+    }
+
+    /**
+     * A chunk stored as a sorted array of values.
+     */
+    private static class ArrayContainer implements Container {
+        private char[] mValues; // Sorted values
+        private int mCount;     // Number of values in use
+
+        /**
+         * Creates an empty chunk.
+         */
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        /**
+         * Creates a chunk from sorted values.
+         *
+         * @param values Sorted values
+         * @param count Number of values in use
+         */
+        ArrayContainer(char[] values, int count) {
+            mValues = values;
+            mCount = count;
+        }
+
+        @Override
+        public Container add(char value) {
+            int i = Arrays.binarySearch(mValues, 0, mCount, value);
+
+            if (i >= 0) {
+                return this;
+            }
+
+            if (mCount == MAX_ARRAY_SIZE) {
+                return toBitmap().add(value);
+            }
+
+            i = -i - 1;
+            if (mCount == mValues.length) {
+                mValues = Arrays.copyOf(mValues, Math.min(MAX_ARRAY_SIZE, Math.max(4, mCount * 2)));
+            }
+
+            System.arraycopy(mValues, i, mValues, i + 1, mCount - i);
+            mValues[i] = value;
+            mCount++;
+
+            return this;
+        }
+
+        @Override
+        public Container remove(char value) {
+            int i = Arrays.binarySearch(mValues, 0, mCount, value);
+
+            if (i >= 0) {
+                System.arraycopy(mValues, i + 1, mValues, i, mCount - i - 1);
+                mCount--;
+            }
+
+            return this;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return Arrays.binarySearch(mValues, 0, mCount, value) >= 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return mCount;
+        }
+
+        @Override
+        public Container and(Container other) {
+            char[] values = new char[mCount];
+            int count = 0;
+
+            if (other instanceof ArrayContainer) {
+                ArrayContainer o = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+
+                while (i < mCount && j < o.mCount) {
+                    if (mValues[i] < o.mValues[j]) {
+                        i++;
+                    }
+                    else if (mValues[i] > o.mValues[j]) {
+                        j++;
+                    }
+                    else {
+                        values[count++] = mValues[i];
+                        i++;
+                        j++;
+                    }
+                }
+            }
+            else {
+                for (int i = 0; i < mCount; i++) {
+                    if (other.contains(mValues[i])) {
+                        values[count++] = mValues[i];
+                    }
+                }
+            }
+
+            return new ArrayContainer(values, count);
+        }
+
+        @Override
+        public Container or(Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+
+            ArrayContainer o = (ArrayContainer) other;
+            char[] values = new char[mCount + o.mCount];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+
+            while (i < mCount || j < o.mCount) {
+                if (j == o.mCount || (i < mCount && mValues[i] < o.mValues[j])) {
+                    values[count++] = mValues[i++];
+                }
+                else if (i == mCount || mValues[i] > o.mValues[j]) {
+                    values[count++] = o.mValues[j++];
+                }
+                else {
+                    values[count++] = mValues[i];
+                    i++;
+                    j++;
+                }
+            }
+
+            ArrayContainer toReturn = new ArrayContainer(values, count);
+            return count > MAX_ARRAY_SIZE ? toReturn.toBitmap() : toReturn;
+        }
+
+        @Override
+        public Container copy() {
+            return new ArrayContainer(Arrays.copyOf(mValues, Math.max(4, mCount)), mCount);
+        }
+
+        @Override
+        public int fill(int[] out, int offset, int high) {
+            for (int i = 0; i < mCount && offset < out.length; i++) {
+                out[offset++] = high | mValues[i];
+            }
+
+            return offset;
+        }
+
+        /**
+         * Convert to a bitmap chunk.
+         *
+         * @return A bitmap chunk with the same values
+         */
+        private BitmapContainer toBitmap() {
+            BitmapContainer toReturn = new BitmapContainer();
+
+            for (int i = 0; i < mCount; i++) {
+                toReturn.add(mValues[i]);
+            }
+
+            return toReturn;
+        }
+    }
+
+    /**
+     * A chunk stored as a bitmap of all 65536 possible values.
+     */
+    private static class BitmapContainer implements Container {
+        private final long[] mWords; // Bit i is set if value i is in the chunk
+        private int mCount;          // Number of bits set
+
+        /**
+         * Creates an empty chunk.
+         */
+        BitmapContainer() {
+            this(new long[BITMAP_WORDS]);
+        }
+
+        /**
+         * Creates a chunk from a bitmap.
+         *
+         * @param words The bitmap
+         */
+        BitmapContainer(long[] words) {
+            mWords = words;
+            mCount = 0;
+
+            for (long word : words) {
+                mCount += Long.bitCount(word);
+            }
+        }
+
+        @Override
+        public Container add(char value) {
+            long bit = 1L << value;
+
+            if ((mWords[value >>> 6] & bit) == 0) {
+                mWords[value >>> 6] |= bit;
+                mCount++;
+            }
+
+            return this;
+        }
+
+        @Override
+        public Container remove(char value) {
+            long bit = 1L << value;
+
+            if ((mWords[value >>> 6] & bit) != 0) {
+                mWords[value >>> 6] &= ~bit;
+                mCount--;
+            }
+
+            return mCount <= MAX_ARRAY_SIZE ? toArrayContainer() : this;
+        }
+
+        @Override
+        public boolean contains(char value) {
+            return (mWords[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        public int cardinality() {
+            return mCount;
+        }
+
+        @Override
+        public Container and(Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+
+            long[] words = new long[BITMAP_WORDS];
+            long[] otherWords = ((BitmapContainer) other).mWords;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] = mWords[i] & otherWords[i];
+            }
+
+            BitmapContainer toReturn = new BitmapContainer(words);
+            return toReturn.mCount <= MAX_ARRAY_SIZE ? toReturn.toArrayContainer() : toReturn;
+        }
+
+        @Override
+        public Container or(Container other) {
+            BitmapContainer toReturn = new BitmapContainer(mWords.clone());
+
+            if (other instanceof ArrayContainer) {
+                ArrayContainer o = (ArrayContainer) other;
+                for (int i = 0; i < o.mCount; i++) {
+                    toReturn.add(o.mValues[i]);
+                }
+            }
+            else {
+                long[] otherWords = ((BitmapContainer) other).mWords;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    toReturn.mWords[i] |= otherWords[i];
+                }
+                toReturn.mCount = 0;
+                for (long word : toReturn.mWords) {
+                    toReturn.mCount += Long.bitCount(word);
+                }
+            }
+
+            return toReturn;
+        }
+
+        @Override
+        public Container copy() {
+            return new BitmapContainer(mWords.clone());
+        }
+
+        @Override
+        public int fill(int[] out, int offset, int high) {
+            for (int i = 0; i < BITMAP_WORDS && offset < out.length; i++) {
+                long word = mWords[i];
+
+                while (word != 0 && offset < out.length) {
+                    out[offset++] = high | (i << 6) | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+
+            return offset;
+        }
+
+        /**
+         * Convert to an array chunk.
+         *
+         * @return An array chunk with the same values
+         */
+        private ArrayContainer toArrayContainer() {
+            char[] values = new char[Math.max(4, mCount)];
+            int count = 0;
+
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = mWords[i];
+
+                while (word != 0) {
+                    values[count++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+
+            return new ArrayContainer(values, count);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.evanv.taskapp.logic;
+
+import com.ibm.icu.text.RuleBasedNumberFormat;
+
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.chrono.IsoChronology;
+import org.threeten.bp.format.DateTimeFormatter;
+import org.threeten.bp.format.DateTimeFormatterBuilder;
+import org.threeten.bp.format.FormatStyle;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Formats the header shown above each day in the main schedule (e.g. "March 3rd\n45 minutes").
+ * The locale's long date pattern is split around the day of month once, when the formatter is
+ * created, so formatting a date is just the two halves plus a precomputed ordinal. Headers are
+ * cached by date, and a cached header is only rebuilt when the day's total minutes change.
+ *
+ * A formatter is tied to one locale, so a new one must be created if the locale changes.
+ *
+ * @author Evan Voogd
+ */
+public class DayHeaderFormatter {
+    private final Locale mLocale;           // Locale dates are formatted for
+    private final String mTemplate;         // Format string taking the date and total minutes
+    private final Pattern mWithYear;        // Long date pattern, split around the day of month
+    private final Pattern mWithoutYear;     // Long date pattern without the year
+    private final String[] mDays;           // mDays[i] is how day of month i is written
+    private final Map<LocalDate, Header> mHeaders; // Cached header for each date
+
+    /**
+     * Creates a formatter for the given locale.
+     *
+     * @param locale Locale to format dates for
+     * @param template Format string taking the formatted date and the day's total minutes
+     */
+    public DayHeaderFormatter(Locale locale, String template) {
+        mLocale = locale;
+        mTemplate = template;
+
+        String pattern = DateTimeFormatterBuilder.getLocalizedDateTimePattern(FormatStyle.LONG,
+                null, IsoChronology.INSTANCE, locale);
+        mWithYear = new Pattern(pattern, locale);
+        mWithoutYear = new Pattern(removeYear(pattern), locale);
+
+        // Ordinal days ("3rd") only read correctly in English, elsewhere keep the plain number
+        mDays = new String[32];
+        if (locale.getLanguage().equals(Locale.ENGLISH.getLanguage())) {
+            RuleBasedNumberFormat formatter = new RuleBasedNumberFormat(Locale.US,
+                    RuleBasedNumberFormat.ORDINAL);
+
+            for (int i = 1; i < mDays.length; i++) {
+                mDays[i] = formatter.format(i);
+            }
+        }
+
+        mHeaders = new HashMap<>();
+    }
+
+    /**
+     * Check if this formatter formats headers the same way as one created with the given
+     * arguments, so it can be reused.
+     *
+     * @param locale Locale to format dates for
+     * @param template Format string taking the formatted date and the day's total minutes
+     *
+     * @return true if this formatter can be used for the locale and template, false otherwise
+     */
+    public boolean matches(Locale locale, String template) {
+        return mLocale.equals(locale) && mTemplate.equals(template);
+    }
+
+    /**
+     * Get the header for a day, reusing the cached one if the day's total minutes haven't changed.
+     *
+     * @param date The day to get the header for
+     * @param showYear true if the year should be included in the date
+     * @param totalTime Total minutes of tasks and events scheduled for the day
+     *
+     * @return The header for the day
+     */
+    public String getHeader(LocalDate date, boolean showYear, int totalTime) {
+        Header header = mHeaders.get(date);
+
+        if (header == null || header.mTotalTime != totalTime || header.mShowYear != showYear) {
+            header = new Header(String.format(mLocale, mTemplate, formatDate(date, showYear),
+                    totalTime), totalTime, showYear);
+            mHeaders.put(date, header);
+        }
+
+        return header.mHeader;
+    }
+
+    /**
+     * Format a date using the locale's long date pattern, with an ordinal day of month.
+     *
+     * @param date The date to format
+     * @param showYear true if the year should be included
+     *
+     * @return The formatted date (e.g. "March 3rd, 2023")
+     */
+    public String formatDate(LocalDate date, boolean showYear) {
+        Pattern pattern = showYear ? mWithYear : mWithoutYear;
+        String day = mDays[date.getDayOfMonth()];
+
+        return pattern.format(date, day);
+    }
+
+    /**
+     * Remove the year, and the separators joining it to the rest of the date, from a date pattern.
+     *
+     * @param pattern A date pattern, as used by DateTimeFormatter.ofPattern
+     *
+     * @return The pattern without the year
+     */
+    static String removeYear(String pattern) {
+        int start = -1;
+        int end = -1;
+
+        boolean quoted = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+
+            if (c == '\'') {
+                quoted = !quoted;
+            }
+            else if (!quoted && (c == 'y' || c == 'u' || c == 'Y')) {
+                start = i;
+                end = i;
+                while (end < pattern.length() && pattern.charAt(end) == c) {
+                    end++;
+                }
+                break;
+            }
+        }
+
+        if (start == -1) {
+            return pattern;
+        }
+
+        if (start == 0) {
+            // Year comes first (e.g. "y. MMMM d."), so drop everything up to the next field
+            while (end < pattern.length() && !isPatternLetter(pattern.charAt(end))) {
+                end = pattern.charAt(end) == '\'' ? pattern.indexOf('\'', end + 1) + 1 : end + 1;
+
+                if (end == 0) {
+                    end = pattern.length();
+                }
+            }
+        }
+        else {
+            // Otherwise drop the separators and words joining it to the previous field (e.g. the
+            // ", " in "MMMM d, y" or the " 'de' " in "d 'de' MMMM 'de' y")
+            while (start > 0 && !isPatternLetter(pattern.charAt(start - 1))) {
+                if (pattern.charAt(start - 1) == '\'') {
+                    start = pattern.lastIndexOf('\'', start - 2);
+
+                    if (start == -1) {
+                        start = 0;
+                    }
+                }
+                else {
+                    start--;
+                }
+            }
+        }
+
+        return pattern.substring(0, start) + pattern.substring(end);
+    }
+
+    /**
+     * Check if a character is a field letter in a date pattern.
+     *
+     * @param c The character
+     *
+     * @return true if c is a pattern letter, false if it's a literal
+     */
+    private static boolean isPatternLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     * A date pattern compiled into the formatters for the parts before and after the day of month,
+     * so the day of month can be replaced with an ordinal without reparsing the formatted date.
+     */
+    private static class Pattern {
+        private final DateTimeFormatter mBefore; // Formats the part before the day, or null
+        private final DateTimeFormatter mDay;    // Formats the day when it isn't ordinal, or null
+        private final DateTimeFormatter mAfter;  // Formats the part after the day, or null
+
+        /**
+         * Compile a date pattern.
+         *
+         * @param pattern A date pattern, as used by DateTimeFormatter.ofPattern
+         * @param locale Locale to format dates for
+         */
+        Pattern(String pattern, Locale locale) {
+            int start = -1;
+            int end = -1;
+
+            boolean quoted = false;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+
+                if (c == '\'') {
+                    quoted = !quoted;
+                }
+                else if (!quoted && c == 'd') {
+                    start = i;
+                    end = i;
+                    while (end < pattern.length() && pattern.charAt(end) == 'd') {
+                        end++;
+                    }
+                    break;
+                }
+            }
+
+            // No day of month in the pattern, so the whole thing goes in mBefore
+            if (start == -1) {
+                start = pattern.length();
+                end = pattern.length();
+            }
+
+            mBefore = compile(pattern.substring(0, start), locale);
+            mDay = compile(pattern.substring(start, end), locale);
+            mAfter = compile(pattern.substring(end), locale);
+        }
+
+        /**
+         * Format a date.
+         *
+         * @param date The date to format
+         * @param day How to write the day of month, or null to use the pattern's
+         *
+         * @return The formatted date
+         */
+        String format(LocalDate date, String day) {
+            StringBuilder sb = new StringBuilder();
+
+            if (mBefore != null) {
+                sb.append(mBefore.format(date));
+            }
+            if (mDay != null) {
+                sb.append(day != null ? day : mDay.format(date));
+            }
+            if (mAfter != null) {
+                sb.append(mAfter.format(date));
+            }
+
+            return sb.toString();
+        }
+
+        /**
+         * Compile part of a date pattern.
+         *
+         * @param pattern The part of the pattern
+         * @param locale Locale to format dates for
+         *
+         * @return A formatter for the pattern, or null if it's empty
+         */
+        private static DateTimeFormatter compile(String pattern, Locale locale) {
+            return pattern.isEmpty() ? null : DateTimeFormatter.ofPattern(pattern, locale);
+        }
+    }
+
+    /**
+     * A cached header, along with what it was built from.
+     */
+    private static class Header {
+        private final String mHeader;     // The header
+        private final int mTotalTime;     // Total minutes the header was built with
+        private final boolean mShowYear;  // true if the header includes the year
+
+        /**
+         * Creates a cached header.
+         *
+         * @param header The header
+         * @param totalTime Total minutes the header was built with
+         * @param showYear true if the header includes the year
+         */
+        Header(String header, int totalTime, boolean showYear) {
+            mHeader = header;
+            mTotalTime = totalTime;
+            mShowYear = showYear;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.evanv.taskapp.logic;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Tracks which days of the schedule have changed since the UI last updated, one bit per day, so a
+ * day changed several times is still only redrawn once. When the UI is ready to update, publish
+ * turns the dirty bits and the change in the number of days into a single ScheduleChange.
+ *
+ * Days can be marked from the optimizer's thread while the UI thread publishes, so every method
+ * is synchronized.
+ *
+ * @author Evan Voogd
+ */
+public class DirtyDays {
+    private final BitSet mDirty;    // mDirty.get(i) is true if day i has changed
+    private int mPublishedDays;     // Number of days in the schedule at the last publish
+
+    /**
+     * Creates a tracker with no dirty days.
+     *
+     * @param numDays Number of days the UI is showing
+     */
+    public DirtyDays(int numDays) {
+        mDirty = new BitSet();
+        mPublishedDays = numDays;
+    }
+
+    /**
+     * Mark a day as changed. Days before today are ignored.
+     *
+     * @param day How many days past today's date the changed day is
+     */
+    public synchronized void mark(int day) {
+        if (day >= 0) {
+            mDirty.set(day);
+        }
+    }
+
+    /**
+     * Describe every change since the last publish and start tracking from scratch.
+     *
+     * @param numDays Number of days in the schedule now
+     *
+     * @return The changes since the last publish
+     */
+    public synchronized ScheduleChange publish(int numDays) {
+        // Days past the end of either the old or new schedule are covered by the insert/remove
+        int limit = Math.min(mPublishedDays, numDays);
+        List<ScheduleChange.Range> changed = new ArrayList<>();
+
+        int start = mDirty.nextSetBit(0);
+        while (start != -1 && start < limit) {
+            int end = Math.min(mDirty.nextClearBit(start), limit);
+            changed.add(new ScheduleChange.Range(start, end - start));
+            start = mDirty.nextSetBit(end);
+        }
+
+        ScheduleChange toReturn = new ScheduleChange(mPublishedDays, numDays, changed);
+
+        mDirty.clear();
+        mPublishedDays = numDays;
+
+        return toReturn;
+    }
+}
@@ -3,6 +3,8 @@ package com.evanv.taskapp.logic;
 import androidx.annotation.NonNull;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 
@@ -21,9 +23,9 @@ import java.util.Date;
  * @author Evan Voogd
  */
 @SuppressWarnings("unused")
-@Entity(tableName = "event_table")
+@Entity(tableName = "event_table", indices = {@Index("do_date")})
 @TypeConverters(Converters.class)
-public class Event implements Comparable<Event> {
+public class Event implements Comparable<Event>, Identifiable {
     // Fields
     @PrimaryKey(autoGenerate = true)
     @ColumnInfo(name = "id")
@@ -36,6 +38,8 @@ public class Event implements Comparable<Event> {
     @NonNull
     @ColumnInfo(name = "do_date")
     private LocalDateTime mDoDate; // The start time for the event. Named to be consistent with Task
+    @Ignore
+    private int mVersion;          // Incremented every time the event changes
 
     // Static Fields
     // SimpleDateFormat that formats date in the style "08/20/22 08:12 PM"
@@ -78,6 +82,7 @@ public class Event implements Comparable<Event> {
      *
      * @return the ID of the event
      */
+    @Override
     public long getID() {
         return mID;
     }
@@ -91,6 +96,16 @@ public class Event implements Comparable<Event> {
         this.mID = id;
     }
 
+    /**
+     * Returns the version of the event, which changes every time one of its fields does. Used to
+     * tell if a view of the event built earlier is still up to date.
+     *
+     * @return The version of the event
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
     /**
      * Returns the name of the event
      *
@@ -107,6 +122,7 @@ public class Event implements Comparable<Event> {
      */
     public void setName(@NonNull String name) {
         this.mName = name;
+        mVersion++;
     }
 
     /**
@@ -125,6 +141,7 @@ public class Event implements Comparable<Event> {
      */
     public void setDoDate(@NonNull LocalDateTime doDate) {
         this.mDoDate = doDate;
+        mVersion++;
     }
 
     /**
@@ -144,6 +161,7 @@ public class Event implements Comparable<Event> {
      */
     public void setLength(int mLength) {
         this.mLength = mLength;
+        mVersion++;
     }
 
     /**
@@ -0,0 +1,624 @@
+package com.evanv.taskapp.logic;
+
+import org.threeten.bp.DayOfWeek;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneId;
+import org.threeten.bp.ZoneOffset;
+import org.threeten.bp.temporal.ChronoUnit;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the events out of an iCalendar (RFC 5545) file one at a time, without building the whole
+ * file in memory: lines are unfolded as they're read, and only the properties of the VEVENT
+ * being read are kept. Times are converted into the device's zone, as events are stored in local
+ * time. Events the schedule can't hold are skipped and counted: all-day events, changes to one
+ * occurrence of a recurring event (RECURRENCE-ID), events without a UID or start, and events whose
+ * RRULE can't be expressed as a RecurrenceRule, e.g. one with BYSETPOS, as importing just their
+ * first occurrence would silently lose the rest. EXDATEs are kept as days the rule skips.
+ *
+ * @author Evan Voogd
+ */
+public class ICalendarReader {
+    // Names of the days of the week in BYDAY, indexed from Sunday like RecurrenceRule
+    private static final String[] DAY_NAMES = {"SU", "MO", "TU", "WE", "TH", "FR", "SA"};
+
+    private final BufferedReader mIn;   // The file
+    private final ZoneId mZone;         // Zone times are converted into
+    private final String mDefaultName;  // Name of events without a SUMMARY
+    private String mNextLine;           // The line after the one being unfolded, if read already
+    private int mSkipped;               // Number of events skipped
+
+    // Properties of the VEVENT being read
+    private String mUID;                // UID property
+    private String mSummary;            // SUMMARY property
+    private LocalDateTime mStart;       // DTSTART, in mZone
+    private LocalDateTime mEnd;         // DTEND, in mZone
+    private long mDurationSeconds;      // DURATION, or -1 if there was none
+    private String mRRule;              // RRULE property
+    private final List<LocalDate> mExDates = new ArrayList<>(); // Days in EXDATE properties
+    private boolean mUnusable;          // Is the VEVENT one that must be skipped
+
+    /**
+     * An event read from the file.
+     */
+    public static class Entry {
+        private final String mUID;           // UID, which identifies the event across files
+        private final String mName;          // Name of the event
+        private final LocalDateTime mStart;  // Start of the first occurrence, in local time
+        private final int mLength;           // Length of each occurrence in minutes
+        private final RecurrenceRule mRule;  // How the event recurs, ONCE if it doesn't
+
+        /**
+         * Creates a new entry.
+         *
+         * @param uid UID, which identifies the event across files
+         * @param name Name of the event
+         * @param start Start of the first occurrence, in local time
+         * @param length Length of each occurrence in minutes
+         * @param rule How the event recurs, ONCE if it doesn't
+         */
+        Entry(String uid, String name, LocalDateTime start, int length, RecurrenceRule rule) {
+            mUID = uid;
+            mName = name;
+            mStart = start;
+            mLength = length;
+            mRule = rule;
+        }
+
+        /**
+         * Get the UID of the event, which identifies it across files.
+         *
+         * @return The UID
+         */
+        public String getUID() {
+            return mUID;
+        }
+
+        /**
+         * Get the name of the event.
+         *
+         * @return The name
+         */
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * Get the start of the event's first occurrence.
+         *
+         * @return The start, in local time
+         */
+        public LocalDateTime getStart() {
+            return mStart;
+        }
+
+        /**
+         * Get the length of each occurrence.
+         *
+         * @return The length in minutes
+         */
+        public int getLength() {
+            return mLength;
+        }
+
+        /**
+         * Get how the event recurs.
+         *
+         * @return The rule, ONCE if it doesn't recur
+         */
+        public RecurrenceRule getRule() {
+            return mRule;
+        }
+    }
+
+    /**
+     * Creates a reader. Nothing is read until next is called.
+     *
+     * @param in The file
+     * @param zone Zone to convert times into, normally ZoneId.systemDefault()
+     * @param defaultName Name to give events without a SUMMARY
+     */
+    public ICalendarReader(Reader in, ZoneId zone, String defaultName) {
+        mIn = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        mZone = zone;
+        mDefaultName = defaultName;
+    }
+
+    /**
+     * Read the next event the schedule can hold.
+     *
+     * @return The event, or null if there are no more
+     *
+     * @throws IOException If the file couldn't be read
+     */
+    public Entry next() throws IOException {
+        int depth = 0; // Components open inside the VEVENT, e.g. a VALARM
+        boolean inEvent = false;
+        String line;
+
+        while ((line = nextLine()) != null) {
+            int colon = findColon(line);
+            if (colon < 0) {
+                continue;
+            }
+
+            String value = line.substring(colon + 1);
+            String[] params = line.substring(0, colon).split(";");
+            String name = params[0].toUpperCase();
+
+            if (!inEvent) {
+                if (name.equals("BEGIN") && value.equalsIgnoreCase("VEVENT")) {
+                    inEvent = true;
+                    startEvent();
+                }
+                continue;
+            }
+
+            if (name.equals("BEGIN")) {
+                depth++;
+            }
+            else if (name.equals("END")) {
+                if (depth > 0) {
+                    depth--;
+                    continue;
+                }
+
+                Entry entry = finishEvent();
+                if (entry != null) {
+                    return entry;
+                }
+
+                mSkipped++;
+                inEvent = false;
+            }
+            else if (depth == 0) {
+                readProperty(name, params, value);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Get the number of events skipped so far because the schedule can't hold them.
+     *
+     * @return The number of events skipped
+     */
+    public int getSkipped() {
+        return mSkipped;
+    }
+
+    /**
+     * Forget the properties of the last VEVENT, to start reading a new one.
+     */
+    private void startEvent() {
+        mUID = null;
+        mSummary = null;
+        mStart = null;
+        mEnd = null;
+        mDurationSeconds = -1;
+        mRRule = null;
+        mExDates.clear();
+        mUnusable = false;
+    }
+
+    /**
+     * Read one property of a VEVENT.
+     *
+     * @param name The property's name, in upper case
+     * @param params The name followed by each parameter, e.g. "TZID=Europe/Paris"
+     * @param value The property's value
+     */
+    private void readProperty(String name, String[] params, String value) {
+        try {
+            switch (name) {
+                case "UID":
+                    mUID = value;
+                    break;
+                case "SUMMARY":
+                    mSummary = unescape(value);
+                    break;
+                case "DTSTART":
+                    mStart = parseTime(params, value);
+                    break;
+                case "DTEND":
+                    mEnd = parseTime(params, value);
+                    break;
+                case "DURATION":
+                    mDurationSeconds = parseDuration(value);
+                    break;
+                case "RRULE":
+                    mRRule = value;
+                    break;
+                case "EXDATE":
+                    for (String day : value.split(",")) {
+                        mExDates.add(parseDay(params, day));
+                    }
+                    break;
+                case "RECURRENCE-ID":
+                    mUnusable = true;
+                    break;
+            }
+        } catch (RuntimeException e) {
+            mUnusable = true;
+        }
+    }
+
+    /**
+     * Turn the properties of a VEVENT into an entry, once its END has been read.
+     *
+     * @return The entry, or null if it must be skipped
+     */
+    private Entry finishEvent() {
+        if (mUnusable || mUID == null || mStart == null) {
+            return null;
+        }
+
+        long seconds = 0;
+        if (mEnd != null) {
+            seconds = ChronoUnit.SECONDS.between(mStart, mEnd);
+        }
+        else if (mDurationSeconds >= 0) {
+            seconds = mDurationSeconds;
+        }
+
+        RecurrenceRule rule = RecurrenceRule.ONCE;
+        if (mRRule != null) {
+            try {
+                rule = toRule(mRRule, mStart.toLocalDate()).excluding(mExDates);
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+        String name = (mSummary == null || mSummary.isEmpty()) ? mDefaultName : mSummary;
+        int minutes = (int) Math.max(0, Math.min(seconds / 60, Integer.MAX_VALUE));
+
+        return new Entry(mUID, name, mStart, minutes, rule);
+    }
+
+    /**
+     * Read the next content line, joining any lines folded onto the next one.
+     *
+     * @return The unfolded line, or null at the end of the file
+     *
+     * @throws IOException If the file couldn't be read
+     */
+    private String nextLine() throws IOException {
+        String line = mNextLine != null ? mNextLine : mIn.readLine();
+        mNextLine = null;
+
+        if (line == null) {
+            return null;
+        }
+
+        StringBuilder unfolded = null;
+        String next;
+        while ((next = mIn.readLine()) != null
+                && (next.startsWith(" ") || next.startsWith("\t"))) {
+            if (unfolded == null) {
+                unfolded = new StringBuilder(line);
+            }
+            unfolded.append(next, 1, next.length());
+        }
+        mNextLine = next;
+
+        return unfolded == null ? line : unfolded.toString();
+    }
+
+    /**
+     * Find the colon between a content line's name and parameters and its value, skipping any
+     * in quoted parameter values.
+     *
+     * @param line The content line
+     *
+     * @return The index of the colon, or -1 if there isn't one
+     */
+    private static int findColon(String line) {
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            }
+            else if (c == ':' && !quoted) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Get a parameter's value from a property.
+     *
+     * @param params The property's name followed by its parameters
+     * @param name The parameter's name, in upper case
+     *
+     * @return The parameter's value without quotes, or null if it isn't there
+     */
+    private static String getParam(String[] params, String name) {
+        for (int i = 1; i < params.length; i++) {
+            int equals = params[i].indexOf('=');
+            if (equals > 0 && params[i].substring(0, equals).equalsIgnoreCase(name)) {
+                return params[i].substring(equals + 1).replace("\"", "");
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Parse a DATE-TIME into the local zone: UTC if it ends in Z, in its TZID if it has one,
+     * otherwise floating, i.e. already local. A TZID that isn't a known zone is treated as
+     * floating.
+     *
+     * @param params The property's name followed by its parameters
+     * @param value The value, e.g. "20240115T090000Z"
+     *
+     * @return The time, in the local zone
+     *
+     * @throws IllegalArgumentException If value is a DATE, i.e. the event is all-day, or isn't a
+     * DATE-TIME
+     */
+    private LocalDateTime parseTime(String[] params, String value) {
+        if (value.length() < 15 || "DATE".equalsIgnoreCase(getParam(params, "VALUE"))) {
+            throw new IllegalArgumentException("Not a DATE-TIME: " + value);
+        }
+
+        LocalDateTime time = LocalDateTime.of(
+                Integer.parseInt(value.substring(0, 4)), Integer.parseInt(value.substring(4, 6)),
+                Integer.parseInt(value.substring(6, 8)), Integer.parseInt(value.substring(9, 11)),
+                Integer.parseInt(value.substring(11, 13)),
+                Integer.parseInt(value.substring(13, 15)));
+
+        ZoneId from = null;
+        if (value.endsWith("Z")) {
+            from = ZoneOffset.UTC;
+        }
+        else {
+            String tzid = getParam(params, "TZID");
+            if (tzid != null) {
+                try {
+                    from = ZoneId.of(tzid.startsWith("/") ? tzid.substring(1) : tzid);
+                } catch (RuntimeException e) {
+                    from = null;
+                }
+            }
+        }
+
+        return from == null ? time
+                : time.atZone(from).withZoneSameInstant(mZone).toLocalDateTime();
+    }
+
+    /**
+     * Parse the day of an EXDATE, which can be a DATE or a DATE-TIME. A DATE-TIME is converted
+     * into the local zone first, like DTSTART, so it falls on the same day as the occurrence.
+     *
+     * @param params The property's name followed by its parameters
+     * @param value One of the property's values, e.g. "20240122T140000Z" or "20240122"
+     *
+     * @return The day, in the local zone
+     *
+     * @throws RuntimeException If value isn't a DATE or DATE-TIME
+     */
+    private LocalDate parseDay(String[] params, String value) {
+        if (value.length() == 8) {
+            return LocalDate.of(Integer.parseInt(value.substring(0, 4)),
+                    Integer.parseInt(value.substring(4, 6)),
+                    Integer.parseInt(value.substring(6, 8)));
+        }
+
+        return parseTime(params, value).toLocalDate();
+    }
+
+    /**
+     * Parse a DURATION, e.g. "PT1H30M" or "P1W".
+     *
+     * @param value The duration
+     *
+     * @return The length in seconds
+     *
+     * @throws IllegalArgumentException If value isn't a non-negative duration
+     */
+    static long parseDuration(String value) {
+        int i = value.startsWith("+") ? 1 : 0;
+        if (value.startsWith("-") || value.charAt(i) != 'P') {
+            throw new IllegalArgumentException("Not a duration: " + value);
+        }
+
+        long seconds = 0;
+        long number = 0;
+        boolean digits = false;
+        for (i++; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c >= '0' && c <= '9') {
+                number = number * 10 + (c - '0');
+                digits = true;
+                continue;
+            }
+
+            if (c == 'T') {
+                continue;
+            }
+
+            if (!digits) {
+                throw new IllegalArgumentException("Not a duration: " + value);
+            }
+
+            switch (c) {
+                case 'W': seconds += number * 7 * 86400; break;
+                case 'D': seconds += number * 86400; break;
+                case 'H': seconds += number * 3600; break;
+                case 'M': seconds += number * 60; break;
+                case 'S': seconds += number; break;
+                default: throw new IllegalArgumentException("Not a duration: " + value);
+            }
+
+            number = 0;
+            digits = false;
+        }
+
+        return seconds;
+    }
+
+    /**
+     * Turn an RRULE into a RecurrenceRule. BYDAY is only kept for weekly rules, or as "this
+     * weekday of the month" for monthly and yearly rules when it's the start's weekday in the
+     * start's week of the month, e.g. 3MO for the third Monday.
+     *
+     * @param value The RRULE, e.g. "FREQ=WEEKLY;BYDAY=MO,WE;UNTIL=20241231T000000Z"
+     * @param start The date of the first occurrence
+     *
+     * @return The rule
+     *
+     * @throws IllegalArgumentException If the RRULE uses anything RecurrenceRule can't express
+     */
+    static RecurrenceRule toRule(String value, LocalDate start) {
+        int frequency = -1;
+        int interval = 1;
+        int weekdays = 0;
+        int months = 0;
+        long monthDays = 0;
+        int week = 0; // Which week of the month BYDAY is in, 0 if it's every week
+        LocalDate until = null;
+        int count = Integer.MAX_VALUE;
+
+        for (String part : value.split(";")) {
+            int split = part.indexOf('=');
+            String key = part.substring(0, split).toUpperCase();
+            String data = part.substring(split + 1).toUpperCase();
+
+            switch (key) {
+                case "FREQ":
+                    frequency = data.equals("DAILY") ? RecurrenceRule.DAILY
+                            : data.equals("WEEKLY") ? RecurrenceRule.WEEKLY
+                            : data.equals("MONTHLY") ? RecurrenceRule.MONTHLY
+                            : data.equals("YEARLY") ? RecurrenceRule.YEARLY : -1;
+                    break;
+                case "INTERVAL":
+                    interval = Integer.parseInt(data);
+                    break;
+                case "COUNT":
+                    count = Integer.parseInt(data);
+                    break;
+                case "UNTIL":
+                    until = LocalDate.of(Integer.parseInt(data.substring(0, 4)),
+                            Integer.parseInt(data.substring(4, 6)),
+                            Integer.parseInt(data.substring(6, 8)));
+                    break;
+                case "BYDAY":
+                    for (String day : data.split(",")) {
+                        String dayName = day.substring(day.length() - 2);
+                        int index = -1;
+                        for (int i = 0; i < DAY_NAMES.length; i++) {
+                            if (DAY_NAMES[i].equals(dayName)) {
+                                index = i;
+                            }
+                        }
+
+                        if (index < 0) {
+                            throw new IllegalArgumentException(value);
+                        }
+
+                        weekdays |= 1 << index;
+                        if (day.length() > 2) {
+                            week = Integer.parseInt(day.substring(0, day.length() - 2));
+                        }
+                    }
+                    break;
+                case "BYMONTH":
+                    for (String month : data.split(",")) {
+                        months |= 1 << (Integer.parseInt(month) - 1);
+                    }
+                    break;
+                case "BYMONTHDAY":
+                    for (String day : data.split(",")) {
+                        int d = Integer.parseInt(day);
+                        if (d < 1 || d > 31) {
+                            throw new IllegalArgumentException(value);
+                        }
+                        monthDays |= 1L << d;
+                    }
+                    break;
+                case "WKST":
+                    break;
+                default:
+                    // BYSETPOS, BYHOUR, BYWEEKNO etc. can't be expressed
+                    throw new IllegalArgumentException(value);
+            }
+        }
+
+        if (frequency < 0) {
+            throw new IllegalArgumentException(value);
+        }
+
+        int startDay = start.getDayOfWeek().getValue() % 7;
+        int pattern = RecurrenceRule.ON_DATE;
+
+        if (frequency == RecurrenceRule.WEEKLY) {
+            if (weekdays == 0) {
+                weekdays = 1 << startDay;
+            }
+        }
+        else if (frequency == RecurrenceRule.MONTHLY || frequency == RecurrenceRule.YEARLY) {
+            if (weekdays != 0) {
+                // Only "the start's weekday of the month" can be expressed
+                if (weekdays != 1 << startDay || week != (start.getDayOfMonth() - 1) / 7 + 1
+                        || monthDays != 0) {
+                    throw new IllegalArgumentException(value);
+                }
+                pattern = RecurrenceRule.ON_WEEKDAY;
+            }
+            else if (monthDays != 0) {
+                pattern = RecurrenceRule.ON_DATES;
+            }
+            weekdays = 0;
+        }
+        else if (weekdays != 0 || monthDays != 0) {
+            throw new IllegalArgumentException(value);
+        }
+
+        if (frequency != RecurrenceRule.YEARLY) {
+            months = 0;
+        }
+
+        return new RecurrenceRule(frequency, pattern, interval, weekdays, months, monthDays,
+                until, count);
+    }
+
+    /**
+     * Undo the escaping of a TEXT value.
+     *
+     * @param value The escaped value
+     *
+     * @return The text
+     */
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                sb.append(next == 'n' || next == 'N' ? ' ' : next);
+            }
+            else {
+                sb.append(c);
+            }
+        }
+
+        return sb.toString();
+    }
+}
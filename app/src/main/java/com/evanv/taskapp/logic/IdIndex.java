@@ -0,0 +1,273 @@
+package com.evanv.taskapp.logic;
+
+import java.util.List;
+
+/**
+ * Hash index from ID to item, so the LogicSubsystem can find a Task/Event/Project/Label by ID in
+ * constant time instead of scanning a list. Keys are stored as primitive longs in an open
+ * addressing table, so lookups don't box a Long. Items are given their IDs when they're created,
+ * before they're added. Each item can also carry its position in a list, so the list can replace
+ * or remove it without searching for it.
+ *
+ * @param <T> The type of item being indexed.
+ *
+ * @author Evan Voogd
+ */
+public class IdIndex<T extends Identifiable> {
+    private static final int MIN_CAPACITY = 16; // Smallest table size, must be a power of 2
+
+    private long[] mKeys;            // IDs in the table, 0 represents an empty slot
+    private Object[] mValues;        // mValues[i] is the item with ID mKeys[i]
+    private int[] mPositions;        // mPositions[i] is mValues[i]'s position in a list, or -1
+    private int mSize;               // Number of items in the table
+
+    /**
+     * Creates an empty index.
+     */
+    public IdIndex() {
+        clear();
+    }
+
+    /**
+     * Creates an index containing the given items, each with its position in the list.
+     *
+     * @param items Items to add to the index.
+     */
+    public IdIndex(List<? extends T> items) {
+        this();
+
+        for (int i = 0; i < items.size(); i++) {
+            add(items.get(i), i);
+        }
+    }
+
+    /**
+     * Add an item to the index, replacing any item with the same ID.
+     *
+     * @param item The item to add. Must have been given its ID.
+     */
+    public void add(T item) {
+        add(item, -1);
+    }
+
+    /**
+     * Add an item to the index along with its position in a list, replacing any item with the
+     * same ID.
+     *
+     * @param item The item to add. Must have been given its ID.
+     * @param position The item's position in the list, or -1 if it isn't in one.
+     */
+    public void add(T item, int position) {
+        long id = item.getID();
+
+        // 0 marks an empty slot in the table
+        if (id == 0) {
+            throw new IllegalArgumentException("Item has no ID");
+        }
+
+        put(id, item, position);
+    }
+
+    /**
+     * Remove an item from the index. Does nothing if a different item is indexed under it's ID,
+     * so removing an item that was replaced by an edit won't remove it's replacement.
+     *
+     * @param item The item to remove.
+     */
+    public void remove(T item) {
+        int slot = find(item.getID());
+
+        if (slot != -1 && mValues[slot] == item) {
+            delete(slot);
+        }
+    }
+
+    /**
+     * Get the item with the given ID.
+     *
+     * @param id ID of the item to lookup.
+     *
+     * @return the item with the given ID, or null if no such item is indexed.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(long id) {
+        if (id == 0) {
+            return null;
+        }
+
+        int slot = find(id);
+
+        return slot == -1 ? null : (T) mValues[slot];
+    }
+
+    /**
+     * Get the position an item was added with.
+     *
+     * @param item The item to lookup.
+     *
+     * @return the item's position in its list, or -1 if it isn't indexed, was replaced by another
+     * item with the same ID, or was added without a position.
+     */
+    public int getPosition(T item) {
+        int slot = find(item.getID());
+
+        return slot == -1 || mValues[slot] != item ? -1 : mPositions[slot];
+    }
+
+    /**
+     * Check if an item with the given ID is indexed.
+     *
+     * @param id The ID to check.
+     *
+     * @return true if an item with the given ID is indexed, false otherwise.
+     */
+    public boolean contains(long id) {
+        return get(id) != null;
+    }
+
+    /**
+     * Get the number of items in the index.
+     *
+     * @return The number of items in the index.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Remove every item from the index.
+     */
+    public void clear() {
+        mKeys = new long[MIN_CAPACITY];
+        mValues = new Object[MIN_CAPACITY];
+        mPositions = new int[MIN_CAPACITY];
+        mSize = 0;
+    }
+
+    /**
+     * Get the number of slots in the table.
+     *
+     * @return The capacity of the table.
+     */
+    int getCapacity() {
+        return mKeys.length;
+    }
+
+    /**
+     * Insert or replace the item for a given ID.
+     *
+     * @param id The ID of the item.
+     * @param item The item.
+     * @param position The item's position in its list, or -1.
+     */
+    private void put(long id, T item, int position) {
+        int mask = mKeys.length - 1;
+        int slot = hash(id) & mask;
+
+        while (mKeys[slot] != 0) {
+            if (mKeys[slot] == id) {
+                mValues[slot] = item;
+                mPositions[slot] = position;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        mKeys[slot] = id;
+        mValues[slot] = item;
+        mPositions[slot] = position;
+        mSize++;
+
+        // Keep the table at most half full so probe sequences stay short.
+        if (mSize * 2 > mKeys.length) {
+            resize(mKeys.length * 2);
+        }
+    }
+
+    /**
+     * Find the slot holding the given ID.
+     *
+     * @param id The ID to find.
+     *
+     * @return The slot holding the ID, or -1 if it isn't in the table.
+     */
+    private int find(long id) {
+        int mask = mKeys.length - 1;
+        int slot = hash(id) & mask;
+
+        while (mKeys[slot] != 0) {
+            if (mKeys[slot] == id) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Empty a slot, shifting back later entries of the probe sequence so lookups don't stop early
+     * at the new hole.
+     *
+     * @param slot The slot to empty.
+     */
+    private void delete(int slot) {
+        int mask = mKeys.length - 1;
+        int hole = slot;
+        int curr = (slot + 1) & mask;
+
+        while (mKeys[curr] != 0) {
+            int home = hash(mKeys[curr]) & mask;
+
+            // Move the entry into the hole if the hole lies between it's home slot and it's
+            // current slot (cyclically).
+            if (((curr - home) & mask) >= ((curr - hole) & mask)) {
+                mKeys[hole] = mKeys[curr];
+                mValues[hole] = mValues[curr];
+                mPositions[hole] = mPositions[curr];
+                hole = curr;
+            }
+
+            curr = (curr + 1) & mask;
+        }
+
+        mKeys[hole] = 0;
+        mValues[hole] = null;
+        mSize--;
+    }
+
+    /**
+     * Rehash every entry into a table of the given capacity.
+     *
+     * @param capacity The new capacity, must be a power of 2.
+     */
+    @SuppressWarnings("unchecked")
+    private void resize(int capacity) {
+        long[] oldKeys = mKeys;
+        Object[] oldValues = mValues;
+        int[] oldPositions = mPositions;
+
+        mKeys = new long[capacity];
+        mValues = new Object[capacity];
+        mPositions = new int[capacity];
+        mSize = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                put(oldKeys[i], (T) oldValues[i], oldPositions[i]);
+            }
+        }
+    }
+
+    /**
+     * Spread the bits of an ID, as sequential IDs would otherwise cluster in the table.
+     *
+     * @param id The ID to hash.
+     *
+     * @return The hash of the ID.
+     */
+    static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
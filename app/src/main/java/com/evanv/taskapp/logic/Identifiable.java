@@ -0,0 +1,18 @@
+package com.evanv.taskapp.logic;
+
+/**
+ * An item that is stored in the Room DB and identified by it's primary key, so it can be looked up
+ * by ID in an IdIndex.
+ *
+ * @author Evan Voogd
+ */
+public interface Identifiable {
+    /**
+     * Returns the ID of the item, which serves as it's primary key. IDs are handed out by the
+     * repository's IdAllocator when an item is created, before it's inserted, so this is only 0
+     * for an item that hasn't been given one yet.
+     *
+     * @return the ID of the item
+     */
+    long getID();
+}
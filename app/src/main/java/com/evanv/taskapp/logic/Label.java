@@ -14,7 +14,7 @@ import java.util.List;
  * @author Evan Voogd
  */
 @Entity(tableName = "label_table")
-public class Label {
+public class Label implements Identifiable {
     // Database Fields
     @PrimaryKey(autoGenerate = true)
     @ColumnInfo(name = "id")
@@ -107,6 +107,7 @@ public class Label {
      *
      * @return The Label's ID.
      */
+    @Override
     public long getID() {
         return mID;
     }
@@ -4,13 +4,15 @@ import static com.evanv.taskapp.logic.Task.getDiff;
 
 import android.content.Context;
 import android.os.Bundle;
-
-import androidx.lifecycle.ViewModelProvider;
+import android.os.Handler;
+import android.os.Looper;
 
 import com.evanv.taskapp.R;
+import com.evanv.taskapp.db.CalendarSyncState;
+import com.evanv.taskapp.db.Completion;
+import com.evanv.taskapp.db.ImportedEvent;
 import com.evanv.taskapp.db.TaskAppViewModel;
-import com.evanv.taskapp.ui.additem.EventEntry;
-import com.evanv.taskapp.ui.main.MainActivity;
+import com.evanv.taskapp.db.WriteQueue;
 import com.evanv.taskapp.ui.main.recycler.DayItem;
 import com.evanv.taskapp.ui.main.recycler.EventItem;
 import com.evanv.taskapp.ui.main.recycler.TaskItem;
@@ -18,14 +20,19 @@ import com.evanv.taskapp.ui.projects.recycler.ProjectItem;
 
 import org.threeten.bp.LocalDate;
 import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneId;
 import org.threeten.bp.ZoneOffset;
-import org.threeten.bp.format.FormatStyle;
 import org.threeten.bp.temporal.ChronoUnit;
-import org.threeten.bp.format.DateTimeFormatter;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 import kotlin.Pair;
 
@@ -39,6 +46,11 @@ import kotlin.Pair;
 public class LogicSubsystem {
 
     private static volatile LogicSubsystem INSTANCE; // The singleton of the LogicSubsystem
+    private static final Object CREATE_LOCK = new Object(); // Held while INSTANCE is created
+    private static final long SNAPSHOT_DELAY_MS = 1000; // Wait for more changes before snapshots
+    private static final int HORIZON_DAYS = 90; // Days past today recurrences are stored through
+    private static final int IMPORT_BATCH = 400; // Imported events checked for duplicates at once
+    private static final long SYNC_WAIT_MS = 10000; // Longest to wait for writes before a sync
     private boolean mCorruptionDetected;          // Did we find corruption?
     // eventSchedule[i] represents the list of events for the day i days past startDate
     private final List<List<Event>> mEventSchedule = new ArrayList<>();
@@ -46,32 +58,54 @@ public class LogicSubsystem {
     private final List<Label> mLabels;            // List of current labels.
     private final List<Project> mProjects;        // List of current projects.
     private final LocalDate mStartDate;           // The current date
-    private TaskAppViewModel mTaskAppViewModel;   // ViewModel to interact with Database
+    private final TaskAppViewModel mTaskAppViewModel; // ViewModel to interact with Database
     // taskSchedule[i] represents the list of tasks for the day i days past startDate
     private final List<List<Task>> mTaskSchedule = new ArrayList<>();
     private List<Task> mTasks;                    // List of all tasks for user
     private LocalDateTime mTimer;                 // Start time of current timer
     private Task mTimerTask;                      // Task currently being timed.
     private int mTodayTime;                       // The time spent completing tasks today
-    private List<Integer> mUpdatedIndices;        // List of updated indices.
+    private final DirtyDays mDirtyDays;           // Days changed since the UI last updated
     private List<Task> overdueTasks;              // Overdue tasks
     private final boolean mEnableConsistency;     // Try to keep task schedule consistent
+    private final IdIndex<Task> mTaskIndex;       // Tasks by ID
+    private final IdIndex<Event> mEventIndex = new IdIndex<>(); // Events by ID
+    private final IdIndex<Project> mProjectIndex; // Projects by ID
+    private final IdIndex<Label> mLabelIndex;     // Labels by ID
+    private final TaskFilterIndex mFilterIndex;   // Tasks by project/label/priority/due date
+    private DayHeaderFormatter mDayHeaders;       // Formats and caches the header of each day
+    private final ViewItemCache mItemCache = new ViewItemCache(); // Items reused until they change
+    private String mMinutesTemplate;              // minutes_to_complete the cached items used
+    private final Handler mHandler = new Handler(Looper.getMainLooper()); // Posts to UI thread
+    private final Runnable mSnapshotRunnable = this::saveSnapshot; // Snapshots the model
+    private volatile boolean mOptimizing;         // Is the optimizer changing the schedule
+    private final List<Series> mSeries;           // Recurrences that run past the horizon
 
-    
-    
-    
+    /**
+     * Receives the results of a query run by filter one page at a time.
+     */
+    public interface PageListener {
+        /**
+         * Called with each page of results, in order.
+         *
+         * @param page The TaskItems in this page
+         * @param last true if this is the last page of results
+         */
+        void onPage(List<TaskItem> page, boolean last);
+    }
 
     /**
      * Creates a new LogicSubsystem and loads data from database into internal data structures.
-     * Only call once.
+     * Only call once, and never from the UI thread, as loading blocks on the database. Use create
+     * to make sure only one is ever built.
      *
-     *  @param mainActivity The calling MainActivity. Don't love this from a coupling perspective,
-     *                     but due to Android's design, it's necessary to extract resources.
+     * @param viewModel The ViewModel to load from and save changes through.
      * @param todayTime The amount of time spent completing tasks so far today.
      * @param timedTaskID ID of the task currently being timed.
      * @param timerStart Start time of the current timer.
+     * @param enableConsistency Try to keep the task schedule consistent.
      */
-    public LogicSubsystem(MainActivity mainActivity, int todayTime, long timedTaskID,
+    public LogicSubsystem(TaskAppViewModel viewModel, int todayTime, long timedTaskID,
                           long timerStart, boolean enableConsistency) {
         if (INSTANCE != null) {
             throw new IllegalStateException();
@@ -84,18 +118,10 @@ public class LogicSubsystem {
         // startDate is our representation for the current date upon the launch of TaskApp.
         mStartDate = LocalDate.now();
 
-        // Populate from database;
-        Thread thread = new Thread() {
-            public void run() {
-                mTaskAppViewModel = new ViewModelProvider(mainActivity).get(TaskAppViewModel.class);
-            }
-        };
-        thread.start();
-        try {
-            thread.join();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        // Populate from database. Every table loads at once, and events aren't needed until
+        // prepForDisplay, so they keep loading while tasks are wired to projects and labels.
+        mTaskAppViewModel = viewModel;
+        mTaskAppViewModel.load(mStartDate);
 
         // Set the timer
         if (timerStart != -1) {
@@ -106,6 +132,9 @@ public class LogicSubsystem {
         mTasks = mTaskAppViewModel.getAllTasks();
         mTasks = (mTasks == null) ? new ArrayList<>() : mTasks;
 
+        // Overdue tasks come from their own query on the doDate index, so aren't found here
+        List<Task> overdue = mTaskAppViewModel.getOverdueTasks();
+        overdue = (overdue == null) ? new ArrayList<>() : overdue;
         overdueTasks = new ArrayList<>(); // Tasks that are overdue.
 
         // Get projects from database
@@ -114,11 +143,20 @@ public class LogicSubsystem {
         // Get labels from database
         mLabels = mTaskAppViewModel.getAllLabels();
 
+        // Get recurring series from database. Their next occurrences are added in prepForDisplay.
+        List<Series> series = mTaskAppViewModel.getAllSeries();
+        mSeries = (series == null) ? new ArrayList<>() : series;
+
+        // Index everything by ID so lookups don't need to scan the lists
+        mTaskIndex = new IdIndex<>(mTasks);
+        mProjectIndex = new IdIndex<>(mProjects);
+        mLabelIndex = new IdIndex<>(mLabels);
+
         // Add tasks to taskSchedule/add parents
         for (Task t : mTasks) {
             // Add Project
-            t.initializeProject(mProjects);
-            t.initializeLabels(mLabels);
+            t.initializeProject(mProjectIndex);
+            t.initializeLabels(mLabelIndex);
 
             // Calculate how many days past today's date this task is scheduled for. Used to
             // index into taskSchedule
@@ -139,15 +177,6 @@ public class LogicSubsystem {
 
                 // Add to taskSchedule
                 mTaskSchedule.get(index).add(t);
-            } else {
-                if (index < -20000 || t.getName().isEmpty()) {
-                    mCorruptionDetected = true;
-                    mFailures++;
-                    mTaskAppViewModel.delete(t);
-                    continue;
-                }
-
-                overdueTasks.add(t);
             }
 
             // If task is the currently timed task, add it.
@@ -156,24 +185,86 @@ public class LogicSubsystem {
             }
         }
 
-        // Add parent/child structure to task lists, as Room DB cannot do this
-        for (Task t : mTasks) {
-            if (t.getParentArr().size() != 0) {
-                for (Task other : mTasks) {
-                    if (t.getParentArr().contains(other.getID())) {
-                        t.addParent(other);
-                        other.addChild(t);
-                    }
+        for (Task t : overdue) {
+            if (getDiff(t.getDoDate(), mStartDate) < -20000 || t.getName().isEmpty()) {
+                mCorruptionDetected = true;
+                mFailures++;
+                mTaskAppViewModel.delete(t);
+
+                if (mTimerTask == t) {
+                    mTimerTask = null;
                 }
+                continue;
             }
+
+            overdueTasks.add(t);
+        }
+
+        // Add parent/child structure to task lists, as Room DB cannot do this
+        for (Task t : mTasks) {
+            t.initializeParents(mTaskIndex);
         }
 
-        // List of updated indices for the recycler
-        mUpdatedIndices = new ArrayList<>();
+        // Build the secondary indexes used by filter
+        mFilterIndex = new TaskFilterIndex(mTasks);
+
+        // Snapshot the model for the next start whenever a set of changes reaches the database
+        mTaskAppViewModel.setIdleListener(this::scheduleSnapshot);
+
+        // Days changed since the recycler last updated
+        mDirtyDays = new DirtyDays(0);
 
         INSTANCE = this;
     }
 
+    /**
+     * Return the singleton instance of the LogicSubsystem, creating it if it hasn't been already.
+     * Blocks while the database loads, so must not be called from the UI thread. If another thread
+     * is already creating it, waits for that thread instead of loading twice.
+     *
+     * @param viewModel The ViewModel to load from and save changes through.
+     * @param todayTime The amount of time spent completing tasks so far today.
+     * @param timedTaskID ID of the task currently being timed.
+     * @param timerStart Start time of the current timer.
+     * @param enableConsistency Try to keep the task schedule consistent.
+     *
+     * @return The singleton instance of the LogicSubsystem
+     */
+    public static LogicSubsystem create(TaskAppViewModel viewModel, int todayTime,
+                                        long timedTaskID, long timerStart,
+                                        boolean enableConsistency) {
+        // Separate from getInstance's lock so the UI thread can still check for an instance
+        // while one is loading
+        synchronized (CREATE_LOCK) {
+            LogicSubsystem logicSubsystem = INSTANCE;
+
+            if (logicSubsystem == null) {
+                logicSubsystem = new LogicSubsystem(viewModel, todayTime, timedTaskID, timerStart,
+                        enableConsistency);
+            }
+
+            return logicSubsystem;
+        }
+    }
+
+    /**
+     * Drop the singleton, so the next call to create loads the model from the database again.
+     * Used when a backup is about to replace the database, as the model won't match it. Its
+     * pending snapshot is cancelled, and it's no longer told when writes finish. Must be called
+     * from the UI thread.
+     */
+    public static void discard() {
+        synchronized (CREATE_LOCK) {
+            LogicSubsystem logicSubsystem = INSTANCE;
+
+            if (logicSubsystem != null) {
+                logicSubsystem.mHandler.removeCallbacks(logicSubsystem.mSnapshotRunnable);
+                logicSubsystem.mTaskAppViewModel.setIdleListener(null);
+                INSTANCE = null;
+            }
+        }
+    }
+
     /**
      * Return the singleton instance of the LogicSubsystem. Contains all data structures for the app.
      *
@@ -214,7 +305,7 @@ public class LogicSubsystem {
             Task t = overdueTasks.get(i);
 
             if (t.getDoDate().isEqual(LocalDate.MIN)) {
-                mTasks.remove(t);
+                removeTask(t);
                 mTaskAppViewModel.delete(t);
                 continue;
             }
@@ -247,10 +338,11 @@ public class LogicSubsystem {
      */
     @SuppressWarnings("unused")
     public void updateOverdueTasks(List<Integer> completedItems, Context context) {
-        // As the user has marked these tasks as completed, remove them.
+        // As the user has marked these tasks as completed, move them to the archive.
         for (int i = 0; i < completedItems.size(); i++) {
-            Complete(this.overdueTasks.get(completedItems.get(i)), context);
-            this.mTaskAppViewModel.delete(this.overdueTasks.get(completedItems.get(i)));
+            Task t = this.overdueTasks.get(completedItems.get(i));
+            Complete(t, context);
+            logCompletion(t, t == mTimerTask ? getTimer() : -1);
         }
 
         // Change due date for overdue tasks if it has already been passed to today.
@@ -264,6 +356,7 @@ public class LogicSubsystem {
 
                 if (t.getDueDate().isBefore(mStartDate)) {
                     t.setDueDate(mStartDate);
+                    mFilterIndex.update(t);
                 }
             }
         }
@@ -276,12 +369,8 @@ public class LogicSubsystem {
      * internal database and optimize if necessary.
      *
      * @param reoptimize If there was overdue tasks, reoptimize to account for them.
-     * @param context Context for resources
-     *
-     * @return A list of DayItems to be used by MainActivity's recycler.
      */
-    @SuppressWarnings("unused")
-    public List<DayItem> prepForDisplay(boolean reoptimize, Context context) {
+    public void prepForDisplay(boolean reoptimize) {
         // Get the event list.
         List<Event> events = mTaskAppViewModel.getAllEvents();
 
@@ -302,16 +391,166 @@ public class LogicSubsystem {
                     }
 
                     mEventSchedule.get(doDateIndex).add(e);
+                    mEventIndex.add(e);
                 }
             }
         }
 
+        // Store the occurrences of recurring series the horizon has moved past since the last start
+        if (extendSeries()) {
+            reoptimize = true;
+        }
+
         // If tasks were changed, make sure to reoptimize the schedule in case it's necessary
         if (reoptimize) {
             Optimize();
         }
 
-        return DayItemList(context);
+        // Move events that have passed out of the event_table in the background, so it doesn't
+        // keep growing and they aren't read again at every start
+        mTaskAppViewModel.archivePastEvents(mStartDate);
+
+        // Write a snapshot if the model was loaded from the database, so the next start can skip
+        // it. If the optimizer changed anything, this waits for its writes to finish.
+        scheduleSnapshot();
+    }
+
+    /**
+     * Store the occurrences of each recurring series between the day it's stored through and the
+     * horizon, so only HORIZON_DAYS days of any series are ever in the schedule. Series without
+     * any occurrences past the horizon are finished, so they're deleted.
+     *
+     * @return true if any tasks were added, so the schedule needs to be optimized
+     */
+    private boolean extendSeries() {
+        LocalDate horizon = mStartDate.plusDays(HORIZON_DAYS);
+        boolean addedTasks = false;
+
+        for (int i = mSeries.size() - 1; i >= 0; i--) {
+            Series series = mSeries.get(i);
+
+            for (LocalDateTime time : series.extend(mStartDate, horizon)) {
+                if (series.isEvent()) {
+                    Event toAdd = new Event(series.getName(), series.getLength(), time);
+                    mTaskAppViewModel.insert(toAdd);
+                    scheduleEvent(toAdd);
+                }
+                else {
+                    LocalDate d = time.toLocalDate();
+                    Task toAdd = buildTask(series.getName(), d,
+                            d.plusDays(series.getDueOffset()), series.getLength(),
+                            series.getPriority(), series.getProject(), series.getLabels(),
+                            series.getParents(), -1, false);
+
+                    addTask(toAdd);
+                    mTaskAppViewModel.insert(toAdd);
+                    addedTasks = true;
+                }
+            }
+
+            if (series.hasMore()) {
+                mTaskAppViewModel.update(series);
+            }
+            else {
+                mSeries.remove(i);
+                mTaskAppViewModel.delete(series);
+            }
+        }
+
+        return addedTasks;
+    }
+
+    /**
+     * Get the last day recurrences starting on a given day are stored through when they're
+     * created. This is the horizon, unless the first occurrence is past it.
+     *
+     * @param first The day of the first occurrence
+     *
+     * @return The day to store occurrences through
+     */
+    private LocalDate getHorizon(LocalDate first) {
+        LocalDate horizon = mStartDate.plusDays(HORIZON_DAYS);
+
+        return first.isAfter(horizon) ? first : horizon;
+    }
+
+    /**
+     * Find the series an item being edited is an occurrence of, so giving it a new recurrence
+     * replaces that series rather than adding a second one alongside it.
+     *
+     * @param isEvent true if the item is an Event, false if it's a Task
+     * @param name Name of the item before it was edited
+     * @param day The item's day before it was edited, or a task's early date
+     *
+     * @return The index of the series in mSeries, or -1 if the item isn't part of one
+     */
+    private int findSeries(boolean isEvent, String name, LocalDate day) {
+        for (int i = 0; i < mSeries.size(); i++) {
+            if (mSeries.get(i).hasOccurrence(isEvent, name, day)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Keep the rest of an edited item's occurrences as a series. If the item was already part of
+     * a series and was given a new recurrence, that series is replaced, keeping its ID; if its
+     * recurrence now ends inside the horizon, that series is deleted.
+     *
+     * @param series The new series, or null if the item's occurrences are all stored already
+     * @param rule The item's recurrence
+     * @param old Index in mSeries of the series the item was part of, -1 if it wasn't
+     */
+    private void saveSeries(Series series, RecurrenceRule rule, int old) {
+        // Editing one occurrence without giving it a recurrence leaves the rest of its series
+        if (old != -1 && rule.equals(RecurrenceRule.ONCE)) {
+            old = -1;
+        }
+
+        if (series == null) {
+            if (old != -1) {
+                mTaskAppViewModel.delete(mSeries.remove(old));
+            }
+        }
+        else if (old != -1) {
+            series.setID(mSeries.get(old).getID());
+            mSeries.set(old, series);
+            mTaskAppViewModel.update(series);
+        }
+        else {
+            mSeries.add(series);
+            mTaskAppViewModel.insert(series);
+        }
+    }
+
+    /**
+     * Snapshot the model on the UI thread once changes stop coming in for a moment, so a burst of
+     * changes is only snapshotted once. Can be called from any thread.
+     */
+    private void scheduleSnapshot() {
+        mHandler.removeCallbacks(mSnapshotRunnable);
+        mHandler.postDelayed(mSnapshotRunnable, SNAPSHOT_DELAY_MS);
+    }
+
+    /**
+     * Snapshot the model so the next start can skip loading from the database. Runs on the UI
+     * thread, which makes every change but the optimizer's, so the model can't change while it's
+     * encoded.
+     */
+    private void saveSnapshot() {
+        // The optimizer's writes will schedule another snapshot once they're done
+        if (mOptimizing) {
+            return;
+        }
+
+        List<Event> events = new ArrayList<>();
+        for (List<Event> day : mEventSchedule) {
+            events.addAll(day);
+        }
+
+        mTaskAppViewModel.saveSnapshot(mTasks, events, mProjects, mLabels);
     }
 
     /**
@@ -319,11 +558,9 @@ public class LogicSubsystem {
      *
      * @param task The task to be removed from the task dependency graph
      * @param context Context for resources
-     *
-     * @return List of days changed.
      */
-    public List<Integer> Complete(Task task, Context context) {
-        mTasks.remove(task);
+    public void Complete(Task task, Context context) {
+        removeTask(task);
 
         // Remove task from project
         if (task.getProject() != null) {
@@ -344,14 +581,14 @@ public class LogicSubsystem {
         // If the task is in the internal data structure, remove it.
         if (diff >= 0) {
             mTaskSchedule.get(diff).remove(task);
-            this.mUpdatedIndices.add(diff);
+            mDirtyDays.mark(diff);
         }
 
         // Remove the task from the task dependency graph
         for (int i = 0; i < task.getChildren().size(); i++) {
             task.getChildren().get(i).removeParent(task);
             mTaskAppViewModel.update(task.getChildren().get(i));
-            this.mUpdatedIndices.add(Task.getDiff(task.getChildren().get(i).getDoDate(), this.mStartDate));
+            mDirtyDays.mark(Task.getDiff(task.getChildren().get(i).getDoDate(), this.mStartDate));
         }
         for (int i = 0; i < task.getParents().size(); i++) {
             task.getParents().get(i).removeChild(task);
@@ -360,7 +597,68 @@ public class LogicSubsystem {
         if (diff >= 0) {
             DayItemHelper(diff, context);
         }
-        return mUpdatedIndices;
+    }
+
+    /**
+     * Add a task to the task list and the indexes.
+     *
+     * @param task The task to add, which must have been given its ID
+     */
+    private void addTask(Task task) {
+        mTaskIndex.add(task, mTasks.size());
+        mTasks.add(task);
+        mFilterIndex.add(task);
+    }
+
+    /**
+     * Remove a task from the task list, the indexes and the item cache. The last task in the list
+     * is moved into its place, so nothing has to be shifted or searched for.
+     *
+     * @param task The task to remove
+     */
+    private void removeTask(Task task) {
+        int position = mTaskIndex.getPosition(task);
+
+        mTaskIndex.remove(task);
+        mFilterIndex.remove(task);
+        mItemCache.remove(task);
+
+        if (position != -1) {
+            Task last = mTasks.remove(mTasks.size() - 1);
+
+            if (last != task) {
+                mTasks.set(position, last);
+                mTaskIndex.add(last, position);
+            }
+        }
+    }
+
+    /**
+     * Replace a task with an edited copy in the task list, the indexes and the item cache, keeping
+     * its position in the list.
+     *
+     * @param oldTask The task being replaced
+     * @param newTask The edited copy, with the same ID
+     */
+    private void replaceTask(Task oldTask, Task newTask) {
+        int position = mTaskIndex.getPosition(oldTask);
+
+        mTasks.set(position, newTask);
+        mTaskIndex.add(newTask, position);
+        mFilterIndex.remove(oldTask);
+        mFilterIndex.add(newTask);
+        mItemCache.remove(oldTask);
+    }
+
+    /**
+     * Move a completed task to the archive and add it to the completion log.
+     *
+     * @param task The task that was completed
+     * @param timed Minutes the timer ran for the task, or -1 if it wasn't timed
+     */
+    private void logCompletion(Task task, int timed) {
+        mTaskAppViewModel.logCompletion(new Completion(task, timed, mStartDate));
+        mTaskAppViewModel.archive(task, mStartDate);
     }
 
     /**
@@ -388,13 +686,23 @@ public class LogicSubsystem {
      * indices must be updated.
      */
     public void Optimize() {
-        Optimizer opt = new Optimizer();
-        ArrayList<Task> changedTasks = opt.Optimize
-                (mTasks, mTaskSchedule, mEventSchedule, mStartDate, mTodayTime, mEnableConsistency);
+        mOptimizing = true;
+
+        try {
+            Optimizer opt = new Optimizer();
+            ArrayList<Task> changedTasks = opt.Optimize
+                    (mTasks, mTaskSchedule, mEventSchedule, mStartDate, mTodayTime,
+                            mEnableConsistency);
 
-        pareDownSchedules();
+            pareDownSchedules();
 
-        updateTasks(changedTasks);
+            updateTasks(changedTasks);
+        } finally {
+            mOptimizing = false;
+
+            // A snapshot may have been skipped while optimizing, and nothing may have changed
+            scheduleSnapshot();
+        }
     }
 
     /**
@@ -407,8 +715,8 @@ public class LogicSubsystem {
     private void updateTasks(List<Task> changedTasks) {
         // Update the task with the new do date, and reflect this change in the database.
         for (Task t : changedTasks) {
-            this.mUpdatedIndices.add(Task.getDiff(t.getDoDate(), this.mStartDate));
-            this.mUpdatedIndices.add(Task.getDiff(t.getWorkingDoDate(), this.mStartDate));
+            mDirtyDays.mark(Task.getDiff(t.getDoDate(), this.mStartDate));
+            mDirtyDays.mark(Task.getDiff(t.getWorkingDoDate(), this.mStartDate));
             t.setDoDate(t.getWorkingDoDate());
             mTaskAppViewModel.update(t);
         }
@@ -446,40 +754,12 @@ public class LogicSubsystem {
         if (eventScheduleSize > eventLowIndex) {
             mEventSchedule.subList(eventLowIndex, eventScheduleSize).clear();
         }
-
-        int bothLowIndex = Math.max(taskLowIndex, eventLowIndex);
-
-        for (int i = 0; i < mUpdatedIndices.size(); i++) {
-            if (mUpdatedIndices.get(i) >= bothLowIndex) {
-                mUpdatedIndices.remove(i);
-                i--;
-            }
-        }
-    }
-
-    /**
-     * Builds a DayItem List representation of a user's tasks/events
-     *
-     * @param context Context for resources
-     *
-     * @return a DayItem List representation of a user's tasks/events
-     */
-    public List<DayItem> DayItemList(Context context) {
-        // The list of DayItem's to be displayed in the recycler
-        List<DayItem> itemList = new ArrayList<>();
-
-        // Generate a DayItem for the date i days past today's date
-        for (int i = 0; i < mTaskSchedule.size() || i < mEventSchedule.size(); i++) {
-            itemList.add(DayItemHelper(i, context));
-        }
-
-        return itemList;
     }
 
     /**
-     * Get the EventItem and TaskItem lists for the day i days past today's date. Is used as a
-     * helper function so when the recycler needs to be refreshed, it only needs to get the DayItem
-     * for the updated days, not the entire schedule.
+     * Get the EventItem and TaskItem lists for the day i days past today's date. MainActivity's
+     * recycler calls this as days are scrolled into view, so only the days the user actually
+     * looks at are built, and only the updated days need to be rebuilt when the schedule changes.
      *
      * @param i How many days past today's date to get the schedule for
      * @param context Context for resources
@@ -499,36 +779,14 @@ public class LogicSubsystem {
         int totalTime = getTotalTime(i);
 
         // Set the fields
-        String day = DateTimeFormatter.ofLocalizedDate(FormatStyle.LONG).format(curr);
-        String[] toks = day.split(" ");
-
-        // Incredibly stupid, but ensures that the string is formatted as an ordinal day.
-        for (int j = 0; j < toks.length; j++) {
-            try {
-                Integer.parseInt(toks[j].split(",")[0]);
-
-                String ordinal = EventEntry.getOrdinalDayInMonth(curr);
-                ordinal += ",";
-
-                StringBuilder sb = new StringBuilder();
-
-                for (int k = 0; k < toks.length; k++) {
-                    if (k == j) {
-                        sb.append(ordinal).append(" ");
-                        continue;
-                    }
-                    sb.append(toks[k]).append(' ');
-                }
-                day = sb.toString();
-                break;
-            } catch (Exception ignored) {}
+        Locale locale = Locale.getDefault();
+        String template = context.getString(R.string.schedule_for);
+        if (mDayHeaders == null || !mDayHeaders.matches(locale, template)) {
+            mDayHeaders = new DayHeaderFormatter(locale, template);
         }
 
-        if (curr.getYear() == mStartDate.getYear()) {
-            day = day.split(", ")[0];
-        }
-        dayString = String.format(context.getString(R.string.schedule_for),
-                day, totalTime);
+        dayString = mDayHeaders.getHeader(curr, curr.getYear() != mStartDate.getYear(),
+                totalTime);
         events = EventItemList(i);
         tasks = i < mTaskSchedule.size() ? TaskItemList(mTaskSchedule.get(i), context) :
                 new ArrayList<>();
@@ -553,7 +811,14 @@ public class LogicSubsystem {
                 // Get the jth event from the given date
                 Event event = mEventSchedule.get(index).get(j);
 
-                itemList.add(EventItemHelper(event, j));
+                // Reuse the last EventItem built for the event unless it's changed since
+                EventItem item = mItemCache.getEventItem(event);
+                if (item == null) {
+                    item = EventItemHelper(event, j);
+                    mItemCache.putEventItem(event, item);
+                }
+
+                itemList.add(item);
             }
         }
         return itemList;
@@ -567,7 +832,7 @@ public class LogicSubsystem {
      *
      * @return An EventItem based off of the given event.
      */
-    private EventItem EventItemHelper(Event event, int position) {
+    static EventItem EventItemHelper(Event event, int position) {
         // Fields for itemList
         String name;
         String timespan;
@@ -595,18 +860,33 @@ public class LogicSubsystem {
     private List<TaskItem> TaskItemList(List<Task> taskList, Context context) {
         // The list of TaskItems representing the tasks scheduled for the date index days past
         // today's date
-        List<TaskItem> itemList = new ArrayList<>();
+        List<TaskItem> itemList = new ArrayList<>(taskList.size());
         List<Task> taskList2 = new ArrayList<>(taskList);
 
         Collections.sort(taskList2);
 
+        // Cached items have the old string baked in, so rebuild them if it's changed
+        String template = context.getString(R.string.minutes_to_complete);
+        if (!template.equals(mMinutesTemplate)) {
+            mItemCache.clear();
+            mMinutesTemplate = template;
+        }
+
         // Add all the tasks scheduled for the given date to itemList
         if (!taskList2.isEmpty()) {
             for (int j = 0; j < taskList2.size(); j++) {
                 // Get the jth task scheduled for the given day.
                 Task task = taskList2.get(j);
+                boolean timed = mTimerTask != null && mTimerTask.getID() == task.getID();
+
+                // Reuse the last TaskItem built for the task unless it's changed since
+                TaskItem item = mItemCache.getTaskItem(task, j, timed);
+                if (item == null) {
+                    item = TaskItemHelper(task, j, context);
+                    mItemCache.putTaskItem(task, j, timed, item);
+                }
 
-                itemList.add(TaskItemHelper(task, j, context));
+                itemList.add(item);
             }
         }
 
@@ -623,22 +903,40 @@ public class LogicSubsystem {
      * @return A TaskItem based off of the given event.
      */
     private TaskItem TaskItemHelper(Task task, int position, Context context) {
+        boolean timed = mTimerTask != null && mTimerTask.getID() == task.getID();
+        boolean completable = (task.getEarlyDate().equals(mStartDate))
+                && (task.getParents().size() == 0);
+
+        return TaskItemHelper(task, position, timed, completable, mStartDate, context);
+    }
+
+    /**
+     * Return a new TaskItem based on a given task, without needing the rest of the model. Used
+     * by StartupPreview before the LogicSubsystem has loaded.
+     *
+     * @param task The Task to make a TaskItem based off of
+     * @param position The position in the recycler of the task
+     * @param timed true if the task is currently being timed
+     * @param completable true if the task can be completed today
+     * @param startDate Today's date
+     * @param context Context for resources
+     *
+     * @return A TaskItem based off of the given task.
+     */
+    static TaskItem TaskItemHelper(Task task, int position, boolean timed, boolean completable,
+                                   LocalDate startDate, Context context) {
         // DayItem's only field
         String name;
-        boolean completable;
 
         // Create the name in the format NAME (TTC minutes to complete)
         name = task.getName();
 
-        if (mTimerTask != null && mTimerTask.getID() == task.getID()) {
+        if (timed) {
             name += new String(Character.toChars(0x23F3));
         }
         name += "\n" + String.format(context.getString(R.string.minutes_to_complete), task.getTimeToComplete());
 
-        completable = (task.getEarlyDate().equals(mStartDate))
-                && (task.getParents().size() == 0);
-
-        int priority = !mStartDate.isBefore(task.getDueDate()) ? 4 : task.getPriority();
+        int priority = !startDate.isBefore(task.getDueDate()) ? 4 : task.getPriority();
 
         String project = task.getProject() == null ? null : task.getProject().getName();
         int projectColor = task.getProject() == null ? -1 : task.getProject().getColor();
@@ -667,13 +965,9 @@ public class LogicSubsystem {
      * @return A TaskItem based off of the given event.
      */
     public TaskItem TaskItemHelper(long ID, int position, Context context) {
-        for (Task t : mTasks) {
-            if (t.getID() == ID) {
-                return TaskItemHelper(t, position, context);
-            }
-        }
+        Task t = mTaskIndex.get(ID);
 
-        return null;
+        return t == null ? null : TaskItemHelper(t, position, context);
     }
 
     /**
@@ -714,6 +1008,24 @@ public class LogicSubsystem {
         return mTodayTime;
     }
 
+    /**
+     * Commit the changes waiting to be written to the database without waiting for more to join
+     * them. Called when the app goes into the background. Doesn't block.
+     */
+    public void flush() {
+        mTaskAppViewModel.flush();
+    }
+
+    /**
+     * Get the queue changes are written to the database through, for its depth and commit
+     * latency.
+     *
+     * @return The write queue
+     */
+    public WriteQueue getWriteQueue() {
+        return mTaskAppViewModel.getWriteQueue();
+    }
+
     /**
      * Get a list of task names for the prerequisite picker in AddItem
      *
@@ -749,14 +1061,23 @@ public class LogicSubsystem {
                 return;
             }
 
+            int timed = -1;
+
             // If task to remove is currently being timed, cancel the timer.
             if (toRemove == mTimerTask) {
+                timed = getTimer();
                 mTimerTask = null;
                 mTimer = null;
             }
 
-            mTaskAppViewModel.delete(toRemove);
-            mUpdatedIndices.addAll(Complete(mTaskSchedule.get(day).get(position), context));
+            // Completed tasks are kept in the archive and completion log, deleted ones aren't
+            if (action == 0) {
+                logCompletion(toRemove, timed);
+            }
+            else {
+                mTaskAppViewModel.delete(toRemove);
+            }
+            Complete(mTaskSchedule.get(day).get(position), context);
 
             pareDownSchedules();
         }
@@ -765,10 +1086,12 @@ public class LogicSubsystem {
             if (day == -1 || mEventSchedule.get(day).size() <= position) {
                 return;
             }
-            mTaskAppViewModel.delete(mEventSchedule.get(day).get(position));
-            mEventSchedule.get(day).remove(position);
+            Event toRemove = mEventSchedule.get(day).remove(position);
+            mTaskAppViewModel.delete(toRemove);
+            mEventIndex.remove(toRemove);
+            mItemCache.remove(toRemove);
 
-            mUpdatedIndices.add(day);
+            mDirtyDays.mark(day);
 
             pareDownSchedules();
         }
@@ -783,14 +1106,7 @@ public class LogicSubsystem {
      *
      */
     public void onButtonClick(long ID, int action, Context context) {
-        Task toRemove = null;
-
-        for (Task t : mTasks) {
-            if (t.getID() == ID) {
-                toRemove = t;
-                break;
-            }
-        }
+        Task toRemove = mTaskIndex.get(ID);
 
         if (toRemove == null) {
             return;
@@ -830,7 +1146,7 @@ public class LogicSubsystem {
 
         mTimer = LocalDateTime.now();
         mTimerTask = toTime;
-        this.mUpdatedIndices.add(day);
+        mDirtyDays.mark(day);
     }
 
     /**
@@ -979,7 +1295,7 @@ public class LogicSubsystem {
     }
 
     /**
-     * Build a list of tasks that meet the given filters. Leave field null or -1 if not needed.
+     * Build a query for tasks that meet the given filters. Leave field null or -1 if not needed.
      *
      * @param startDate Earliest due date
      * @param endDate Latest due date
@@ -988,127 +1304,119 @@ public class LogicSubsystem {
      * @param minTime Minimum TTC to show
      * @param maxTime Maximum TTC
      * @param completable Show only completable tasks
-     * @param context Context for resources
+     * @param labels Show only tasks with all of these labels
+     * @param priority Minimum priority to show
      *
-     * @return A TaskItem list with these parameters.
+     * @return A TaskQuery with these parameters, to be run by filter.
      */
-    public List<TaskItem> filter(LocalDate startDate, LocalDate endDate, long project, String name,
-                                 int minTime, int maxTime, boolean completable, List<Long> labels,
-                                 int priority, Context context) {
-        List<Task> toReturn = new ArrayList<>(mTasks);
+    public TaskQuery buildQuery(LocalDate startDate, LocalDate endDate, long project, String name,
+                                int minTime, int maxTime, boolean completable, List<Long> labels,
+                                int priority) {
+        TaskQuery query = new TaskQuery();
 
-        // Remove all tasks that are due before the given start date.
         if (startDate != null) {
-            for (int i = 0; i < toReturn.size(); i++) {
-                if (toReturn.get(i).getDueDate().isBefore(startDate)) {
-                    toReturn.remove(i);
-                    i--;
-                }
-            }
+            query.dueOnOrAfter(startDate);
         }
-
-        // Remove all tasks that are due after the given end date.
         if (endDate != null) {
-            for (int i = 0; i < toReturn.size(); i++) {
-                if (toReturn.get(i).getDueDate().isAfter(endDate)) {
-                    toReturn.remove(i);
-                    i--;
-                }
-            }
+            query.dueOnOrBefore(endDate);
         }
-
-        // Remove all tasks that are not in the given project
         if (project != -1) {
-            for (int i = 0; i < toReturn.size(); i++) {
-                Project taskProject = toReturn.get(i).getProject();
-                if (taskProject == null || taskProject.getID() != project) {
-                    toReturn.remove(i);
-                    i--;
-                }
-            }
+            query.inProject(project);
         }
-
-        // Remove all tasks that do not contain the searched substring.
         if (name != null) {
-            for (int i = 0; i < toReturn.size(); i++) {
-                if (!toReturn.get(i).getName().toLowerCase().contains(name.toLowerCase())) {
-                    toReturn.remove(i);
-                    i--;
-                }
-            }
+            query.nameContains(name);
         }
-
-        // Remove all tasks that take less time to complete than the given minimum
         if (minTime != -1) {
-            for (int i = 0; i < toReturn.size(); i++) {
-                if (toReturn.get(i).getTimeToComplete() < minTime) {
-                    toReturn.remove(i);
-                    i--;
-                }
-            }
+            query.minTime(minTime);
         }
-
-        // Remove all tasks that take more time to complete than the give maximum.
         if (maxTime != -1) {
-            for (int i = 0; i < toReturn.size(); i++) {
-                if (toReturn.get(i).getTimeToComplete() > maxTime) {
-                    toReturn.remove(i);
-                    i--;
-                }
-            }
+            query.maxTime(maxTime);
         }
-
-        // Remove all tasks that are not completable.
         if (completable) {
-            for (int i = 0; i < toReturn.size(); i++) {
-                Task task = toReturn.get(i);
-
-                // Check if each task can be currently completed.
-                if (!task.getEarlyDate().isEqual(mStartDate)
-                        || !(task.getParents().size() == 0)) {
-                    toReturn.remove(i);
-                    i--;
-                }
-            }
+            query.completable(mStartDate);
         }
-
-        // Remove all tasks that don't contain all given labels.
         if (labels != null) {
-            for (int i = 0; i < toReturn.size(); i++) {
-                Task task = toReturn.get(i);
-
-                // Check if task has all chosen labels
-                for (long id : labels) {
-                    boolean found = false;
-
-                    // Make sure task has chosen label
-                    for (Label label : task.getLabels()) {
-                        if (label.getID() == id) {
-                            found = true;
-                            break;
-                        }
-                    }
+            query.hasLabels(labels);
+        }
+        if (priority != -1) {
+            query.minPriority(priority);
+        }
 
-                    if (!found) {
-                        toReturn.remove(i);
-                        i--;
-                        break;
-                    }
-                }
+        return query;
+    }
+
+    /**
+     * Run a query over the user's tasks, passing the matching tasks to the listener as TaskItems
+     * one page at a time so the first page can be shown without waiting for the rest. The indexes
+     * are only changed on the UI thread, so the indexed conditions are answered there, which only
+     * intersects bitmaps. The rest of the conditions are checked and the matches sorted on a
+     * worker thread, which posts each page back to the UI thread to be built into TaskItems and
+     * stops as soon as the query is cancelled. Must be called from the UI thread.
+     *
+     * @param query The query to run, see buildQuery
+     * @param pageSize Number of TaskItems in each page
+     * @param listener Listener to receive each page, called on the UI thread
+     * @param context Context for resources
+     */
+    public void filter(TaskQuery query, int pageSize, PageListener listener, Context context) {
+        List<Task> selected = query.select(mFilterIndex);
+
+        new Thread(() -> {
+            TaskQuery.Cursor cursor = query.executeSelected(selected);
+
+            boolean last = false;
+            while (!last && !query.isCancelled()) {
+                List<Task> tasks = cursor.nextPage(pageSize);
+                last = !cursor.hasNext();
+
+                postPage(query, tasks, last, listener, context);
             }
-        }
+        }, "TaskQuery").start();
+    }
 
-        // Remove all tasks that have a lower priority than the given priority.
-        if (priority != -1) {
-            for (int i = 0; i < toReturn.size(); i++) {
-                if (toReturn.get(i).getPriority() < priority) {
-                    toReturn.remove(i);
-                    i--;
+    /**
+     * Build a page of query results into TaskItems on the UI thread and pass them to the
+     * listener, unless the query has been cancelled by then.
+     *
+     * @param query The query the page is from
+     * @param tasks The tasks in the page
+     * @param last true if this is the last page of results
+     * @param listener Listener to receive the page
+     * @param context Context for resources
+     */
+    private void postPage(TaskQuery query, List<Task> tasks, boolean last, PageListener listener,
+                          Context context) {
+        mHandler.post(() -> {
+            if (query.isCancelled()) {
+                return;
+            }
+
+            List<TaskItem> page = new ArrayList<>();
+            for (Task t : tasks) {
+                // Skip tasks completed or replaced by an edit since the query ran
+                if (mTaskIndex.get(t.getID()) == t) {
+                    page.add(TaskItemHelper(t, page.size(), context));
                 }
             }
-        }
 
-        return TaskItemList(toReturn, context);
+            listener.onPage(page, last);
+        });
+    }
+
+    /**
+     * Search task names as the user types, tolerating typos. Names that contain the search come
+     * first, followed by ones similar to it. Recurring tasks share a name, so each name is only
+     * returned once. Can be called from any thread, so suggestions can be looked up off the UI
+     * thread.
+     *
+     * @param search What the user has typed so far
+     * @param page Which page of results to get, starting from 0
+     * @param pageSize Number of results in each page
+     *
+     * @return The distinct task names in the requested page of results, best match first
+     */
+    public List<String> searchTaskNames(String search, int page, int pageSize) {
+        return mFilterIndex.searchNames(search, page * pageSize, pageSize);
     }
 
     /**
@@ -1141,7 +1449,9 @@ public class LogicSubsystem {
      */
     public void addLabel(String name, int color) {
         Label toAdd = new Label(name, color);
+        mTaskAppViewModel.assignID(toAdd);
         mLabels.add(toAdd);
+        mLabelIndex.add(toAdd);
         mTaskAppViewModel.insert(toAdd);
     }
 
@@ -1152,13 +1462,9 @@ public class LogicSubsystem {
      * @return the Name of the project with the given ID
      */
     public String getProjectName(long ID, Context context) {
-        for (Project p : mProjects) {
-            if (p.getID() == ID) {
-                return p.getName();
-            }
-        }
+        Project p = mProjectIndex.get(ID);
 
-        return context.getString(R.string.none_chosen);
+        return p == null ? context.getString(R.string.none_chosen) : p.getName();
     }
 
     /**
@@ -1168,13 +1474,9 @@ public class LogicSubsystem {
      * @return the name of the Task with the given ID
      */
     public String getTaskName(long id) {
-        for (Task t : mTasks) {
-            if (t.getID() == id) {
-                return t.getName();
-            }
-        }
+        Task t = mTaskIndex.get(id);
 
-        return "";
+        return t == null ? "" : t.getName();
     }
 
     /**
@@ -1184,13 +1486,9 @@ public class LogicSubsystem {
      * @return the earliest completion date of the Task with the given ID
      */
     public LocalDate getTaskECD(long id) {
-        for (Task t : mTasks) {
-            if (t.getID() == id) {
-                return t.getEarlyDate();
-            }
-        }
+        Task t = mTaskIndex.get(id);
 
-        return null;
+        return t == null ? null : t.getEarlyDate();
     }
 
     /**
@@ -1200,13 +1498,9 @@ public class LogicSubsystem {
      * @return the due date of the Task with the given ID
      */
     public LocalDate getTaskDD(long id) {
-        for (Task t : mTasks) {
-            if (t.getID() == id) {
-                return t.getDueDate();
-            }
-        }
+        Task t = mTaskIndex.get(id);
 
-        return null;
+        return t == null ? null : t.getDueDate();
     }
 
     /**
@@ -1216,13 +1510,9 @@ public class LogicSubsystem {
      * @return the time to complete of the Task with the given ID
      */
     public int getTaskTTC(long id) {
-        for (Task t : mTasks) {
-            if (t.getID() == id) {
-                return t.getTimeToComplete();
-            }
-        }
+        Task t = mTaskIndex.get(id);
 
-        return 0;
+        return t == null ? 0 : t.getTimeToComplete();
     }
 
     /**
@@ -1232,14 +1522,9 @@ public class LogicSubsystem {
      * @return the priority of the Task with the given ID
      */
     public int getTaskPriority(long id) {
-        for (Task t : mTasks) {
-            if (t.getID() == id) {
-                return t.getPriority();
-            }
-        }
-
-        return 0;
+        Task t = mTaskIndex.get(id);
 
+        return t == null ? 0 : t.getPriority();
     }
 
     /**
@@ -1249,13 +1534,9 @@ public class LogicSubsystem {
      * @return the project of the Task with the given ID
      */
     public long getTaskProject(long id) {
-        for (Task t : mTasks) {
-            if (t.getID() == id) {
-                return t.getProjectID();
-            }
-        }
+        Task t = mTaskIndex.get(id);
 
-        return -1;
+        return t == null ? -1 : t.getProjectID();
     }
 
     /**
@@ -1266,14 +1547,14 @@ public class LogicSubsystem {
      */
     public List<Long> getTaskLabels(long id) {
         List<Long> toReturn = new ArrayList<>();
-        for (Task t : mTasks) {
-            if (t.getID() == id) {
-                for (Label l : t.getLabels()) {
-                    toReturn.add(l.getID());
-                }
-                return toReturn;
+        Task t = mTaskIndex.get(id);
+
+        if (t != null) {
+            for (Label l : t.getLabels()) {
+                toReturn.add(l.getID());
             }
         }
+
         return toReturn;
     }
 
@@ -1284,13 +1565,9 @@ public class LogicSubsystem {
      * @return all parents of the Task with the given ID
      */
     public List<Long> getTaskParents(long id) {
-        for (Task t : mTasks) {
-            if (t.getID() == id) {
-                return t.getParentArr();
-            }
-        }
+        Task t = mTaskIndex.get(id);
 
-        return new ArrayList<>();
+        return t == null ? new ArrayList<>() : t.getParentArr();
     }
 
     /**
@@ -1322,15 +1599,9 @@ public class LogicSubsystem {
      * @return the name of the Event with the given ID
      */
     public String getEventName(long id) {
-        for (List<Event> day : mEventSchedule) {
-            for (Event e : day) {
-                if (e.getID() == id) {
-                    return e.getName();
-                }
-            }
-        }
+        Event e = mEventIndex.get(id);
 
-        return "";
+        return e == null ? "" : e.getName();
     }
 
     /**
@@ -1340,15 +1611,9 @@ public class LogicSubsystem {
      * @return the earliest completion date of the Event with the given ID
      */
     public LocalDateTime getEventECD(long id) {
-        for (List<Event> day : mEventSchedule) {
-            for (Event e : day) {
-                if (e.getID() == id) {
-                    return e.getDoDate();
-                }
-            }
-        }
+        Event e = mEventIndex.get(id);
 
-        return null;
+        return e == null ? null : e.getDoDate();
     }
 
     /**
@@ -1358,15 +1623,9 @@ public class LogicSubsystem {
      * @return the time to complete of the Event with the given ID
      */
     public int getEventTTC(long id) {
-        for (List<Event> day : mEventSchedule) {
-            for (Event e : day) {
-                if (e.getID() == id) {
-                    return e.getLength();
-                }
-            }
-        }
+        Event e = mEventIndex.get(id);
 
-        return -1;
+        return e == null ? -1 : e.getLength();
     }
 
     /**
@@ -1382,15 +1641,14 @@ public class LogicSubsystem {
     }
 
     /**
-     * Get a list of indices the recycler must update since it last checked.
+     * Describe every change to the schedule since the last call, so the UI can update only the
+     * days that changed. Should be called once after each set of changes (e.g. after the
+     * optimizer runs) rather than after every individual change.
      *
-     * @return a list of indices for the recycler to update.
+     * @return The changes to the schedule since the last call
      */
-    @SuppressWarnings("unused")
-    public List<Integer> getUpdatedIndices() {
-        List<Integer> toReturn = mUpdatedIndices;
-        mUpdatedIndices = new ArrayList<>();
-        return toReturn;
+    public ScheduleChange publishChanges() {
+        return mDirtyDays.publish(getNumDays());
     }
 
     /**
@@ -1408,37 +1666,34 @@ public class LogicSubsystem {
         // Make sure ID is only reused once if it's supposed to edit an item.
         boolean first = id != -1;
 
-        // Get information on event recurrence
-        RecurrenceParser rp = new RecurrenceParser(context);
-        List<LocalDateTime> recurrenceDates = rp.parseBundle(recur, start);
+        // Find the series the event is part of before it's replaced
+        Event edited = first ? mEventIndex.get(id) : null;
+        int oldSeries = edited == null ? -1
+                : findSeries(true, edited.getName(), edited.getDoDate().toLocalDate());
+
+        // Get information on event recurrence. Only occurrences up to the horizon are stored now.
+        RecurrenceRule rule = new RecurrenceParser(context).compile(recur);
+        LocalDate through = getHorizon(start.toLocalDate());
+        List<LocalDateTime> recurrenceDates = rule.getTimes(start, LocalDate.MIN, through);
 
         // Calculate Length of Event
         int ttc = (int) ChronoUnit.MINUTES.between(start, end);
 
         // Add event based on recurrence information
         for (LocalDateTime d : recurrenceDates) {
-            int index = getDiff(d, mStartDate);
-
-            // Make sure there is enough mEventSchedules.
-            for (int i = mEventSchedule.size(); i <= index; i++) {
-                mEventSchedule.add(new ArrayList<>());
-                mUpdatedIndices.add(i);
-            }
-
             Event toAdd = new Event(name, ttc, d);
 
             // Update the event if necessary
             if (first) {
                 toAdd.setID(id);
 
-                for (int i = 0; i < mEventSchedule.size(); i++) {
-                    for (int j = 0; j < mEventSchedule.get(i).size(); j++) {
-                        if (mEventSchedule.get(i).get(j).getID() == id) {
-                            mEventSchedule.get(i).remove(j);
-                            mUpdatedIndices.add(i);
-                            break;
-                        }
-                    }
+                Event oldEvent = mEventIndex.get(id);
+                if (oldEvent != null) {
+                    int oldIndex = getDiff(oldEvent.getDoDate(), mStartDate);
+                    mEventSchedule.get(oldIndex).remove(oldEvent);
+                    mEventIndex.remove(oldEvent);
+                    mItemCache.remove(oldEvent);
+                    mDirtyDays.mark(oldIndex);
                 }
 
                 mTaskAppViewModel.update(toAdd);
@@ -1450,10 +1705,252 @@ public class LogicSubsystem {
                 mTaskAppViewModel.insert(toAdd);
             }
 
-            mEventSchedule.get(index).add(toAdd);
+            scheduleEvent(toAdd);
+        }
 
-            mUpdatedIndices.add(index);
+        // Keep the rest of the occurrences as a series, added as the horizon reaches them
+        Series series = null;
+        if (rule.hasOccurrenceAfter(start.toLocalDate(), through)) {
+            series = new Series(true, name, rule, start, ttc, 0, 0, 0, new ArrayList<>(),
+                    new ArrayList<>(), through);
         }
+        saveSeries(series, rule, oldSeries);
+    }
+
+    /**
+     * Read the events in an iCalendar file that can still be added to the schedule. Streams the
+     * file, so only the events kept are held in memory, and checks which were imported before a
+     * batch at a time. Blocks, so must not be called from the UI thread; pass the result to
+     * addImportedEvents on the UI thread.
+     *
+     * @param in The file
+     * @param context Context for resources
+     *
+     * @return The events to add, without any that are over, already imported, or repeated
+     *
+     * @throws IOException If the file couldn't be read
+     */
+    public List<ICalendarReader.Entry> readCalendar(Reader in, Context context)
+            throws IOException {
+        ICalendarReader reader = new ICalendarReader(in, ZoneId.systemDefault(),
+                context.getString(R.string.untitled_event));
+        List<ICalendarReader.Entry> toAdd = new ArrayList<>();
+        List<ICalendarReader.Entry> batch = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+
+        ICalendarReader.Entry entry;
+        while ((entry = reader.next()) != null) {
+            LocalDate first = entry.getStart().toLocalDate();
+            boolean over = entry.getRule().getFrequency() == RecurrenceRule.NONE
+                    ? first.isBefore(mStartDate)
+                    : !entry.getRule().hasOccurrenceAfter(first, mStartDate.minusDays(1));
+
+            if (!over && seen.add(entry.getUID())) {
+                batch.add(entry);
+            }
+
+            if (batch.size() == IMPORT_BATCH) {
+                keepNew(batch, toAdd);
+            }
+        }
+        keepNew(batch, toAdd);
+
+        return toAdd;
+    }
+
+    /**
+     * Move the events in a batch that haven't been imported before into a list, emptying the
+     * batch.
+     *
+     * @param batch The events read since the last check
+     * @param toAdd The list of events to add
+     */
+    private void keepNew(List<ICalendarReader.Entry> batch, List<ICalendarReader.Entry> toAdd) {
+        List<String> uids = new ArrayList<>();
+        for (ICalendarReader.Entry entry : batch) {
+            uids.add(entry.getUID());
+        }
+
+        Set<String> imported = mTaskAppViewModel.getImported(ImportedEvent.ICS, uids);
+        for (ICalendarReader.Entry entry : batch) {
+            if (!imported.contains(entry.getUID())) {
+                toAdd.add(entry);
+            }
+        }
+
+        batch.clear();
+    }
+
+    /**
+     * Add events read by readCalendar to the schedule. Recurring events are added like ones the
+     * user made, with occurrences stored up to the horizon and the rest kept as a series. Every
+     * row is queued at once, so the write queue commits them in a few large transactions. Run
+     * Optimize once afterwards, rather than once per event.
+     *
+     * @param entries The events to add
+     */
+    public void addImportedEvents(List<ICalendarReader.Entry> entries) {
+        for (ICalendarReader.Entry entry : entries) {
+            LocalDateTime start = entry.getStart();
+            RecurrenceRule rule = entry.getRule();
+            LocalDate through = getHorizon(start.toLocalDate());
+            long itemID = -1;
+            boolean isSeries = false;
+
+            // Occurrences that have already passed are skipped
+            for (LocalDateTime d : rule.getTimes(start, mStartDate, through)) {
+                Event toAdd = new Event(entry.getName(), entry.getLength(), d);
+                mTaskAppViewModel.insert(toAdd);
+                scheduleEvent(toAdd);
+
+                if (itemID == -1) {
+                    itemID = toAdd.getID();
+                }
+            }
+
+            if (rule.hasOccurrenceAfter(start.toLocalDate(), through)) {
+                Series series = new Series(true, entry.getName(), rule, start, entry.getLength(),
+                        0, 0, 0, new ArrayList<>(), new ArrayList<>(), through);
+                mSeries.add(series);
+                mTaskAppViewModel.insert(series);
+                itemID = series.getID();
+                isSeries = true;
+            }
+
+            if (itemID != -1) {
+                mTaskAppViewModel.linkImported(new ImportedEvent(ImportedEvent.ICS,
+                        entry.getUID(), itemID, isSeries));
+            }
+        }
+    }
+
+    /**
+     * Work out what has to change for the events mirrored from the device's calendars to match
+     * them, through the horizon. A calendar that hasn't changed since the last sync costs one
+     * query of the source, without reading or writing the database. Blocks, so must not be called
+     * from the UI thread; pass the result to applyCalendarChanges on the UI thread.
+     *
+     * @param source The device's calendars
+     *
+     * @return The changes to apply, empty if nothing changed
+     */
+    public CalendarSync.ChangeSet readCalendarChanges(CalendarSync.Source source) {
+        // Links from the last sync may still be queued
+        mTaskAppViewModel.getWriteQueue().awaitIdle(SYNC_WAIT_MS);
+
+        return CalendarSync.read(source, new CalendarSync.Store() {
+            @Override
+            public List<CalendarSyncState> getSyncStates() {
+                return mTaskAppViewModel.getSyncStates();
+            }
+
+            @Override
+            public List<ImportedEvent> getLinks(String source) {
+                return mTaskAppViewModel.getImportedLinks(source);
+            }
+        }, ZoneId.systemDefault(), mStartDate, mStartDate.plusDays(HORIZON_DAYS));
+    }
+
+    /**
+     * Apply changes read by readCalendarChanges to the schedule and the database in one pass.
+     * Every write is queued at once, so the write queue commits them together. If this returns
+     * true, run Optimize once afterwards.
+     *
+     * @param changes The changes to apply
+     * @param context Context for resources
+     *
+     * @return true if the schedule changed, so it needs to be optimized
+     */
+    public boolean applyCalendarChanges(CalendarSync.ChangeSet changes, Context context) {
+        String untitled = context.getString(R.string.untitled_event);
+
+        for (ImportedEvent link : changes.mRemoved) {
+            Event event = mEventIndex.get(link.getItemID());
+            if (event != null) {
+                unscheduleEvent(event);
+                mTaskAppViewModel.delete(event);
+            }
+            mTaskAppViewModel.relinkImported(link, true);
+        }
+
+        for (CalendarSync.Occurrence occurrence : changes.mChanged) {
+            String name = occurrence.mName == null ? untitled : occurrence.mName;
+            Event toAdd = new Event(name, occurrence.mLength, occurrence.mStart);
+            Event oldEvent = mEventIndex.get(occurrence.mEventID);
+
+            // If the user deleted the copy, the occurrence is mirrored again now it's changed
+            if (oldEvent != null) {
+                toAdd.setID(oldEvent.getID());
+                unscheduleEvent(oldEvent);
+                mTaskAppViewModel.update(toAdd);
+            }
+            else {
+                mTaskAppViewModel.insert(toAdd);
+            }
+            scheduleEvent(toAdd);
+
+            mTaskAppViewModel.relinkImported(new ImportedEvent(occurrence.mSource,
+                    occurrence.mUID, toAdd.getID(), false, occurrence.mVersion), false);
+        }
+
+        for (CalendarSync.Occurrence occurrence : changes.mAdded) {
+            String name = occurrence.mName == null ? untitled : occurrence.mName;
+            Event toAdd = new Event(name, occurrence.mLength, occurrence.mStart);
+            mTaskAppViewModel.insert(toAdd);
+            scheduleEvent(toAdd);
+
+            mTaskAppViewModel.linkImported(new ImportedEvent(occurrence.mSource, occurrence.mUID,
+                    toAdd.getID(), false, occurrence.mVersion));
+        }
+
+        for (CalendarSyncState state : changes.mSynced) {
+            mTaskAppViewModel.setSyncState(state, false);
+        }
+        for (CalendarSyncState state : changes.mForgotten) {
+            mTaskAppViewModel.setSyncState(state, true);
+        }
+
+        if (!changes.mRemoved.isEmpty()) {
+            pareDownSchedules();
+        }
+
+        return changes.size() > 0;
+    }
+
+    /**
+     * Remove an event from the event schedule, without deleting it from the database.
+     *
+     * @param toRemove The event to remove
+     */
+    private void unscheduleEvent(Event toRemove) {
+        int index = getDiff(toRemove.getDoDate(), mStartDate);
+
+        if (index >= 0 && index < mEventSchedule.size()) {
+            mEventSchedule.get(index).remove(toRemove);
+            mDirtyDays.mark(index);
+        }
+        mEventIndex.remove(toRemove);
+        mItemCache.remove(toRemove);
+    }
+
+    /**
+     * Add an event to the event schedule.
+     *
+     * @param toAdd The event to add
+     */
+    private void scheduleEvent(Event toAdd) {
+        int index = getDiff(toAdd.getDoDate(), mStartDate);
+
+        // Make sure there is enough mEventSchedules.
+        for (int i = mEventSchedule.size(); i <= index; i++) {
+            mEventSchedule.add(new ArrayList<>());
+            mDirtyDays.mark(i);
+        }
+
+        mEventSchedule.get(index).add(toAdd);
+        mEventIndex.add(toAdd);
+
+        mDirtyDays.mark(index);
     }
 
     /**
@@ -1474,9 +1971,11 @@ public class LogicSubsystem {
     public void editTask(String name, LocalDate early, LocalDate due, Bundle recur,
                          int timeToComplete, long project, Long[] labelIDs, List<Long> parents,
                          int priority, long id, Context context) {
-        // Parse the recurrence information
-        RecurrenceParser rp = new RecurrenceParser(context);
-        List<LocalDate> recurrenceDates = rp.parseBundle(recur, early);
+        // Parse the recurrence information. Only occurrences up to the horizon are stored now.
+        RecurrenceRule rule = new RecurrenceParser(context).compile(recur);
+        LocalDate through = getHorizon(early);
+        List<LocalDate> recurrenceDates = rule.getDates(early, LocalDate.MIN, through);
+        List<Long> labels = Arrays.asList(labelIDs);
 
         // Get how long the user is given to complete a task.
         int diff = getDiff(due, early);
@@ -1484,89 +1983,65 @@ public class LogicSubsystem {
         // Make sure ID is only reused once if it's supposed to edit an item.
         boolean first = id != -1;
 
+        // Find the series the task is part of before it's replaced
+        Task edited = first ? mTaskIndex.get(id) : null;
+        int oldSeries = edited == null ? -1
+                : findSeries(false, edited.getName(), edited.getEarlyDate());
+
         for (LocalDate d : recurrenceDates) {
             int index = getDiff(d, mStartDate);
 
             // Make sure there is enough mEventSchedules.
             for (int i = mTaskSchedule.size(); i <= index; i++) {
                 mTaskSchedule.add(new ArrayList<>());
-                mUpdatedIndices.add(i);
+                mDirtyDays.mark(i);
             }
 
             // Get the day based on the recurrence information
             LocalDate dueDate = d.plus(diff, ChronoUnit.DAYS);
 
-            Task toAdd = new Task(name, d, dueDate, timeToComplete, priority);
+            Task toAdd = buildTask(name, d, dueDate, timeToComplete, priority, project, labels,
+                    parents, id, first);
 
-            // Add the given project
-            if (project != 0) {
-                // Add task to selected project
-                for (Project p : mProjects) {
-                    if (p.getID() == project) {
-                        toAdd.setProject(p);
-                        p.addTask(toAdd);
-                        break;
-                    }
-                }
-            }
+            // Update the task if necessary
+            if (first) {
+                toAdd.setID(id);
 
-            // Add all selected labels to task.
-            for (Label label : mLabels) {
-                for (long labelID : labelIDs) {
-                    if (label.getID() == labelID) {
-                        toAdd.addLabel(label);
-                        label.addTask(toAdd);
+                Task oldTask = mTaskIndex.get(id);
+                if (oldTask != null) {
+                    // Schedule the task for it's previously scheduled do date. This will
+                    // eventually be replaced by the Optimizer.
+                    toAdd.setDoDate(oldTask.getDoDate());
+
+                    // Replace oldTask with toAdd in the data structures
+                    replaceTask(oldTask, toAdd);
+                    int taskScheduleIndex = getDiff(oldTask.getDoDate(), mStartDate);
+                    mTaskSchedule.get(taskScheduleIndex).remove(oldTask);
+                    mTaskSchedule.get(taskScheduleIndex).add(toAdd);
+
+                    // Add old task location to updated recycler locations
+                    mDirtyDays.mark(taskScheduleIndex);
+
+                    // Replace the parent for each of the remaining children.
+                    for (Task child : oldTask.getChildren()) {
+                        child.removeParent(oldTask);
+                        child.addParent(toAdd);
+                        toAdd.addChild(child);
+                        mTaskAppViewModel.update(child);
                     }
-                }
-            }
 
-            // Add given parents
-            if (parents != null) {
-                for (Long parent : parents) {
-                    for (Task t : mTasks) {
-                        if (t.getID() == parent && parent != id) {
-                            toAdd.addParent(t);
-                            t.addChild(toAdd);
-                            break;
-                        }
+                    // Remove old task from each parent task, as new parents were already
+                    // added earlier.
+                    for (Task parent : oldTask.getParents()) {
+                        parent.removeChild(oldTask);
                     }
-                }
-            }
 
-            // Update the task if necessary
-            if (first) {
-                toAdd.setID(id);
-
-                for (int i = 0; i < mTasks.size(); i++) {
-                    if (mTasks.get(i).getID() == id) {
-                        Task oldTask = mTasks.get(i);
-
-                        // Schedule the task for it's previously scheduled do date. This will
-                        // eventually be replaced by the Optimizer.
-                        toAdd.setDoDate(oldTask.getDoDate());
-
-                        // Replace oldTask with toAdd in the data structures
-                        mTasks.set(i, toAdd);
-                        int taskScheduleIndex = getDiff(oldTask.getDoDate(), mStartDate);
-                        mTaskSchedule.get(taskScheduleIndex).remove(oldTask);
-                        mTaskSchedule.get(taskScheduleIndex).add(toAdd);
-
-                        // Add old task location to updated recycler locations
-                        mUpdatedIndices.add(taskScheduleIndex);
-
-                        // Replace the parent for each of the remaining children.
-                        for (Task child : oldTask.getChildren()) {
-                            child.removeParent(oldTask);
-                            child.addParent(toAdd);
-                            toAdd.addChild(child);
-                            mTaskAppViewModel.update(child);
-                        }
-
-                        // Remove old task from each parent task, as new parents were already
-                        // added earlier.
-                        for (Task parent : oldTask.getParents()) {
-                            parent.removeChild(oldTask);
-                        }
+                    // Remove old task from its project and labels, as toAdd was added to them
+                    if (oldTask.getProject() != null) {
+                        oldTask.getProject().removeTask(oldTask);
+                    }
+                    for (Label l : oldTask.getLabels()) {
+                        l.removeTask(oldTask);
                     }
                 }
 
@@ -1576,10 +2051,86 @@ public class LogicSubsystem {
             }
             // Add the task to the DB if not editing
             else {
-                mTasks.add(toAdd);
+                addTask(toAdd);
                 mTaskAppViewModel.insert(toAdd);
             }
         }
+
+        // Keep the rest of the occurrences as a series, added as the horizon reaches them
+        Series series = null;
+        if (rule.hasOccurrenceAfter(early, through)) {
+            ArrayList<Long> seriesParents = new ArrayList<>();
+            if (parents != null) {
+                for (long parent : parents) {
+                    if (parent != id) {
+                        seriesParents.add(parent);
+                    }
+                }
+            }
+
+            series = new Series(false, name, rule, early.atStartOfDay(), timeToComplete, diff,
+                    priority, project, new ArrayList<>(labels), seriesParents, through);
+        }
+        saveSeries(series, rule, oldSeries);
+    }
+
+    /**
+     * Create a task and link it to its project, labels and parents.
+     *
+     * @param name The name of the Task
+     * @param early The earliest completion date of the task
+     * @param due The due date of the Task
+     * @param timeToComplete How long the task takes to complete
+     * @param priority The priority of the task
+     * @param project The ID of the task's project (0 if it has no project)
+     * @param labelIDs The IDs of the task's labels
+     * @param parents The IDs of the task's parents, or null if it has none
+     * @param id The ID of the task being edited, -1 otherwise. Never made its own parent.
+     * @param replaces true if the new task takes over id, so it isn't given an ID of its own
+     *
+     * @return The new task
+     */
+    private Task buildTask(String name, LocalDate early, LocalDate due, int timeToComplete,
+                           int priority, long project, List<Long> labelIDs, List<Long> parents,
+                           long id, boolean replaces) {
+        Task toAdd = new Task(name, early, due, timeToComplete, priority);
+
+        // A new task gets its ID now, so it's indexed and linked by its real ID from the start
+        if (!replaces) {
+            mTaskAppViewModel.assignID(toAdd);
+        }
+
+        // Add the given project
+        if (project != 0) {
+            // Add task to selected project
+            Project p = mProjectIndex.get(project);
+            if (p != null) {
+                toAdd.setProject(p);
+                p.addTask(toAdd);
+            }
+        }
+
+        // Add all selected labels to task.
+        for (long labelID : labelIDs) {
+            Label label = mLabelIndex.get(labelID);
+            if (label != null) {
+                toAdd.addLabel(label);
+                label.addTask(toAdd);
+            }
+        }
+
+        // Add given parents
+        if (parents != null) {
+            for (long parent : parents) {
+                Task t = mTaskIndex.get(parent);
+                if (t != null && parent != id) {
+                    toAdd.addParent(t);
+                    t.addChild(toAdd);
+                }
+            }
+        }
+
+        return toAdd;
     }
 
     /**
@@ -1591,8 +2142,10 @@ public class LogicSubsystem {
      */
     public void addProject(String name, int color, String goal) {
         Project toAdd = new Project(name, color, goal);
+        mTaskAppViewModel.assignID(toAdd);
 
         mProjects.add(toAdd);
+        mProjectIndex.add(toAdd);
         mTaskAppViewModel.insert(toAdd);
     }
 
@@ -1603,16 +2156,16 @@ public class LogicSubsystem {
      * @return a pair where the first item is the position of the task and second is the day.
      */
     public Pair<Integer, Integer> convertDay(long ID) {
-        for (Task t : mTasks) {
-            if (t.getID() == ID) {
-                int day = Task.getDiff(t.getDoDate(), mStartDate);
-                int position = mTaskSchedule.get(day).indexOf(t);
+        Task t = mTaskIndex.get(ID);
 
-                return new Pair<>(position, day);
-            }
+        if (t == null) {
+            return null;
         }
 
-        return null;
+        int day = Task.getDiff(t.getDoDate(), mStartDate);
+        int position = mTaskSchedule.get(day).indexOf(t);
+
+        return new Pair<>(position, day);
     }
 
     /**
@@ -1630,6 +2183,7 @@ public class LogicSubsystem {
         }
 
         toPostpone.setEarlyDate(toPostpone.getEarlyDate().plusDays(1));
+        mFilterIndex.update(toPostpone);
 
         mTaskAppViewModel.update(toPostpone);
     }
@@ -1639,6 +2193,7 @@ public class LogicSubsystem {
 
         toLock.setEarlyDate(toLock.getDoDate());
         toLock.setDueDate(toLock.getDoDate());
+        mFilterIndex.update(toLock);
 
         mTaskAppViewModel.update(toLock);
     }
@@ -1648,26 +2203,21 @@ public class LogicSubsystem {
      */
     @SuppressWarnings("unused")
     public void deleteLabel(long id) {
-        Label toRemove = null;
-        
-        for (Label candidate : mLabels) {
-            if (candidate.getID() == id) {
-                toRemove = candidate;
-                break;
-            }
-        }
-        
+        Label toRemove = mLabelIndex.get(id);
+
         if (toRemove == null) {
             return;
         }
 
         for (Task t : toRemove.getTasks()) {
             t.removeLabel(toRemove);
+            mFilterIndex.update(t);
             mTaskAppViewModel.update(t);
-            mUpdatedIndices.add(getDiff(t.getDoDate(), mStartDate));
+            mDirtyDays.mark(getDiff(t.getDoDate(), mStartDate));
         }
 
         mLabels.remove(toRemove);
+        mLabelIndex.remove(toRemove);
         mTaskAppViewModel.delete(toRemove);
     }
 
@@ -1679,13 +2229,9 @@ public class LogicSubsystem {
      * @return the name of the label, or an empty string if no label with this id exists
      */
     public String getLabelName(long id) {
-        for (Label candidate : mLabels) {
-            if (candidate.getID() == id) {
-                return candidate.getName();
-            }
-        }
+        Label label = mLabelIndex.get(id);
 
-        return "";
+        return label == null ? "" : label.getName();
     }
 
     /**
@@ -1696,13 +2242,9 @@ public class LogicSubsystem {
      * @return the color code of the label, or the color code for gray if the label can't be found
      */
     public int getLabelColor(long id) {
-        for (Label candidate : mLabels) {
-            if (candidate.getID() == id) {
-                return candidate.getColor();
-            }
-        }
+        Label label = mLabelIndex.get(id);
 
-        return 11;
+        return label == null ? 11 : label.getColor();
     }
 
     /**
@@ -1713,13 +2255,15 @@ public class LogicSubsystem {
      * @param id the id of the label to edit
      */
     public void editLabel(String name, int color, long id) {
-        for (Label candidate : mLabels) {
-            if (candidate.getID() == id) {
-                candidate.setName(name);
-                candidate.setColor(color);
-                mTaskAppViewModel.update(candidate);
-                return;
-            }
+        Label label = mLabelIndex.get(id);
+
+        if (label != null) {
+            label.setName(name);
+            label.setColor(color);
+            mTaskAppViewModel.update(label);
+
+            // Every task with the label shows its name and color
+            mItemCache.clear();
         }
     }
 
@@ -1729,18 +2273,21 @@ public class LogicSubsystem {
      * @param id the id of the project to delete
      */
     public void deleteProject(long id) {
-        for (Project p : mProjects) {
-            if (p.getID() == id) {
-                for (Task t : p.getTasks()) {
-                    t.removeProject();
-                    mTaskAppViewModel.update(t);
-                    this.mUpdatedIndices.add(Task.getDiff(t.getDoDate(), this.mStartDate));
-                }
-                mProjects.remove(p);
-                mTaskAppViewModel.delete(p);
-                return;
-            }
+        Project p = mProjectIndex.get(id);
+
+        if (p == null) {
+            return;
+        }
+
+        for (Task t : p.getTasks()) {
+            t.removeProject();
+            mFilterIndex.update(t);
+            mTaskAppViewModel.update(t);
+            mDirtyDays.mark(Task.getDiff(t.getDoDate(), this.mStartDate));
         }
+        mProjects.remove(p);
+        mProjectIndex.remove(p);
+        mTaskAppViewModel.delete(p);
     }
 
     /**
@@ -1751,13 +2298,9 @@ public class LogicSubsystem {
      * @return the color code of the given project, or gray if the project could not be found
      */
     public int getProjectColor(long id) {
-        for (Project p : mProjects) {
-            if (id == p.getID()) {
-                return p.getColor();
-            }
-        }
+        Project p = mProjectIndex.get(id);
 
-        return 11;
+        return p == null ? 11 : p.getColor();
     }
 
     /**
@@ -1768,13 +2311,9 @@ public class LogicSubsystem {
      * @return the goal of the project with the given id, or the empty string if project isn't found
      */
     public String getProjectGoal(long id) {
-        for (Project p : mProjects) {
-            if (id == p.getID()) {
-                return p.getGoal();
-            }
-        }
+        Project p = mProjectIndex.get(id);
 
-        return "";
+        return p == null ? "" : p.getGoal();
     }
 
     /**
@@ -1798,17 +2337,22 @@ public class LogicSubsystem {
      * @param id ID of the project to edit
      */
     public void editProject(String name, int color, String goal, long id) {
-        for (Project p : mProjects) {
-            if (p.getID() == id) {
-                p.setName(name);
-                p.setColor(color);
-                p.setGoal(goal);
-                mTaskAppViewModel.update(p);
-
-                for (Task t : p.getTasks()) {
-                    this.mUpdatedIndices.add(Task.getDiff(t.getDoDate(), this.mStartDate));
-                }
-            }
+        Project p = mProjectIndex.get(id);
+
+        if (p == null) {
+            return;
+        }
+
+        p.setName(name);
+        p.setColor(color);
+        p.setGoal(goal);
+        mTaskAppViewModel.update(p);
+
+        // Every task in the project shows its name and color
+        mItemCache.clear();
+
+        for (Task t : p.getTasks()) {
+            mDirtyDays.mark(Task.getDiff(t.getDoDate(), this.mStartDate));
         }
     }
 
@@ -1820,6 +2364,6 @@ public class LogicSubsystem {
         int timerDuration = getTimer();
         mTimerTask.setTimeToComplete(Integer.max(0, ttc - timerDuration));
         mTaskAppViewModel.update(mTimerTask);
-        this.mUpdatedIndices.add(Task.getDiff(mTimerTask.getDoDate(), this.mStartDate));
+        mDirtyDays.mark(Task.getDiff(mTimerTask.getDoDate(), this.mStartDate));
     }
 }
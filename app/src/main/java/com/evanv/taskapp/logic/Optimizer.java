@@ -145,7 +145,8 @@ public class Optimizer {
         // date (so earlier dates are filled up first). We only add tasks with no prerequisites
         // first (as we can schedule them now) and add tasks to the PriorityQueue when all
         // prerequisite tasks have been scheduled
-        PriorityQueue<Task> pq = new PriorityQueue<>();
+        PriorityQueue<Task> pq = new PriorityQueue<>(Math.max(1, tasks.size()),
+                (t1, t2) -> t1.compareTo(t2, startDate));
         for (int i = 0; i < tasks.size(); i++) {
             Task t = tasks.get(i);
 
@@ -450,7 +451,7 @@ public class Optimizer {
         boolean preservesOrder = false;
 
         if (enableConsistency) {
-            preservesOrder = (t1.compareTo(t2) < 0) ? doDateIndex > otherDateIndex :
+            preservesOrder = (t1.compareTo(t2, startDate) < 0) ? doDateIndex > otherDateIndex :
                     doDateIndex < otherDateIndex;
 
             // True if the swap makes less changes to today's schedule than the current scheduling
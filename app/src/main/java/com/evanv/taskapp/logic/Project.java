@@ -18,7 +18,7 @@ import java.util.List;
  */
 @Entity(tableName = "project_table")
 @TypeConverters(Converters.class)
-public class Project {
+public class Project implements Identifiable {
     // Database Fields
     @PrimaryKey(autoGenerate = true)
     @ColumnInfo(name = "id")
@@ -134,6 +134,7 @@ public class Project {
      *
      * @return The Project's ID.
      */
+    @Override
     public long getID() {
         return mID;
     }
@@ -0,0 +1,899 @@
+package com.evanv.taskapp.logic;
+
+import org.threeten.bp.DayOfWeek;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.temporal.ChronoField;
+import org.threeten.bp.temporal.ChronoUnit;
+import org.threeten.bp.temporal.TemporalAdjusters;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Expands a RecurrenceRule into the dates an item occurs on. Kept apart from RecurrenceParser,
+ * which needs Android to read the recurrence screens, so rules can be expanded anywhere, tests
+ * included.
+ *
+ * @author Evan Voogd
+ */
+public class RecurrenceExpander {
+    /**
+     * Get the dates a rule recurs on that fall in a window, one at a time. Dates before the window
+     * are skipped by arithmetic where the recurrence allows, so the cost doesn't depend on how
+     * long ago the recurrence started. Dates are still counted from itemStart, so recurring a set
+     * number of times stops at the same date however the series is split into windows.
+     *
+     * @param rule The rule to expand
+     * @param itemStart Start day for item
+     * @param from First day of the window
+     * @param to Last day of the window
+     *
+     * @return An iterator over the dates between from and to, inclusive, that follow the rule, in
+     *         order
+     */
+    static Iterator<LocalDate> occurrences(RecurrenceRule rule, LocalDate itemStart,
+                                           LocalDate from, LocalDate to) {
+        // If no recurrence, quit early
+        if (rule.getFrequency() == RecurrenceRule.NONE) {
+            if (!itemStart.isBefore(from) && !itemStart.isAfter(to)) {
+                return Collections.singletonList(itemStart).iterator();
+            }
+
+            return Collections.emptyIterator();
+        }
+
+        LocalDate endDate = rule.getUntil();
+        return new Occurrences(iteratorFor(rule, itemStart), from,
+                endDate.isBefore(to) ? endDate : to, rule.getCount());
+    }
+
+    /**
+     * Get the iterator that generates the dates for a recurring rule.
+     *
+     * @param rule The rule, which must recur
+     * @param itemStart Date of first occurrence
+     *
+     * @return An iterator describing the given recurrence logic
+     */
+    private static RecurIterator iteratorFor(RecurrenceRule rule, LocalDate itemStart) {
+        int interval = rule.getInterval();
+        boolean[] months = rule.getMonths();
+
+        switch (rule.getFrequency()) {
+            case RecurrenceRule.DAILY:
+                // Fairly self-explanatory, interval is already the number of days between events
+                return new DailyIterator(itemStart, interval);
+            case RecurrenceRule.WEEKLY:
+                return new WeeklyIterator(itemStart, rule.getWeekdays(), interval);
+            case RecurrenceRule.MONTHLY:
+                if (rule.getPattern() == RecurrenceRule.ON_WEEKDAY) {
+                    return new MonthlyDynamicIterator(itemStart, interval);
+                }
+                else if (rule.getPattern() == RecurrenceRule.ON_DATES) {
+                    return new MonthlySpecificIterator(itemStart, rule.getMonthDays(), interval);
+                }
+
+                return new MonthlyStaticIterator(itemStart, interval);
+            default:
+                // Yearly, either on the start's month or on the chosen months
+                if (rule.getPattern() == RecurrenceRule.ON_DATES) {
+                    return new YearlySpecificIterator(itemStart, months, rule.getMonthDays(),
+                            interval);
+                }
+                else if (rule.getPattern() == RecurrenceRule.ON_WEEKDAY) {
+                    return (months == null) ? new YearlyDynamicIterator(itemStart, interval)
+                            : new YearlyMultipleDynamicIterator(itemStart, months, interval);
+                }
+
+                return (months == null) ? new YearlyStaticIterator(itemStart, interval)
+                        : new YearlyMultipleStaticIterator(itemStart, months, interval);
+        }
+    }
+
+    /**
+     * Generic iterator that takes the recurring logic from the recurrence calculation and
+     * generalizes it, limiting it to a window and to the end the user chose for the recurrence.
+     */
+    private static class Occurrences implements Iterator<LocalDate> {
+        private final RecurIterator mIterator; // Specifies the next date to recur on
+        private final LocalDate mEndDate;      // Latest day to return
+        private final int mNumTimes;           // Number of times to recur
+        private int mNum;                      // Number of dates taken, including skipped ones
+        private LocalDate mNext;               // Next date to return
+
+        /**
+         * Construct an iterator over the dates of a recurrence in a window.
+         *
+         * @param iterator An iterator that specifies the next date to recur on
+         * @param from Earliest day to return. Dates before it still count towards numTimes.
+         * @param endDate Latest day to return
+         * @param numTimes Number of times to recur
+         */
+        Occurrences(RecurIterator iterator, LocalDate from, LocalDate endDate, int numTimes) {
+            mIterator = iterator;
+            mEndDate = endDate;
+            mNumTimes = numTimes;
+
+            long skipped = iterator.skipTo(from);
+
+            if (skipped >= 0) {
+                mNext = iterator.next();
+            }
+            // This recurrence can't be skipped by arithmetic, so step through it instead
+            else {
+                skipped = 0;
+                mNext = iterator.next();
+
+                while (mNext.isBefore(from) && !mNext.isAfter(endDate) && skipped < numTimes) {
+                    mNext = iterator.next();
+                    skipped++;
+                }
+            }
+
+            mNum = (int) Math.min(skipped, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Check if there's another date in the window, i.e. the next date isn't past the end and
+         * the recurrence hasn't happened numTimes times yet.
+         *
+         * @return true if there's another date, false otherwise
+         */
+        @Override
+        public boolean hasNext() {
+            return mNum < mNumTimes && !mNext.isAfter(mEndDate);
+        }
+
+        /**
+         * Returns the next date in the window
+         *
+         * @return The next date in the window
+         */
+        @Override
+        public LocalDate next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            LocalDate toRet = mNext;
+
+            mNum++;
+            if (mNum < mNumTimes) {
+                mNext = mIterator.next();
+            }
+
+            return toRet;
+        }
+    }
+
+    /**
+     * Iterator over every date of a recurrence, starting at the start date. Never ends, as the end
+     * of the recurrence is handled by Occurrences.
+     */
+    abstract static class RecurIterator implements Iterator<LocalDate> {
+        /**
+         * Move the iterator forward so next returns the first date on or after from, without
+         * stepping through the dates before it. Iterators that can't skip return -1 so the caller
+         * steps instead.
+         *
+         * @param from The earliest date next should return
+         *
+         * @return The number of dates skipped, or -1 if this iterator can't skip
+         */
+        long skipTo(LocalDate from) {
+            return -1;
+        }
+    }
+
+    /**
+     * Iterator that handles the daily recurrence case
+     */
+    static class DailyIterator extends RecurIterator {
+        private final int mInterval; // Days between
+        private LocalDate mCurrent;  // Current date
+
+        /**
+         * Construct a Iterator that generates dates for daily recurrences
+         *  @param itemStart Start date to recur on
+         * @param interval How many days between recurrences
+         */
+        public DailyIterator(LocalDate itemStart, int interval) {
+            mCurrent = itemStart;
+            mInterval = interval;
+        }
+
+        /**
+         * Returns true as iterator calculates the next Date algorithmically
+         *
+         * @return true
+         */
+        @Override
+        public boolean hasNext() {
+            return true; // Always true as the iterator calculates algorithmically
+        }
+
+        /**
+         * Returns the next Date in the recurrence
+         *
+         * @return The next date in the recurrence sequence
+         */
+        @Override
+        public LocalDate next() {
+            LocalDate toRet = mCurrent;
+
+            mCurrent = toRet.plus(mInterval, ChronoUnit.DAYS);
+
+            return toRet;
+        }
+
+        /**
+         * Jump straight to the first date on or after from, as dates are mInterval days apart.
+         *
+         * @param from The earliest date next should return
+         *
+         * @return The number of dates skipped
+         */
+        @Override
+        long skipTo(LocalDate from) {
+            long days = ChronoUnit.DAYS.between(mCurrent, from);
+
+            if (days <= 0) {
+                return 0;
+            }
+
+            // Round up to the first date that isn't before from
+            long skipped = (days + mInterval - 1) / mInterval;
+            mCurrent = mCurrent.plusDays(skipped * mInterval);
+
+            return skipped;
+        }
+    }
+
+    /**
+     * Iterator that handles the weekly recurrence case
+     */
+    static class WeeklyIterator extends RecurIterator {
+        private LocalDate mCurrent;    // Current Date
+        private final boolean[] mDays; // Days of week to recur on
+        private final int mInterval;   // Weeks between recurrences
+        private int mCurrDate;         // Current day of week
+
+        /**
+         * Construct a Iterator that generates dates for weekly recurrences
+         *  @param itemStart Start date to recur on
+         * @param interval How many weeks between recurrences
+         */
+        public WeeklyIterator(LocalDate itemStart, boolean[] days, int interval) {
+            mCurrent = itemStart;
+
+            mCurrDate = itemStart.get(ChronoField.DAY_OF_WEEK);
+
+            mDays = days;
+            mInterval = interval;
+        }
+
+        /**
+         * Returns true as iterator calculates the next Date algorithmically
+         *
+         * @return true
+         */
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+
+        /**
+         * Returns the next Date in the recurrence
+         *
+         * @return The next date in the recurrence sequence
+         */
+        @Override
+        public LocalDate next() {
+            LocalDate toRet = mCurrent;
+            mCurrent = toRet.plus(1, ChronoUnit.DAYS);
+
+            if (mCurrDate == 7) {
+                mCurrDate = 0;
+            }
+
+            if (!mDays[mCurrDate]) {
+                toRet = null;
+            }
+
+            if ((mCurrDate + 1) % 7 == 0) {
+                mCurrent = mCurrent.plus(mInterval - 1, ChronoUnit.WEEKS);
+            }
+
+            mCurrDate = (mCurrDate + 1) % 7;
+
+            return toRet == null ? next() : toRet;
+        }
+
+        /**
+         * Jump straight to the first date on or after from. Weeks start on Sunday, and only every
+         * mInterval-th week from the start date's has dates, each on the same days of the week, so
+         * the dates skipped can be counted a week at a time instead of a day at a time.
+         *
+         * @param from The earliest date next should return
+         *
+         * @return The number of dates skipped
+         */
+        @Override
+        long skipTo(LocalDate from) {
+            if (!from.isAfter(mCurrent)) {
+                return 0;
+            }
+
+            int currDay = mCurrent.get(ChronoField.DAY_OF_WEEK) % 7; // Sunday is 0
+            int fromDay = from.get(ChronoField.DAY_OF_WEEK) % 7;
+            LocalDate currWeek = mCurrent.minusDays(currDay);
+            long weeks = ChronoUnit.WEEKS.between(currWeek, from.minusDays(fromDay));
+
+            long skipped;
+            if (weeks == 0) {
+                // Same week, so just the days in between
+                skipped = countDays(currDay, fromDay);
+                mCurrent = from;
+            }
+            else {
+                // Rest of the current week, then every full week with dates in it
+                skipped = countDays(currDay, 7);
+                long periods = weeks / mInterval;
+
+                if (weeks % mInterval == 0) {
+                    // from is in a week with dates, so count the days before it in that week
+                    skipped += (periods - 1) * countDays(0, 7) + countDays(0, fromDay);
+                    mCurrent = from;
+                }
+                else {
+                    // from is in a week without dates, so start at the next week with them
+                    skipped += periods * countDays(0, 7);
+                    mCurrent = currWeek.plusWeeks((periods + 1) * mInterval);
+                }
+            }
+
+            mCurrDate = mCurrent.get(ChronoField.DAY_OF_WEEK) % 7;
+
+            return skipped;
+        }
+
+        /**
+         * Count how many days of the week in a range are recurred on.
+         *
+         * @param start First day of the week to count, 0 for Sunday
+         * @param end Day of the week to stop before, 7 to count through Saturday
+         *
+         * @return The number of days recurred on in [start, end)
+         */
+        private int countDays(int start, int end) {
+            int count = 0;
+
+            for (int i = start; i < end; i++) {
+                if (mDays[i]) {
+                    count++;
+                }
+            }
+
+            return count;
+        }
+    }
+
+    /**
+     * Iterator that handles the monthly static case, where it's repeated monthly on the same date.
+     */
+    static class MonthlyStaticIterator extends RecurIterator {
+        private LocalDate mCurrent;  // Current date
+        private final int mInterval; // Number of months between recurrences
+
+        /**
+         * Construct a Iterator that generates dates for monthly static recurrences
+         *  @param itemStart Start date to recur on
+         * @param interval How many months between recurrences
+         */
+        public MonthlyStaticIterator(LocalDate itemStart, int interval) {
+            mCurrent = itemStart;
+
+            mInterval = interval;
+        }
+
+        /**
+         * Returns true as iterator calculates the next Date algorithmically
+         *
+         * @return true
+         */
+        @Override
+        public boolean hasNext() {
+            return true; // Always true as the iterator calculates algorithmically
+        }
+
+        /**
+         * Returns the next Date in the recurrence
+         *
+         * @return The next date in the recurrence sequence
+         */
+        @Override
+        public LocalDate next() {
+            LocalDate toRet = mCurrent;
+
+            int date = mCurrent.get(ChronoField.DAY_OF_MONTH);
+
+            mCurrent = toRet.plus(mInterval, ChronoUnit.MONTHS);
+
+            int newDate = mCurrent.get(ChronoField.DAY_OF_MONTH);
+
+            // Handle edge cases, such as recurring on the 30th in February
+            while (newDate != date) {
+                // Subtracting and adding allows us to set the exact date
+                mCurrent = mCurrent.plus(mInterval, ChronoUnit.MONTHS);
+                newDate = mCurrent.get(ChronoField.DAY_OF_MONTH);
+                mCurrent = mCurrent.minus(newDate - 1, ChronoUnit.DAYS);
+                mCurrent = mCurrent.plus(date - 1, ChronoUnit.DAYS);
+
+                newDate = mCurrent.get(ChronoField.DAY_OF_MONTH);
+            }
+
+            return toRet;
+        }
+
+        /**
+         * Jump straight to the first date on or after from. Only possible when every month has
+         * the date, as otherwise months without it are skipped one at a time by next.
+         *
+         * @param from The earliest date next should return
+         *
+         * @return The number of dates skipped, or -1 if the date isn't in every month
+         */
+        @Override
+        long skipTo(LocalDate from) {
+            if (mCurrent.getDayOfMonth() > 28) {
+                return -1;
+            }
+
+            long months = ChronoUnit.MONTHS.between(mCurrent.withDayOfMonth(1),
+                    from.withDayOfMonth(1));
+
+            if (months <= 0 && !from.isAfter(mCurrent)) {
+                return 0;
+            }
+
+            // The first recurrence in or after from's month, moved on if it's before from
+            long skipped = Math.max(0, (months + mInterval - 1) / mInterval);
+            LocalDate next = mCurrent.plusMonths(skipped * mInterval);
+            if (next.isBefore(from)) {
+                skipped++;
+                next = next.plusMonths(mInterval);
+            }
+
+            mCurrent = next;
+
+            return skipped;
+        }
+    }
+
+    /**
+     * Iterator over recurrences that fall on certain days of certain months, a month at a time.
+     * Each month recurred in is expanded into its dates once, so next never steps through days
+     * that can't be recurred on, and skipTo only has to count the dates of each month before the
+     * one it lands in. Months without any dates (e.g. no 5th Monday, or no 31st) are passed over.
+     */
+    abstract static class MonthByMonthIterator extends RecurIterator {
+        private final LocalDate mStart;    // Start date, no dates before it are returned
+        private final int mInterval;       // Months or years between recurrences
+        private final boolean mYearly;     // Is mInterval in years rather than months
+        private final List<LocalDate> mDates = new ArrayList<>(); // Dates in the current month
+        private LocalDate mMonth;          // First day of the current month, null before start
+        private int mPos;                  // Index in mDates of the next date to return
+
+        /**
+         * Construct an iterator that starts in the start date's month.
+         *
+         * @param itemStart Start date to recur on
+         * @param interval How many months, or years if yearly, between recurrences
+         * @param yearly true if every month of each year recurred in is expanded, false if only
+         *               every interval-th month is
+         */
+        MonthByMonthIterator(LocalDate itemStart, int interval, boolean yearly) {
+            mStart = itemStart;
+            mInterval = interval;
+            mYearly = yearly;
+        }
+
+        /**
+         * Add the dates in a month that the recurrence is on, in order. Only called for months
+         * recurred in.
+         *
+         * @param month The first day of the month
+         * @param out The list to add the dates to
+         */
+        abstract void addDates(LocalDate month, List<LocalDate> out);
+
+        /**
+         * Returns true as iterator calculates the next Date algorithmically
+         *
+         * @return true
+         */
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+
+        /**
+         * Returns the next Date in the recurrence
+         *
+         * @return The next date in the recurrence sequence
+         */
+        @Override
+        public LocalDate next() {
+            start();
+
+            while (mPos >= mDates.size()) {
+                nextMonth();
+            }
+
+            return mDates.get(mPos++);
+        }
+
+        /**
+         * Jump to the first date on or after from. Months before from's are passed over a month
+         * at a time, counting their dates without returning them.
+         *
+         * @param from The earliest date next should return
+         *
+         * @return The number of dates skipped
+         */
+        @Override
+        long skipTo(LocalDate from) {
+            start();
+
+            long skipped = 0;
+            LocalDate fromMonth = from.withDayOfMonth(1);
+
+            while (mMonth.isBefore(fromMonth)) {
+                skipped += mDates.size() - mPos;
+                nextMonth();
+            }
+
+            while (mPos < mDates.size() && mDates.get(mPos).isBefore(from)) {
+                mPos++;
+                skipped++;
+            }
+
+            return skipped;
+        }
+
+        /**
+         * Expand the start date's month, if it hasn't been yet. Not done by the constructor, as
+         * subclasses' fields aren't set until it returns.
+         */
+        private void start() {
+            if (mMonth == null) {
+                mMonth = mStart.withDayOfMonth(1);
+                load();
+            }
+        }
+
+        /**
+         * Move to the next month recurred in and expand it.
+         */
+        private void nextMonth() {
+            if (!mYearly) {
+                mMonth = mMonth.plusMonths(mInterval);
+            }
+            // Every month of a year recurred in, then January of the next one
+            else if (mMonth.getMonthValue() < 12) {
+                mMonth = mMonth.plusMonths(1);
+            }
+            else {
+                mMonth = mMonth.plusMonths(1).plusYears(mInterval - 1);
+            }
+
+            load();
+        }
+
+        /**
+         * Expand the current month into its dates, leaving out any before the start date.
+         */
+        private void load() {
+            mDates.clear();
+            mPos = 0;
+            addDates(mMonth, mDates);
+
+            while (mPos < mDates.size() && mDates.get(mPos).isBefore(mStart)) {
+                mPos++;
+            }
+        }
+
+        /**
+         * Add a month's nth occurrence of a day of the week, if it has one.
+         *
+         * @param month The first day of the month
+         * @param dayOfWeek The day of the week
+         * @param nth Which occurrence in the month, from 1
+         * @param out The list to add the date to
+         */
+        static void addNthWeekday(LocalDate month, DayOfWeek dayOfWeek, int nth,
+                                  List<LocalDate> out) {
+            LocalDate date = month.with(TemporalAdjusters.dayOfWeekInMonth(nth, dayOfWeek));
+
+            if (date.getMonthValue() == month.getMonthValue()) {
+                out.add(date);
+            }
+        }
+
+        /**
+         * Add each of some days of the month that the month has.
+         *
+         * @param month The first day of the month
+         * @param days The days of the month, in order
+         * @param out The list to add the dates to
+         */
+        static void addDays(LocalDate month, List<Integer> days, List<LocalDate> out) {
+            for (int day : days) {
+                if (day <= month.lengthOfMonth()) {
+                    out.add(month.withDayOfMonth(day));
+                }
+            }
+        }
+    }
+
+    /**
+     * Iterator that handles the case where it recurs monthly on the same dynamic date (e.g. 3rd
+     * Monday)
+     */
+    static class MonthlyDynamicIterator extends MonthByMonthIterator {
+        private final DayOfWeek mDayOfWeek;  // Starting day of week
+        private final int mDayOfWeekInMonth; // Starting day of week in month ("3rd" in 3rd Monday)
+
+        /**
+         * Construct a Iterator that generates dates for monthly dynamic recurrences
+         *  @param itemStart Start date to recur on
+         * @param interval How many months between recurrences
+         */
+        public MonthlyDynamicIterator(LocalDate itemStart, int interval) {
+            super(itemStart, interval, false);
+
+            mDayOfWeek = itemStart.getDayOfWeek();
+            mDayOfWeekInMonth = (itemStart.getDayOfMonth() - 1) / 7 + 1;
+        }
+
+        @Override
+        void addDates(LocalDate month, List<LocalDate> out) {
+            addNthWeekday(month, mDayOfWeek, mDayOfWeekInMonth, out);
+        }
+    }
+
+    /**
+     * Iterator that handles the monthly specific case, where item recurs monthly on multiple
+     * specific dates
+     */
+    static class MonthlySpecificIterator extends MonthByMonthIterator {
+        private final List<Integer> mDays; // List of days to recur on
+
+        /**
+         * Construct a Iterator that generates dates for monthly specific recurrences
+         *  @param itemStart Start date to recur on
+         * @param interval How many months between recurrences
+         */
+        public MonthlySpecificIterator(LocalDate itemStart, List<Integer> days, int interval) {
+            super(itemStart, interval, false);
+
+            mDays = new ArrayList<>(days);
+            Collections.sort(mDays);
+        }
+
+        @Override
+        void addDates(LocalDate month, List<LocalDate> out) {
+            addDays(month, mDays, out);
+        }
+    }
+
+    /**
+     * Iterator that handles the case where item recurs on same month/date yearly
+     */
+    static class YearlyStaticIterator extends RecurIterator {
+        private LocalDate mCurrent;  // Current Date
+        private final int mInterval; // Number of years between items
+
+        /**
+         * Construct a Iterator that generates dates for yearly static recurrences
+         *  @param itemStart Start date to recur on
+         * @param interval How many years between recurrences
+         */
+        public YearlyStaticIterator(LocalDate itemStart, int interval) {
+            mCurrent = itemStart;
+
+            mInterval = interval;
+        }
+
+        /**
+         * Returns true as iterator calculates the next Date algorithmically
+         *
+         * @return true
+         */
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+
+        @Override
+        public LocalDate next() {
+            LocalDate toRet = mCurrent;
+
+            int day = toRet.get(ChronoField.DAY_OF_MONTH);
+            int month = toRet.get(ChronoField.MONTH_OF_YEAR);
+
+            mCurrent = toRet.plus(mInterval, ChronoUnit.YEARS);
+
+            // Handle edge cases such as when a given month doesn't have a given date
+            while (mCurrent.get(ChronoField.DAY_OF_MONTH) != day ||
+                    mCurrent.get(ChronoField.MONTH_OF_YEAR) != month) {
+                mCurrent = mCurrent.plus(mInterval, ChronoUnit.YEARS);
+
+                // Set Day of Month
+                int newDate = mCurrent.get(ChronoField.DAY_OF_MONTH);
+                mCurrent = mCurrent.minus(newDate - 1, ChronoUnit.DAYS);
+                mCurrent = mCurrent.plus(day - 1, ChronoUnit.DAYS);
+
+                // Set Month of year
+                int newMonth = mCurrent.get(ChronoField.MONTH_OF_YEAR);
+                mCurrent = mCurrent.minus(newMonth - 1, ChronoUnit.MONTHS);
+                mCurrent = mCurrent.plus(month - 1, ChronoUnit.MONTHS);
+            }
+
+            return toRet;
+        }
+
+        /**
+         * Jump straight to the first date on or after from. Only possible when every year has
+         * the date, i.e. it isn't February 29th.
+         *
+         * @param from The earliest date next should return
+         *
+         * @return The number of dates skipped, or -1 if the date is February 29th
+         */
+        @Override
+        long skipTo(LocalDate from) {
+            if (mCurrent.getMonthValue() == 2 && mCurrent.getDayOfMonth() == 29) {
+                return -1;
+            }
+
+            long years = from.getYear() - mCurrent.getYear();
+
+            if (years <= 0 && !from.isAfter(mCurrent)) {
+                return 0;
+            }
+
+            // The first recurrence in or after from's year, moved on if it's before from
+            long skipped = Math.max(0, (years + mInterval - 1) / mInterval);
+            LocalDate next = mCurrent.plusYears(skipped * mInterval);
+            if (next.isBefore(from)) {
+                skipped++;
+                next = next.plusYears(mInterval);
+            }
+
+            mCurrent = next;
+
+            return skipped;
+        }
+    }
+
+    /**
+     * Iterator that handles the case where item occurs yearly on the same dynamic date (e.g. 3rd
+     * Monday)
+     */
+    static class YearlyDynamicIterator extends MonthByMonthIterator {
+        private final int mMonth;            // Month to recur in
+        private final DayOfWeek mDayOfWeek;  // Starting day of week
+        private final int mDayOfWeekInMonth; // Starting day of week in month ("3rd" in 3rd Monday)
+
+        /**
+         * Construct a Iterator that generates dates for yearly dynamic recurrences
+         *  @param itemStart Start date to recur on
+         * @param interval How many years between recurrences
+         */
+        public YearlyDynamicIterator(LocalDate itemStart, int interval) {
+            super(itemStart, interval, true);
+
+            mMonth = itemStart.getMonthValue();
+            mDayOfWeek = itemStart.getDayOfWeek();
+            mDayOfWeekInMonth = (itemStart.getDayOfMonth() - 1) / 7 + 1;
+        }
+
+        @Override
+        void addDates(LocalDate month, List<LocalDate> out) {
+            if (month.getMonthValue() == mMonth) {
+                addNthWeekday(month, mDayOfWeek, mDayOfWeekInMonth, out);
+            }
+        }
+    }
+
+    /**
+     * Iterator that handles the case where the item occurs on multiple months on the same date
+     * yearly.
+     */
+    static class YearlyMultipleStaticIterator extends MonthByMonthIterator {
+        private final boolean[] mMonths;  // Months to recur on, 0 is January
+        private final List<Integer> mDay; // The start date's day of month
+
+        /**
+         * Construct a Iterator that generates dates for yearly multiple static recurrences
+         *  @param itemStart Start date to recur on
+         * @param interval How many years between recurrences
+         */
+        public YearlyMultipleStaticIterator(LocalDate itemStart, boolean[] months, int interval) {
+            super(itemStart, interval, true);
+
+            mMonths = months;
+            mDay = Collections.singletonList(itemStart.getDayOfMonth());
+        }
+
+        @Override
+        void addDates(LocalDate month, List<LocalDate> out) {
+            if (mMonths[month.getMonthValue() - 1]) {
+                addDays(month, mDay, out);
+            }
+        }
+    }
+
+    /**
+     * Iterator that handles the case where the item recurs on multiple months on the same dynamic
+     * date (e.g. 3rd Monday)
+     */
+    static class YearlyMultipleDynamicIterator extends MonthByMonthIterator {
+        private final boolean[] mMonths;     // Months to recur on, 0 is January
+        private final DayOfWeek mDayOfWeek;  // Start date's day of week
+        private final int mDayOfWeekInMonth; // Day of week in month of start date (3rd in 3rd Mon)
+
+        /**
+         * Construct a Iterator that generates dates for yearly multiple dynamic recurrences
+         *  @param itemStart Start date to recur on
+         * @param interval How many years between recurrences
+         */
+        public YearlyMultipleDynamicIterator(LocalDate itemStart, boolean[] months, int interval) {
+            super(itemStart, interval, true);
+
+            mMonths = months;
+            mDayOfWeek = itemStart.getDayOfWeek();
+            mDayOfWeekInMonth = (itemStart.getDayOfMonth() - 1) / 7 + 1;
+        }
+
+        @Override
+        void addDates(LocalDate month, List<LocalDate> out) {
+            if (mMonths[month.getMonthValue() - 1]) {
+                addNthWeekday(month, mDayOfWeek, mDayOfWeekInMonth, out);
+            }
+        }
+    }
+
+    /**
+     * Iterator that handles the case where the item recurs on specific months/dates yearly
+     */
+    static class YearlySpecificIterator extends MonthByMonthIterator {
+        private final boolean[] mMonths;   // Months to recur on, 0 is January
+        private final List<Integer> mDays; // Days to recur on
+
+        /**
+         * Construct a Iterator that generates dates for yearly dynamic recurrences
+         *  @param itemStart Start date to recur on
+         * @param interval How many years between recurrences
+         */
+        public YearlySpecificIterator(LocalDate itemStart, boolean[] months, List<Integer> days,
+                                      int interval) {
+            super(itemStart, interval, true);
+
+            mMonths = months;
+            mDays = new ArrayList<>(days);
+            Collections.sort(mDays);
+        }
+
+        @Override
+        void addDates(LocalDate month, List<LocalDate> out) {
+            if (mMonths[month.getMonthValue() - 1]) {
+                addDays(month, mDays, out);
+            }
+        }
+    }
+}
@@ -0,0 +1,580 @@
+package com.evanv.taskapp.logic;
+
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.format.DateTimeFormatter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+/**
+ * A compiled recurrence, i.e. how often an item repeats and until when. Unlike the Bundle it's
+ * built from, it needs no Android classes and no Context, is only parsed once, can be compared and
+ * hashed so expansions can be cached, and is stored as a short RRULE-style String, e.g.
+ * "FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE;COUNT=10". Dates are relative to the item's start date, which
+ * isn't part of the rule. A rule can also skip some days, e.g. the EXDATEs of an imported event.
+ *
+ * @author Evan Voogd
+ */
+public final class RecurrenceRule {
+    // Frequencies
+    public static final int NONE = 0;    // Doesn't recur
+    public static final int DAILY = 1;   // Recurs every interval days
+    public static final int WEEKLY = 2;  // Recurs on some days of every interval weeks
+    public static final int MONTHLY = 3; // Recurs every interval months
+    public static final int YEARLY = 4;  // Recurs every interval years
+
+    // Patterns, for monthly and yearly rules
+    public static final int ON_DATE = 0;    // On the start's day of the month (e.g. the 18th)
+    public static final int ON_WEEKDAY = 1; // On the start's weekday of the month (e.g. 3rd Mon)
+    public static final int ON_DATES = 2;   // On each of the days of the month in monthDays
+
+    // Rule that doesn't recur, i.e. only happens on the start date
+    public static final RecurrenceRule ONCE = new RecurrenceRule(NONE, ON_DATE, 1, 0, 0, 0, null,
+            1);
+
+    // Names of the frequencies in the String form, indexed by frequency
+    private static final String[] FREQ_NAMES = {"NONE", "DAILY", "WEEKLY", "MONTHLY", "YEARLY"};
+    // Names of the patterns in the String form, indexed by pattern
+    private static final String[] PATTERN_NAMES = {"DATE", "WEEKDAY", "DATES"};
+    // Names of the days of the week in the String form, indexed from Sunday
+    private static final String[] DAY_NAMES = {"SU", "MO", "TU", "WE", "TH", "FR", "SA"};
+    // Formats the until date in the String form, e.g. "20240131"
+    private static final DateTimeFormatter UNTIL_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final int mFrequency;    // How often the rule repeats, one of NONE to YEARLY
+    private final int mPattern;      // Which days of a month/year it's on, one of ON_DATE to ON_DATES
+    private final int mInterval;     // Number of days/weeks/months/years between repeats
+    private final int mWeekdays;     // Bit i set if a weekly rule is on day i of the week, 0 is Sun
+    private final int mMonths;       // Bit i set if a yearly rule is limited to month i, 0 is Jan
+    private final long mMonthDays;   // Bit d set if an ON_DATES rule is on day d of the month
+    private final LocalDate mUntil;  // Last day the rule can be on, or null if limited by count
+    private final int mCount;        // Number of times the rule happens, if mUntil is null
+    private final List<LocalDate> mExcluded; // Days the rule skips, in order
+
+    /**
+     * Creates a new rule.
+     *
+     * @param frequency How often the rule repeats, one of NONE, DAILY, WEEKLY, MONTHLY or YEARLY
+     * @param pattern For monthly and yearly rules, one of ON_DATE, ON_WEEKDAY or ON_DATES
+     * @param interval Number of days/weeks/months/years between repeats
+     * @param weekdays For weekly rules, bit i is set if the rule is on day i of the week, where 0
+     *                 is Sunday
+     * @param months For yearly rules, bit i is set if the rule is on month i, where 0 is January.
+     *               0 if the rule is only on the start's month.
+     * @param monthDays For ON_DATES rules, bit d is set if the rule is on day d of the month
+     * @param until Last day the rule can be on, or null if it's limited by count instead
+     * @param count Number of times the rule happens. Ignored if until isn't null.
+     */
+    public RecurrenceRule(int frequency, int pattern, int interval, int weekdays, int months,
+                          long monthDays, LocalDate until, int count) {
+        this(frequency, pattern, interval, weekdays, months, monthDays, until, count,
+                Collections.<LocalDate>emptyList());
+    }
+
+    /**
+     * Creates a new rule that skips some days.
+     *
+     * @param frequency How often the rule repeats, one of NONE, DAILY, WEEKLY, MONTHLY or YEARLY
+     * @param pattern For monthly and yearly rules, one of ON_DATE, ON_WEEKDAY or ON_DATES
+     * @param interval Number of days/weeks/months/years between repeats
+     * @param weekdays For weekly rules, bit i is set if the rule is on day i of the week
+     * @param months For yearly rules, bit i is set if the rule is on month i
+     * @param monthDays For ON_DATES rules, bit d is set if the rule is on day d of the month
+     * @param until Last day the rule can be on, or null if it's limited by count instead
+     * @param count Number of times the rule happens. Ignored if until isn't null.
+     * @param excluded Days the rule skips
+     */
+    private RecurrenceRule(int frequency, int pattern, int interval, int weekdays, int months,
+                           long monthDays, LocalDate until, int count,
+                           Collection<LocalDate> excluded) {
+        if (frequency < NONE || frequency > YEARLY || pattern < ON_DATE || pattern > ON_DATES
+                || interval < 1 || (until == null && count < 1)) {
+            throw new IllegalArgumentException();
+        }
+
+        mFrequency = frequency;
+        mPattern = pattern;
+        mInterval = interval;
+        mWeekdays = weekdays;
+        mMonths = months;
+        mMonthDays = monthDays;
+        mUntil = until;
+        mCount = (until == null) ? count : Integer.MAX_VALUE;
+        mExcluded = Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(excluded)));
+    }
+
+    /**
+     * Get a copy of the rule that also skips some days. As with EXDATE in an iCalendar file, a
+     * skipped day still counts towards the rule's count.
+     *
+     * @param days The days to skip
+     *
+     * @return The rule skipping the days, or this rule if there are none
+     */
+    public RecurrenceRule excluding(Collection<LocalDate> days) {
+        if (days.isEmpty()) {
+            return this;
+        }
+
+        List<LocalDate> excluded = new ArrayList<>(mExcluded);
+        excluded.addAll(days);
+
+        return new RecurrenceRule(mFrequency, mPattern, mInterval, mWeekdays, mMonths,
+                mMonthDays, mUntil, mCount, excluded);
+    }
+
+    /**
+     * Parse a rule from the String returned by toString.
+     *
+     * @param value The String form of a rule
+     *
+     * @return The rule
+     *
+     * @throws IllegalArgumentException If value isn't the String form of a rule
+     */
+    public static RecurrenceRule parse(String value) {
+        int frequency = -1;
+        int pattern = ON_DATE;
+        int interval = 1;
+        int weekdays = 0;
+        int months = 0;
+        long monthDays = 0;
+        LocalDate until = null;
+        int count = 1;
+        List<LocalDate> excluded = new ArrayList<>();
+
+        try {
+            for (String part : value.split(";")) {
+                int split = part.indexOf('=');
+                String key = part.substring(0, split);
+                String data = part.substring(split + 1);
+
+                switch (key) {
+                    case "FREQ":
+                        frequency = indexOf(FREQ_NAMES, data);
+                        break;
+                    case "X-ON":
+                        pattern = indexOf(PATTERN_NAMES, data);
+                        break;
+                    case "INTERVAL":
+                        interval = Integer.parseInt(data);
+                        break;
+                    case "BYDAY":
+                        for (String day : data.split(",")) {
+                            weekdays |= 1 << indexOf(DAY_NAMES, day);
+                        }
+                        break;
+                    case "BYMONTH":
+                        for (String month : data.split(",")) {
+                            months |= 1 << (Integer.parseInt(month) - 1);
+                        }
+                        break;
+                    case "BYMONTHDAY":
+                        for (String day : data.split(",")) {
+                            monthDays |= 1L << Integer.parseInt(day);
+                        }
+                        break;
+                    case "UNTIL":
+                        until = LocalDate.parse(data, UNTIL_FORMAT);
+                        break;
+                    case "COUNT":
+                        count = Integer.parseInt(data);
+                        break;
+                    case "EXDATE":
+                        for (String day : data.split(",")) {
+                            excluded.add(LocalDate.parse(day, UNTIL_FORMAT));
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException(value);
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(value, e);
+        }
+
+        return new RecurrenceRule(frequency, pattern, interval, weekdays, months, monthDays, until,
+                count, excluded);
+    }
+
+    /**
+     * Find a name in a list of names.
+     *
+     * @param names The list of names
+     * @param name The name to find
+     *
+     * @return The index of name in names
+     *
+     * @throws IllegalArgumentException If name isn't in names
+     */
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+
+        throw new IllegalArgumentException(name);
+    }
+
+    /**
+     * Get how often the rule repeats.
+     *
+     * @return One of NONE, DAILY, WEEKLY, MONTHLY or YEARLY
+     */
+    public int getFrequency() {
+        return mFrequency;
+    }
+
+    /**
+     * Get which days of the month or year a monthly or yearly rule is on.
+     *
+     * @return One of ON_DATE, ON_WEEKDAY or ON_DATES
+     */
+    public int getPattern() {
+        return mPattern;
+    }
+
+    /**
+     * Get the number of days/weeks/months/years between repeats.
+     *
+     * @return The interval between repeats
+     */
+    public int getInterval() {
+        return mInterval;
+    }
+
+    /**
+     * Get the days of the week a weekly rule is on.
+     *
+     * @return days[i] is true if the rule is on day i of the week, where 0 is Sunday
+     */
+    public boolean[] getWeekdays() {
+        boolean[] toReturn = new boolean[7];
+
+        for (int i = 0; i < toReturn.length; i++) {
+            toReturn[i] = (mWeekdays & (1 << i)) != 0;
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Get the months a yearly rule is limited to.
+     *
+     * @return months[i] is true if the rule is on month i, where 0 is January, or null if the rule
+     *         is only on the start's month
+     */
+    public boolean[] getMonths() {
+        if (mMonths == 0) {
+            return null;
+        }
+
+        boolean[] toReturn = new boolean[12];
+
+        for (int i = 0; i < toReturn.length; i++) {
+            toReturn[i] = (mMonths & (1 << i)) != 0;
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Get the days of the month an ON_DATES rule is on.
+     *
+     * @return The days of the month the rule is on, in order
+     */
+    public List<Integer> getMonthDays() {
+        List<Integer> toReturn = new ArrayList<>();
+
+        for (int d = 1; d <= 31; d++) {
+            if ((mMonthDays & (1L << d)) != 0) {
+                toReturn.add(d);
+            }
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Get the last day the rule can be on.
+     *
+     * @return The last day the rule can be on, or LocalDate.MAX if it's limited by count instead
+     */
+    public LocalDate getUntil() {
+        return (mUntil == null) ? LocalDate.MAX : mUntil;
+    }
+
+    /**
+     * Get the number of times the rule happens.
+     *
+     * @return The number of times the rule happens, or Integer.MAX_VALUE if it's limited by an
+     *         until date instead
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Get the days the rule skips.
+     *
+     * @return The days skipped, in order
+     */
+    public List<LocalDate> getExcluded() {
+        return mExcluded;
+    }
+
+    /**
+     * Get the dates the rule is on that fall in a window, one at a time, leaving out the days it
+     * skips. See RecurrenceExpander.occurrences.
+     *
+     * @param itemStart Start day for the item
+     * @param from First day of the window
+     * @param to Last day of the window
+     *
+     * @return An iterator over the dates between from and to, inclusive, in order
+     */
+    public Iterator<LocalDate> occurrences(LocalDate itemStart, LocalDate from, LocalDate to) {
+        Iterator<LocalDate> dates = RecurrenceExpander.occurrences(this, itemStart, from, to);
+
+        if (mExcluded.isEmpty()) {
+            return dates;
+        }
+
+        return new Iterator<LocalDate>() {
+            private LocalDate mNext = find(); // Next date not skipped, or null if none
+
+            /**
+             * Find the next date that isn't skipped.
+             *
+             * @return The date, or null if there are no more
+             */
+            private LocalDate find() {
+                while (dates.hasNext()) {
+                    LocalDate date = dates.next();
+                    if (Collections.binarySearch(mExcluded, date) < 0) {
+                        return date;
+                    }
+                }
+
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return mNext != null;
+            }
+
+            @Override
+            public LocalDate next() {
+                if (mNext == null) {
+                    throw new NoSuchElementException();
+                }
+
+                LocalDate toReturn = mNext;
+                mNext = find();
+                return toReturn;
+            }
+        };
+    }
+
+    /**
+     * Get the dates the rule is on that fall in a window.
+     *
+     * @param itemStart Start day for the item
+     * @param from First day of the window
+     * @param to Last day of the window
+     *
+     * @return A list of the dates between from and to, inclusive, in order
+     */
+    public List<LocalDate> getDates(LocalDate itemStart, LocalDate from, LocalDate to) {
+        List<LocalDate> toReturn = new ArrayList<>();
+
+        Iterator<LocalDate> occurrences = occurrences(itemStart, from, to);
+        while (occurrences.hasNext()) {
+            toReturn.add(occurrences.next());
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Get the times the rule is on that fall on days in a window. Each is at the start's time.
+     *
+     * @param itemStart Start time for the item
+     * @param from First day of the window
+     * @param to Last day of the window
+     *
+     * @return A list of the times on days between from and to, inclusive, in order
+     */
+    public List<LocalDateTime> getTimes(LocalDateTime itemStart, LocalDate from, LocalDate to) {
+        List<LocalDateTime> toReturn = new ArrayList<>();
+
+        Iterator<LocalDate> occurrences = occurrences(itemStart.toLocalDate(), from, to);
+        while (occurrences.hasNext()) {
+            toReturn.add(occurrences.next().atTime(itemStart.toLocalTime()));
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Check if the rule is on any dates after a given day.
+     *
+     * @param itemStart Start day for the item
+     * @param date The day to check after
+     *
+     * @return true if the rule is on a date after date, false if it ends on or before it
+     */
+    public boolean hasOccurrenceAfter(LocalDate itemStart, LocalDate date) {
+        if (date.equals(LocalDate.MAX)) {
+            return false;
+        }
+
+        return occurrences(itemStart, date.plusDays(1), LocalDate.MAX).hasNext();
+    }
+
+    /**
+     * Check if another object is the same rule.
+     *
+     * @param o The object to compare to
+     *
+     * @return true if o is a rule with the same recurrence, false otherwise
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof RecurrenceRule)) {
+            return false;
+        }
+
+        RecurrenceRule other = (RecurrenceRule) o;
+        return mFrequency == other.mFrequency && mPattern == other.mPattern
+                && mInterval == other.mInterval && mWeekdays == other.mWeekdays
+                && mMonths == other.mMonths && mMonthDays == other.mMonthDays
+                && mCount == other.mCount && getUntil().equals(other.getUntil())
+                && mExcluded.equals(other.mExcluded);
+    }
+
+    /**
+     * Get a hash code for the rule, so expansions can be cached by rule.
+     *
+     * @return A hash code, equal for equal rules
+     */
+    @Override
+    public int hashCode() {
+        int result = mFrequency;
+        result = 31 * result + mPattern;
+        result = 31 * result + mInterval;
+        result = 31 * result + mWeekdays;
+        result = 31 * result + mMonths;
+        result = 31 * result + (int) (mMonthDays ^ (mMonthDays >>> 32));
+        result = 31 * result + mCount;
+        result = 31 * result + getUntil().hashCode();
+        result = 31 * result + mExcluded.hashCode();
+        return result;
+    }
+
+    /**
+     * Get the String form of the rule, which parse turns back into the rule. Fields that don't
+     * apply to the rule's frequency are left out.
+     *
+     * @return The String form of the rule
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("FREQ=").append(FREQ_NAMES[mFrequency]);
+
+        if (mFrequency != NONE) {
+            sb.append(";INTERVAL=").append(mInterval);
+        }
+
+        if (mFrequency == MONTHLY || mFrequency == YEARLY) {
+            sb.append(";X-ON=").append(PATTERN_NAMES[mPattern]);
+        }
+
+        if (mFrequency == WEEKLY && mWeekdays != 0) {
+            sb.append(";BYDAY=").append(join(DAY_NAMES, mWeekdays, 0));
+        }
+
+        if (mFrequency == YEARLY && mMonths != 0) {
+            sb.append(";BYMONTH=").append(join(null, mMonths, 1));
+        }
+
+        if ((mFrequency == MONTHLY || mFrequency == YEARLY) && mPattern == ON_DATES
+                && mMonthDays != 0) {
+            List<String> days = new ArrayList<>();
+            for (int d : getMonthDays()) {
+                days.add(Integer.toString(d));
+            }
+            sb.append(";BYMONTHDAY=").append(join(days));
+        }
+
+        if (mUntil != null) {
+            sb.append(";UNTIL=").append(UNTIL_FORMAT.format(mUntil));
+        }
+        else if (mFrequency != NONE) {
+            sb.append(";COUNT=").append(mCount);
+        }
+
+        if (!mExcluded.isEmpty()) {
+            List<String> days = new ArrayList<>();
+            for (LocalDate day : mExcluded) {
+                days.add(UNTIL_FORMAT.format(day));
+            }
+            sb.append(";EXDATE=").append(join(days));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Join the set bits of a mask into a comma separated list.
+     *
+     * @param names Name of each bit, or null to use the bit's index plus offset
+     * @param mask The mask
+     * @param offset Added to a bit's index when names is null
+     *
+     * @return A comma separated list of the set bits
+     */
+    private static String join(String[] names, int mask, int offset) {
+        List<String> parts = new ArrayList<>();
+
+        for (int i = 0; i < Integer.SIZE; i++) {
+            if ((mask & (1 << i)) != 0) {
+                parts.add(names != null ? names[i] : Integer.toString(i + offset));
+            }
+        }
+
+        return join(parts);
+    }
+
+    /**
+     * Join Strings into a comma separated list.
+     *
+     * @param parts The Strings
+     *
+     * @return The Strings, separated by commas
+     */
+    private static String join(List<String> parts) {
+        StringBuilder sb = new StringBuilder();
+
+        for (String part : parts) {
+            if (sb.length() != 0) {
+                sb.append(',');
+            }
+            sb.append(part);
+        }
+
+        return sb.toString();
+    }
+}
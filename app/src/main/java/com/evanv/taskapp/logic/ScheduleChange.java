@@ -0,0 +1,151 @@
+package com.evanv.taskapp.logic;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes how the schedule changed since the UI last updated: which days were changed, and how
+ * many days were added to or removed from the end. Changed days are merged into ranges with no
+ * duplicates, so the UI can send the smallest number of notifications to its recycler.
+ *
+ * @author Evan Voogd
+ */
+public class ScheduleChange {
+    private final int mOldDays;           // Number of days the UI was showing
+    private final int mNewDays;           // Number of days in the schedule now
+    private final List<Range> mChanged;   // Changed days the UI is still showing, in order
+
+    /**
+     * A range of consecutive days.
+     */
+    public static class Range {
+        private final int mStart;   // First day in the range
+        private final int mCount;   // Number of days in the range
+
+        /**
+         * Creates a range of days.
+         *
+         * @param start First day in the range
+         * @param count Number of days in the range
+         */
+        public Range(int start, int count) {
+            mStart = start;
+            mCount = count;
+        }
+
+        /**
+         * Get the first day in the range.
+         *
+         * @return How many days past today's date the first day in the range is
+         */
+        public int getStart() {
+            return mStart;
+        }
+
+        /**
+         * Get the number of days in the range.
+         *
+         * @return The number of days in the range
+         */
+        public int getCount() {
+            return mCount;
+        }
+    }
+
+    /**
+     * Creates a description of a change to the schedule.
+     *
+     * @param oldDays Number of days the UI was showing
+     * @param newDays Number of days in the schedule now
+     * @param changed Changed days below both oldDays and newDays, merged into ranges in order
+     */
+    public ScheduleChange(int oldDays, int newDays, List<Range> changed) {
+        mOldDays = oldDays;
+        mNewDays = newDays;
+        mChanged = Collections.unmodifiableList(changed);
+    }
+
+    /**
+     * Get the number of days in the schedule after the change.
+     *
+     * @return The number of days in the schedule now
+     */
+    public int getNumDays() {
+        return mNewDays;
+    }
+
+    /**
+     * Get the ranges of days that changed and are still in the schedule. Doesn't include the
+     * inserted days.
+     *
+     * @return The changed ranges, in order, with no overlaps
+     */
+    public List<Range> getChanged() {
+        return mChanged;
+    }
+
+    /**
+     * Check if a day is in one of the changed ranges.
+     *
+     * @param day How many days past today's date the day is
+     *
+     * @return true if the day changed, false otherwise
+     */
+    public boolean isChanged(int day) {
+        for (Range range : mChanged) {
+            if (day < range.mStart) {
+                return false;
+            }
+            if (day < range.mStart + range.mCount) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the index of the first day added to the end of the schedule.
+     *
+     * @return The index of the first inserted day
+     */
+    public int getInsertedStart() {
+        return mOldDays;
+    }
+
+    /**
+     * Get the number of days added to the end of the schedule.
+     *
+     * @return The number of inserted days, or 0 if none were
+     */
+    public int getInsertedCount() {
+        return Math.max(0, mNewDays - mOldDays);
+    }
+
+    /**
+     * Get the index of the first day removed from the end of the schedule.
+     *
+     * @return The index of the first removed day
+     */
+    public int getRemovedStart() {
+        return mNewDays;
+    }
+
+    /**
+     * Get the number of days removed from the end of the schedule.
+     *
+     * @return The number of removed days, or 0 if none were
+     */
+    public int getRemovedCount() {
+        return Math.max(0, mOldDays - mNewDays);
+    }
+
+    /**
+     * Check if nothing changed.
+     *
+     * @return true if no days were changed, inserted or removed, false otherwise
+     */
+    public boolean isEmpty() {
+        return mOldDays == mNewDays && mChanged.isEmpty();
+    }
+}
@@ -0,0 +1,273 @@
+package com.evanv.taskapp.logic;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+import androidx.room.TypeConverters;
+
+import com.evanv.taskapp.db.Converters;
+
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A recurring task or event that runs past the scheduling horizon. Only the occurrences inside the
+ * horizon are stored as Tasks/Events; the rest are kept here as the recurrence rule they came from,
+ * and are added as the horizon moves forward, so a series costs the same however long it runs.
+ *
+ * @author Evan Voogd
+ */
+@Entity(tableName = "series_table")
+@TypeConverters(Converters.class)
+public class Series {
+    @PrimaryKey(autoGenerate = true)
+    @ColumnInfo(name = "id")
+    private long mID;                      // PrimaryKey for Series
+    @ColumnInfo(name = "is_event")
+    private final boolean mIsEvent;        // Are the occurrences Events (true) or Tasks (false)
+    @NonNull
+    @ColumnInfo(name = "name")
+    private final String mName;            // Name of each occurrence
+    @NonNull
+    @ColumnInfo(name = "rule")
+    private final RecurrenceRule mRule;    // How the series recurs
+    @NonNull
+    @ColumnInfo(name = "start")
+    private final LocalDateTime mStart;    // First occurrence. Tasks use the start of the day.
+    @ColumnInfo(name = "length")
+    private final int mLength;             // Time to complete a task, or length of an event
+    @ColumnInfo(name = "due_offset")
+    private final int mDueOffset;          // Days between a task's early date and due date
+    @ColumnInfo(name = "priority")
+    private final int mPriority;           // Priority of each task
+    @ColumnInfo(name = "project")
+    private final long mProject;           // ID of each task's project, 0 if it has none
+    @NonNull
+    @ColumnInfo(name = "labels")
+    private final ArrayList<Long> mLabels; // IDs of each task's labels
+    @NonNull
+    @ColumnInfo(name = "parents")
+    private final ArrayList<Long> mParents; // IDs of each task's parents
+    @NonNull
+    @ColumnInfo(name = "through")
+    private LocalDate mThrough;            // Occurrences up to this day are already stored
+
+    /**
+     * Creates a new series.
+     *
+     * @param isEvent true if the occurrences are Events, false if they are Tasks
+     * @param name Name of each occurrence
+     * @param rule How the series recurs
+     * @param start Time of the first occurrence. Tasks use the start of their early date.
+     * @param length Time to complete each task, or length of each event, in minutes
+     * @param dueOffset Days between each task's early date and due date
+     * @param priority Priority of each task
+     * @param project ID of each task's project, 0 if they have none
+     * @param labels IDs of each task's labels
+     * @param parents IDs of each task's parents
+     * @param through Occurrences up to and including this day are already stored
+     */
+    public Series(boolean isEvent, @NonNull String name, @NonNull RecurrenceRule rule,
+                  @NonNull LocalDateTime start, int length, int dueOffset, int priority,
+                  long project, @NonNull ArrayList<Long> labels, @NonNull ArrayList<Long> parents,
+                  @NonNull LocalDate through) {
+        mIsEvent = isEvent;
+        mName = name;
+        mRule = rule;
+        mStart = start;
+        mLength = length;
+        mDueOffset = dueOffset;
+        mPriority = priority;
+        mProject = project;
+        mLabels = labels;
+        mParents = parents;
+        mThrough = through;
+    }
+
+    /**
+     * Get the ID of the series.
+     *
+     * @return The ID of the series
+     */
+    public long getID() {
+        return mID;
+    }
+
+    /**
+     * Change the ID of the series. Used when the database assigns it one.
+     *
+     * @param id The new ID of the series
+     */
+    public void setID(long id) {
+        mID = id;
+    }
+
+    /**
+     * Check if the series is made of Events or Tasks.
+     *
+     * @return true if the occurrences are Events, false if they are Tasks
+     */
+    public boolean isEvent() {
+        return mIsEvent;
+    }
+
+    /**
+     * Get the name of each occurrence.
+     *
+     * @return The name of each occurrence
+     */
+    @NonNull
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Get the rule the series recurs by.
+     *
+     * @return The rule the series recurs by
+     */
+    @NonNull
+    public RecurrenceRule getRule() {
+        return mRule;
+    }
+
+    /**
+     * Get the time of the first occurrence. Occurrences are counted from here, so it doesn't
+     * change as the series is extended.
+     *
+     * @return The time of the first occurrence
+     */
+    @NonNull
+    public LocalDateTime getStart() {
+        return mStart;
+    }
+
+    /**
+     * Get the time to complete each task, or the length of each event.
+     *
+     * @return The length of each occurrence in minutes
+     */
+    public int getLength() {
+        return mLength;
+    }
+
+    /**
+     * Get the number of days between each task's early date and due date.
+     *
+     * @return The number of days a task has to be completed in
+     */
+    public int getDueOffset() {
+        return mDueOffset;
+    }
+
+    /**
+     * Get the priority of each task.
+     *
+     * @return The priority of each task
+     */
+    public int getPriority() {
+        return mPriority;
+    }
+
+    /**
+     * Get the ID of each task's project.
+     *
+     * @return The ID of each task's project, 0 if they have none
+     */
+    public long getProject() {
+        return mProject;
+    }
+
+    /**
+     * Get the IDs of each task's labels.
+     *
+     * @return The IDs of each task's labels
+     */
+    @NonNull
+    public ArrayList<Long> getLabels() {
+        return mLabels;
+    }
+
+    /**
+     * Get the IDs of each task's parents.
+     *
+     * @return The IDs of each task's parents
+     */
+    @NonNull
+    public ArrayList<Long> getParents() {
+        return mParents;
+    }
+
+    /**
+     * Get the last day whose occurrences are already stored.
+     *
+     * @return The day occurrences are stored through
+     */
+    @NonNull
+    public LocalDate getThrough() {
+        return mThrough;
+    }
+
+    /**
+     * Change the last day whose occurrences are stored, after storing more of them.
+     *
+     * @param through The day occurrences are now stored through
+     */
+    public void setThrough(@NonNull LocalDate through) {
+        mThrough = through;
+    }
+
+    /**
+     * Get the occurrences the horizon has moved past since the series was last extended, and
+     * mark it stored through the horizon. Occurrences that passed while the app wasn't opened are
+     * skipped.
+     *
+     * @param today The first day an occurrence can still be added on
+     * @param horizon The day to store occurrences through
+     *
+     * @return The time of each occurrence to store, in order. Tasks' are at the start of their
+     * early date.
+     */
+    @NonNull
+    public List<LocalDateTime> extend(@NonNull LocalDate today, @NonNull LocalDate horizon) {
+        LocalDate from = mThrough.plusDays(1);
+        if (from.isBefore(today)) {
+            from = today;
+        }
+
+        if (from.isAfter(horizon)) {
+            return new ArrayList<>();
+        }
+
+        List<LocalDateTime> times = mRule.getTimes(mStart, from, horizon);
+        mThrough = horizon;
+        return times;
+    }
+
+    /**
+     * Check if the series has occurrences past the day it's stored through, so it's still needed.
+     *
+     * @return true if there are occurrences left to store, false if the series is finished
+     */
+    public boolean hasMore() {
+        return mRule.hasOccurrenceAfter(mStart.toLocalDate(), mThrough);
+    }
+
+    /**
+     * Check if an item could be one of the series' occurrences, going by its kind, name and day.
+     *
+     * @param isEvent true if the item is an Event, false if it's a Task
+     * @param name Name of the item
+     * @param day The item's day, or a task's early date
+     *
+     * @return true if the series has an occurrence like the item on its day
+     */
+    public boolean hasOccurrence(boolean isEvent, @NonNull String name, @NonNull LocalDate day) {
+        return mIsEvent == isEvent && mName.equals(name)
+                && mRule.occurrences(mStart.toLocalDate(), day, day).hasNext();
+    }
+}
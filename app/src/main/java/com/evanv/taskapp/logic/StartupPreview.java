@@ -0,0 +1,142 @@
+package com.evanv.taskapp.logic;
+
+import android.content.Context;
+
+import com.evanv.taskapp.R;
+import com.evanv.taskapp.db.TaskAppViewModel;
+import com.evanv.taskapp.ui.main.recycler.DayItem;
+import com.evanv.taskapp.ui.main.recycler.EventItem;
+import com.evanv.taskapp.ui.main.recycler.TaskItem;
+
+import org.threeten.bp.LocalDate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The first days of the schedule, built straight from the database so they can be shown while the
+ * LogicSubsystem is still loading. Only the tasks and events for the first few days are queried,
+ * so the preview costs the same however many tasks the user has. The days are shown as they were
+ * last optimized, and are replaced once the full schedule is ready.
+ *
+ * @author Evan Voogd
+ */
+public class StartupPreview {
+    public static final int NUM_DAYS = 2; // Today and tomorrow
+    private final List<DayItem> mDays;    // mDays.get(i) is the DayItem for i days past today
+
+    /**
+     * Builds the DayItems for the first NUM_DAYS days. Blocks on the database, so must not be
+     * called from the UI thread.
+     *
+     * @param viewModel The ViewModel to query the first days from
+     * @param startDate Today's date
+     * @param todayTime The amount of time spent completing tasks so far today
+     * @param timedTaskID ID of the task currently being timed, or -1 if none is
+     * @param context Context for resources
+     */
+    public StartupPreview(TaskAppViewModel viewModel, LocalDate startDate, int todayTime,
+                          long timedTaskID, Context context) {
+        LocalDate endDate = startDate.plusDays(NUM_DAYS - 1);
+
+        List<Task> tasks = viewModel.getTasksBetween(startDate, endDate);
+        List<Event> events = viewModel.getEventsBetween(startDate.atStartOfDay(),
+                endDate.plusDays(1).atStartOfDay());
+
+        // Projects and labels are few, so just get all of them for the tasks' names and colors
+        IdIndex<Project> projects = new IdIndex<>(viewModel.queryProjects());
+        IdIndex<Label> labels = new IdIndex<>(viewModel.queryLabels());
+
+        // Split the tasks and events by day
+        List<List<Task>> taskSchedule = new ArrayList<>();
+        List<List<Event>> eventSchedule = new ArrayList<>();
+        for (int i = 0; i < NUM_DAYS; i++) {
+            taskSchedule.add(new ArrayList<>());
+            eventSchedule.add(new ArrayList<>());
+        }
+
+        for (Task t : tasks) {
+            t.initializeProject(projects);
+            t.initializeLabels(labels);
+            taskSchedule.get(Task.getDiff(t.getDoDate(), startDate)).add(t);
+        }
+
+        for (Event e : events) {
+            eventSchedule.get(Task.getDiff(e.getDoDate(), startDate)).add(e);
+        }
+
+        DayHeaderFormatter headers = new DayHeaderFormatter(Locale.getDefault(),
+                context.getString(R.string.schedule_for));
+        mDays = new ArrayList<>(NUM_DAYS);
+
+        for (int i = 0; i < NUM_DAYS; i++) {
+            LocalDate curr = startDate.plusDays(i);
+            List<Task> dayTasks = taskSchedule.get(i);
+            List<Event> dayEvents = eventSchedule.get(i);
+
+            int totalTime = (i == 0) ? todayTime : 0;
+            totalTime += Optimizer.calculateTotalTime(i, eventSchedule);
+
+            List<EventItem> eventItems = new ArrayList<>(dayEvents.size());
+            for (int j = 0; j < dayEvents.size(); j++) {
+                eventItems.add(LogicSubsystem.EventItemHelper(dayEvents.get(j), j));
+            }
+
+            Collections.sort(dayTasks);
+            List<TaskItem> taskItems = new ArrayList<>(dayTasks.size());
+            for (int j = 0; j < dayTasks.size(); j++) {
+                Task task = dayTasks.get(j);
+                totalTime += task.getTimeToComplete();
+
+                // Parents aren't linked yet, but any parent ID means the task has to wait
+                boolean completable = task.getEarlyDate().equals(startDate)
+                        && task.getParentArr().isEmpty();
+
+                taskItems.add(LogicSubsystem.TaskItemHelper(task, j,
+                        task.getID() == timedTaskID, completable, startDate, context));
+            }
+
+            String dayString = headers.getHeader(curr, curr.getYear() != startDate.getYear(),
+                    totalTime);
+
+            mDays.add(new DayItem(dayString, eventItems, taskItems, i));
+        }
+    }
+
+    /**
+     * Get the number of days in the preview.
+     *
+     * @return The number of days in the preview
+     */
+    public int getNumDays() {
+        return mDays.size();
+    }
+
+    /**
+     * Get the DayItem for one of the first days of the schedule.
+     *
+     * @param index How many days past today's date to get the DayItem for
+     *
+     * @return The DayItem for that day
+     */
+    public DayItem getDay(int index) {
+        return mDays.get(index);
+    }
+
+    /**
+     * Check if the first days of the schedule have nothing in them.
+     *
+     * @return true if no tasks or events are scheduled in the preview's days, false otherwise
+     */
+    public boolean isEmpty() {
+        for (DayItem day : mDays) {
+            if (!day.getTasks().isEmpty() || !day.getEvents().isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
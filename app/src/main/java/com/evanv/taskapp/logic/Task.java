@@ -4,6 +4,7 @@ import androidx.annotation.NonNull;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 
@@ -18,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Represents a single task. Conceptually a Task is a node on a large task dependency graph that
@@ -29,9 +31,11 @@ import java.util.List;
  * @author Evan Voogd
  */
 @SuppressWarnings("unused")
-@Entity(tableName = "task_table")
+// Indexed on each date and the project so range queries and filters don't scan the table
+@Entity(tableName = "task_table", indices = {@Index("doDate"), @Index("dueDate"),
+        @Index("earlyDate"), @Index("project")})
 @TypeConverters(Converters.class)
-public class Task implements Comparable<Task> {
+public class Task implements Comparable<Task>, Identifiable {
     // Database Fields
     @PrimaryKey(autoGenerate = true)
     @ColumnInfo(name = "id")
@@ -57,13 +61,16 @@ public class Task implements Comparable<Task> {
     private final List<Label> mLabels;        // Label for the task.
     @ColumnInfo(name = "project")
     private long mProjectID;                  // Project ID for the task.
-    @ColumnInfo(name = "labels")
+    // Stored in the task_label and task_dependency tables instead of task_table
+    @Ignore
     private final ArrayList<Long> mLabelIDs;  // Label ID for the task.
-    @NonNull
-    @ColumnInfo(name = "parents_list")
-    // Runtime fields
+    @Ignore
     private final ArrayList<Long> mParentArr; // List of parent ids to be stored in Room.
     @Ignore
+    private volatile boolean mLinksChanged;   // Have parents/labels changed since last saved
+
+    // Runtime fields
+    @Ignore
     private final ArrayList<Task> mParents;   // Tasks this task depends on
     @Ignore
     private final ArrayList<Task> mChildren;  // Tasks that depend on this task
@@ -78,6 +85,10 @@ public class Task implements Comparable<Task> {
     @Ignore
     private LocalDate mWorkingDoDate;         // Working copy of doDate for optimizer.
 
+    // View fields
+    @Ignore
+    private int mVersion;                     // Incremented every time the task changes
+
     // Static field
     public static final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("M/d/yy");
     // Type value representing Task
@@ -90,6 +101,7 @@ public class Task implements Comparable<Task> {
      * @param early The earliest possible day to complete the task (e.g. when it's assigned)
      * @param due When the task is due
      */
+    @Ignore
     public Task(@NonNull String name, @NonNull LocalDate early, @NonNull LocalDate due, int time,
                 int priority) {
         this.mName = name;
@@ -105,6 +117,7 @@ public class Task implements Comparable<Task> {
         mPriority = priority;
         mProjectID = -1;
         mProject = null;
+        mLinksChanged = true;
     }
 
     /**
@@ -120,6 +133,7 @@ public class Task implements Comparable<Task> {
      * @param projectID ID for the project.
      * @param labelIDs List of IDs for the labels.
      */
+    @Ignore
     public Task(@NonNull String name, @NonNull LocalDate earlyDate, @NonNull LocalDate dueDate,
                 LocalDate doDate, int timeToComplete, @NonNull ArrayList<Long> parentArr,
                 int priority, long projectID, @NonNull ArrayList<Long> labelIDs) {
@@ -144,6 +158,35 @@ public class Task implements Comparable<Task> {
         mPriority = priority;
         mProjectID = projectID;
         mLabelIDs = labelIDs;
+        mLinksChanged = true;
+    }
+
+    /**
+     * Initializes an object representing a task read from the task_table. Its parents and labels
+     * are stored in other tables, so start empty and are added by whatever loads it.
+     *
+     * @param name The name of the task
+     * @param earlyDate Earliest date the task can be completed.
+     * @param dueDate When the task is due.
+     * @param doDate When the task is scheduled to be completed.
+     * @param timeToComplete Amount of time in minutes the task is estimated to complete.
+     * @param priority Priority of the task
+     * @param projectID ID for the project.
+     */
+    public Task(@NonNull String name, @NonNull LocalDate earlyDate, @NonNull LocalDate dueDate,
+                LocalDate doDate, int timeToComplete, int priority, long projectID) {
+        mName = name;
+        mEarlyDate = earlyDate;
+        mDueDate = dueDate;
+        mDoDate = doDate;
+        mTimeToComplete = timeToComplete;
+        mParents = new ArrayList<>();
+        mChildren = new ArrayList<>();
+        mLabels = new ArrayList<>();
+        mParentArr = new ArrayList<>();
+        mLabelIDs = new ArrayList<>();
+        mPriority = priority;
+        mProjectID = projectID;
     }
 
     /**
@@ -151,6 +194,7 @@ public class Task implements Comparable<Task> {
      *
      * @return id of the task
      */
+    @Override
     public long getID() {
         return mID;
     }
@@ -164,6 +208,16 @@ public class Task implements Comparable<Task> {
         mID = id;
     }
 
+    /**
+     * Returns the version of the task, which changes every time one of its fields does. Used to
+     * tell if a view of the task built earlier is still up to date.
+     *
+     * @return The version of the task
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
     /**
      * Returns the name of the task
      *
@@ -180,6 +234,7 @@ public class Task implements Comparable<Task> {
      */
     public void setName(@NonNull String name) {
         this.mName = name;
+        mVersion++;
     }
 
     /**
@@ -198,6 +253,7 @@ public class Task implements Comparable<Task> {
      */
     public void setEarlyDate(LocalDate earlyDate) {
         this.mEarlyDate = earlyDate;
+        mVersion++;
     }
 
     /**
@@ -215,6 +271,11 @@ public class Task implements Comparable<Task> {
      * @param doDate The new completion date for the task.
      */
     public void setDoDate(LocalDate doDate) {
+        // The optimizer sets every task's do date, so only count it as a change if it moved
+        if (!Objects.equals(mDoDate, doDate)) {
+            mVersion++;
+        }
+
         this.mDoDate = doDate;
     }
 
@@ -234,6 +295,7 @@ public class Task implements Comparable<Task> {
      */
     public void setDueDate(LocalDate dueDate) {
         this.mDueDate = dueDate;
+        mVersion++;
     }
 
     /**
@@ -252,6 +314,7 @@ public class Task implements Comparable<Task> {
      */
     public void setTimeToComplete(int timeToComplete) {
         this.mTimeToComplete = timeToComplete;
+        mVersion++;
     }
 
     /**
@@ -274,7 +337,10 @@ public class Task implements Comparable<Task> {
 
             if (!mParentArr.contains(parent.getID())) {
                 this.mParentArr.add(parent.getID());
+                mLinksChanged = true;
             }
+
+            mVersion++;
         }
     }
 
@@ -286,6 +352,8 @@ public class Task implements Comparable<Task> {
     public void removeParent(Task parent) {
         this.mParents.remove(parent);
         this.mParentArr.remove(parent.getID());
+        mLinksChanged = true;
+        mVersion++;
     }
 
     /**
@@ -327,6 +395,26 @@ public class Task implements Comparable<Task> {
         return mParentArr;
     }
 
+    /**
+     * Check if the task's parents or labels have changed since they were last saved, and mark
+     * them saved. Lets an update skip rewriting them when only e.g. the do date moved.
+     *
+     * @return true if the parent or label IDs need to be written to the database
+     */
+    public boolean takeLinksChanged() {
+        boolean changed = mLinksChanged;
+        mLinksChanged = false;
+        return changed;
+    }
+
+    /**
+     * Mark the task's parents and labels as not saved, e.g. because the transaction that wrote
+     * them was rolled back, so the next write of the task writes them again.
+     */
+    public void markLinksChanged() {
+        mLinksChanged = true;
+    }
+
     /**
      * Get the working copy of the do date for the task
      *
@@ -411,6 +499,19 @@ public class Task implements Comparable<Task> {
      */
     @Override
     public int compareTo(Task other) {
+        return compareTo(other, LocalDate.now());
+    }
+
+    /**
+     * Compares this task with another given task, treating tasks due on the given day as due
+     * today. Used by the Optimizer so its order follows the date it schedules from.
+     *
+     * @param other The other task to compare it with
+     * @param today The day tasks are bumped ahead of others for being due on
+     * @return Returns a positive number if this task is greater,
+     * negative if the other task is greater, and 0 if they are equal
+     */
+    public int compareTo(Task other, LocalDate today) {
         // Check if task can only be completed for one day to get these tasks scheduled first.
         boolean task1OneDay = mDueDate.isEqual(mEarlyDate);
         boolean task2OneDay = other.getDueDate().isEqual(other.getEarlyDate());
@@ -426,10 +527,10 @@ public class Task implements Comparable<Task> {
         int priority2 = other.getPriority();
 
         // Set priority to 5 if task is due today
-        if (mDueDate.isEqual(LocalDate.now())) {
+        if (mDueDate.isEqual(today)) {
             priority1 = 5;
         }
-        if (other.getDueDate().isEqual(LocalDate.now())) {
+        if (other.getDueDate().isEqual(today)) {
             priority2 = 5;
         }
 
@@ -494,6 +595,7 @@ public class Task implements Comparable<Task> {
      */
     public void setPriority(int priority) {
         mPriority = priority >= 0 && priority <= 3 ? priority : mPriority;
+        mVersion++;
     }
 
     /**
@@ -550,6 +652,7 @@ public class Task implements Comparable<Task> {
     public void setProject(Project project) {
         mProject = project;
         mProjectID = project.getID();
+        mVersion++;
     }
 
     /**
@@ -560,6 +663,8 @@ public class Task implements Comparable<Task> {
     public void addLabel(Label label) {
         mLabels.add(label);
         mLabelIDs.add(label.getID());
+        mLinksChanged = true;
+        mVersion++;
     }
 
     /**
@@ -570,46 +675,59 @@ public class Task implements Comparable<Task> {
     public void removeLabel(Label label) {
         mLabels.remove(label);
         mLabelIDs.remove(label.getID());
+        mLinksChanged = true;
+        mVersion++;
     }
 
     /**
      * Update Project from Project ID as the DB cannot store references.
      *
-     * @param projects List of projects.
+     * @param projects Index of every project by ID.
      */
-    public void initializeProject(List<Project> projects) {
-        if (mProjectID == -1) {
-            mProject = null;
-            return;
-        }
+    public void initializeProject(IdIndex<Project> projects) {
+        mProject = (mProjectID == -1) ? null : projects.get(mProjectID);
 
-        for (Project p : projects) {
-            if (p.getID() == mProjectID) {
-                mProject = p;
-                p.addTask(this);
-                return;
-            }
+        if (mProject != null) {
+            mProject.addTask(this);
         }
     }
 
     /**
      * Synchronize the list of Label IDs with the List of Labels.
      *
-     * @param labels List of labels.
+     * @param labels Index of every label by ID.
      */
-    public void initializeLabels(List<Label> labels) {
-        if (labels.isEmpty()) {
-            return;
-        }
+    public void initializeLabels(IdIndex<Label> labels) {
+        for (long labelID : mLabelIDs) {
+            Label l = labels.get(labelID);
 
-        for (Label l : labels) {
-            if (mLabelIDs.contains(l.getID())) {
+            if (l != null && !mLabels.contains(l)) {
                 mLabels.add(l);
                 l.addTask(this);
             }
         }
     }
 
+    /**
+     * Synchronize the list of parent IDs with the parent/child structure, as the DB cannot store
+     * references. Only looks up the IDs in the parent array, so wiring every task costs time
+     * linear in the number of tasks plus dependencies instead of comparing every pair of tasks.
+     *
+     * @param tasks Index of every task by ID.
+     */
+    public void initializeParents(IdIndex<Task> tasks) {
+        // mParentArr has no duplicates and each edge is only added from the child's side, so
+        // there is no need for addParent/addChild's linear duplicate checks.
+        for (long parentID : mParentArr) {
+            Task parent = tasks.get(parentID);
+
+            if (parent != null && parent != this) {
+                mParents.add(parent);
+                parent.mChildren.add(this);
+            }
+        }
+    }
+
     /**
      * Get the difference (in days) between two dates. Often used to find index into taskSchedule
      * List, so is included as a static field here.
@@ -634,7 +752,11 @@ public class Task implements Comparable<Task> {
         return (int) ChronoUnit.DAYS.between(startDate, endDate.toLocalDate());
     }
 
+    /**
+     * Remove the Task's Project.
+     */
     public void removeProject() {
         mProject = null;
+        mVersion++;
     }
 }
@@ -0,0 +1,402 @@
+package com.evanv.taskapp.logic;
+
+import org.threeten.bp.LocalDate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Secondary indexes over the user's tasks for the fields the filter screen searches by: name,
+ * project, labels, priority and due date. Every task is given a small integer slot, and each project,
+ * label, priority and due date has a CompressedBitmap of the slots of the tasks that have it, so a
+ * filter on several of these fields resolves to bitmap intersections before any Task is looked
+ * at. Due dates are kept sorted so a range of them can be sliced out, and names are kept in a
+ * TrigramIndex for substring and typo-tolerant search.
+ *
+ * Tasks must be re-indexed with update whenever one of these fields changes.
+ *
+ * @author Evan Voogd
+ */
+public class TaskFilterIndex {
+    private static final long NO_PROJECT = -1; // Project ID of tasks without a project
+
+    private Task[] mTasks;                         // mTasks[slot] is the task in that slot
+    private final Map<Task, Integer> mSlots;       // Slot of each indexed task
+    private final List<Integer> mFreeSlots;        // Slots freed by removed tasks
+    private int mNextSlot;                         // Lowest slot that has never been used
+    private final CompressedBitmap mAll;           // Every slot in use
+
+    // Keys each slot is currently indexed under, so a task can be removed after it's changed
+    private long[] mProjectOf;                     // Project ID each slot is indexed under
+    private long[][] mLabelsOf;                    // Label IDs each slot is indexed under
+    private int[] mPriorityOf;                     // Priority each slot is indexed under
+    private long[] mDueOf;                         // Due epoch day each slot is indexed under
+
+    private final Map<Long, CompressedBitmap> mByProject;      // Slots in each project
+    private final Map<Long, CompressedBitmap> mByLabel;        // Slots with each label
+    private final TreeMap<Integer, CompressedBitmap> mByPriority; // Slots with each priority
+    private final TreeMap<Long, CompressedBitmap> mByDueDate;  // Slots due on each date
+    private final TrigramIndex mNames;                         // Name of each slot
+
+    /**
+     * Creates an index containing the given tasks.
+     *
+     * @param tasks Tasks to index. Projects and labels must already be initialized.
+     */
+    public TaskFilterIndex(List<Task> tasks) {
+        int capacity = Math.max(16, tasks.size());
+
+        mTasks = new Task[capacity];
+        mProjectOf = new long[capacity];
+        mLabelsOf = new long[capacity][];
+        mPriorityOf = new int[capacity];
+        mDueOf = new long[capacity];
+
+        mSlots = new IdentityHashMap<>();
+        mFreeSlots = new ArrayList<>();
+        mNextSlot = 0;
+        mAll = new CompressedBitmap();
+
+        mByProject = new HashMap<>();
+        mByLabel = new HashMap<>();
+        mByPriority = new TreeMap<>();
+        mByDueDate = new TreeMap<>();
+        mNames = new TrigramIndex();
+
+        for (Task t : tasks) {
+            add(t);
+        }
+    }
+
+    /**
+     * Add a task to the index. Does nothing if the task is already indexed.
+     *
+     * @param task The task to add
+     */
+    public void add(Task task) {
+        if (mSlots.containsKey(task)) {
+            return;
+        }
+
+        int slot;
+        if (!mFreeSlots.isEmpty()) {
+            slot = mFreeSlots.remove(mFreeSlots.size() - 1);
+        }
+        else {
+            slot = mNextSlot++;
+            ensureCapacity(mNextSlot);
+        }
+
+        mTasks[slot] = task;
+        mSlots.put(task, slot);
+        mAll.add(slot);
+        indexFields(slot, task);
+    }
+
+    /**
+     * Remove a task from the index.
+     *
+     * @param task The task to remove
+     */
+    public void remove(Task task) {
+        Integer slot = mSlots.remove(task);
+
+        if (slot == null) {
+            return;
+        }
+
+        unindexFields(slot);
+        mAll.remove(slot);
+        mTasks[slot] = null;
+        mFreeSlots.add(slot);
+    }
+
+    /**
+     * Re-index a task after it's name, project, labels, priority or due date changed. Does
+     * nothing if the task isn't indexed, e.g. the old copy of a task replaced by an edit, so it
+     * can't be brought back.
+     *
+     * @param task The task that changed
+     */
+    public void update(Task task) {
+        Integer slot = mSlots.get(task);
+
+        if (slot == null) {
+            return;
+        }
+
+        unindexFields(slot);
+        indexFields(slot, task);
+    }
+
+    /**
+     * Get the slots of every indexed task.
+     *
+     * @return A bitmap of every slot in use. Must not be modified.
+     */
+    public CompressedBitmap all() {
+        return mAll;
+    }
+
+    /**
+     * Get the slots of the tasks in a project.
+     *
+     * @param projectID ID of the project
+     *
+     * @return A bitmap of the slots of the tasks in the project. Must not be modified.
+     */
+    public CompressedBitmap inProject(long projectID) {
+        return getOrEmpty(mByProject.get(projectID));
+    }
+
+    /**
+     * Get the slots of the tasks that have every one of the given labels.
+     *
+     * @param labelIDs IDs of the labels
+     *
+     * @return A bitmap of the slots of the tasks with all the labels
+     */
+    public CompressedBitmap withLabels(long[] labelIDs) {
+        CompressedBitmap toReturn = mAll;
+
+        for (long id : labelIDs) {
+            toReturn = toReturn.and(getOrEmpty(mByLabel.get(id)));
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Get the slots of the tasks with at least the given priority.
+     *
+     * @param priority The minimum priority
+     *
+     * @return A bitmap of the slots of the tasks with at least the given priority
+     */
+    public CompressedBitmap withMinPriority(int priority) {
+        return union(mByPriority.tailMap(priority, true).values());
+    }
+
+    /**
+     * Get the slots of the tasks due within a range of dates.
+     *
+     * @param startDate Earliest due date, or null for no lower bound
+     * @param endDate Latest due date, or null for no upper bound
+     *
+     * @return A bitmap of the slots of the tasks due in the range
+     */
+    public CompressedBitmap dueBetween(LocalDate startDate, LocalDate endDate) {
+        long start = startDate == null ? Long.MIN_VALUE : startDate.toEpochDay();
+        long end = endDate == null ? Long.MAX_VALUE : endDate.toEpochDay();
+
+        if (start > end) {
+            return new CompressedBitmap();
+        }
+
+        return union(mByDueDate.subMap(start, true, end, true).values());
+    }
+
+    /**
+     * Get the slots of the tasks whose name contains a string, ignoring case.
+     *
+     * @param name The string to search for
+     *
+     * @return A bitmap of the slots of the tasks whose name contains the string
+     */
+    public CompressedBitmap nameContains(String name) {
+        return mNames.containing(name);
+    }
+
+    /**
+     * Search task names, tolerating typos. Names that contain the search come first, followed by
+     * ones similar to it, and each name is only returned once. The name index is synchronized, so
+     * this can be called from any thread.
+     *
+     * @param search What the user typed
+     * @param offset Number of distinct names to skip, for paging
+     * @param count Maximum number of names to return
+     *
+     * @return Up to count of the matching names, best match first
+     */
+    public List<String> searchNames(String search, int offset, int count) {
+        return mNames.suggest(search, offset, count);
+    }
+
+    /**
+     * Get the tasks in the given slots.
+     *
+     * @param slots The slots to get the tasks of
+     *
+     * @return The tasks in the slots, in slot order
+     */
+    public List<Task> getTasks(CompressedBitmap slots) {
+        int[] array = slots.toArray();
+        List<Task> toReturn = new ArrayList<>(array.length);
+
+        for (int slot : array) {
+            toReturn.add(mTasks[slot]);
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Get the number of indexed tasks.
+     *
+     * @return The number of indexed tasks
+     */
+    public int size() {
+        return mSlots.size();
+    }
+
+    /**
+     * Add a slot to the bitmaps for the task's current fields.
+     *
+     * @param slot Slot of the task
+     * @param task The task
+     */
+    private void indexFields(int slot, Task task) {
+        Project project = task.getProject();
+        mProjectOf[slot] = project == null ? NO_PROJECT : project.getID();
+        bitmapFor(mByProject, mProjectOf[slot]).add(slot);
+
+        List<Label> labels = task.getLabels();
+        mLabelsOf[slot] = new long[labels.size()];
+        for (int i = 0; i < labels.size(); i++) {
+            mLabelsOf[slot][i] = labels.get(i).getID();
+            bitmapFor(mByLabel, mLabelsOf[slot][i]).add(slot);
+        }
+
+        mPriorityOf[slot] = task.getPriority();
+        bitmapFor(mByPriority, mPriorityOf[slot]).add(slot);
+
+        mDueOf[slot] = task.getDueDate().toEpochDay();
+        bitmapFor(mByDueDate, mDueOf[slot]).add(slot);
+
+        mNames.add(slot, task.getName());
+    }
+
+    /**
+     * Remove a slot from the bitmaps for the fields it was indexed under.
+     *
+     * @param slot Slot of the task
+     */
+    private void unindexFields(int slot) {
+        removeFrom(mByProject, mProjectOf[slot], slot);
+
+        for (long id : mLabelsOf[slot]) {
+            removeFrom(mByLabel, id, slot);
+        }
+        mLabelsOf[slot] = null;
+
+        removeFrom(mByPriority, mPriorityOf[slot], slot);
+        removeFrom(mByDueDate, mDueOf[slot], slot);
+        mNames.remove(slot);
+    }
+
+    /**
+     * Get the bitmap for a key, creating it if it doesn't exist.
+     *
+     * @param map The map of bitmaps
+     * @param key The key
+     * @param <K> Type of the key
+     *
+     * @return The bitmap for the key
+     */
+    private static <K> CompressedBitmap bitmapFor(Map<K, CompressedBitmap> map, K key) {
+        CompressedBitmap bitmap = map.get(key);
+
+        if (bitmap == null) {
+            bitmap = new CompressedBitmap();
+            map.put(key, bitmap);
+        }
+
+        return bitmap;
+    }
+
+    /**
+     * Remove a slot from the bitmap for a key, dropping the bitmap if it becomes empty.
+     *
+     * @param map The map of bitmaps
+     * @param key The key
+     * @param slot The slot to remove
+     * @param <K> Type of the key
+     */
+    private static <K> void removeFrom(Map<K, CompressedBitmap> map, K key, int slot) {
+        CompressedBitmap bitmap = map.get(key);
+
+        if (bitmap != null) {
+            bitmap.remove(slot);
+
+            if (bitmap.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Union a collection of bitmaps. Unions them in pairs, so a wide due date range costs
+     * O(n log k) for k dates instead of O(nk).
+     *
+     * @param bitmaps The bitmaps to union
+     *
+     * @return A new bitmap with every slot in any of the bitmaps
+     */
+    private static CompressedBitmap union(Collection<CompressedBitmap> bitmaps) {
+        List<CompressedBitmap> level = new ArrayList<>(bitmaps);
+
+        if (level.isEmpty()) {
+            return new CompressedBitmap();
+        }
+
+        while (level.size() > 1) {
+            List<CompressedBitmap> next = new ArrayList<>((level.size() + 1) / 2);
+
+            for (int i = 0; i + 1 < level.size(); i += 2) {
+                next.add(level.get(i).or(level.get(i + 1)));
+            }
+            if (level.size() % 2 == 1) {
+                next.add(level.get(level.size() - 1));
+            }
+
+            level = next;
+        }
+
+        return level.get(0);
+    }
+
+    /**
+     * Get a bitmap, or an empty one if it's null.
+     *
+     * @param bitmap The bitmap
+     *
+     * @return The bitmap, or an empty bitmap if it was null
+     */
+    private static CompressedBitmap getOrEmpty(CompressedBitmap bitmap) {
+        return bitmap == null ? new CompressedBitmap() : bitmap;
+    }
+
+    /**
+     * Make sure the per-slot arrays can hold the given number of slots.
+     *
+     * @param slots The number of slots needed
+     */
+    private void ensureCapacity(int slots) {
+        if (slots <= mTasks.length) {
+            return;
+        }
+
+        int capacity = Math.max(slots, mTasks.length * 2);
+        mTasks = Arrays.copyOf(mTasks, capacity);
+        mProjectOf = Arrays.copyOf(mProjectOf, capacity);
+        mLabelsOf = Arrays.copyOf(mLabelsOf, capacity);
+        mPriorityOf = Arrays.copyOf(mPriorityOf, capacity);
+        mDueOf = Arrays.copyOf(mDueOf, capacity);
+    }
+}
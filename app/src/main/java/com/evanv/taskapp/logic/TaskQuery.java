@@ -0,0 +1,534 @@
+package com.evanv.taskapp.logic;
+
+import org.threeten.bp.LocalDate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A query over the user's tasks, built up from any number of conditions. Every task is checked in
+ * a single pass, with the conditions ordered so the cheapest ones run first and a task is
+ * rejected as soon as one of them fails. Matches are returned in pages in the same order as the
+ * main screen sorts tasks, only sorting as much as is needed for the page requested, so the first
+ * page of a large result is available almost immediately. A query can be cancelled from another
+ * thread at any point.
+ *
+ * Conditions on name, project, labels, priority and due date can also be answered by a
+ * TaskFilterIndex: select intersects the index's bitmaps for them, and executeSelected only checks
+ * the rest.
+ *
+ * @author Evan Voogd
+ */
+public class TaskQuery {
+    // How many tasks to check between checks for cancellation
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    private final List<Condition> mConditions; // Conditions every match must meet, cheapest first
+    private volatile boolean mCancelled;       // true if the query has been cancelled
+
+    /**
+     * A condition a task must meet to match the query.
+     */
+    private abstract static class Condition {
+        /**
+         * Check if a task meets the condition.
+         *
+         * @param task The task to check
+         *
+         * @return true if the task meets the condition, false otherwise.
+         */
+        abstract boolean matches(Task task);
+
+        /**
+         * Estimate of how expensive the condition is to check, relative to the other conditions.
+         *
+         * @return Relative cost of checking the condition
+         */
+        abstract int cost();
+    }
+
+    /**
+     * A condition that can be answered by a TaskFilterIndex without looking at any tasks.
+     */
+    private abstract static class IndexedCondition extends Condition {
+        /**
+         * Find every task that meets the condition.
+         *
+         * @param index The index to search
+         *
+         * @return The slots of the tasks in the index that meet the condition
+         */
+        abstract CompressedBitmap resolve(TaskFilterIndex index);
+    }
+
+    /**
+     * Creates a query that matches every task.
+     */
+    public TaskQuery() {
+        mConditions = new ArrayList<>();
+        mCancelled = false;
+    }
+
+    /**
+     * Only match tasks due on or after the given date.
+     *
+     * @param startDate Earliest due date to match
+     *
+     * @return This query, so calls can be chained
+     */
+    public TaskQuery dueOnOrAfter(LocalDate startDate) {
+        return add(new IndexedCondition() {
+            @Override
+            boolean matches(Task task) {
+                return !task.getDueDate().isBefore(startDate);
+            }
+
+            @Override
+            CompressedBitmap resolve(TaskFilterIndex index) {
+                return index.dueBetween(startDate, null);
+            }
+
+            @Override
+            int cost() {
+                return 2;
+            }
+        });
+    }
+
+    /**
+     * Only match tasks due on or before the given date.
+     *
+     * @param endDate Latest due date to match
+     *
+     * @return This query, so calls can be chained
+     */
+    public TaskQuery dueOnOrBefore(LocalDate endDate) {
+        return add(new IndexedCondition() {
+            @Override
+            boolean matches(Task task) {
+                return !task.getDueDate().isAfter(endDate);
+            }
+
+            @Override
+            CompressedBitmap resolve(TaskFilterIndex index) {
+                return index.dueBetween(null, endDate);
+            }
+
+            @Override
+            int cost() {
+                return 2;
+            }
+        });
+    }
+
+    /**
+     * Only match tasks in the given project.
+     *
+     * @param projectID ID of the project to match
+     *
+     * @return This query, so calls can be chained
+     */
+    public TaskQuery inProject(long projectID) {
+        return add(new IndexedCondition() {
+            @Override
+            boolean matches(Task task) {
+                Project project = task.getProject();
+                return project != null && project.getID() == projectID;
+            }
+
+            @Override
+            CompressedBitmap resolve(TaskFilterIndex index) {
+                return index.inProject(projectID);
+            }
+
+            @Override
+            int cost() {
+                return 2;
+            }
+        });
+    }
+
+    /**
+     * Only match tasks whose name contains the given string, ignoring case.
+     *
+     * @param name String to search for
+     *
+     * @return This query, so calls can be chained
+     */
+    public TaskQuery nameContains(String name) {
+        // Lowercase the search string once instead of once per task
+        String search = name.toLowerCase();
+
+        return add(new IndexedCondition() {
+            @Override
+            boolean matches(Task task) {
+                return containsIgnoreCase(task.getName(), search);
+            }
+
+            @Override
+            CompressedBitmap resolve(TaskFilterIndex index) {
+                return index.nameContains(search);
+            }
+
+            @Override
+            int cost() {
+                return 10;
+            }
+        });
+    }
+
+    /**
+     * Only match tasks that take at least the given time to complete.
+     *
+     * @param minTime Minimum time to complete to match, in minutes
+     *
+     * @return This query, so calls can be chained
+     */
+    public TaskQuery minTime(int minTime) {
+        return add(new Condition() {
+            @Override
+            boolean matches(Task task) {
+                return task.getTimeToComplete() >= minTime;
+            }
+
+            @Override
+            int cost() {
+                return 1;
+            }
+        });
+    }
+
+    /**
+     * Only match tasks that take at most the given time to complete.
+     *
+     * @param maxTime Maximum time to complete to match, in minutes
+     *
+     * @return This query, so calls can be chained
+     */
+    public TaskQuery maxTime(int maxTime) {
+        return add(new Condition() {
+            @Override
+            boolean matches(Task task) {
+                return task.getTimeToComplete() <= maxTime;
+            }
+
+            @Override
+            int cost() {
+                return 1;
+            }
+        });
+    }
+
+    /**
+     * Only match tasks that can currently be completed: ones that can be completed today and that
+     * have no unfinished prerequisites.
+     *
+     * @param today Today's date
+     *
+     * @return This query, so calls can be chained
+     */
+    public TaskQuery completable(LocalDate today) {
+        return add(new Condition() {
+            @Override
+            boolean matches(Task task) {
+                return task.getParents().isEmpty() && task.getEarlyDate().isEqual(today);
+            }
+
+            @Override
+            int cost() {
+                return 3;
+            }
+        });
+    }
+
+    /**
+     * Only match tasks that have every one of the given labels.
+     *
+     * @param labelIDs IDs of the labels to match
+     *
+     * @return This query, so calls can be chained
+     */
+    public TaskQuery hasLabels(List<Long> labelIDs) {
+        long[] ids = new long[labelIDs.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = labelIDs.get(i);
+        }
+
+        return add(new IndexedCondition() {
+            @Override
+            boolean matches(Task task) {
+                List<Label> labels = task.getLabels();
+
+                for (long id : ids) {
+                    boolean found = false;
+
+                    for (int i = 0; i < labels.size() && !found; i++) {
+                        found = labels.get(i).getID() == id;
+                    }
+
+                    if (!found) {
+                        return false;
+                    }
+                }
+
+                return true;
+            }
+
+            @Override
+            CompressedBitmap resolve(TaskFilterIndex index) {
+                return index.withLabels(ids);
+            }
+
+            @Override
+            int cost() {
+                return 4 + ids.length;
+            }
+        });
+    }
+
+    /**
+     * Only match tasks with at least the given priority.
+     *
+     * @param priority Minimum priority to match
+     *
+     * @return This query, so calls can be chained
+     */
+    public TaskQuery minPriority(int priority) {
+        return add(new IndexedCondition() {
+            @Override
+            boolean matches(Task task) {
+                return task.getPriority() >= priority;
+            }
+
+            @Override
+            CompressedBitmap resolve(TaskFilterIndex index) {
+                return index.withMinPriority(priority);
+            }
+
+            @Override
+            int cost() {
+                return 1;
+            }
+        });
+    }
+
+    /**
+     * Check if a task matches every condition of the query.
+     *
+     * @param task The task to check
+     *
+     * @return true if the task matches the query, false otherwise.
+     */
+    public boolean matches(Task task) {
+        return matches(task, mConditions);
+    }
+
+    /**
+     * Run the query over a list of tasks. Only finds the matches, which are sorted a page at a
+     * time as they are requested from the returned Cursor.
+     *
+     * @param tasks The tasks to search. Must not be modified while the query runs.
+     *
+     * @return A Cursor over the matching tasks. Empty if the query was cancelled.
+     */
+    public Cursor execute(List<Task> tasks) {
+        return execute(tasks, mConditions);
+    }
+
+    /**
+     * Find the tasks that meet every condition the index can answer, by intersecting bitmaps from
+     * the index. Doesn't look at any Task, so it is cheap enough to run while the tasks can still
+     * change, leaving the remaining conditions to executeSelected.
+     *
+     * @param index Index of the tasks to search
+     *
+     * @return The tasks that meet every indexed condition, in no particular order.
+     */
+    public List<Task> select(TaskFilterIndex index) {
+        CompressedBitmap slots = null;
+
+        for (Condition condition : mConditions) {
+            if (condition instanceof IndexedCondition) {
+                CompressedBitmap resolved = ((IndexedCondition) condition).resolve(index);
+                slots = (slots == null) ? resolved : slots.and(resolved);
+            }
+        }
+
+        return index.getTasks(slots == null ? index.all() : slots);
+    }
+
+    /**
+     * Run the conditions select couldn't answer over the tasks it returned.
+     *
+     * @param selected The tasks returned by select. Must not be modified while the query runs.
+     *
+     * @return A Cursor over the matching tasks. Empty if the query was cancelled.
+     */
+    public Cursor executeSelected(List<Task> selected) {
+        List<Condition> residual = new ArrayList<>();
+
+        for (Condition condition : mConditions) {
+            if (!(condition instanceof IndexedCondition)) {
+                residual.add(condition);
+            }
+        }
+
+        return execute(selected, residual);
+    }
+
+    /**
+     * Cancel the query. Any running or future call to execute, and any Cursor it returned, will
+     * stop returning tasks.
+     */
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    /**
+     * Check if the query has been cancelled.
+     *
+     * @return true if the query has been cancelled, false otherwise.
+     */
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Check if a task meets every one of the given conditions.
+     *
+     * @param task The task to check
+     * @param conditions The conditions to check, cheapest first
+     *
+     * @return true if the task meets every condition, false otherwise.
+     */
+    private static boolean matches(Task task, List<Condition> conditions) {
+        for (int i = 0; i < conditions.size(); i++) {
+            if (!conditions.get(i).matches(task)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Find the tasks that meet every one of the given conditions in a single pass.
+     *
+     * @param tasks The tasks to search
+     * @param conditions The conditions to check, cheapest first
+     *
+     * @return A Cursor over the matching tasks. Empty if the query was cancelled.
+     */
+    private Cursor execute(List<Task> tasks, List<Condition> conditions) {
+        List<Task> matches = new ArrayList<>();
+
+        for (int i = 0; i < tasks.size(); i++) {
+            if (i % CANCEL_CHECK_INTERVAL == 0 && mCancelled) {
+                return new Cursor(new ArrayList<>());
+            }
+
+            Task task = tasks.get(i);
+            if (matches(task, conditions)) {
+                matches.add(task);
+            }
+        }
+
+        return new Cursor(matches);
+    }
+
+    /**
+     * Add a condition, keeping the conditions ordered cheapest first.
+     *
+     * @param condition The condition to add
+     *
+     * @return This query, so calls can be chained
+     */
+    private TaskQuery add(Condition condition) {
+        int i = mConditions.size();
+
+        while (i > 0 && mConditions.get(i - 1).cost() > condition.cost()) {
+            i--;
+        }
+
+        mConditions.add(i, condition);
+        return this;
+    }
+
+    /**
+     * Check if a string contains another string, ignoring case, without allocating a lowercase
+     * copy of the string being searched.
+     *
+     * @param string The string to search in
+     * @param search The lowercase string to search for
+     *
+     * @return true if string contains search, ignoring case.
+     */
+    private static boolean containsIgnoreCase(String string, String search) {
+        int last = string.length() - search.length();
+
+        for (int i = 0; i <= last; i++) {
+            if (string.regionMatches(true, i, search, 0, search.length())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the matches of a query in pages, in the order the main screen sorts tasks. Matches
+     * are kept in a heap, so getting a page of k tasks out of n matches costs O(k log n) instead of
+     * sorting every match up front.
+     */
+    public class Cursor {
+        private final PriorityQueue<Task> mRemaining; // Matches not yet returned
+        private final int mCount;                     // Total number of matches
+
+        /**
+         * Creates a Cursor over the given matches.
+         *
+         * @param matches The tasks that matched the query
+         */
+        private Cursor(List<Task> matches) {
+            mCount = matches.size();
+            // Heapifies in linear time
+            mRemaining = new PriorityQueue<>(matches);
+        }
+
+        /**
+         * Check if there are matches left to return.
+         *
+         * @return true if there are matches left and the query hasn't been cancelled.
+         */
+        public boolean hasNext() {
+            return !mRemaining.isEmpty() && !mCancelled;
+        }
+
+        /**
+         * Get the next page of matches.
+         *
+         * @param pageSize Maximum number of tasks to return
+         *
+         * @return Up to pageSize of the remaining matches, in sorted order.
+         */
+        public List<Task> nextPage(int pageSize) {
+            List<Task> page = new ArrayList<>();
+
+            while (page.size() < pageSize && hasNext()) {
+                page.add(mRemaining.poll());
+            }
+
+            return page;
+        }
+
+        /**
+         * Get the total number of tasks that matched the query, including ones already returned.
+         *
+         * @return The number of matches
+         */
+        public int getCount() {
+            return mCount;
+        }
+    }
+}
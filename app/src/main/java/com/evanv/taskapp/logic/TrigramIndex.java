@@ -0,0 +1,415 @@
+package com.evanv.taskapp.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted index from every three character sequence (trigram) in a set of strings to the slots
+ * of the strings containing it. Used to search task names as the user types: a substring search
+ * only has to check the strings that contain every trigram of the search string, and strings with
+ * a typo still share most of their trigrams with what the user typed, so they can be ranked by how
+ * many they share.
+ *
+ * Strings are lowercased and padded with a space on either side before indexing, so the start and
+ * end of words form trigrams too.
+ *
+ * Every method is synchronized, so strings can be searched from a background thread while another
+ * thread changes them.
+ *
+ * @author Evan Voogd
+ */
+public class TrigramIndex {
+    // Fraction of the search's trigrams a string must share to be returned as a typo-tolerant match
+    private static final double MIN_SIMILARITY = 0.5;
+    // Most strings search takes as possible substring matches, and again as possible typos
+    static final int MAX_CANDIDATES = 256;
+
+    private String[] mStrings;                            // Normalized string in each slot
+    private String[] mOriginals;                          // String in each slot as it was added
+    private final Map<Long, CompressedBitmap> mPostings;  // Slots containing each trigram
+    private int mChecked;                                 // Strings the last search looked at
+
+    /**
+     * Creates an empty index.
+     */
+    public TrigramIndex() {
+        mStrings = new String[16];
+        mOriginals = new String[16];
+        mPostings = new HashMap<>();
+    }
+
+    /**
+     * Index a string in a slot, replacing any string already in it.
+     *
+     * @param slot The slot of the string
+     * @param string The string to index
+     */
+    public synchronized void add(int slot, String string) {
+        remove(slot);
+
+        if (slot >= mStrings.length) {
+            mStrings = Arrays.copyOf(mStrings, Math.max(slot + 1, mStrings.length * 2));
+            mOriginals = Arrays.copyOf(mOriginals, mStrings.length);
+        }
+
+        String normalized = normalize(string);
+        mStrings[slot] = normalized;
+        mOriginals[slot] = string;
+
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            long trigram = trigram(normalized, i);
+            CompressedBitmap posting = mPostings.get(trigram);
+
+            if (posting == null) {
+                posting = new CompressedBitmap();
+                mPostings.put(trigram, posting);
+            }
+
+            posting.add(slot);
+        }
+    }
+
+    /**
+     * Remove the string in a slot from the index.
+     *
+     * @param slot The slot to clear
+     */
+    public synchronized void remove(int slot) {
+        if (slot >= mStrings.length || mStrings[slot] == null) {
+            return;
+        }
+
+        String normalized = mStrings[slot];
+        mStrings[slot] = null;
+        mOriginals[slot] = null;
+
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            long trigram = trigram(normalized, i);
+            CompressedBitmap posting = mPostings.get(trigram);
+
+            if (posting != null) {
+                posting.remove(slot);
+
+                if (posting.isEmpty()) {
+                    mPostings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find every string containing the search string, ignoring case. Only strings containing
+     * every trigram of the search string are checked, so the cost depends on the number of strings
+     * sharing the rarest of them rather than on the number of strings in the index. A search too
+     * short to have a trigram of its own only checks the strings with a trigram containing it.
+     *
+     * @param search The string to search for
+     *
+     * @return The slots of every string containing search
+     */
+    public synchronized CompressedBitmap containing(String search) {
+        String query = search.toLowerCase();
+        CompressedBitmap toReturn = new CompressedBitmap();
+        mChecked = 0;
+
+        // Sharing every trigram doesn't mean they're in the right order, so check each candidate
+        for (int slot : substringCandidates(query).toArray()) {
+            if (checkContains(slot, query)) {
+                toReturn.add(slot);
+            }
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Find the strings that best match a search string, tolerating typos. Strings containing the
+     * search string come first, followed by strings that share at least half of the search
+     * string's trigrams, most similar first. Ties are broken by the shorter string.
+     *
+     * At most MAX_CANDIDATES strings are taken as possible substring matches and as many again as
+     * possible typos, so a search for something most strings share costs the same however many
+     * strings there are. When there are more than that, the ones in the lowest slots are used.
+     *
+     * @param search The string to search for
+     *
+     * @return The slots of the matching strings, best match first
+     */
+    public synchronized int[] search(String search) {
+        String query = search.toLowerCase().trim();
+        mChecked = 0;
+
+        if (query.isEmpty()) {
+            return new int[0];
+        }
+
+        String padded = normalize(query);
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(trigram(padded, i));
+        }
+
+        List<CompressedBitmap> postings = new ArrayList<>();
+        for (long trigram : trigrams) {
+            CompressedBitmap posting = mPostings.get(trigram);
+
+            if (posting != null) {
+                postings.add(posting);
+            }
+        }
+        Collections.sort(postings, (a, b) -> a.cardinality() - b.cardinality());
+
+        int minShared = (int) Math.ceil(trigrams.size() * MIN_SIMILARITY);
+
+        // A string sharing minShared of the trigrams can only be missing from the other postings,
+        // so it's in at least one of the rarest (postings.size() - minShared + 1) of them
+        CompressedBitmap candidates = new CompressedBitmap();
+        for (int slot : substringCandidates(query).toArray(MAX_CANDIDATES)) {
+            candidates.add(slot);
+        }
+        int typos = 0;
+        for (int i = 0; i < postings.size() - minShared + 1 && typos < MAX_CANDIDATES; i++) {
+            for (int slot : postings.get(i).toArray(MAX_CANDIDATES - typos)) {
+                candidates.add(slot);
+                typos++;
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (int slot : candidates.toArray()) {
+            boolean substring = checkContains(slot, query);
+
+            int shared = 0;
+            for (CompressedBitmap posting : postings) {
+                if (posting.contains(slot)) {
+                    shared++;
+                }
+            }
+
+            if (substring || shared >= minShared) {
+                matches.add(new Match(slot, substring, shared, mStrings[slot].length()));
+            }
+        }
+
+        Collections.sort(matches);
+
+        int[] toReturn = new int[matches.size()];
+        for (int i = 0; i < toReturn.length; i++) {
+            toReturn[i] = matches.get(i).mSlot;
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Get the distinct strings that best match a search string, in the order search ranks them.
+     * Strings are compared as they were added, so duplicates are dropped before the page is cut.
+     *
+     * @param search The string to search for
+     * @param offset Number of distinct matches to skip, for paging
+     * @param count Maximum number of matches to return
+     *
+     * @return Up to count of the matching strings as they were added, best match first
+     */
+    public synchronized List<String> suggest(String search, int offset, int count) {
+        List<String> toReturn = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+
+        for (int slot : search(search)) {
+            if (toReturn.size() == count) {
+                break;
+            }
+
+            if (seen.add(mOriginals[slot]) && seen.size() > offset) {
+                toReturn.add(mOriginals[slot]);
+            }
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Find the strings that could contain a lowercase query: those with every trigram of the
+     * query, or for a query too short to have a trigram, those with a trigram containing it.
+     *
+     * @param query The lowercase query
+     *
+     * @return The slots of the strings that could contain query, which must still be checked
+     */
+    private CompressedBitmap substringCandidates(String query) {
+        if (query.isEmpty()) {
+            return new CompressedBitmap();
+        }
+
+        // Every character of a string is in some trigram, as strings are padded on either side
+        if (query.length() < 3) {
+            CompressedBitmap candidates = new CompressedBitmap();
+
+            for (Map.Entry<Long, CompressedBitmap> entry : mPostings.entrySet()) {
+                if (trigramContains(entry.getKey(), query)) {
+                    candidates = candidates.or(entry.getValue());
+                }
+            }
+
+            return candidates;
+        }
+
+        List<CompressedBitmap> postings = new ArrayList<>();
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            CompressedBitmap posting = mPostings.get(trigram(query, i));
+
+            if (posting == null) {
+                return new CompressedBitmap();
+            }
+
+            postings.add(posting);
+        }
+
+        // Intersect the smallest postings first so the candidate set shrinks as fast as possible
+        Collections.sort(postings, (a, b) -> a.cardinality() - b.cardinality());
+        CompressedBitmap candidates = postings.get(0);
+        for (int i = 1; i < postings.size() && !candidates.isEmpty(); i++) {
+            candidates = candidates.and(postings.get(i));
+        }
+
+        return candidates;
+    }
+
+    /**
+     * Get the number of strings the last call to containing or search compared against the
+     * search string. Lets tests check how much work a search does without timing it.
+     *
+     * @return The number of strings looked at
+     */
+    synchronized int getLastChecked() {
+        return mChecked;
+    }
+
+    /**
+     * Check if the string in a slot contains a lowercase query, counting it as looked at.
+     *
+     * @param slot The slot of the string
+     * @param query The lowercase query
+     *
+     * @return true if the string contains query, false otherwise.
+     */
+    private boolean checkContains(int slot, String query) {
+        mChecked++;
+        return contains(mStrings[slot], query);
+    }
+
+    /**
+     * Lowercase a string and pad it with a space on either side.
+     *
+     * @param string The string to normalize
+     *
+     * @return The normalized string
+     */
+    private static String normalize(String string) {
+        return " " + string.toLowerCase() + " ";
+    }
+
+    /**
+     * Check if a normalized string contains a lowercase query, not counting the padding.
+     *
+     * @param normalized The normalized string
+     * @param query The lowercase query
+     *
+     * @return true if the original string contains query, false otherwise.
+     */
+    private static boolean contains(String normalized, String query) {
+        // Later occurrences end later, so only the first one can end before the padding
+        int i = normalized.indexOf(query, 1);
+
+        return i != -1 && i + query.length() < normalized.length();
+    }
+
+    /**
+     * Check if a packed trigram contains a lowercase query of one or two characters.
+     *
+     * @param trigram The packed trigram
+     * @param query The query
+     *
+     * @return true if the trigram's characters contain query, false otherwise.
+     */
+    private static boolean trigramContains(long trigram, String query) {
+        char first = (char) (trigram >>> 32);
+        char second = (char) (trigram >>> 16);
+        char third = (char) trigram;
+        char q = query.charAt(0);
+
+        if (query.length() == 1) {
+            return first == q || second == q || third == q;
+        }
+
+        char r = query.charAt(1);
+        return (first == q && second == r) || (second == q && third == r);
+    }
+
+    /**
+     * Pack the three characters of a string starting at an index into a long, so trigrams can be
+     * used as keys without making a substring.
+     *
+     * @param string The string
+     * @param i Index of the first character of the trigram
+     *
+     * @return The trigram packed into a long
+     */
+    private static long trigram(String string, int i) {
+        return ((long) string.charAt(i) << 32) | ((long) string.charAt(i + 1) << 16)
+                | string.charAt(i + 2);
+    }
+
+    /**
+     * A string that matched a search, ordered best match first.
+     */
+    private static class Match implements Comparable<Match> {
+        private final int mSlot;           // Slot of the string
+        private final boolean mSubstring;  // true if the string contains the search string
+        private final int mShared;         // Number of trigrams shared with the search string
+        private final int mLength;         // Length of the string
+
+        /**
+         * Creates a Match.
+         *
+         * @param slot Slot of the string
+         * @param substring true if the string contains the search string
+         * @param shared Number of trigrams shared with the search string
+         * @param length Length of the string
+         */
+        Match(int slot, boolean substring, int shared, int length) {
+            mSlot = slot;
+            mSubstring = substring;
+            mShared = shared;
+            mLength = length;
+        }
+
+        /**
+         * Compare to another match, better matches first.
+         *
+         * @param other The match to compare to
+         *
+         * @return negative if this is a better match than other, positive if it's worse
+         */
+        @Override
+        public int compareTo(Match other) {
+            if (mSubstring != other.mSubstring) {
+                return mSubstring ? -1 : 1;
+            }
+            if (mShared != other.mShared) {
+                return other.mShared - mShared;
+            }
+            if (mLength != other.mLength) {
+                return mLength - other.mLength;
+            }
+
+            return mSlot - other.mSlot;
+        }
+    }
+}
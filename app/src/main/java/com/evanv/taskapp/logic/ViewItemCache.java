@@ -0,0 +1,142 @@
+package com.evanv.taskapp.logic;
+
+import com.evanv.taskapp.ui.main.recycler.EventItem;
+import com.evanv.taskapp.ui.main.recycler.TaskItem;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Cache of the TaskItems and EventItems shown in the schedule. Each item is stored alongside the
+ * version of the Task or Event it was built from, and is reused until that version changes, so
+ * re-rendering a day after an edit somewhere else doesn't rebuild every item on it.
+ *
+ * Views also depend on things outside the Task/Event (e.g. the names and colors of Projects and
+ * Labels), so the cache must be cleared whenever one of those changes.
+ *
+ * @author Evan Voogd
+ */
+public class ViewItemCache {
+    private final Map<Task, Entry<TaskItem>> mTaskItems;    // Last TaskItem built for each Task
+    private final Map<Event, Entry<EventItem>> mEventItems; // Last EventItem built for each Event
+
+    /**
+     * Creates an empty cache.
+     */
+    public ViewItemCache() {
+        mTaskItems = new IdentityHashMap<>();
+        mEventItems = new IdentityHashMap<>();
+    }
+
+    /**
+     * Get the cached TaskItem for a Task, if it's still up to date.
+     *
+     * @param task The Task to get the TaskItem for
+     * @param position Position of the Task in its day
+     * @param timed true if the Task is currently being timed
+     *
+     * @return The cached TaskItem, or null if there isn't one or the task has changed since
+     */
+    public TaskItem getTaskItem(Task task, int position, boolean timed) {
+        Entry<TaskItem> entry = mTaskItems.get(task);
+
+        if (entry == null || entry.mVersion != task.getVersion() || entry.mPosition != position
+                || entry.mTimed != timed) {
+            return null;
+        }
+
+        return entry.mItem;
+    }
+
+    /**
+     * Cache the TaskItem built for a Task.
+     *
+     * @param task The Task the TaskItem was built from
+     * @param position Position of the Task in its day
+     * @param timed true if the Task is currently being timed
+     * @param item The TaskItem
+     */
+    public void putTaskItem(Task task, int position, boolean timed, TaskItem item) {
+        mTaskItems.put(task, new Entry<>(item, task.getVersion(), position, timed));
+    }
+
+    /**
+     * Get the cached EventItem for an Event, if it's still up to date.
+     *
+     * @param event The Event to get the EventItem for
+     *
+     * @return The cached EventItem, or null if there isn't one or the event has changed since
+     */
+    public EventItem getEventItem(Event event) {
+        Entry<EventItem> entry = mEventItems.get(event);
+
+        if (entry == null || entry.mVersion != event.getVersion()) {
+            return null;
+        }
+
+        return entry.mItem;
+    }
+
+    /**
+     * Cache the EventItem built for an Event.
+     *
+     * @param event The Event the EventItem was built from
+     * @param item The EventItem
+     */
+    public void putEventItem(Event event, EventItem item) {
+        mEventItems.put(event, new Entry<>(item, event.getVersion(), 0, false));
+    }
+
+    /**
+     * Drop the cached TaskItem for a Task that's no longer shown.
+     *
+     * @param task The Task to drop
+     */
+    public void remove(Task task) {
+        mTaskItems.remove(task);
+    }
+
+    /**
+     * Drop the cached EventItem for an Event that's no longer shown.
+     *
+     * @param event The Event to drop
+     */
+    public void remove(Event event) {
+        mEventItems.remove(event);
+    }
+
+    /**
+     * Drop every cached item, e.g. after a Project or Label is renamed.
+     */
+    public void clear() {
+        mTaskItems.clear();
+        mEventItems.clear();
+    }
+
+    /**
+     * A cached item, along with what it was built from.
+     *
+     * @param <T> Type of the item
+     */
+    private static class Entry<T> {
+        private final T mItem;          // The item
+        private final int mVersion;     // Version of the Task/Event it was built from
+        private final int mPosition;    // Position it was built with
+        private final boolean mTimed;   // true if it was built showing the timer
+
+        /**
+         * Creates a cached item.
+         *
+         * @param item The item
+         * @param version Version of the Task/Event it was built from
+         * @param position Position it was built with
+         * @param timed true if it was built showing the timer
+         */
+        Entry(T item, int version, int position, boolean timed) {
+            mItem = item;
+            mVersion = version;
+            mPosition = position;
+            mTimed = timed;
+        }
+    }
+}
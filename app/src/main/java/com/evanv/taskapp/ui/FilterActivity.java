@@ -24,8 +24,10 @@ import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
+import android.widget.AutoCompleteTextView;
 import android.widget.CheckBox;
 import android.widget.EditText;
+import android.widget.Filter;
 import android.widget.ImageView;
 import android.widget.ListView;
 import android.widget.SeekBar;
@@ -53,6 +55,8 @@ import java.util.Objects;
  */
 @InternalPlatformTextApi
 public class FilterActivity extends AppCompatActivity {
+    private static final int NUM_SUGGESTIONS = 8; // Max task names to suggest while typing
+
     private long mStartDate;    // Holds the user selected start date
     private long mEndDate;      // Holds the user selected end date
     private long mProject;      // Holds the ID of the user selected project
@@ -90,6 +94,10 @@ public class FilterActivity extends AppCompatActivity {
 
         findViewById(R.id.searchButton).setOnClickListener(this::search);
 
+        // Suggest task names as the user types
+        AutoCompleteTextView nameET = findViewById(R.id.editTextName);
+        nameET.setAdapter(new NameSuggestionAdapter(this));
+
         // Make starting text bold
         setText("None Chosen", findViewById(R.id.startDateLabel),
                 getString(R.string.start_date_replace));
@@ -403,6 +411,79 @@ public class FilterActivity extends AppCompatActivity {
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Suggests task names matching what the user has typed into the name field, using the
+     * LogicSubsystem's name index so suggestions keep up with typing regardless of task count.
+     * The name index is synchronized and caps how many names a search looks at, so it's searched
+     * on the filter's background thread without holding up the UI.
+     */
+    private static class NameSuggestionAdapter extends ArrayAdapter<String> {
+        // Looks up suggestions in the background as the user types
+        private final Filter mFilter = new Filter() {
+            /**
+             * Search task names for the text typed so far. Runs on the filter's background
+             * thread.
+             *
+             * @param constraint The text typed so far
+             *
+             * @return The suggested names, as the results' values
+             */
+            @Override
+            protected FilterResults performFiltering(CharSequence constraint) {
+                FilterResults results = new FilterResults();
+                LogicSubsystem logicSubsystem = LogicSubsystem.getInstance();
+
+                List<String> names = new ArrayList<>();
+                if (constraint != null && logicSubsystem != null) {
+                    names = logicSubsystem.searchTaskNames(constraint.toString(), 0,
+                            NUM_SUGGESTIONS);
+                }
+
+                results.values = names;
+                results.count = names.size();
+                return results;
+            }
+
+            /**
+             * Show the suggested names.
+             *
+             * @param constraint The text typed so far
+             * @param results The suggested names, from performFiltering
+             */
+            @Override
+            @SuppressWarnings("unchecked")
+            protected void publishResults(CharSequence constraint, FilterResults results) {
+                clear();
+
+                if (results.values != null) {
+                    addAll((List<String>) results.values);
+                }
+
+                notifyDataSetChanged();
+            }
+        };
+
+        /**
+         * Create a new name suggestion adapter
+         *
+         * @param context Context for resources
+         */
+        public NameSuggestionAdapter(Context context) {
+            super(context, android.R.layout.simple_dropdown_item_1line);
+        }
+
+        /**
+         * Get the filter that looks up suggestions.
+         *
+         * @return The filter that looks up suggestions
+         */
+        @NonNull
+        @Override
+        public Filter getFilter() {
+            return mFilter;
+        }
+    }
+
     /**
      * Handles the pick project dialog
      *
@@ -625,7 +706,7 @@ public class FilterActivity extends AppCompatActivity {
     }
 
     /**
-     * Updates todayTime in SharedPreferences
+     * Updates todayTime in SharedPreferences, and commits queued changes to the database
      */
     @Override
     protected void onPause() {
@@ -639,6 +720,9 @@ public class FilterActivity extends AppCompatActivity {
             edit.putLong(MainActivity.PREF_TIMER, LogicSubsystem.getInstance().getTimerStart());
 
             edit.apply();
+
+            // Don't leave changes waiting in memory while the app could be killed
+            LogicSubsystem.getInstance().flush();
         }
 
         super.onPause();
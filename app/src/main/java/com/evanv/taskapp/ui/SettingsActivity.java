@@ -79,7 +79,7 @@ import java.util.Objects;
     }
 
     /**
-     * Updates todayTime in SharedPreferences
+     * Updates todayTime in SharedPreferences, and commits queued changes to the database
      */
     @Override
     protected void onPause() {
@@ -92,6 +92,9 @@ import java.util.Objects;
         edit.putLong(MainActivity.PREF_TIMER, LogicSubsystem.getInstance().getTimerStart());
 
         edit.apply();
+
+        // Don't leave changes waiting in memory while the app could be killed
+        LogicSubsystem.getInstance().flush();
         super.onPause();
     }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@ import android.widget.EditText;
 
 import com.evanv.taskapp.R;
 import com.evanv.taskapp.logic.LogicSubsystem;
+import com.evanv.taskapp.logic.TaskQuery;
 import com.evanv.taskapp.ui.additem.TaskEntry;
 import com.evanv.taskapp.ui.main.ClickListener;
 import com.evanv.taskapp.ui.main.MainActivity;
@@ -57,6 +58,8 @@ public class TaskListActivity extends AppCompatActivity implements ClickListener
     // Key for the value of the priority.
     public static final String EXTRA_PRIORITY = "com.evanv.taskapp.ui.TaskListActivity.EXTRA_PRIORITY";
 
+    private static final int PAGE_SIZE = 50; // Number of tasks added to the list at a time
+
     private TaskItemAdapter mAdapter; // The adapter for the recycler
 
     private List<Long> mIDs;          // List of IDs for each task in the task list
@@ -65,9 +68,10 @@ public class TaskListActivity extends AppCompatActivity implements ClickListener
     private int mDay;                 // Day of the selected task.
     private long mID;                 // ID of the currently selected task.
     private Thread mOptimizer;        // Holds optimizer thread if currently available.
+    private TaskQuery mQuery;         // Query filling the task list, cancelled when finished
 
     /**
-     * Updates todayTime in SharedPreferences
+     * Updates todayTime in SharedPreferences, and commits queued changes to the database
      */
     @Override
     protected void onPause() {
@@ -80,6 +84,9 @@ public class TaskListActivity extends AppCompatActivity implements ClickListener
         edit.putLong(MainActivity.PREF_TIMER, LogicSubsystem.getInstance().getTimerStart());
 
         edit.apply();
+
+        // Don't leave changes waiting in memory while the app could be killed
+        LogicSubsystem.getInstance().flush();
         super.onPause();
     }
 
@@ -118,27 +125,60 @@ public class TaskListActivity extends AppCompatActivity implements ClickListener
             return;
         }
 
-        List<TaskItem> taskItemList = getLogicSubsystem().filter(startDate, endDate,
-                project, name, minTime, maxTime, completable, labels, priority, this);
-
         mIDs = new ArrayList<>();
-        for (TaskItem item : taskItemList) {
-            mIDs.add(item.getID());
-        }
 
         RecyclerView recycler = findViewById(R.id.projects_recyclerview);
         LinearLayoutManager layoutManager = new LinearLayoutManager(this);
         mAdapter = new TaskItemAdapter
-                (taskItemList, this, -1, null, this);
+                (new ArrayList<>(), this, -1, null, this);
         recycler.setAdapter(mAdapter);
         recycler.setLayoutManager(layoutManager);
 
+        // Show matching tasks a page at a time as the query finds them
+        mQuery = getLogicSubsystem().buildQuery(startDate, endDate, project, name, minTime,
+                maxTime, completable, labels, priority);
+        getLogicSubsystem().filter(mQuery, PAGE_SIZE, (page, last) -> addPage(page), this);
+
         mPosition = -1;
         mID = -1;
         mOptimizer = null;
 
     }
 
+    /**
+     * Stops the query filling the task list if it's still running.
+     */
+    @Override
+    protected void onDestroy() {
+        if (mQuery != null) {
+            mQuery.cancel();
+        }
+
+        super.onDestroy();
+    }
+
+    /**
+     * Add a page of tasks from the query to the end of the task list.
+     *
+     * @param page The TaskItems to add
+     */
+    private void addPage(List<TaskItem> page) {
+        if (mQuery.isCancelled() || page.isEmpty()) {
+            return;
+        }
+
+        int start = mAdapter.mTaskItemList.size();
+
+        // Items may have been removed from the list since the page was built
+        for (int i = 0; i < page.size(); i++) {
+            TaskItem item = page.get(i).withIndex(start + i);
+            mAdapter.mTaskItemList.add(item);
+            mIDs.add(item.getID());
+        }
+
+        mAdapter.notifyItemRangeInserted(start, page.size());
+    }
+
     /**
      * On activity result update recycler
      */
@@ -459,7 +499,7 @@ public class TaskListActivity extends AppCompatActivity implements ClickListener
         // Update the indices of the recycler so all items know their new positions.
         for (int i = index; i < mAdapter.mTaskItemList.size(); i++) {
             TaskItem curr = mAdapter.mTaskItemList.get(i);
-            curr.setIndex(curr.getIndex() - 1);
+            mAdapter.mTaskItemList.set(i, curr.withIndex(curr.getIndex() - 1));
         }
 
         optimize();
@@ -1,12 +1,16 @@
 package com.evanv.taskapp.ui.main;
 
+import android.Manifest;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
 
 import android.view.ContextMenu;
 import android.view.LayoutInflater;
@@ -14,6 +18,7 @@ import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.EditText;
+import android.widget.Toast;
 import android.widget.ViewFlipper;
 
 import androidx.activity.result.ActivityResultLauncher;
@@ -22,23 +27,32 @@ import androidx.appcompat.app.ActionBarDrawerToggle;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.compose.ui.text.android.InternalPlatformTextApi;
+import androidx.core.content.ContextCompat;
 import androidx.coordinatorlayout.widget.CoordinatorLayout;
 import androidx.drawerlayout.widget.DrawerLayout;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.preference.PreferenceManager;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.evanv.taskapp.R;
 import com.evanv.taskapp.databinding.ActivityMainBinding;
+import com.evanv.taskapp.db.TaskAppViewModel;
+import com.evanv.taskapp.db.WriteQueue;
+import com.evanv.taskapp.logic.CalendarProviderSource;
+import com.evanv.taskapp.logic.CalendarSync;
+import com.evanv.taskapp.logic.ICalendarReader;
 import com.evanv.taskapp.logic.LogicSubsystem;
+import com.evanv.taskapp.logic.ScheduleChange;
+import com.evanv.taskapp.logic.StartupPreview;
 import com.evanv.taskapp.ui.FilterActivity;
 import com.evanv.taskapp.ui.LabelsActivity;
 import com.evanv.taskapp.ui.SettingsActivity;
 import com.evanv.taskapp.ui.TaskListActivity;
 import com.evanv.taskapp.ui.additem.EventEntry;
 import com.evanv.taskapp.ui.additem.TaskEntry;
-import com.evanv.taskapp.ui.main.recycler.DayItem;
 import com.evanv.taskapp.ui.main.recycler.DayItemAdapter;
+import com.evanv.taskapp.ui.main.recycler.PagedDayList;
 import com.evanv.taskapp.ui.projects.ProjectActivity;
 import com.google.android.material.behavior.HideBottomViewOnScrollBehavior;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
@@ -46,6 +60,14 @@ import com.google.android.material.navigation.NavigationView;
 
 import org.threeten.bp.LocalDate;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -72,20 +94,35 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
     private int mPosition;                         // Position of button press
     private int mDay;                              // Day of button press
     private boolean isFABOpen;                     // Is the fab vertically expanded
+    private boolean mLoaded;                       // Is the full schedule being shown
+    private long mCreateTime;                      // elapsedRealtime when onCreate was called
     // Allows data to be pulled from activity
     private ActivityResultLauncher<Intent> mUpdateUILauncher;
+    // Lets the user pick an iCalendar file to import
+    private ActivityResultLauncher<String> mImportLauncher;
+    // Asks for permission to read the device's calendars
+    private ActivityResultLauncher<String> mCalendarPermissionLauncher;
+    // Lets the user pick where to save a backup
+    private ActivityResultLauncher<String> mExportLauncher;
+    // Lets the user pick a backup to restore
+    private ActivityResultLauncher<String[]> mRestoreLauncher;
+    private boolean mSyncing;                      // Is a calendar sync running
 
     // Key for the extra that stores the type of edit
     public static final String EXTRA_TYPE = "com.evanv.taskapp.ui.main.extras.TYPE";
     // Key for the extra that stores the ID of the item to edit
     public static final String EXTRA_ID = "com.evanv.taskapp.ui.main.extras.ID";
 
+    private static final String TAG = "MainActivity"; // Tag for timing logs
+
     // Keys into SharedPrefs to store todayTime
     public static final String PREF_FILE = "taskappPrefs"; // File name for sharedPrefs
     public static final String PREF_DAY = "taskappDay";    // Day for todayTime
     public static final String PREF_TIME = "taskappTime";  // Time for todayTime
     public static final String PREF_TIMED_TASK = "taskappTimerTask"; // TaskID for timer
     public static final String PREF_TIMER = "taskappTimerStart"; // Start Date for the timer
+    // Whether the device's calendars are mirrored into the schedule
+    public static final String PREF_SYNC_CALENDARS = "taskappSyncCalendars";
     private boolean mSubtractTTCOnTimerPause = false;
 
     /**
@@ -98,6 +135,9 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
+        // Startup is timed from here to the first frame of the schedule
+        mCreateTime = SystemClock.elapsedRealtime();
+
         // Create layout
         mBinding = ActivityMainBinding.inflate(getLayoutInflater());
         setContentView(mBinding.getRoot());
@@ -124,18 +164,98 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
         long timedTaskID = sp.getLong(PREF_TIMED_TASK, -1);
         long timerStart = sp.getLong(PREF_TIMER, -1);
 
+        // Will eventually return info from projects
+        mUpdateUILauncher = registerForActivityResult(
+                new ActivityResultContracts.StartActivityForResult(),
+                result -> updateRecycler());
+        mImportLauncher = registerForActivityResult(new ActivityResultContracts.GetContent(),
+                this::importCalendar);
+        mExportLauncher = registerForActivityResult(
+                new ActivityResultContracts.CreateDocument("application/octet-stream"),
+                this::exportBackup);
+        mRestoreLauncher = registerForActivityResult(new ActivityResultContracts.OpenDocument(),
+                this::restoreBackup);
+        mCalendarPermissionLauncher = registerForActivityResult(
+                new ActivityResultContracts.RequestPermission(), granted -> {
+                    getSharedPreferences(PREF_FILE, MODE_PRIVATE).edit()
+                            .putBoolean(PREF_SYNC_CALENDARS, granted).apply();
+                    if (granted) {
+                        syncCalendars();
+                    }
+                });
+
+        // Adds the action bar at the top of the screen
+        setSupportActionBar(mBinding.toolbar);
+
+        mVF = findViewById(R.id.vf);
         mLogicSubsystem = LogicSubsystem.getInstance();
 
         if (mLogicSubsystem == null) {
-            mLogicSubsystem = new LogicSubsystem(this, todayTime, timedTaskID, timerStart,
-                    enableConsistency);
+            // Creating the ViewModel doesn't touch the database, so it's fine on the UI thread
+            TaskAppViewModel viewModel = new ViewModelProvider(this).get(TaskAppViewModel.class);
+            int startTodayTime = todayTime;
+
+            // Show today's and tomorrow's schedule from two narrow queries while the rest of the
+            // model loads, so the first frame doesn't wait on every task the user has
+            new Thread(() -> {
+                StartupPreview preview = new StartupPreview(viewModel, mStartDate, startTodayTime,
+                        timedTaskID, this);
+                runOnUiThread(() -> showPreview(preview));
+            }).start();
+
+            // Load everything else, then handle overdue tasks once it's ready
+            new Thread(() -> {
+                LogicSubsystem logicSubsystem = LogicSubsystem.create(viewModel, startTodayTime,
+                        timedTaskID, timerStart, enableConsistency);
+                runOnUiThread(() -> {
+                    if (isDestroyed()) {
+                        return;
+                    }
+
+                    mLogicSubsystem = logicSubsystem;
+                    handleOverdueTasks(assumeOverdueIncomplete);
+                });
+            }).start();
         }
+        else {
+            handleOverdueTasks(assumeOverdueIncomplete);
+        }
+    }
 
-        // Will eventually return info from projects
-        mUpdateUILauncher = registerForActivityResult(
-                new ActivityResultContracts.StartActivityForResult(),
-                result -> updateRecycler());
+    /**
+     * Shows the first days of the schedule while the rest of the app loads. The preview's buttons
+     * do nothing, as there's nothing to act on until the LogicSubsystem has loaded.
+     *
+     * @param preview The first days of the schedule
+     */
+    private void showPreview(StartupPreview preview) {
+        // The full schedule is already up, or the activity is gone
+        if (mLoaded || isDestroyed()) {
+            return;
+        }
+
+        RecyclerView dayRecyclerView = findViewById(R.id.main_recyclerview);
+        dayRecyclerView.setLayoutManager(new LinearLayoutManager(MainActivity.this));
+        dayRecyclerView.setAdapter(new DayItemAdapter(
+                new PagedDayList(preview.getNumDays(), preview::getDay),
+                (position, day, action, id) -> { }, this));
+
+        // Nothing is scheduled soon, so keep showing the loading screen until we know whether
+        // there are any entries at all
+        if (!preview.isEmpty()) {
+            mVF.setDisplayedChild(1);
+            dayRecyclerView.post(() -> Log.i(TAG, "First frame after " +
+                    (SystemClock.elapsedRealtime() - mCreateTime) + "ms"));
+        }
+    }
 
+    /**
+     * Makes sure the user has handled any overdue tasks before the schedule is shown.
+     *
+     * @param assumeOverdueIncomplete true if overdue tasks should be assumed to be incomplete
+     *                                instead of asking the user
+     */
+    private void handleOverdueTasks(boolean assumeOverdueIncomplete) {
         String[] overdueNames;
         try {
             overdueNames = mLogicSubsystem.getOverdueTasks(this);
@@ -227,18 +347,35 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
      *                   reoptimize it
      */
     private void finishProcessing(boolean reoptimize) {
-        List<DayItem> recyclerData = mLogicSubsystem.prepForDisplay(reoptimize, this);
+        // Events are sorted into the schedule and the schedule is reoptimized in the background,
+        // so the preview stays responsive while they run
+        new Thread(() -> {
+            mLogicSubsystem.prepForDisplay(reoptimize);
+            runOnUiThread(() -> {
+                if (!isDestroyed()) {
+                    showSchedule();
+                }
+            });
+        }).start();
+    }
 
-        // Initialize the main recyclerview with data calculated in helper function DayItemList
+    /**
+     * Replaces the loading screen or the preview with the full schedule, and enables the parts
+     * of the UI that need the LogicSubsystem.
+     */
+    private void showSchedule() {
+        // Initialize the main recyclerview. Days are only built by DayItemHelper as they're
+        // scrolled into view, so startup doesn't depend on how far ahead events are scheduled.
+        // Every day is new, so the changes made while loading don't need to be sent.
+        int numDays = mLogicSubsystem.publishChanges().getNumDays();
+        PagedDayList recyclerData = new PagedDayList(numDays,
+                index -> mLogicSubsystem.DayItemHelper(index, this));
         RecyclerView dayRecyclerView = findViewById(R.id.main_recyclerview);
         LinearLayoutManager layoutManager = new LinearLayoutManager(MainActivity.this);
         mDayItemAdapter = new DayItemAdapter(recyclerData, this, this);
         dayRecyclerView.setAdapter(mDayItemAdapter);
         dayRecyclerView.setLayoutManager(layoutManager);
 
-        // Adds the action bar at the top of the screen
-        setSupportActionBar(mBinding.toolbar);
-
         Objects.requireNonNull(getSupportActionBar()).setDisplayHomeAsUpEnabled(true);
 
         DrawerLayout drawerLayout = findViewById(R.id.drawerLayout);
@@ -280,8 +417,6 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
         });
 
         // Make visible the main content
-        mVF = findViewById(R.id.vf);
-
         if (!mLogicSubsystem.isEmpty()) {
             mVF.setDisplayedChild(1);
         }
@@ -296,6 +431,54 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
         if (fabBehaviorTask != null) {
             fabBehaviorTask.addOnScrollStateChangedListener((bottomView, newState) -> closeFAB());
         }
+
+        mLoaded = true;
+        Log.i(TAG, "Full schedule after " + (SystemClock.elapsedRealtime() - mCreateTime) + "ms");
+        reportFullyDrawn();
+
+        syncCalendars();
+    }
+
+    /**
+     * Catches up with any changes made to the device's calendars while the app was away.
+     */
+    @Override
+    protected void onResume() {
+        super.onResume();
+
+        if (mLoaded) {
+            syncCalendars();
+        }
+    }
+
+    /**
+     * Mirrors the device's calendars into the schedule, if the user turned it on and the
+     * permission is still granted. Changes are read in the background and applied on the UI
+     * thread in one pass, then the schedule is optimized once. If no calendar changed, nothing is
+     * written or redrawn.
+     */
+    private void syncCalendars() {
+        boolean enabled = getSharedPreferences(PREF_FILE, MODE_PRIVATE)
+                .getBoolean(PREF_SYNC_CALENDARS, false);
+        if (mSyncing || !enabled || ContextCompat.checkSelfPermission(this,
+                Manifest.permission.READ_CALENDAR) != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+
+        mSyncing = true;
+        CalendarProviderSource source = new CalendarProviderSource(getContentResolver());
+        new Thread(() -> {
+            CalendarSync.ChangeSet changes = mLogicSubsystem.readCalendarChanges(source);
+
+            runOnUiThread(() -> {
+                mSyncing = false;
+                // A backup being restored replaces the model, so the changes would be lost
+                if (!changes.isEmpty() && mLoaded && !isDestroyed()
+                        && mLogicSubsystem.applyCalendarChanges(changes, this)) {
+                    new Thread(new OptimizeRunnable()).start();
+                }
+            });
+        }).start();
     }
 
     /**
@@ -335,6 +518,12 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
      */
     @Override
     protected void onPause() {
+        // Nothing to save until the LogicSubsystem has loaded
+        if (mLogicSubsystem == null) {
+            super.onPause();
+            return;
+        }
+
         // Update todayTime in SharedPreferences
         SharedPreferences sp = getSharedPreferences(PREF_FILE, MODE_PRIVATE);
         SharedPreferences.Editor edit = sp.edit();
@@ -344,9 +533,42 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
         edit.putLong(PREF_TIMER, mLogicSubsystem.getTimerStart());
 
         edit.apply();
+
+        // Don't leave changes waiting in memory while the app could be killed
+        mLogicSubsystem.flush();
+        WriteQueue writes = mLogicSubsystem.getWriteQueue();
+        Log.i(TAG, "Write queue: depth " + writes.getDepth() + ", " + writes.getCommits() +
+                " commits of " + writes.getWrites() + " writes (" + writes.getCoalesced() +
+                " coalesced), commit latency avg " + writes.getAverageCommitMs() + "ms, max " +
+                writes.getMaxCommitMs() + "ms, " + writes.getDropped() + " dropped");
+
         super.onPause();
     }
 
+    /**
+     * Drops the days that aren't on screen when the system is running low on memory. They're
+     * rebuilt if the user scrolls back to them.
+     *
+     * @param level The context of the trim
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        if (mDayItemAdapter == null) {
+            return;
+        }
+
+        RecyclerView dayRecyclerView = findViewById(R.id.main_recyclerview);
+        LinearLayoutManager layoutManager =
+                (LinearLayoutManager) dayRecyclerView.getLayoutManager();
+
+        if (layoutManager != null) {
+            mDayItemAdapter.mDayItemList.trim(layoutManager.findFirstVisibleItemPosition(),
+                    layoutManager.findLastVisibleItemPosition());
+        }
+    }
+
     /**
      * Launch the TaskEntry Bottom Sheet
      */
@@ -390,6 +612,164 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
         thread.start();
     }
 
+    /**
+     * Imports the events in an iCalendar file the user picked. The file is read in the
+     * background, the events are added on the UI thread, then the schedule is optimized once.
+     *
+     * @param uri The file, or null if the user didn't pick one
+     */
+    private void importCalendar(Uri uri) {
+        if (uri == null) {
+            return;
+        }
+
+        new Thread(() -> {
+            List<ICalendarReader.Entry> entries;
+            try (InputStream in = getContentResolver().openInputStream(uri)) {
+                if (in == null) {
+                    throw new IOException("No stream for " + uri);
+                }
+                entries = mLogicSubsystem.readCalendar(
+                        new InputStreamReader(in, StandardCharsets.UTF_8), this);
+            } catch (IOException e) {
+                Log.e(TAG, "Couldn't import " + uri, e);
+                runOnUiThread(() -> Toast.makeText(this, R.string.calendar_import_failed,
+                        Toast.LENGTH_LONG).show());
+                return;
+            }
+
+            runOnUiThread(() -> {
+                mLogicSubsystem.addImportedEvents(entries);
+                Toast.makeText(this, getString(R.string.calendar_imported, entries.size()),
+                        Toast.LENGTH_LONG).show();
+                new Thread(new OptimizeRunnable()).start();
+            });
+        }).start();
+    }
+
+    /**
+     * Writes a backup of every project, label, series, task and event to a file the user picked.
+     * The backup is written to a file in the cache first, in the background, then copied over.
+     *
+     * @param uri The file, or null if the user didn't pick one
+     */
+    private void exportBackup(Uri uri) {
+        if (uri == null) {
+            return;
+        }
+
+        TaskAppViewModel viewModel = new ViewModelProvider(this).get(TaskAppViewModel.class);
+        mLogicSubsystem.flush();
+
+        new Thread(() -> {
+            long rows;
+            File temp = null;
+            try {
+                temp = File.createTempFile("backup", ".bin", getCacheDir());
+                rows = viewModel.exportTo(temp);
+
+                try (InputStream in = new FileInputStream(temp);
+                     OutputStream out = getContentResolver().openOutputStream(uri)) {
+                    if (out == null) {
+                        throw new IOException("No stream for " + uri);
+                    }
+                    copy(in, out);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Couldn't export to " + uri, e);
+                runOnUiThread(() -> Toast.makeText(this, R.string.backup_export_failed,
+                        Toast.LENGTH_LONG).show());
+                return;
+            } finally {
+                if (temp != null) {
+                    //noinspection ResultOfMethodCallIgnored
+                    temp.delete();
+                }
+            }
+
+            runOnUiThread(() -> Toast.makeText(this, getString(R.string.backup_exported, rows),
+                    Toast.LENGTH_LONG).show());
+        }).start();
+    }
+
+    /**
+     * Replaces everything with a backup the user picked, once they confirm. The model is dropped
+     * and the loading screen shown first, so nothing changes while the backup is restored, then
+     * the activity is recreated to load the model again whether or not it worked. A backup that
+     * can't be read leaves the database as it was.
+     *
+     * @param uri The file, or null if the user didn't pick one
+     */
+    private void restoreBackup(Uri uri) {
+        if (uri == null || !mLoaded) {
+            return;
+        }
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this);
+        builder.setTitle(R.string.import_backup);
+        builder.setMessage(R.string.import_backup_confirm);
+        builder.setNegativeButton("Cancel", (dialogInterface, i) -> {});
+        builder.setPositiveButton(R.string.import_backup, (d, i) -> {
+            TaskAppViewModel viewModel = new ViewModelProvider(this).get(TaskAppViewModel.class);
+
+            mLoaded = false;
+            mVF.setDisplayedChild(0);
+            mLogicSubsystem.flush();
+            LogicSubsystem.discard();
+
+            new Thread(() -> {
+                int message;
+                File temp = null;
+                try {
+                    temp = File.createTempFile("backup", ".bin", getCacheDir());
+
+                    try (InputStream in = getContentResolver().openInputStream(uri);
+                         OutputStream out = new FileOutputStream(temp)) {
+                        if (in == null) {
+                            throw new IOException("No stream for " + uri);
+                        }
+                        copy(in, out);
+                    }
+
+                    viewModel.importFrom(temp);
+                    message = R.string.backup_imported;
+                } catch (IOException e) {
+                    Log.e(TAG, "Couldn't restore " + uri, e);
+                    message = R.string.backup_import_failed;
+                } finally {
+                    if (temp != null) {
+                        //noinspection ResultOfMethodCallIgnored
+                        temp.delete();
+                    }
+                }
+
+                int shown = message;
+                runOnUiThread(() -> {
+                    Toast.makeText(getApplicationContext(), shown, Toast.LENGTH_LONG).show();
+                    recreate();
+                });
+            }).start();
+        });
+
+        builder.show();
+    }
+
+    /**
+     * Copy everything from one stream to another.
+     *
+     * @param in The stream to copy from
+     * @param out The stream to copy to
+     *
+     * @throws IOException If either stream fails
+     */
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[1 << 16];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+    }
+
     /**
      * Handles action bar clicks. Left to defaults for now
      *
@@ -422,6 +802,26 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
                 intent.putExtra(TaskListActivity.EXTRA_COMPLETABLE, true);
                 startActivity(intent);
                 return true;
+            case (R.id.action_import_calendar):
+                if (mLoaded) {
+                    mImportLauncher.launch("text/calendar");
+                }
+                return true;
+            case (R.id.action_sync_calendars):
+                if (mLoaded) {
+                    mCalendarPermissionLauncher.launch(Manifest.permission.READ_CALENDAR);
+                }
+                return true;
+            case (R.id.action_export_backup):
+                if (mLoaded) {
+                    mExportLauncher.launch("taskapp-" + mStartDate + ".backup");
+                }
+                return true;
+            case (R.id.action_import_backup):
+                if (mLoaded) {
+                    mRestoreLauncher.launch(new String[]{"*/*"});
+                }
+                return true;
             case (R.id.action_help):
                 Intent browserIntent = new Intent(Intent.ACTION_VIEW,
                         Uri.parse(getString(R.string.schedule_url)));
@@ -521,12 +921,11 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
                 .setMessage(R.string.complete_dialog_message)
                 .setPositiveButton("OK", ((dialogInterface, i) -> {
                     mLogicSubsystem.onButtonClick(mPosition, mDay, 0, this);
-                    int newDays = mLogicSubsystem.getNumDays();
 
                     if (et.getText().length() != 0) {
                         mLogicSubsystem.addTodayTime(Integer.parseInt(et.getText().toString()));
 
-                        finishButtonPress(newDays);
+                        finishButtonPress();
                     }
                 }))
                 .setNegativeButton("Cancel", (dialogInterface, i) -> {});
@@ -544,6 +943,11 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
     public void onCreateContextMenu(ContextMenu menu, View v, ContextMenu.ContextMenuInfo menuInfo) {
         super.onCreateContextMenu(menu, v, menuInfo);
 
+        // The preview's buttons have no menus
+        if (!mLoaded) {
+            return;
+        }
+
         if (v.getId() == R.id.buttonEventOptions) {
             getMenuInflater().inflate(R.menu.event_options, menu);
         }
@@ -640,11 +1044,9 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
      * Handles the user choosing to delete an event.
      */
     private void deleteEvent() {
-        int oldDays = mLogicSubsystem.getNumDays();
         mLogicSubsystem.onButtonClick(mPosition, mDay, 2, this);
-        int newDays = mLogicSubsystem.getNumDays();
 
-        finishButtonPress(newDays);
+        finishButtonPress();
     }
 
     /**
@@ -655,13 +1057,13 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
 
         mLogicSubsystem.timer(mPosition, mDay);
 
-        mDayItemAdapter.mDayItemList.set(mDay, mLogicSubsystem.DayItemHelper(mDay, this));
-        mDayItemAdapter.mDayItemList.set(0, mLogicSubsystem.DayItemHelper(0, this));
+        mDayItemAdapter.mDayItemList.invalidate(mDay);
+        mDayItemAdapter.mDayItemList.invalidate(0);
         mDayItemAdapter.notifyItemChanged(mDay);
         mDayItemAdapter.notifyItemChanged(0);
 
         if (oldTimer != -1 && oldTimer != mDay) {
-            mDayItemAdapter.mDayItemList.set(oldTimer, mLogicSubsystem.DayItemHelper(oldTimer, this));
+            mDayItemAdapter.mDayItemList.invalidate(oldTimer);
             mDayItemAdapter.notifyItemChanged(oldTimer);
         }
     }
@@ -679,9 +1081,8 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
      */
     private void deleteTask() {
         mLogicSubsystem.onButtonClick(mPosition, mDay, 1, this);
-        int newDays = mLogicSubsystem.getNumDays();
 
-        finishButtonPress(newDays);
+        finishButtonPress();
     }
 
     /**
@@ -689,9 +1090,8 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
      */
     private void lockTaskDate() {
         mLogicSubsystem.lockTaskDate(mPosition, mDay);
-        int newDays = mLogicSubsystem.getNumDays();
 
-        finishButtonPress(newDays);
+        finishButtonPress();
     }
 
     /**
@@ -699,9 +1099,8 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
      */
     private void postponeTask() {
         mLogicSubsystem.postponeTask(mPosition, mDay);
-        int newDays = mLogicSubsystem.getNumDays();
 
-        finishButtonPress(newDays);
+        finishButtonPress();
     }
 
     /**
@@ -726,11 +1125,10 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
             int finalTimerVal = timerVal;
             builder.setPositiveButton("OK", (dialogInterface, i) -> {
                 mLogicSubsystem.onButtonClick(mPosition, mDay, 0, this);
-                int newDays = mLogicSubsystem.getNumDays();
 
                 mLogicSubsystem.addTodayTime(finalTimerVal);
 
-                finishButtonPress(newDays);
+                finishButtonPress();
             });
 
             // If user chooses to use a different time, show the normal time to complete
@@ -748,19 +1146,10 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
     }
 
     /**
-     * Updates the recycler after a button press has been handled.
-     *
-     * @param newDays How many days are in the recycler now
+     * Updates the recycler after a button press has been handled, and reoptimizes.
      */
-    private void finishButtonPress(int newDays) {
-        int oldDays = mDayItemAdapter.mDayItemList.size();
-        while (mDayItemAdapter.mDayItemList.size() > newDays) {
-            mDayItemAdapter.mDayItemList.remove(newDays);
-        }
-
-        if (oldDays > newDays) {
-            mDayItemAdapter.notifyItemRangeRemoved(newDays, oldDays - newDays);
-        }
+    private void finishButtonPress() {
+        updateRecycler();
 
         Runnable toRun = new OptimizeRunnable();
         Thread thread = new Thread(toRun);
@@ -771,24 +1160,34 @@ public class MainActivity extends AppCompatActivity implements ClickListener {
      * Update recycler based on changes in other screens.
      */
     private void updateRecycler() {
-        List<Integer> updatedIndices = LogicSubsystem.getInstance().getUpdatedIndices();
-        if (!updatedIndices.contains(0)) {
-            updatedIndices.add(0);
+        ScheduleChange change = mLogicSubsystem.publishChanges();
+        PagedDayList days = mDayItemAdapter.mDayItemList;
+
+        // Changed, new and removed days are each sent as one notification per range. New and
+        // changed days are built when they're next shown.
+        for (ScheduleChange.Range range : change.getChanged()) {
+            for (int i = range.getStart(); i < range.getStart() + range.getCount(); i++) {
+                days.invalidate(i);
+            }
+            mDayItemAdapter.notifyItemRangeChanged(range.getStart(), range.getCount());
         }
 
-        for (int index : updatedIndices) {
-            if (index >= mDayItemAdapter.getItemCount()) {
-                int oldCount = mDayItemAdapter.getItemCount();
-                for (int i = oldCount; i <= index; i++) {
-                    mDayItemAdapter.mDayItemList.add(mLogicSubsystem.DayItemHelper(i, this));
-                }
-                mDayItemAdapter.notifyItemRangeInserted(oldCount, index - oldCount + 1);
-            }
-            else if (index >= 0) {
-                mDayItemAdapter.mDayItemList.set(index,
-                        LogicSubsystem.getInstance().DayItemHelper(index, this));
-                mDayItemAdapter.notifyItemChanged(index);
-            }
+        if (change.getRemovedCount() > 0) {
+            days.setSize(change.getNumDays());
+            mDayItemAdapter.notifyItemRangeRemoved(change.getRemovedStart(),
+                    change.getRemovedCount());
+        }
+
+        if (change.getInsertedCount() > 0) {
+            days.setSize(change.getNumDays());
+            mDayItemAdapter.notifyItemRangeInserted(change.getInsertedStart(),
+                    change.getInsertedCount());
+        }
+
+        // Today's header includes time spent on completed tasks, so always refresh it
+        if (days.size() > 0 && !change.isChanged(0)) {
+            days.invalidate(0);
+            mDayItemAdapter.notifyItemChanged(0);
         }
     }
 
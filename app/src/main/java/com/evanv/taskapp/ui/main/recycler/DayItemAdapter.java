@@ -28,7 +28,6 @@ import com.evanv.taskapp.R;
 import com.evanv.taskapp.ui.main.ClickListener;
 
 import java.lang.ref.WeakReference;
-import java.util.List;
 
 /**
  * Adapter to interface between data in DayItems and recyclerview in MainActivity
@@ -37,7 +36,7 @@ import java.util.List;
  */
 @InternalPlatformTextApi
 public class DayItemAdapter extends RecyclerView.Adapter<DayItemAdapter.DayViewHolder> {
-    public final List<DayItem> mDayItemList; // List of days
+    public final PagedDayList mDayItemList;  // List of days, built as they're shown
     private final ClickListener mListener;   // Listener that allows easy completion of tasks
     private final Activity mActivity;        // Context of current Activity
     // Used to share views between the Event/Task RecyclerViews and the Day RecyclerViews
@@ -50,7 +49,7 @@ public class DayItemAdapter extends RecyclerView.Adapter<DayItemAdapter.DayViewH
      * @param dayItemList the list of days for this user
      */
     @SuppressWarnings("unused")
-    public DayItemAdapter(List<DayItem> dayItemList, ClickListener listener, Activity activity) {
+    public DayItemAdapter(PagedDayList dayItemList, ClickListener listener, Activity activity) {
         mDayItemList = dayItemList;
         mListener = listener;
         mActivity = activity;
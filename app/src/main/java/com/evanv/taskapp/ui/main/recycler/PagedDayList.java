@@ -0,0 +1,272 @@
+package com.evanv.taskapp.ui.main.recycler;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * List of the DayItems shown in MainActivity's recyclerview that only builds a DayItem when it's
+ * about to be shown. Days are stored in fixed size pages, and when a day is asked for, the days
+ * around it are built too so scrolling doesn't stall on every new day. Only the most recently
+ * used pages are kept, so scrolling years ahead doesn't keep every day in memory, and trim can
+ * drop everything outside of the visible window when the system is low on memory.
+ *
+ * @author Evan Voogd
+ */
+public class PagedDayList extends AbstractList<DayItem> {
+    private static final int PAGE_SIZE = 16;   // Days in each page
+    private static final int PREFETCH = 4;     // Days on either side of a requested day to build
+    private static final int MAX_PAGES = 8;    // Pages to keep before dropping the oldest
+
+    private final Loader mLoader;              // Builds the DayItem for a day
+    private final Map<Integer, DayItem[]> mPages; // Built days, by page, least recently used first
+    private int mSize;                         // Number of days in the list
+
+    /**
+     * Builds the DayItem for a given day.
+     */
+    public interface Loader {
+        /**
+         * Build the DayItem for a day.
+         *
+         * @param index How many days past today's date to build the DayItem for
+         *
+         * @return The DayItem for that day
+         */
+        DayItem load(int index);
+    }
+
+    /**
+     * Creates a list of days. No DayItems are built until they're asked for.
+     *
+     * @param size Number of days in the list
+     * @param loader Builds the DayItem for a day
+     */
+    public PagedDayList(int size, Loader loader) {
+        mSize = size;
+        mLoader = loader;
+
+        // Access order, so the first entry is always the least recently used page
+        mPages = new LinkedHashMap<Integer, DayItem[]>(MAX_PAGES * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, DayItem[]> eldest) {
+                return size() > MAX_PAGES;
+            }
+        };
+    }
+
+    /**
+     * Get the DayItem for a day, building it and the days around it if they haven't been built.
+     *
+     * @param index How many days past today's date to get the DayItem for
+     *
+     * @return The DayItem for that day
+     */
+    @Override
+    public DayItem get(int index) {
+        checkIndex(index);
+
+        DayItem toReturn = getBuilt(index);
+        if (toReturn == null) {
+            toReturn = mLoader.load(index);
+            store(index, toReturn);
+        }
+
+        // Build the days just off screen now so they're ready when the user scrolls to them
+        for (int i = Math.max(0, index - PREFETCH); i < mSize && i <= index + PREFETCH; i++) {
+            if (getBuilt(i) == null) {
+                store(i, mLoader.load(i));
+            }
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Replace the DayItem for a day.
+     *
+     * @param index How many days past today's date the DayItem is for
+     * @param item The new DayItem
+     *
+     * @return The DayItem that was replaced, or null if it hadn't been built
+     */
+    @Override
+    public DayItem set(int index, DayItem item) {
+        checkIndex(index);
+
+        DayItem toReturn = getBuilt(index);
+        store(index, item);
+
+        return toReturn;
+    }
+
+    /**
+     * Add a day to the end of the list.
+     *
+     * @param index Must be the size of the list, as days can only be added to the end
+     * @param item The DayItem for the new day
+     */
+    @Override
+    public void add(int index, DayItem item) {
+        if (index != mSize) {
+            throw new UnsupportedOperationException("Days can only be added to the end");
+        }
+
+        mSize++;
+        store(index, item);
+    }
+
+    /**
+     * Remove the last day from the list.
+     *
+     * @param index Must be the last index, as days can only be removed from the end
+     *
+     * @return The DayItem that was removed, or null if it hadn't been built
+     */
+    @Override
+    public DayItem remove(int index) {
+        if (index != mSize - 1) {
+            throw new UnsupportedOperationException("Days can only be removed from the end");
+        }
+
+        DayItem toReturn = getBuilt(index);
+        setSize(index);
+
+        return toReturn;
+    }
+
+    /**
+     * Get the number of days in the list.
+     *
+     * @return The number of days in the list
+     */
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Change the number of days in the list. New days aren't built until they're asked for, and
+     * removed days are dropped.
+     *
+     * @param size The new number of days
+     */
+    public void setSize(int size) {
+        if (size < mSize) {
+            int lastPage = size == 0 ? -1 : (size - 1) / PAGE_SIZE;
+            Iterator<Map.Entry<Integer, DayItem[]>> it = mPages.entrySet().iterator();
+
+            while (it.hasNext()) {
+                Map.Entry<Integer, DayItem[]> entry = it.next();
+
+                if (entry.getKey() > lastPage) {
+                    it.remove();
+                }
+                else if (entry.getKey() == lastPage) {
+                    // Clear the removed days at the end of the new last page
+                    DayItem[] page = entry.getValue();
+                    for (int i = size - lastPage * PAGE_SIZE; i < PAGE_SIZE; i++) {
+                        page[i] = null;
+                    }
+                }
+            }
+        }
+
+        mSize = size;
+    }
+
+    /**
+     * Mark a day as changed, so its DayItem is rebuilt the next time it's asked for instead of
+     * being rebuilt now, even if it's far off screen.
+     *
+     * @param index How many days past today's date the changed day is
+     */
+    public void invalidate(int index) {
+        DayItem[] page = mPages.get(index / PAGE_SIZE);
+
+        if (page != null) {
+            page[index % PAGE_SIZE] = null;
+        }
+    }
+
+    /**
+     * Drop every built day outside of the given window, e.g. when the system is low on memory.
+     *
+     * @param first First day to keep
+     * @param last Last day to keep
+     */
+    public void trim(int first, int last) {
+        int firstPage = Math.max(0, first - PREFETCH) / PAGE_SIZE;
+        int lastPage = Math.max(0, last + PREFETCH) / PAGE_SIZE;
+
+        Iterator<Integer> it = mPages.keySet().iterator();
+        while (it.hasNext()) {
+            int page = it.next();
+
+            if (page < firstPage || page > lastPage) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Get the number of DayItems currently built.
+     *
+     * @return The number of DayItems currently built
+     */
+    public int getBuiltCount() {
+        int toReturn = 0;
+
+        for (DayItem[] page : mPages.values()) {
+            for (DayItem item : page) {
+                if (item != null) {
+                    toReturn++;
+                }
+            }
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Get the DayItem for a day if it's been built, without building it.
+     *
+     * @param index How many days past today's date to get the DayItem for
+     *
+     * @return The DayItem for that day, or null if it hasn't been built
+     */
+    private DayItem getBuilt(int index) {
+        DayItem[] page = mPages.get(index / PAGE_SIZE);
+
+        return page == null ? null : page[index % PAGE_SIZE];
+    }
+
+    /**
+     * Store the DayItem for a day, creating its page if necessary.
+     *
+     * @param index How many days past today's date the DayItem is for
+     * @param item The DayItem
+     */
+    private void store(int index, DayItem item) {
+        DayItem[] page = mPages.get(index / PAGE_SIZE);
+
+        if (page == null) {
+            page = new DayItem[PAGE_SIZE];
+            mPages.put(index / PAGE_SIZE, page);
+        }
+
+        page[index % PAGE_SIZE] = item;
+    }
+
+    /**
+     * Make sure an index is in the list.
+     *
+     * @param index The index to check
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+    }
+}
@@ -3,13 +3,14 @@ package com.evanv.taskapp.ui.main.recycler;
 import java.util.List;
 
 /**
- * Class representing a Task for use in the DayItem's recyclerview
+ * Class representing a Task for use in the DayItem's recyclerview. TaskItems are immutable so the
+ * same one can be reused every time the Task's day is redrawn until the Task changes.
  *
  * @author Evan Voogd
  */
 public class TaskItem {
     private final String mName;               // Name of the task (e.g. "Read Ch. 3")
-    private int mIndex;                       // Index into taskSchedule.get(day) for this event
+    private final int mIndex;                 // Index into taskSchedule.get(day) for this event
     private final int mPriority;              // Priority of task
     private final String mProject;            // Name of the Project associated with the Task
     private final int mProjectColor;          // Color of the Project associated with the Task
@@ -55,11 +56,20 @@ public class TaskItem {
     }
 
     /**
-     * Changes the index of the TaskItem to reflect it's new state in the recycler
+     * Returns a TaskItem that's the same as this one but at a different index, to reflect it's new
+     * state in the recycler.
+     *
      * @param index The new index in the task list
+     *
+     * @return A TaskItem at the new index, or this TaskItem if the index hasn't changed
      */
-    public void setIndex(int index) {
-        mIndex = index;
+    public TaskItem withIndex(int index) {
+        if (index == mIndex) {
+            return this;
+        }
+
+        return new TaskItem(mName, index, false, mPriority, mProject, mProjectColor, mLabels,
+                mLabelColors, mID);
     }
 
     /**
@@ -127,7 +127,7 @@ public class ProjectActivity extends AppCompatActivity implements ClickListener
     }
 
     /**
-     * Updates todayTime in SharedPreferences
+     * Updates todayTime in SharedPreferences, and commits queued changes to the database
      */
     @Override
     protected void onPause() {
@@ -140,6 +140,9 @@ public class ProjectActivity extends AppCompatActivity implements ClickListener
         edit.putLong(MainActivity.PREF_TIMER, LogicSubsystem.getInstance().getTimerStart());
 
         edit.apply();
+
+        // Don't leave changes waiting in memory while the app could be killed
+        LogicSubsystem.getInstance().flush();
         super.onPause();
     }
 }
\ No newline at end of file
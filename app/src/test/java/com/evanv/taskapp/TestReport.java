@@ -0,0 +1,64 @@
+package com.evanv.taskapp;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Collects the measurements a test takes and saves them as a text file under
+ * build/reports/benchmarks, so they can be compared between runs without cluttering the test
+ * output. Each run replaces the file from the last one.
+ *
+ * @author Evan Voogd
+ */
+public class TestReport {
+    // Where reports are saved, relative to the module the tests run from
+    private static final File DIR = new File("build/reports/benchmarks");
+
+    private final String mName;                               // Name of the report file
+    private final StringBuilder mText = new StringBuilder();  // Lines added so far
+
+    /**
+     * Creates an empty report.
+     *
+     * @param name Name of the report, used as its file name
+     */
+    public TestReport(String name) {
+        mName = name;
+    }
+
+    /**
+     * Add a line to the report.
+     *
+     * @param format Format string for the line, as for String.format
+     * @param args Arguments for the format string
+     */
+    public void line(String format, Object... args) {
+        mText.append(String.format(Locale.ROOT, format, args)).append('\n');
+    }
+
+    /**
+     * Save the report, replacing the last one with the same name.
+     *
+     * @return The file the report was saved to
+     *
+     * @throws IOException If the report couldn't be written
+     */
+    public File save() throws IOException {
+        if (!DIR.isDirectory() && !DIR.mkdirs()) {
+            throw new IOException("Couldn't create " + DIR);
+        }
+
+        File file = new File(DIR, mName + ".txt");
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file),
+                StandardCharsets.UTF_8)) {
+            out.write(mText.toString());
+        }
+
+        return file;
+    }
+}
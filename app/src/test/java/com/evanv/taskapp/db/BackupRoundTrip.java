@@ -0,0 +1,100 @@
+package com.evanv.taskapp.db;
+
+import com.evanv.taskapp.logic.Event;
+import com.evanv.taskapp.logic.Label;
+import com.evanv.taskapp.logic.Project;
+import com.evanv.taskapp.logic.Series;
+import com.evanv.taskapp.logic.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Puts links to imported events and calendar high-water marks through a backup file and back, so
+ * tests outside this package can check what a restored database does with them.
+ *
+ * @author Evan Voogd
+ */
+public class BackupRoundTrip {
+    private final List<ImportedEvent> mLinks = new ArrayList<>();          // Links read back
+    private final List<CalendarSyncState> mSyncStates = new ArrayList<>(); // Marks read back
+
+    /**
+     * Write some links and high-water marks to a backup file, then restore it.
+     *
+     * @param links The links to back up
+     * @param states The high-water marks to back up
+     *
+     * @return What was read back from the file
+     *
+     * @throws IOException If the temporary file couldn't be used
+     */
+    public static BackupRoundTrip of(Collection<ImportedEvent> links,
+                                     Collection<CalendarSyncState> states) throws IOException {
+        File file = File.createTempFile("backup", ".bin");
+        file.deleteOnExit();
+
+        List<ImportedEvent> sorted = new ArrayList<>(links);
+        Collections.sort(sorted, (l1, l2) -> l1.getSource().equals(l2.getSource())
+                ? l1.getUID().compareTo(l2.getUID()) : l1.getSource().compareTo(l2.getSource()));
+
+        Backup.write(file, new Backup.Source() {
+            public List<Project> getProjects() { return new ArrayList<>(); }
+            public List<Label> getLabels() { return new ArrayList<>(); }
+            public List<Series> getSeries() { return new ArrayList<>(); }
+            public List<Task> getTasksAfter(long after, int count) { return new ArrayList<>(); }
+            public List<Event> getEventsAfter(long after, int count) { return new ArrayList<>(); }
+
+            public List<ImportedEvent> getImportedAfter(String source, String uid, int count) {
+                List<ImportedEvent> page = new ArrayList<>();
+                for (ImportedEvent link : sorted) {
+                    int order = link.getSource().compareTo(source);
+                    if (page.size() < count
+                            && (order > 0 || (order == 0 && link.getUID().compareTo(uid) > 0))) {
+                        page.add(link);
+                    }
+                }
+                return page;
+            }
+
+            public List<CalendarSyncState> getSyncStates() { return new ArrayList<>(states); }
+        });
+
+        BackupRoundTrip restored = new BackupRoundTrip();
+        Backup.read(file, new Backup.Sink() {
+            public void clear() {
+                restored.mLinks.clear();
+                restored.mSyncStates.clear();
+            }
+
+            public void write(Backup.Batch batch) {
+                restored.mLinks.addAll(batch.mImported);
+                restored.mSyncStates.addAll(batch.mSyncStates);
+            }
+        });
+
+        return restored;
+    }
+
+    /**
+     * Get the links read back from the backup.
+     *
+     * @return The links, in order of source then UID
+     */
+    public List<ImportedEvent> getLinks() {
+        return mLinks;
+    }
+
+    /**
+     * Get the high-water marks read back from the backup.
+     *
+     * @return The high-water marks
+     */
+    public List<CalendarSyncState> getSyncStates() {
+        return mSyncStates;
+    }
+}
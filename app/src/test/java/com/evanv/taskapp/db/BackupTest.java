@@ -0,0 +1,290 @@
+package com.evanv.taskapp.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.evanv.taskapp.logic.Event;
+import com.evanv.taskapp.logic.Label;
+import com.evanv.taskapp.logic.Project;
+import com.evanv.taskapp.logic.RecurrenceRule;
+import com.evanv.taskapp.logic.Series;
+import com.evanv.taskapp.logic.Task;
+
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for Backup, checking a large database round trips through a backup file with every field
+ * and link intact, reading and writing it a page at a time.
+ *
+ * @author Evan Voogd
+ */
+public class BackupTest {
+    private static final int TASKS = 100000; // Number of tasks backed up
+    private static final int EVENTS = 20000; // Number of events backed up
+    private static final LocalDate START = LocalDate.of(2024, 1, 1); // Date of the first task
+    private static final String RULE = "FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,TH"; // Series rule
+
+    /**
+     * Checks 100k tasks and their events survive a round trip with their IDs, fields and links,
+     * with the source and sink never asked to hold more than a page of rows.
+     *
+     * @throws IOException If the temporary file couldn't be used
+     */
+    @Test
+    public void roundTripsLargeDatabase() throws IOException {
+        File file = File.createTempFile("backup", ".bin");
+        file.deleteOnExit();
+
+        long written = Backup.write(file, new GeneratedSource(TASKS, EVENTS));
+
+        CheckingSink sink = new CheckingSink();
+        long read = Backup.read(file, sink);
+
+        assertEquals(2 + 1 + 1 + TASKS + EVENTS, written);
+        assertEquals(written, read);
+        assertEquals(TASKS, sink.mTasks);
+        assertEquals(EVENTS, sink.mEvents);
+        assertTrue(sink.mCleared);
+        assertTrue("Batch of " + sink.mLargestBatch, sink.mLargestBatch <= Backup.PAGE_SIZE);
+    }
+
+    /**
+     * Checks a backup cut off anywhere, or with anything after its end, is rejected before
+     * anything is cleared.
+     *
+     * @throws IOException If the temporary file couldn't be used
+     */
+    @Test
+    public void rejectsDamagedBackups() throws IOException {
+        File file = File.createTempFile("backup", ".bin");
+        file.deleteOnExit();
+        Backup.write(file, new GeneratedSource(50, 20));
+        long length = file.length();
+
+        for (long cut = length - 1; cut >= 0; cut -= 7) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(cut);
+            }
+            assertRejected(file);
+        }
+
+        Backup.write(file, new GeneratedSource(50, 20));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(length);
+            raf.writeInt(0);
+        }
+        assertRejected(file);
+    }
+
+    /**
+     * Checks a file that isn't a backup is rejected before anything is cleared.
+     *
+     * @throws IOException If the temporary file couldn't be used
+     */
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        File file = File.createTempFile("backup", ".bin");
+        file.deleteOnExit();
+
+        CheckingSink sink = new CheckingSink();
+        try {
+            Backup.read(file, sink);
+            throw new AssertionError("Read an empty file");
+        } catch (IOException e) {
+            assertFalse(sink.mCleared);
+        }
+    }
+
+    /**
+     * Check reading a file fails without the sink being cleared.
+     *
+     * @param file The file to read
+     */
+    private static void assertRejected(File file) {
+        CheckingSink sink = new CheckingSink();
+        try {
+            Backup.read(file, sink);
+            throw new AssertionError("Read a damaged backup of " + file.length() + " bytes");
+        } catch (IOException e) {
+            assertFalse(sink.mCleared);
+        }
+    }
+
+    /**
+     * Create the i'th task. Every task after the first depends on the one before it, and every
+     * other one has a label.
+     *
+     * @param i Index of the task, from 1
+     *
+     * @return The task
+     */
+    private static Task task(int i) {
+        Task t = new Task("Task " + i, START.plusDays(i % 30), START.plusDays(i % 30 + 5),
+                i % 7 == 0 ? null : START.plusDays(i % 30 + 1), i % 90, i % 4,
+                i % 3 == 0 ? 1 : -1);
+        t.setID(i);
+        if (i > 1) {
+            t.getParentArr().add((long) i - 1);
+        }
+        if (i % 2 == 0) {
+            t.getLabelIDs().add(2L);
+        }
+        return t;
+    }
+
+    /**
+     * Create the i'th event.
+     *
+     * @param i Index of the event, from 1
+     *
+     * @return The event
+     */
+    private static Event event(int i) {
+        Event e = new Event("Event " + i, 30 + i % 60, START.atTime(9, 0).plusHours(i));
+        e.setID(i);
+        return e;
+    }
+
+    /**
+     * A database of generated rows, made a page at a time as they're asked for.
+     */
+    private static class GeneratedSource implements Backup.Source {
+        private final int mTasks;  // Number of tasks in the database
+        private final int mEvents; // Number of events in the database
+
+        /**
+         * Creates a database of generated rows.
+         *
+         * @param tasks Number of tasks in the database
+         * @param events Number of events in the database
+         */
+        GeneratedSource(int tasks, int events) {
+            mTasks = tasks;
+            mEvents = events;
+        }
+
+        @Override
+        public List<Project> getProjects() {
+            Project p = new Project("Work", 3, null);
+            p.setID(1);
+            Project q = new Project("Home \u00e9", 4, "Tidy");
+            q.setID(2);
+            return Arrays.asList(p, q);
+        }
+
+        @Override
+        public List<Label> getLabels() {
+            Label l = new Label("Urgent", 1);
+            l.setID(2);
+            return Collections.singletonList(l);
+        }
+
+        @Override
+        public List<Series> getSeries() {
+            Series s = new Series(false, "Laundry",
+                    RecurrenceRule.parse(RULE),
+                    LocalDateTime.of(2024, 1, 1, 0, 0), 45, 2, 1, 2,
+                    new ArrayList<>(Collections.singletonList(2L)), new ArrayList<>(), START);
+            s.setID(9);
+            return Collections.singletonList(s);
+        }
+
+        @Override
+        public List<Task> getTasksAfter(long after, int count) {
+            List<Task> page = new ArrayList<>();
+            for (long i = after + 1; i <= Math.min(after + count, mTasks); i++) {
+                page.add(task((int) i));
+            }
+            return page;
+        }
+
+        @Override
+        public List<Event> getEventsAfter(long after, int count) {
+            List<Event> page = new ArrayList<>();
+            for (long i = after + 1; i <= Math.min(after + count, mEvents); i++) {
+                page.add(event((int) i));
+            }
+            return page;
+        }
+
+        @Override
+        public List<ImportedEvent> getImportedAfter(String source, String uid, int count) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public List<CalendarSyncState> getSyncStates() {
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Checks each row it's given against the row it was generated from, without keeping any.
+     */
+    private static class CheckingSink implements Backup.Sink {
+        private boolean mCleared;  // Was clear called
+        private int mTasks;        // Number of tasks written
+        private int mEvents;       // Number of events written
+        private int mLargestBatch; // Most rows in one batch
+
+        @Override
+        public void clear() {
+            mCleared = true;
+        }
+
+        @Override
+        public void write(Backup.Batch batch) {
+            assertTrue(mCleared);
+            mLargestBatch = Math.max(mLargestBatch, batch.size());
+
+            for (Project p : batch.mProjects) {
+                if (p.getID() == 1) {
+                    assertNull(p.getGoal());
+                }
+                else {
+                    assertEquals("Home \u00e9", p.getName());
+                    assertEquals("Tidy", p.getGoal());
+                }
+            }
+            for (Series s : batch.mSeries) {
+                assertEquals(RecurrenceRule.parse(RULE), s.getRule());
+                assertEquals(Collections.singletonList(2L), s.getLabels());
+                assertEquals(START, s.getThrough());
+            }
+
+            for (Task t : batch.mTasks) {
+                Task expected = task((int) t.getID());
+                assertEquals(expected.getName(), t.getName());
+                assertEquals(expected.getEarlyDate(), t.getEarlyDate());
+                assertEquals(expected.getDoDate(), t.getDoDate());
+                assertEquals(expected.getDueDate(), t.getDueDate());
+                assertEquals(expected.getTimeToComplete(), t.getTimeToComplete());
+                assertEquals(expected.getPriority(), t.getPriority());
+                assertEquals(expected.getProjectID(), t.getProjectID());
+                assertEquals(expected.getParentArr(), t.getParentArr());
+                assertEquals(expected.getLabelIDs(), t.getLabelIDs());
+                mTasks++;
+            }
+
+            for (Event e : batch.mEvents) {
+                Event expected = event((int) e.getID());
+                assertEquals(expected.getName(), e.getName());
+                assertEquals(expected.getLength(), e.getLength());
+                assertEquals(expected.getDoDate(), e.getDoDate());
+                mEvents++;
+            }
+        }
+    }
+}
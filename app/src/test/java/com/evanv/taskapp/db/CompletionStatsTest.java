@@ -0,0 +1,55 @@
+package com.evanv.taskapp.db;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for CompletionStats, checking a batch of completions rolls up into one row of amounts per
+ * day, project and label.
+ *
+ * @author Evan Voogd
+ */
+public class CompletionStatsTest {
+    /**
+     * Checks each completion is counted once in its day, its project and each of its labels, and
+     * only timed completions count towards the timed totals.
+     */
+    @Test
+    public void rollsUpByDayProjectAndLabel() {
+        List<Completion> completions = Arrays.asList(
+                new Completion(1, 7, new ArrayList<>(Arrays.asList(2L, 3L)), 30, 45, 100),
+                new Completion(2, 7, new ArrayList<>(Arrays.asList(3L)), 60, -1, 100),
+                new Completion(3, -1, new ArrayList<>(), 15, 10, 101));
+
+        Map<String, CompletionStats> rows = new HashMap<>();
+        for (CompletionStats row : CompletionStats.rollUp(completions)) {
+            rows.put(row.getKind() + ":" + row.getKey(), row);
+        }
+
+        // Days 100 and 101, projects 7 and -1, labels 2 and 3
+        assertEquals(6, rows.size());
+
+        CompletionStats day = rows.get(CompletionStats.DAY + ":100");
+        assertEquals(2, day.getCompleted());
+        assertEquals(90, day.getEstimated());
+        assertEquals(1, day.getTimedCompleted());
+        assertEquals(30, day.getTimedEstimated());
+        assertEquals(45, day.getTimed());
+
+        CompletionStats label = rows.get(CompletionStats.LABEL + ":3");
+        assertEquals(2, label.getCompleted());
+        assertEquals(90, label.getEstimated());
+
+        CompletionStats none = rows.get(CompletionStats.PROJECT + ":-1");
+        assertEquals(1, none.getCompleted());
+        assertEquals(10, none.getTimed());
+        assertEquals(1, rows.get(CompletionStats.LABEL + ":2").getCompleted());
+    }
+}
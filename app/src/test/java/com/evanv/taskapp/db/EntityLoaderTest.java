@@ -0,0 +1,220 @@
+package com.evanv.taskapp.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.evanv.taskapp.logic.Event;
+import com.evanv.taskapp.logic.Label;
+import com.evanv.taskapp.logic.Project;
+import com.evanv.taskapp.logic.Task;
+
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Benchmarks loading every table at startup on a thread per table against loading them one after
+ * another, using Daos that sleep to stand in for the time spent reading from disk.
+ *
+ * @author Evan Voogd
+ */
+public class EntityLoaderTest {
+    private static final long TASK_MS = 60;    // Time to load the task table
+    private static final long EVENT_MS = 200;  // Time to load the event table
+    private static final long PROJECT_MS = 20; // Time to load the project table
+    private static final long LABEL_MS = 20;   // Time to load the label table
+
+    private final List<Task> mOverdue = new ArrayList<>();     // Returned by the overdue query
+    private final List<Task> mTasks = new ArrayList<>();       // Returned by the task Dao
+    private final List<Event> mEvents = new ArrayList<>();     // Returned by the event Dao
+    private final List<Project> mProjects = new ArrayList<>(); // Returned by the project Dao
+    private final List<Label> mLabels = new ArrayList<>();     // Returned by the label Dao
+
+    /**
+     * Times a parallel load against the serial baseline, checking both return the same lists and
+     * the parallel load takes about as long as the slowest table instead of all of them.
+     */
+    @Test
+    public void parallelBeatsSerial() {
+        long start = System.nanoTime();
+        EntityLoader serial = newLoader(Runnable::run);
+        checkLoaded(serial);
+        long serialMs = (System.nanoTime() - start) / 1000000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        start = System.nanoTime();
+        EntityLoader parallel = newLoader(executor);
+        checkLoaded(parallel);
+        long parallelMs = (System.nanoTime() - start) / 1000000;
+        executor.shutdown();
+
+        assertTrue(serialMs >= TASK_MS + EVENT_MS + PROJECT_MS + LABEL_MS);
+        assertTrue("Parallel load took " + parallelMs + "ms", parallelMs < serialMs);
+    }
+
+    /**
+     * Checks tasks, projects and labels can be used while events are still loading.
+     */
+    @Test
+    public void tasksReadyBeforeEvents() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        long start = System.nanoTime();
+        EntityLoader loader = newLoader(executor);
+        assertEquals(mTasks, loader.getTasks());
+        assertSame(mProjects, loader.getProjects());
+        assertSame(mLabels, loader.getLabels());
+        long wiringReadyMs = (System.nanoTime() - start) / 1000000;
+
+        assertSame(mEvents, loader.getEvents());
+        executor.shutdown();
+
+        assertTrue("Waited " + wiringReadyMs + "ms for tasks", wiringReadyMs < EVENT_MS);
+    }
+
+    /**
+     * Checks rows of the link tables end up as the parent and label IDs of their tasks, and rows
+     * for tasks that weren't read are skipped.
+     */
+    @Test
+    public void linksAttachToTasks() {
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        Task a = new Task("a", day, day, day, 30, 1, -1);
+        Task b = new Task("b", day, day, day, 30, 1, -1);
+        a.setID(1);
+        b.setID(2);
+
+        EntityLoader.attachLinks(Arrays.asList(a, b),
+                Arrays.asList(new TaskDependency(2, 1), new TaskDependency(3, 2)),
+                Arrays.asList(new TaskLabel(1, 7), new TaskLabel(1, 8), new TaskLabel(4, 7)));
+
+        assertEquals(Collections.emptyList(), a.getParentArr());
+        assertEquals(Collections.singletonList(1L), b.getParentArr());
+        assertEquals(Arrays.asList(7L, 8L), a.getLabelIDs());
+        assertEquals(Collections.emptyList(), b.getLabelIDs());
+    }
+
+    /**
+     * Checks the overdue tasks from their own query come first in the task list, as the same
+     * objects, so the LogicSubsystem doesn't have to find them by date.
+     */
+    @Test
+    public void overdueTasksFromOwnQuery() {
+        LocalDate day = LocalDate.of(2024, 1, 1);
+        Task overdue = new Task("overdue", day, day, day, 30, 1, -1);
+        Task current = new Task("current", day, day.plusDays(1), day.plusDays(1), 30, 1, -1);
+        mOverdue.add(overdue);
+        mTasks.add(current);
+
+        EntityLoader loader = newLoader(Runnable::run);
+
+        assertEquals(Arrays.asList(overdue, current), loader.getTasks());
+        assertSame(overdue, loader.getTasks().get(0));
+        assertSame(mOverdue, loader.getOverdueTasks());
+    }
+
+    /**
+     * Make sure a loader returns every Dao's list.
+     *
+     * @param loader The loader to check
+     */
+    private void checkLoaded(EntityLoader loader) {
+        assertEquals(mTasks, loader.getTasks());
+        assertSame(mEvents, loader.getEvents());
+        assertSame(mProjects, loader.getProjects());
+        assertSame(mLabels, loader.getLabels());
+    }
+
+    /**
+     * Start loading from the slow Daos.
+     *
+     * @param executor The executor to run the queries on
+     *
+     * @return The loader
+     */
+    private EntityLoader newLoader(Executor executor) {
+        TaskDao taskDao = new TaskDao() {
+            public List<Long> insertAll(List<Task> tasks) { return null; }
+            public void updateAll(List<Task> tasks) { }
+            public void deleteAll(List<Task> tasks) { }
+            public List<Task> getTasksFrom(long today) { return slow(mTasks, TASK_MS); }
+            public List<Task> getOverdueTasks(long today) { return mOverdue; }
+            public List<Task> getTasksBetween(long startDay, long endDay) { return mTasks; }
+            public List<Task> getTasksDueBetween(long startDay, long endDay) { return mTasks; }
+            public List<Task> getTasksDueOrScheduledBetween(long startDay, long endDay) {
+                return mTasks;
+            }
+            public List<Task> getTasksIn(long project) { return mTasks; }
+            public List<Task> getTasksAfter(long after, int count) { return mTasks; }
+        };
+        EventDao eventDao = new EventDao() {
+            public List<Long> insertAll(List<Event> events) { return null; }
+            public void updateAll(List<Event> events) { }
+            public void deleteAll(List<Event> events) { }
+            public List<Event> getEvents() { return mEvents; }
+            public List<Event> getEventsBetween(long start, long end) { return mEvents; }
+            public List<Event> getEventsFrom(long start) { return slow(mEvents, EVENT_MS); }
+            public List<Event> getEventsAfter(long after, int count) { return mEvents; }
+        };
+        ProjectDao projectDao = new ProjectDao() {
+            public List<Long> insertAll(List<Project> projects) { return null; }
+            public void updateAll(List<Project> projects) { }
+            public void deleteAll(List<Project> projects) { }
+            public List<Project> getProjects() { return slow(mProjects, PROJECT_MS); }
+        };
+        LabelDao labelDao = new LabelDao() {
+            public List<Long> insertAll(List<Label> labels) { return null; }
+            public void updateAll(List<Label> labels) { }
+            public void deleteAll(List<Label> labels) { }
+            public List<Label> getLabels() { return slow(mLabels, LABEL_MS); }
+        };
+
+        TaskDependencyDao dependencyDao = new TaskDependencyDao() {
+            public void insertAll(List<TaskDependency> dependencies) { }
+            public void deleteParentsOf(List<Long> children) { }
+            public void deleteAllOf(List<Long> tasks) { }
+            public List<TaskDependency> getDependencies() { return new ArrayList<>(); }
+            public List<TaskDependency> getParentsOf(List<Long> children) { return null; }
+            public List<Task> getParents(long child) { return null; }
+            public List<Task> getChildren(long parent) { return null; }
+        };
+        TaskLabelDao taskLabelDao = new TaskLabelDao() {
+            public void insertAll(List<TaskLabel> taskLabels) { }
+            public void deleteLabelsOf(List<Long> tasks) { }
+            public void deleteTasksWith(List<Long> labels) { }
+            public List<TaskLabel> getTaskLabels() { return new ArrayList<>(); }
+            public List<TaskLabel> getLabelsOf(List<Long> tasks) { return null; }
+            public List<Task> getTasksWith(long label) { return null; }
+        };
+
+        return new EntityLoader(taskDao, eventDao, projectDao, labelDao, dependencyDao,
+                taskLabelDao, 0, 0, executor);
+    }
+
+    /**
+     * Return a list after a delay, like a query reading it from disk.
+     *
+     * @param list The list to return
+     * @param ms How long to wait first
+     * @param <T> The type of the list's items
+     *
+     * @return list
+     */
+    private static <T> List<T> slow(List<T> list, long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return list;
+    }
+}
@@ -0,0 +1,116 @@
+package com.evanv.taskapp.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for IdAllocator, checking IDs are never handed out twice, even across restarts, and that
+ * the database is only written to once per block.
+ *
+ * @author Evan Voogd
+ */
+public class IdAllocatorTest {
+    private final Map<String, Long> mMarks = new HashMap<>(); // The id_block table
+    private final Map<String, Long> mUsed = new HashMap<>();  // Largest ID in each table, plus 1
+    private int mReserved;                                    // Number of blocks reserved
+
+    /**
+     * An id_block table kept in mMarks.
+     */
+    private final IdBlockDao mDao = new IdBlockDao() {
+        public void upsertAll(List<IdBlock> blocks) {
+            for (IdBlock block : blocks) {
+                mMarks.put(block.getName(), block.getHighWater());
+            }
+        }
+
+        public List<IdBlock> getBlocks() {
+            return toBlocks(mMarks);
+        }
+
+        public List<IdBlock> getUsedIDs() {
+            return toBlocks(mUsed);
+        }
+    };
+
+    /**
+     * Checks IDs keep counting up across restarts without repeats, and a block is only reserved
+     * every so many IDs instead of once per ID.
+     */
+    @Test
+    public void neverReusesIDs() {
+        Set<Long> seen = new HashSet<>();
+
+        for (int restart = 0; restart < 3; restart++) {
+            IdAllocator ids = newAllocator();
+            ids.load();
+
+            for (int i = 0; i < 1000; i++) {
+                long id = ids.next(IdAllocator.TASKS);
+                assertTrue("Reused " + id, seen.add(id));
+                assertTrue(id > 0);
+
+                // Every ID handed out is under the mark that's been written
+                assertTrue(id < mMarks.get(IdAllocator.TASKS));
+            }
+        }
+
+        assertTrue("Reserved " + mReserved + " blocks", mReserved < 20);
+        assertEquals(1L, newAllocator().next(IdAllocator.EVENTS));
+    }
+
+    /**
+     * Checks IDs start past the rows already in a table, for tables written before blocks were
+     * used.
+     */
+    @Test
+    public void startsPastExistingRows() {
+        mUsed.put(IdAllocator.PROJECTS, 42L);
+        mMarks.put(IdAllocator.LABELS, 7L);
+        mUsed.put(IdAllocator.LABELS, 3L);
+
+        IdAllocator ids = newAllocator();
+
+        assertEquals(42L, ids.next(IdAllocator.PROJECTS));
+        assertEquals(7L, ids.next(IdAllocator.LABELS));
+        assertEquals(8L, ids.next(IdAllocator.LABELS));
+    }
+
+    /**
+     * Create an allocator that writes its blocks straight to the fake table, like a queue that
+     * commits right away.
+     *
+     * @return The allocator
+     */
+    private IdAllocator newAllocator() {
+        return new IdAllocator(mDao, block -> {
+            mReserved++;
+            mDao.upsertAll(Collections.singletonList(block));
+        });
+    }
+
+    /**
+     * Turn a map of high-water marks into rows.
+     *
+     * @param marks The high-water mark of each table
+     *
+     * @return A row for each table
+     */
+    private static List<IdBlock> toBlocks(Map<String, Long> marks) {
+        List<IdBlock> blocks = new ArrayList<>();
+        for (Map.Entry<String, Long> mark : marks.entrySet()) {
+            blocks.add(new IdBlock(mark.getKey(), mark.getValue()));
+        }
+        return blocks;
+    }
+}
@@ -0,0 +1,193 @@
+package com.evanv.taskapp.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.evanv.taskapp.logic.Event;
+import com.evanv.taskapp.logic.Label;
+import com.evanv.taskapp.logic.Project;
+import com.evanv.taskapp.logic.Task;
+
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for ModelSnapshot, checking every persisted field survives a round trip through a file,
+ * and that snapshots from another schema or cut short are rejected.
+ *
+ * @author Evan Voogd
+ */
+public class ModelSnapshotTest {
+    private static final int STAMP = 6;            // Stamp the snapshots are written with
+    private static final int BENCHMARK_TASKS = 10000; // Tasks in the timed snapshot
+
+    /**
+     * Checks every persisted field of every entity is read back as it was written.
+     *
+     * @throws IOException If the temporary file can't be made
+     */
+    @Test
+    public void roundTrip() throws IOException {
+        Project project = new Project("School", 3, null);
+        project.setID(7);
+        Project goal = new Project("Work", 5, "Ship it");
+        goal.setID(8);
+        Label label = new Label("Reading", 2);
+        label.setID(11);
+
+        LocalDate today = LocalDate.of(2023, 3, 1);
+        Task parent = new Task("Read chapter 1", today, today.plusDays(3), today.plusDays(1), 45,
+                new ArrayList<>(), 2, 7, new ArrayList<>(Collections.singletonList(11L)));
+        parent.setID(1);
+        Task child = new Task("Write essay", today, today.plusDays(9), LocalDate.MIN, 120,
+                new ArrayList<>(Arrays.asList(1L, 99L)), 3, -1, new ArrayList<>());
+        child.setID(2);
+
+        Event event = new Event("Lecture", 75, LocalDateTime.of(2023, 3, 2, 9, 30));
+        event.setID(4);
+
+        File file = write(ModelSnapshot.encode(STAMP, Arrays.asList(child, parent),
+                Collections.singletonList(event), Arrays.asList(project, goal),
+                Collections.singletonList(label)));
+        ModelSnapshot snapshot = ModelSnapshot.read(file, STAMP);
+        assertTrue(file.delete());
+
+        assertNotNull(snapshot);
+
+        assertEquals(2, snapshot.getProjects().size());
+        assertEquals("School", snapshot.getProjects().get(0).getName());
+        assertEquals(3, snapshot.getProjects().get(0).getColor());
+        assertNull(snapshot.getProjects().get(0).getGoal());
+        assertEquals("Ship it", snapshot.getProjects().get(1).getGoal());
+        assertEquals(8, snapshot.getProjects().get(1).getID());
+
+        assertEquals(11, snapshot.getLabels().get(0).getID());
+        assertEquals("Reading", snapshot.getLabels().get(0).getName());
+
+        // Tasks come back in schedule order
+        List<Task> tasks = snapshot.getTasks();
+        assertEquals(2, tasks.size());
+        Task readChild = tasks.get(0);
+        Task readParent = tasks.get(1);
+        assertEquals(2, readChild.getID());
+        assertEquals(LocalDate.MIN, readChild.getDoDate());
+        assertEquals(Arrays.asList(1L, 99L), readChild.getParentArr());
+        assertEquals(-1, readChild.getProjectID());
+        assertEquals("Read chapter 1", readParent.getName());
+        assertEquals(today, readParent.getEarlyDate());
+        assertEquals(today.plusDays(1), readParent.getDoDate());
+        assertEquals(today.plusDays(3), readParent.getDueDate());
+        assertEquals(45, readParent.getTimeToComplete());
+        assertEquals(2, readParent.getPriority());
+        assertEquals(7, readParent.getProjectID());
+        assertEquals(Collections.singletonList(11L), readParent.getLabelIDs());
+
+        Event readEvent = snapshot.getEvents().get(0);
+        assertEquals(4, readEvent.getID());
+        assertEquals("Lecture", readEvent.getName());
+        assertEquals(75, readEvent.getLength());
+        assertEquals(LocalDateTime.of(2023, 3, 2, 9, 30), readEvent.getDoDate());
+    }
+
+    /**
+     * Checks snapshots with a different stamp, cut short or missing aren't read.
+     *
+     * @throws IOException If the temporary file can't be made
+     */
+    @Test
+    public void rejectsStaleOrDamaged() throws IOException {
+        byte[] encoded = ModelSnapshot.encode(STAMP, tasks(100), new ArrayList<>(),
+                new ArrayList<>(), new ArrayList<>());
+
+        File file = write(encoded);
+        assertNotNull(ModelSnapshot.read(file, STAMP));
+        assertNull(ModelSnapshot.read(file, STAMP + 1));
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(encoded.length - 9);
+        }
+        assertNull(ModelSnapshot.read(file, STAMP));
+
+        assertTrue(file.delete());
+        assertNull(ModelSnapshot.read(file, STAMP));
+    }
+
+    /**
+     * Checks a snapshot of many tasks is written and read back whole.
+     *
+     * @throws IOException If the temporary file can't be made
+     */
+    @Test
+    public void readsLargeModel() throws IOException {
+        List<Task> tasks = tasks(BENCHMARK_TASKS);
+
+        byte[] encoded = ModelSnapshot.encode(STAMP, tasks, new ArrayList<>(), new ArrayList<>(),
+                new ArrayList<>());
+
+        File file = write(encoded);
+        ModelSnapshot snapshot = ModelSnapshot.read(file, STAMP);
+        assertTrue(file.delete());
+
+        assertNotNull(snapshot);
+        assertEquals(BENCHMARK_TASKS, snapshot.getTasks().size());
+    }
+
+    /**
+     * Make tasks with random dates and a chain of dependencies.
+     *
+     * @param count Number of tasks to make
+     *
+     * @return The tasks
+     */
+    private static List<Task> tasks(int count) {
+        Random random = new Random(count);
+        LocalDate today = LocalDate.of(2023, 3, 1);
+        List<Task> toReturn = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            ArrayList<Long> parents = new ArrayList<>();
+            if (i > 0) {
+                parents.add((long) i);
+            }
+
+            LocalDate doDate = today.plusDays(random.nextInt(60));
+            Task t = new Task("Task " + i, today, doDate.plusDays(5), doDate, 30, parents,
+                    random.nextInt(4), -1, new ArrayList<>());
+            t.setID(i + 1);
+            toReturn.add(t);
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Write an encoded snapshot to a temporary file.
+     *
+     * @param encoded The encoded snapshot
+     *
+     * @return The file
+     *
+     * @throws IOException If the temporary file can't be made
+     */
+    private static File write(byte[] encoded) throws IOException {
+        File file = File.createTempFile("snapshot", null);
+        File temp = ModelSnapshot.writeTemp(encoded, file);
+
+        assertNotNull(temp);
+        assertTrue(temp.renameTo(file));
+
+        return file;
+    }
+}
@@ -0,0 +1,334 @@
+package com.evanv.taskapp.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for WriteQueue, checking changes to the same item are folded together and a burst of
+ * changes is committed as one batch in one transaction, and a batch that fails is retried until
+ * the change that keeps failing is found and dropped.
+ *
+ * @author Evan Voogd
+ */
+public class WriteQueueTest {
+    private static final long TIMEOUT_MS = 5000; // Longest to wait for the queue to empty
+
+    private final List<String> mLog = Collections.synchronizedList(new ArrayList<>()); // Writes
+    private int mTransactions;                   // Number of transactions run
+
+    /**
+     * An item with a name to check writes by and an ID for inserts to set.
+     */
+    private static class Item {
+        private final String mName;  // Name used in the log
+        private long mID;            // ID set when inserted
+        private boolean mLinksDirty; // Has links to write with it, like a task's parents
+
+        /**
+         * Creates a new item.
+         *
+         * @param name Name used in the log
+         */
+        Item(String name) {
+            mName = name;
+        }
+    }
+
+    /**
+     * A table that logs what it's asked to write, giving inserted items IDs counting up from 1.
+     */
+    private class LogTable extends WriteQueue.Table<Item> {
+        private final String mName; // Name used in the log
+        private long mNextID = 1;   // ID given to the next item inserted
+
+        /**
+         * Creates a new table.
+         *
+         * @param name Name used in the log
+         */
+        LogTable(String name) {
+            mName = name;
+        }
+
+        @Override
+        List<Long> insert(List<Item> items) {
+            log("insert", items);
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < items.size(); i++) {
+                ids.add(mNextID++);
+            }
+            return ids;
+        }
+
+        @Override
+        void update(List<Item> items) {
+            log("update", items);
+        }
+
+        @Override
+        void delete(List<Item> items) {
+            log("delete", items);
+        }
+
+        @Override
+        void inserted(Item item, long id) {
+            item.mID = id;
+        }
+
+        /**
+         * Log a write, e.g. "task insert a b".
+         *
+         * @param type The type of write
+         * @param items The items written
+         */
+        private void log(String type, List<Item> items) {
+            StringBuilder entry = new StringBuilder(mName + " " + type);
+            for (Item item : items) {
+                entry.append(' ').append(item.mName);
+            }
+            mLog.add(entry.toString());
+        }
+    }
+
+    /**
+     * Checks a burst of changes is committed in one transaction, with repeated changes to an item
+     * folded into one and an item inserted then deleted never written at all.
+     */
+    @Test
+    public void coalescesBurstIntoOneBatch() {
+        LogTable tasks = new LogTable("task");
+        WriteQueue queue = newQueue(tasks);
+
+        Item a = new Item("a");
+        Item b = new Item("b");
+        Item c = new Item("c");
+        Item d = new Item("d");
+
+        queue.enqueue(tasks, a, WriteQueue.INSERT);
+        queue.enqueue(tasks, b, WriteQueue.UPDATE);
+        for (int i = 0; i < 10; i++) {
+            queue.enqueue(tasks, a, WriteQueue.UPDATE);
+            queue.enqueue(tasks, b, WriteQueue.UPDATE);
+        }
+        queue.enqueue(tasks, c, WriteQueue.INSERT);
+        queue.enqueue(tasks, c, WriteQueue.DELETE);
+        queue.enqueue(tasks, d, WriteQueue.UPDATE);
+        queue.enqueue(tasks, d, WriteQueue.DELETE);
+        assertEquals(3, queue.getDepth());
+
+        assertTrue(queue.awaitIdle(TIMEOUT_MS));
+
+        assertEquals(Arrays.asList("task insert a", "task update b", "task delete d"), mLog);
+        assertEquals(1, mTransactions);
+        assertEquals(1, queue.getCommits());
+        assertEquals(3, queue.getWrites());
+        assertEquals(22, queue.getCoalesced());
+        assertEquals(0, queue.getDepth());
+        assertEquals(1, a.mID);
+    }
+
+    /**
+     * Checks inserts are committed before updates and deletes, table by table in the order the
+     * tables were given, so IDs are set before anything refers to them.
+     */
+    @Test
+    public void insertsFirstInTableOrder() {
+        LogTable projects = new LogTable("project");
+        LogTable tasks = new LogTable("task");
+        WriteQueue queue = newQueue(projects, tasks);
+
+        Item task = new Item("t");
+        Item old = new Item("o");
+        Item project = new Item("p");
+
+        queue.enqueue(tasks, old, WriteQueue.DELETE);
+        queue.enqueue(tasks, task, WriteQueue.INSERT);
+        queue.enqueue(projects, project, WriteQueue.INSERT);
+        queue.enqueue(tasks, old, WriteQueue.UPDATE);
+        queue.flush();
+
+        assertTrue(queue.awaitIdle(TIMEOUT_MS));
+
+        assertEquals(Arrays.asList("project insert p", "task insert t", "task delete o"), mLog);
+    }
+
+    /**
+     * Checks a batch whose transaction fails is kept and retried rather than dropped, with changes
+     * made while it failed folded in, and that the queue isn't reported idle until it commits.
+     *
+     * @throws InterruptedException If the test is interrupted
+     */
+    @Test
+    public void retriesFailedCommit() throws InterruptedException {
+        LogTable tasks = new LogTable("task");
+        List<WriteQueue.Table<?>> list = new ArrayList<WriteQueue.Table<?>>(
+                Collections.singletonList(tasks));
+        AtomicInteger failuresLeft = new AtomicInteger(1);
+        List<Long> idleAt = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch failed = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        CountDownLatch idle = new CountDownLatch(1);
+
+        WriteQueue[] queue = new WriteQueue[1];
+        queue[0] = new WriteQueue(list, batch -> {
+            if (failuresLeft.getAndDecrement() > 0) {
+                failed.countDown();
+                try {
+                    resume.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("disk I/O error");
+            }
+            batch.run();
+        }, () -> {
+            idleAt.add(queue[0].getCommits());
+            idle.countDown();
+        });
+
+        Item a = new Item("a");
+        Item b = new Item("b");
+        queue[0].enqueue(tasks, a, WriteQueue.INSERT);
+        queue[0].enqueue(tasks, b, WriteQueue.UPDATE);
+        queue[0].flush();
+
+        // Change b while the failing batch is in flight, so it has to be folded in
+        assertTrue(failed.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        queue[0].enqueue(tasks, b, WriteQueue.DELETE);
+        resume.countDown();
+
+        assertTrue(queue[0].awaitIdle(TIMEOUT_MS));
+        assertTrue(idle.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+        // Only the commit that succeeded reported the queue idle
+        assertEquals(Arrays.asList("task insert a", "task delete b"), mLog);
+        assertEquals(1, queue[0].getFailures());
+        assertEquals(1, queue[0].getCommits());
+        assertEquals(2, queue[0].getWrites());
+        assertEquals(Collections.singletonList(1L), idleAt);
+    }
+
+    /**
+     * Checks a change that fails every commit is split off from the rest of its batch after
+     * MAX_RETRIES tries and dropped, and every other change is still written.
+     */
+    @Test
+    public void dropsChangeThatKeepsFailing() {
+        LogTable tasks = new LogTable("task") {
+            @Override
+            void update(List<Item> items) {
+                for (Item item : items) {
+                    if (item.mName.equals("bad")) {
+                        throw new IllegalStateException("constraint failed");
+                    }
+                }
+                super.update(items);
+            }
+        };
+        List<WriteQueue.Table<?>> list = new ArrayList<WriteQueue.Table<?>>(
+                Collections.singletonList(tasks));
+
+        // Rolls back what a failed transaction logged, as the database would
+        WriteQueue queue = new WriteQueue(list, batch -> {
+            int size = mLog.size();
+            try {
+                batch.run();
+            } catch (RuntimeException e) {
+                while (mLog.size() > size) {
+                    mLog.remove(size);
+                }
+                throw e;
+            }
+        }, null);
+
+        queue.enqueue(tasks, new Item("a"), WriteQueue.INSERT);
+        queue.enqueue(tasks, new Item("bad"), WriteQueue.UPDATE);
+        queue.enqueue(tasks, new Item("c"), WriteQueue.UPDATE);
+        queue.flush();
+
+        assertTrue(queue.awaitIdle(TIMEOUT_MS));
+
+        assertEquals(Arrays.asList("task insert a", "task update c"), mLog);
+        assertEquals(1, queue.getDropped());
+        assertEquals(2, queue.getWrites());
+        assertTrue(queue.getFailures() > WriteQueue.MAX_RETRIES);
+    }
+
+    /**
+     * Checks an item whose links were taken as written in a transaction that was then rolled
+     * back has them written again by the retry, as a task's parents and labels are.
+     */
+    @Test
+    public void rewritesLinksAfterRollback() {
+        LogTable tasks = new LogTable("task") {
+            @Override
+            void written(List<Item> items, int type) {
+                for (Item item : items) {
+                    if (item.mLinksDirty) {
+                        item.mLinksDirty = false;
+                        mLog.add("links " + item.mName);
+                    }
+                }
+            }
+
+            @Override
+            void rolledBack(Item item) {
+                item.mLinksDirty = true;
+            }
+        };
+        List<WriteQueue.Table<?>> list = new ArrayList<WriteQueue.Table<?>>(
+                Collections.singletonList(tasks));
+        AtomicInteger failuresLeft = new AtomicInteger(1);
+
+        // The first transaction writes everything, then fails to commit and is rolled back
+        WriteQueue queue = new WriteQueue(list, batch -> {
+            int size = mLog.size();
+            batch.run();
+            if (failuresLeft.getAndDecrement() > 0) {
+                while (mLog.size() > size) {
+                    mLog.remove(size);
+                }
+                throw new IllegalStateException("disk I/O error");
+            }
+        }, null);
+
+        Item b = new Item("b");
+        b.mLinksDirty = true;
+        queue.enqueue(tasks, b, WriteQueue.UPDATE);
+        queue.flush();
+
+        assertTrue(queue.awaitIdle(TIMEOUT_MS));
+
+        assertEquals(Arrays.asList("task update b", "links b"), mLog);
+        assertEquals(1, queue.getFailures());
+        assertEquals(1, queue.getCommits());
+    }
+
+    /**
+     * Create a queue writing to the given tables, counting its transactions.
+     *
+     * @param tables The tables, in insert order
+     *
+     * @return The queue
+     */
+    private WriteQueue newQueue(LogTable... tables) {
+        List<WriteQueue.Table<?>> list = new ArrayList<WriteQueue.Table<?>>(Arrays.asList(tables));
+
+        return new WriteQueue(list, batch -> {
+            synchronized (this) {
+                mTransactions++;
+            }
+            batch.run();
+        }, null);
+    }
+}
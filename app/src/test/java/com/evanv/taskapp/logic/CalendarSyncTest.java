@@ -0,0 +1,250 @@
+package com.evanv.taskapp.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.evanv.taskapp.db.BackupRoundTrip;
+import com.evanv.taskapp.db.CalendarSyncState;
+import com.evanv.taskapp.db.ImportedEvent;
+
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneId;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for CalendarSync, checking a fake calendar provider is mirrored with only the changed
+ * occurrences in each change set, that a sync with nothing changed doesn't read any links, and
+ * that a sync after restoring a backup doesn't mirror anything twice.
+ *
+ * @author Evan Voogd
+ */
+public class CalendarSyncTest {
+    private static final ZoneId ZONE = ZoneId.of("UTC");                  // Zone of the fake
+    private static final LocalDate TODAY = LocalDate.of(2024, 1, 15);     // First day mirrored
+    private static final LocalDate HORIZON = TODAY.plusDays(90);          // Last day mirrored
+    private static final long HOUR = 3600000;                             // An hour in ms
+    private static final long START = TODAY.toEpochDay() * 24 * HOUR;     // Midnight today in ms
+
+    /**
+     * Checks occurrences are added, changed and removed, and only the ones that changed are in
+     * each change set.
+     */
+    @Test
+    public void mirrorsChanges() {
+        FakeSource source = new FakeSource();
+        FakeStore store = new FakeStore();
+        source.add(1, new CalendarSync.Instance(10, START + 9 * HOUR, START + 10 * HOUR,
+                "Standup", false));
+        source.add(1, new CalendarSync.Instance(11, START + 30 * HOUR, START + 32 * HOUR,
+                "Review", false));
+        source.add(1, new CalendarSync.Instance(12, START, START + 24 * HOUR, "Holiday", true));
+        source.add(1, new CalendarSync.Instance(13, START - HOUR, START + HOUR, "Late", false));
+
+        // All-day and in-progress occurrences are left out
+        CalendarSync.ChangeSet changes = store.sync(source);
+        assertEquals(2, changes.mAdded.size());
+        assertEquals(0, changes.mChanged.size());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 9, 0), changes.mAdded.get(0).mStart);
+        assertEquals(60, changes.mAdded.get(0).mLength);
+        assertEquals("calendar:1", changes.mAdded.get(0).mSource);
+
+        // Renaming one occurrence only rewrites that one
+        source.mInstances.get(1L).set(1, new CalendarSync.Instance(11, START + 30 * HOUR,
+                START + 32 * HOUR, "Design review", false));
+        changes = store.sync(source);
+        assertEquals(0, changes.mAdded.size());
+        assertEquals(1, changes.mChanged.size());
+        assertEquals("Design review", changes.mChanged.get(0).mName);
+        assertEquals(store.idOf("11@" + (START + 30 * HOUR)), changes.mChanged.get(0).mEventID);
+
+        // Deleting an occurrence removes its copy
+        source.mInstances.get(1L).remove(0);
+        changes = store.sync(source);
+        assertEquals(1, changes.size());
+        assertEquals("10@" + (START + 9 * HOUR), changes.mRemoved.get(0).getUID());
+
+        // Removing the calendar removes every copy and forgets it
+        source.mInstances.clear();
+        changes = store.sync(source);
+        assertEquals(1, changes.mRemoved.size());
+        assertEquals(1, changes.mForgotten.size());
+        assertTrue(store.mLinks.isEmpty());
+    }
+
+    /**
+     * Checks a sync with nothing changed returns an empty change set without reading any links,
+     * even with a few thousand occurrences mirrored.
+     */
+    @Test
+    public void unchangedSyncIsCheap() {
+        FakeSource source = new FakeSource();
+        FakeStore store = new FakeStore();
+        for (int i = 0; i < 5000; i++) {
+            source.add(i % 3, new CalendarSync.Instance(i, START + i * HOUR / 4,
+                    START + i * HOUR / 4 + HOUR, "Event " + i, false));
+        }
+
+        assertEquals(5000, store.sync(source).mAdded.size());
+        store.mLinkReads = 0;
+
+        CalendarSync.ChangeSet changes = store.sync(source);
+
+        assertTrue(changes.isEmpty());
+        assertEquals(0, store.mLinkReads);
+
+        // Only the calendar that changed has its links read
+        source.add(0, new CalendarSync.Instance(9999, START + HOUR, START + 2 * HOUR, "New",
+                false));
+        changes = store.sync(source);
+        assertEquals(1, changes.size());
+        assertEquals(1, store.mLinkReads);
+    }
+
+    /**
+     * Checks a sync after backing up and restoring the links and high-water marks adds nothing,
+     * and an occurrence changed since is rewritten in place rather than added again.
+     *
+     * @throws IOException If the backup's temporary file couldn't be used
+     */
+    @Test
+    public void syncAfterRestoreAddsNothing() throws IOException {
+        FakeSource source = new FakeSource();
+        FakeStore store = new FakeStore();
+        for (int i = 0; i < 2500; i++) {
+            source.add(i % 3, new CalendarSync.Instance(i, START + i * HOUR / 4,
+                    START + i * HOUR / 4 + HOUR, "Event " + i, false));
+        }
+        assertEquals(2500, store.sync(source).mAdded.size());
+
+        BackupRoundTrip backup = BackupRoundTrip.of(store.mLinks.values(),
+                store.mStates.values());
+        FakeStore restored = new FakeStore();
+        for (ImportedEvent link : backup.getLinks()) {
+            restored.mLinks.put(link.getUID(), link);
+        }
+        for (CalendarSyncState state : backup.getSyncStates()) {
+            restored.mStates.put(state.getCalendar(), state);
+        }
+
+        assertEquals(2500, restored.mLinks.size());
+        assertTrue(restored.sync(source).isEmpty());
+
+        String uid = "7@" + (START + 7 * HOUR / 4);
+        source.mInstances.get(1L).set(2, new CalendarSync.Instance(7, START + 7 * HOUR / 4,
+                START + 7 * HOUR / 4 + HOUR, "Renamed", false));
+        CalendarSync.ChangeSet changes = restored.sync(source);
+        assertEquals(0, changes.mAdded.size());
+        assertEquals(1, changes.mChanged.size());
+        assertEquals(store.idOf(uid), changes.mChanged.get(0).mEventID);
+    }
+
+    /**
+     * A calendar provider held in memory.
+     */
+    private static class FakeSource implements CalendarSync.Source {
+        // Occurrences of each calendar's events
+        private final Map<Long, List<CalendarSync.Instance>> mInstances = new HashMap<>();
+
+        /**
+         * Add an occurrence to a calendar.
+         *
+         * @param calendar ID of the calendar
+         * @param instance The occurrence
+         */
+        void add(long calendar, CalendarSync.Instance instance) {
+            if (!mInstances.containsKey(calendar)) {
+                mInstances.put(calendar, new ArrayList<>());
+            }
+            mInstances.get(calendar).add(instance);
+        }
+
+        @Override
+        public List<Long> getCalendars() {
+            return new ArrayList<>(mInstances.keySet());
+        }
+
+        @Override
+        public List<CalendarSync.Instance> getInstances(long calendar, long begin, long end) {
+            // Every occurrence is in the window, so CalendarSync has to drop the ones that aren't
+            return new ArrayList<>(mInstances.get(calendar));
+        }
+    }
+
+    /**
+     * The links and high-water marks, applying each change set like LogicSubsystem would.
+     */
+    private static class FakeStore implements CalendarSync.Store {
+        private final Map<String, ImportedEvent> mLinks = new HashMap<>(); // Links by UID
+        private final Map<Long, CalendarSyncState> mStates = new HashMap<>(); // By calendar
+        private long mNextID = 1;  // ID of the next event added
+        private int mLinkReads;    // Number of times getLinks was called
+
+        /**
+         * Sync a source, then apply the changes.
+         *
+         * @param source The calendars
+         *
+         * @return The changes that were applied
+         */
+        CalendarSync.ChangeSet sync(CalendarSync.Source source) {
+            CalendarSync.ChangeSet changes = CalendarSync.read(source, this, ZONE, TODAY,
+                    HORIZON);
+
+            for (ImportedEvent link : changes.mRemoved) {
+                mLinks.remove(link.getUID());
+            }
+            for (CalendarSync.Occurrence o : changes.mChanged) {
+                mLinks.put(o.mUID, new ImportedEvent(o.mSource, o.mUID, o.mEventID, false,
+                        o.mVersion));
+            }
+            for (CalendarSync.Occurrence o : changes.mAdded) {
+                mLinks.put(o.mUID, new ImportedEvent(o.mSource, o.mUID, mNextID++, false,
+                        o.mVersion));
+            }
+            for (CalendarSyncState state : changes.mSynced) {
+                mStates.put(state.getCalendar(), state);
+            }
+            for (CalendarSyncState state : changes.mForgotten) {
+                mStates.remove(state.getCalendar());
+            }
+
+            return changes;
+        }
+
+        /**
+         * Get the ID of the event mirroring an occurrence.
+         *
+         * @param uid The occurrence's UID
+         *
+         * @return The ID of its event
+         */
+        long idOf(String uid) {
+            return mLinks.get(uid).getItemID();
+        }
+
+        @Override
+        public List<CalendarSyncState> getSyncStates() {
+            return new ArrayList<>(mStates.values());
+        }
+
+        @Override
+        public List<ImportedEvent> getLinks(String source) {
+            mLinkReads++;
+
+            List<ImportedEvent> links = new ArrayList<>();
+            for (ImportedEvent link : mLinks.values()) {
+                if (link.getSource().equals(source)) {
+                    links.add(link);
+                }
+            }
+            return links;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.evanv.taskapp.logic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Tests for CompressedBitmap, comparing it against a TreeSet across sparse and dense chunks.
+ *
+ * @author Evan Voogd
+ */
+public class CompressedBitmapTest {
+    private static final long SEED = 20230310L; // Seed so failures can be reproduced
+
+    /**
+     * Adds and removes random values, crossing the array/bitmap threshold in both directions and
+     * spanning several chunks, and checks the set matches a TreeSet throughout.
+     */
+    @Test
+    public void matchesTreeSet() {
+        Random random = new Random(SEED);
+        CompressedBitmap bitmap = new CompressedBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+
+        // Dense enough in the first chunk to become a bitmap, sparse in the others
+        for (int i = 0; i < 20000; i++) {
+            int value = random.nextInt(8) == 0 ? random.nextInt(300000) : random.nextInt(10000);
+            bitmap.add(value);
+            expected.add(value);
+        }
+        check(expected, bitmap);
+
+        // Remove most values so the dense chunk turns back into an array
+        for (int i = 0; i < 40000; i++) {
+            int value = random.nextInt(10000);
+            bitmap.remove(value);
+            expected.remove(value);
+        }
+        check(expected, bitmap);
+
+        for (int value : expected) {
+            assertTrue(bitmap.contains(value));
+        }
+    }
+
+    /**
+     * Checks intersections and unions against TreeSets for every combination of sparse and dense
+     * chunks.
+     */
+    @Test
+    public void andOrMatchTreeSet() {
+        Random random = new Random(SEED);
+        int[] sizes = {50, 3000, 9000, 30000};
+
+        for (int sizeA : sizes) {
+            for (int sizeB : sizes) {
+                CompressedBitmap a = new CompressedBitmap();
+                CompressedBitmap b = new CompressedBitmap();
+                TreeSet<Integer> setA = new TreeSet<>();
+                TreeSet<Integer> setB = new TreeSet<>();
+
+                for (int i = 0; i < sizeA; i++) {
+                    int value = random.nextInt(140000);
+                    a.add(value);
+                    setA.add(value);
+                }
+                for (int i = 0; i < sizeB; i++) {
+                    int value = random.nextInt(140000);
+                    b.add(value);
+                    setB.add(value);
+                }
+
+                TreeSet<Integer> intersection = new TreeSet<>(setA);
+                intersection.retainAll(setB);
+                TreeSet<Integer> union = new TreeSet<>(setA);
+                union.addAll(setB);
+
+                check(intersection, a.and(b));
+                check(union, a.or(b));
+
+                // Neither input is modified
+                check(setA, a);
+                check(setB, b);
+            }
+        }
+    }
+
+    /**
+     * Check a bitmap holds exactly the values of a set.
+     *
+     * @param expected The values that should be in the bitmap
+     * @param bitmap The bitmap to check
+     */
+    private static void check(TreeSet<Integer> expected, CompressedBitmap bitmap) {
+        int[] array = new int[expected.size()];
+        int i = 0;
+        for (int value : expected) {
+            array[i++] = value;
+        }
+
+        assertEquals(expected.size(), bitmap.cardinality());
+        assertArrayEquals(array, bitmap.toArray());
+    }
+}
@@ -0,0 +1,66 @@
+package com.evanv.taskapp.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+
+import java.util.Locale;
+
+/**
+ * Tests for DayHeaderFormatter's ordinal dates, year removal and header cache.
+ *
+ * @author Evan Voogd
+ */
+public class DayHeaderFormatterTest {
+    private static final String TEMPLATE = "%s\n%d minutes"; // Same as R.string.schedule_for
+
+    /**
+     * Checks English dates get an ordinal day, with and without the year.
+     */
+    @Test
+    public void formatsOrdinalDates() {
+        DayHeaderFormatter formatter = new DayHeaderFormatter(Locale.US, TEMPLATE);
+
+        assertEquals("March 3rd, 2023", formatter.formatDate(LocalDate.of(2023, 3, 3), true));
+        assertEquals("March 3rd", formatter.formatDate(LocalDate.of(2023, 3, 3), false));
+        assertEquals("June 11th", formatter.formatDate(LocalDate.of(2023, 6, 11), false));
+        assertEquals("December 22nd", formatter.formatDate(LocalDate.of(2023, 12, 22), false));
+        assertEquals("January 31st, 2024", formatter.formatDate(LocalDate.of(2024, 1, 31), true));
+    }
+
+    /**
+     * Checks the year and the separators around it are removed wherever it is in the pattern.
+     */
+    @Test
+    public void removesYear() {
+        assertEquals("MMMM d", DayHeaderFormatter.removeYear("MMMM d, y"));
+        assertEquals("d MMMM", DayHeaderFormatter.removeYear("d MMMM y"));
+        assertEquals("d. MMMM", DayHeaderFormatter.removeYear("d. MMMM y"));
+        assertEquals("d 'de' MMMM", DayHeaderFormatter.removeYear("d 'de' MMMM 'de' y"));
+        assertEquals("MMMM d.", DayHeaderFormatter.removeYear("y. MMMM d."));
+        assertEquals("MMMM d", DayHeaderFormatter.removeYear("MMMM d"));
+    }
+
+    /**
+     * Checks a header is reused until the day's total minutes change.
+     */
+    @Test
+    public void cachesUntilTotalTimeChanges() {
+        DayHeaderFormatter formatter = new DayHeaderFormatter(Locale.US, TEMPLATE);
+        LocalDate date = LocalDate.of(2023, 3, 3);
+
+        String header = formatter.getHeader(date, false, 45);
+        assertEquals("March 3rd\n45 minutes", header);
+        assertSame(header, formatter.getHeader(date, false, 45));
+
+        String changed = formatter.getHeader(date, false, 60);
+        assertEquals("March 3rd\n60 minutes", changed);
+        assertSame(changed, formatter.getHeader(date, false, 60));
+
+        // Showing the year changes the header too
+        assertNotSame(changed, formatter.getHeader(date, true, 60));
+    }
+}
@@ -0,0 +1,258 @@
+package com.evanv.taskapp.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.evanv.taskapp.TestReport;
+
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmarks the work the LogicSubsystem does at startup to rebuild the project, label and
+ * parent/child references the DB cannot store, at 1k, 10k and 50k tasks. The wiring should be
+ * linear in the number of tasks plus dependencies, so the quadratic approach it replaced is also
+ * timed (where it finishes in reasonable time) for comparison. The times are saved with
+ * TestReport.
+ *
+ * @author Evan Voogd
+ */
+public class DependencyWiringBenchmarkTest {
+    private static final long SEED = 20230301L;          // Seed so runs are comparable
+    private static final int[] SIZES = {1000, 10000, 50000}; // Task counts to benchmark
+    private static final int MAX_QUADRATIC_SIZE = 10000; // Largest size to time the old approach
+    private static final int NUM_PROJECTS = 25;          // Number of projects in each data set
+    private static final int NUM_LABELS = 40;            // Number of labels in each data set
+    private static final int MAX_PARENTS = 4;            // Max parents per task
+    private static final int RUNS = 3;                   // Runs per size, best one is reported
+
+    // Very generous, as this runs on whatever machine runs the tests. Wiring 50k tasks takes a few
+    // tens of milliseconds when linear, and tens of seconds when quadratic.
+    private static final long MAX_WIRING_MS = 5000;
+
+    /**
+     * Times startup wiring at every size, makes sure the largest finishes quickly, and saves the
+     * times as a report.
+     *
+     * @throws IOException If the report couldn't be saved
+     */
+    @Test
+    public void wiringIsLinear() throws IOException {
+        TestReport report = new TestReport("DependencyWiring");
+        report.line("Startup dependency wiring (best of %d)", RUNS);
+
+        for (int size : SIZES) {
+            long best = Long.MAX_VALUE;
+            int edges = 0;
+
+            for (int run = 0; run < RUNS; run++) {
+                DataSet data = new DataSet(size);
+                edges = data.mEdges;
+
+                long start = System.nanoTime();
+                data.wire();
+                best = Math.min(best, System.nanoTime() - start);
+            }
+
+            String pairwise = "";
+            if (size <= MAX_QUADRATIC_SIZE) {
+                DataSet data = new DataSet(size);
+
+                long start = System.nanoTime();
+                data.wireQuadratic();
+                pairwise = String.format(Locale.ROOT, " (pairwise: %.2f ms)",
+                        (System.nanoTime() - start) / 1e6);
+            }
+
+            report.line("  %,6d tasks, %,7d edges: %8.2f ms, %.1f ns per task or edge%s", size,
+                    edges, best / 1e6, (double) best / (size + edges), pairwise);
+
+            assertTrue("Wiring " + size + " tasks took " + best / 1000000 + "ms",
+                    best / 1000000 <= MAX_WIRING_MS);
+        }
+
+        report.save();
+    }
+
+    /**
+     * Makes sure the indexed wiring builds the same graph, projects and labels as the pairwise
+     * approach it replaced.
+     */
+    @Test
+    public void wiringMatchesPairwise() {
+        DataSet indexed = new DataSet(1000);
+        DataSet pairwise = new DataSet(1000);
+
+        indexed.wire();
+        pairwise.wireQuadratic();
+
+        for (int i = 0; i < indexed.mTasks.size(); i++) {
+            Task a = indexed.mTasks.get(i);
+            Task b = pairwise.mTasks.get(i);
+
+            assertEquals(ids(b.getParents()), ids(a.getParents()));
+            assertEquals(ids(b.getChildren()), ids(a.getChildren()));
+            assertEquals(b.getProject() == null, a.getProject() == null);
+            if (a.getProject() != null) {
+                assertEquals(b.getProject().getID(), a.getProject().getID());
+            }
+            assertEquals(b.getLabels().size(), a.getLabels().size());
+        }
+
+        for (int i = 0; i < indexed.mProjects.size(); i++) {
+            assertEquals(pairwise.mProjects.get(i).getTasks().size(),
+                    indexed.mProjects.get(i).getTasks().size());
+        }
+
+        // Dangling parent IDs (parent deleted without updating the DB) are skipped
+        Task orphan = indexed.mTasks.get(indexed.mTasks.size() - 1);
+        assertTrue(orphan.getParentArr().contains(Long.MAX_VALUE));
+        for (Task parent : orphan.getParents()) {
+            assertSame(parent, indexed.mTasks.get((int) parent.getID() - 1));
+        }
+    }
+
+    /**
+     * Sorted IDs of a list of tasks, as the two approaches may wire them in different orders.
+     *
+     * @param tasks The tasks
+     *
+     * @return The sorted IDs of the tasks
+     */
+    private static List<Long> ids(List<Task> tasks) {
+        List<Long> toReturn = new ArrayList<>();
+
+        for (Task t : tasks) {
+            toReturn.add(t.getID());
+        }
+
+        Collections.sort(toReturn);
+        return toReturn;
+    }
+
+    /**
+     * Tasks, projects and labels as they come out of the DB: references only stored as IDs.
+     */
+    private static class DataSet {
+        private final List<Task> mTasks;       // Tasks, task i has ID i + 1
+        private final List<Project> mProjects; // Projects
+        private final List<Label> mLabels;     // Labels
+        private int mEdges;                    // Number of dependencies
+
+        /**
+         * Generates a data set. Parents always have lower IDs than their children, so there are no
+         * cycles.
+         *
+         * @param size Number of tasks to generate
+         */
+        DataSet(int size) {
+            Random random = new Random(SEED);
+            LocalDate today = LocalDate.of(2024, 1, 15);
+
+            mProjects = new ArrayList<>();
+            for (int i = 0; i < NUM_PROJECTS; i++) {
+                Project p = new Project("Project " + i, i % 10, "");
+                p.setID(i + 1);
+                mProjects.add(p);
+            }
+
+            mLabels = new ArrayList<>();
+            for (int i = 0; i < NUM_LABELS; i++) {
+                Label l = new Label("Label " + i, i % 10);
+                l.setID(i + 1);
+                mLabels.add(l);
+            }
+
+            mTasks = new ArrayList<>();
+            mEdges = 0;
+            for (int i = 0; i < size; i++) {
+                ArrayList<Long> parents = new ArrayList<>();
+                int numParents = (i == 0) ? 0 : random.nextInt(MAX_PARENTS + 1);
+                for (int j = 0; j < numParents; j++) {
+                    parents.add((long) (1 + random.nextInt(i)));
+                }
+
+                if (i == size - 1) {
+                    parents.add(Long.MAX_VALUE);
+                }
+
+                ArrayList<Long> labels = new ArrayList<>();
+                int numLabels = random.nextInt(3);
+                for (int j = 0; j < numLabels; j++) {
+                    labels.add((long) (1 + random.nextInt(NUM_LABELS)));
+                }
+
+                long project = random.nextInt(3) == 0 ? -1 : 1 + random.nextInt(NUM_PROJECTS);
+                LocalDate doDate = today.plusDays(random.nextInt(60));
+
+                Task t = new Task("Task " + i, today, doDate.plusDays(7), doDate, 30, parents,
+                        random.nextInt(4), project, labels);
+                t.setID(i + 1);
+                mTasks.add(t);
+                mEdges += t.getParentArr().size();
+            }
+        }
+
+        /**
+         * Wire references the way the LogicSubsystem does at startup.
+         */
+        void wire() {
+            IdIndex<Task> taskIndex = new IdIndex<>(mTasks);
+            IdIndex<Project> projectIndex = new IdIndex<>(mProjects);
+            IdIndex<Label> labelIndex = new IdIndex<>(mLabels);
+
+            for (Task t : mTasks) {
+                t.initializeProject(projectIndex);
+                t.initializeLabels(labelIndex);
+            }
+
+            for (Task t : mTasks) {
+                t.initializeParents(taskIndex);
+            }
+        }
+
+        /**
+         * Wire references by comparing every task against every project, label and task, as the
+         * LogicSubsystem used to.
+         */
+        void wireQuadratic() {
+            for (Task t : mTasks) {
+                if (t.getProjectID() != -1) {
+                    for (Project p : mProjects) {
+                        if (p.getID() == t.getProjectID()) {
+                            t.setProject(p);
+                            p.addTask(t);
+                            break;
+                        }
+                    }
+                }
+
+                for (Label l : mLabels) {
+                    if (t.getLabelIDs().contains(l.getID())) {
+                        t.getLabels().add(l);
+                        l.addTask(t);
+                    }
+                }
+            }
+
+            for (Task t : mTasks) {
+                if (t.getParentArr().size() != 0) {
+                    for (Task other : mTasks) {
+                        if (t.getParentArr().contains(other.getID())) {
+                            t.addParent(other);
+                            other.addChild(t);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
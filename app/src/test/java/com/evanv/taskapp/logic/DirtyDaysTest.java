@@ -0,0 +1,77 @@
+package com.evanv.taskapp.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Tests for DirtyDays, checking repeated and adjacent changes are merged into as few ranges as
+ * possible and changes past the end of the schedule are reported as inserts/removes.
+ *
+ * @author Evan Voogd
+ */
+public class DirtyDaysTest {
+    /**
+     * Checks duplicate and adjacent days are merged into ranges.
+     */
+    @Test
+    public void mergesChangedDays() {
+        DirtyDays dirty = new DirtyDays(30);
+
+        for (int i = 0; i < 100; i++) {
+            dirty.mark(4);
+        }
+        dirty.mark(5);
+        dirty.mark(6);
+        dirty.mark(10);
+        dirty.mark(-3);
+
+        ScheduleChange change = dirty.publish(30);
+        List<ScheduleChange.Range> ranges = change.getChanged();
+
+        assertEquals(2, ranges.size());
+        assertEquals(4, ranges.get(0).getStart());
+        assertEquals(3, ranges.get(0).getCount());
+        assertEquals(10, ranges.get(1).getStart());
+        assertEquals(1, ranges.get(1).getCount());
+        assertTrue(change.isChanged(5));
+        assertFalse(change.isChanged(7));
+        assertEquals(0, change.getInsertedCount());
+        assertEquals(0, change.getRemovedCount());
+
+        // Publishing starts over
+        assertTrue(dirty.publish(30).isEmpty());
+    }
+
+    /**
+     * Checks days added or removed at the end are reported as one insert or remove, and aren't
+     * also reported as changed.
+     */
+    @Test
+    public void reportsInsertsAndRemoves() {
+        DirtyDays dirty = new DirtyDays(10);
+        dirty.mark(8);
+        dirty.mark(12);
+
+        ScheduleChange grown = dirty.publish(15);
+        assertEquals(1, grown.getChanged().size());
+        assertEquals(8, grown.getChanged().get(0).getStart());
+        assertEquals(10, grown.getInsertedStart());
+        assertEquals(5, grown.getInsertedCount());
+        assertEquals(0, grown.getRemovedCount());
+
+        dirty.mark(3);
+        dirty.mark(9);
+        ScheduleChange shrunk = dirty.publish(6);
+        assertEquals(1, shrunk.getChanged().size());
+        assertEquals(3, shrunk.getChanged().get(0).getStart());
+        assertEquals(6, shrunk.getRemovedStart());
+        assertEquals(9, shrunk.getRemovedCount());
+        assertEquals(0, shrunk.getInsertedCount());
+        assertEquals(6, shrunk.getNumDays());
+    }
+}
@@ -0,0 +1,315 @@
+package com.evanv.taskapp.logic;
+
+import static com.evanv.taskapp.logic.Task.getDiff;
+
+import org.threeten.bp.LocalDate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Exact reference scheduler used to measure how far the Optimizer is from the best possible
+ * schedule. Solves the same problem as the Optimizer - give every task a do date between it's
+ * earliest completion date and due date, no earlier than the do dates of it's parents - but finds
+ * the assignment with the minimum sum of squared daily commitments by branch-and-bound. As the
+ * total commitment over the schedule is fixed, this is the same as minimizing the variance the
+ * Optimizer is trying to reduce.
+ *
+ * Exponential in the worst case, so only intended for small instances (a few dozen tasks over a
+ * couple of weeks).
+ *
+ * @author Evan Voogd
+ */
+class ExactScheduler {
+    private int[] mLoad;        // mLoad[i] is the time committed i days past the start date
+    private Task[] mOrder;      // Tasks in the order they are branched on
+    private int[] mEarly;       // mEarly[k] is the early date index of mOrder[k]
+    private int[] mDue;         // mDue[k] is the due date index of mOrder[k]
+    private int[][] mParents;   // mParents[k] are the positions in mOrder of mOrder[k]'s parents
+    private int[] mSuffixTime;  // mSuffixTime[k] is the total time of mOrder[k..]
+    private int[] mSuffixEarly; // mSuffixEarly[k] is the earliest early date index of mOrder[k..]
+    private int[] mSuffixDue;   // mSuffixDue[k] is the latest due date index of mOrder[k..]
+    private int[] mCurrent;     // Current partial assignment, indexed like mOrder
+    private int[] mBest;        // Best complete assignment found so far, indexed like mOrder
+    private long mBestCost;     // Cost of mBest
+    private long mNodes;        // Number of search nodes expanded
+
+    /**
+     * Sum of squared daily commitments, the quantity minimized by this scheduler.
+     *
+     * @param load Array where load[i] is the time committed i days past the start date
+     *
+     * @return The sum of squares of load
+     */
+    static long cost(int[] load) {
+        long total = 0;
+
+        for (int l : load) {
+            total += (long) l * l;
+        }
+
+        return total;
+    }
+
+    /**
+     * Builds the per day commitment the Optimizer starts from: event time, plus the time already
+     * spent completing tasks today.
+     *
+     * @param days Number of days in the schedule
+     * @param eventSchedule eventSchedule[i] is the list of events i days past the start date
+     * @param todayTime Time already spent completing tasks today
+     *
+     * @return Array where the ith entry is the fixed commitment i days past the start date
+     */
+    static int[] baseLoad(int days, List<List<Event>> eventSchedule, int todayTime) {
+        int[] load = new int[days];
+
+        for (int i = 0; i < days; i++) {
+            load[i] = Optimizer.calculateTotalTime(i, eventSchedule);
+        }
+
+        if (days > 0) {
+            load[0] += todayTime;
+        }
+
+        return load;
+    }
+
+    /**
+     * Finds an optimal schedule for the given tasks.
+     *
+     * @param tasks The tasks to schedule. Parent/child relationships must already be wired.
+     * @param eventSchedule eventSchedule[i] is the list of events i days past the start date
+     * @param startDate The date representing index 0 of the schedule
+     * @param todayTime Time already spent completing tasks today
+     *
+     * @return Array where the ith entry is the do date index of tasks.get(i) in an optimal
+     *         schedule, or null if no schedule satisfies every constraint
+     */
+    int[] solve(List<Task> tasks, List<List<Event>> eventSchedule, LocalDate startDate,
+                int todayTime) {
+        int n = tasks.size();
+        int days = 1;
+
+        for (Task t : tasks) {
+            days = Math.max(days, getDiff(t.getDueDate(), startDate) + 1);
+        }
+
+        mLoad = baseLoad(days, eventSchedule, todayTime);
+        order(tasks);
+
+        mEarly = new int[n];
+        mDue = new int[n];
+        mParents = new int[n][];
+        for (int k = 0; k < n; k++) {
+            mEarly[k] = Math.max(0, getDiff(mOrder[k].getEarlyDate(), startDate));
+            mDue[k] = getDiff(mOrder[k].getDueDate(), startDate);
+
+            List<Task> parents = mOrder[k].getParents();
+            mParents[k] = new int[parents.size()];
+            for (int p = 0; p < parents.size(); p++) {
+                mParents[k][p] = indexOf(parents.get(p));
+            }
+        }
+
+        mSuffixTime = new int[n + 1];
+        mSuffixEarly = new int[n + 1];
+        mSuffixDue = new int[n + 1];
+        mSuffixEarly[n] = Integer.MAX_VALUE;
+        mSuffixDue[n] = Integer.MIN_VALUE;
+        for (int k = n - 1; k >= 0; k--) {
+            mSuffixTime[k] = mSuffixTime[k + 1] + mOrder[k].getTimeToComplete();
+            mSuffixEarly[k] = Math.min(mSuffixEarly[k + 1], mEarly[k]);
+            mSuffixDue[k] = Math.max(mSuffixDue[k + 1], mDue[k]);
+        }
+
+        mCurrent = new int[n];
+        mBest = null;
+        mBestCost = Long.MAX_VALUE;
+        mNodes = 0;
+
+        search(0, cost(mLoad));
+
+        if (mBest == null) {
+            return null;
+        }
+
+        int[] toReturn = new int[n];
+        for (int k = 0; k < n; k++) {
+            toReturn[tasks.indexOf(mOrder[k])] = mBest[k];
+        }
+
+        return toReturn;
+    }
+
+    /**
+     * Get the cost of the schedule found by the last call to solve.
+     *
+     * @return The sum of squared daily commitments of the optimal schedule
+     */
+    long getBestCost() {
+        return mBestCost;
+    }
+
+    /**
+     * Get the number of search nodes expanded by the last call to solve.
+     *
+     * @return The number of search nodes expanded
+     */
+    long getNodes() {
+        return mNodes;
+    }
+
+    /**
+     * Orders tasks so every parent comes before it's children, scheduling the longest available
+     * task first as placing large tasks early gives the bound more to work with.
+     *
+     * @param tasks The tasks to order
+     */
+    private void order(List<Task> tasks) {
+        int n = tasks.size();
+        mOrder = new Task[n];
+        List<Task> ready = new ArrayList<>();
+        int[] remainingParents = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            remainingParents[i] = tasks.get(i).getParents().size();
+            if (remainingParents[i] == 0) {
+                ready.add(tasks.get(i));
+            }
+        }
+
+        for (int k = 0; k < n; k++) {
+            if (ready.isEmpty()) {
+                throw new IllegalArgumentException("Task dependency graph contains a cycle");
+            }
+
+            Task next = ready.get(0);
+            for (Task t : ready) {
+                if (t.getTimeToComplete() > next.getTimeToComplete()) {
+                    next = t;
+                }
+            }
+            ready.remove(next);
+            mOrder[k] = next;
+
+            for (Task child : next.getChildren()) {
+                int i = tasks.indexOf(child);
+                if (--remainingParents[i] == 0) {
+                    ready.add(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the position of a task in mOrder.
+     *
+     * @param t The task to look for
+     *
+     * @return The position of t in mOrder
+     */
+    private int indexOf(Task t) {
+        for (int k = 0; k < mOrder.length; k++) {
+            if (mOrder[k] == t) {
+                return k;
+            }
+        }
+
+        throw new IllegalArgumentException("Parent is not part of the instance");
+    }
+
+    /**
+     * Assigns mOrder[k..] to days, keeping the best complete assignment in mBest.
+     *
+     * @param k Position in mOrder of the next task to assign
+     * @param currCost Cost of the current partial assignment
+     */
+    private void search(int k, long currCost) {
+        mNodes++;
+
+        if (k == mOrder.length) {
+            if (currCost < mBestCost) {
+                mBestCost = currCost;
+                mBest = mCurrent.clone();
+            }
+            return;
+        }
+
+        if (currCost + lowerBound(k) >= mBestCost) {
+            return;
+        }
+
+        // A task can't be done before any of it's parents
+        int low = mEarly[k];
+        for (int p : mParents[k]) {
+            low = Math.max(low, mCurrent[p]);
+        }
+        int high = mDue[k];
+
+        if (low > high) {
+            return;
+        }
+
+        // Try the least committed days first so a good schedule is found quickly
+        Integer[] candidates = new Integer[high - low + 1];
+        for (int d = low; d <= high; d++) {
+            candidates[d - low] = d;
+        }
+        Arrays.sort(candidates, (a, b) -> mLoad[a] - mLoad[b]);
+
+        int ttc = mOrder[k].getTimeToComplete();
+        for (int d : candidates) {
+            long newCost = currCost + (long) ttc * (2L * mLoad[d] + ttc);
+
+            mLoad[d] += ttc;
+            mCurrent[k] = d;
+            search(k + 1, newCost);
+            mLoad[d] -= ttc;
+        }
+    }
+
+    /**
+     * Lower bound on how much assigning mOrder[k..] will add to the cost. Pours the remaining time
+     * like water into every day any remaining task could be scheduled for, which is the best the
+     * remaining tasks could do if they could be split arbitrarily.
+     *
+     * @param k Position in mOrder of the next task to assign
+     *
+     * @return A lower bound on the increase in cost from assigning the remaining tasks
+     */
+    private long lowerBound(int k) {
+        int remaining = mSuffixTime[k];
+
+        if (remaining == 0) {
+            return 0;
+        }
+
+        int[] loads = Arrays.copyOfRange(mLoad, mSuffixEarly[k], mSuffixDue[k] + 1);
+        Arrays.sort(loads);
+
+        // Find the water level: the first i days are raised to level, which must lie below the
+        // next day's load.
+        long prefix = 0;
+        double level = 0;
+        int filled = loads.length;
+        for (int i = 0; i < loads.length; i++) {
+            prefix += loads[i];
+            level = (double) (prefix + remaining) / (i + 1);
+
+            if (i + 1 == loads.length || level <= loads[i + 1]) {
+                filled = i + 1;
+                break;
+            }
+        }
+
+        double increase = 0;
+        for (int i = 0; i < filled; i++) {
+            increase += level * level - (double) loads[i] * loads[i];
+        }
+
+        // Floor so floating point error can only loosen the bound
+        return (long) Math.floor(increase - 1e-6);
+    }
+}
@@ -0,0 +1,193 @@
+package com.evanv.taskapp.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+import org.threeten.bp.ZoneId;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+/**
+ * Tests for ICalendarReader, checking events are read with their times in the local zone and
+ * their RRULEs turned into RecurrenceRules, skipping the events the schedule can't hold.
+ *
+ * @author Evan Voogd
+ */
+public class ICalendarReaderTest {
+    private static final ZoneId ZONE = ZoneId.of("America/New_York"); // Zone events are read into
+
+    /**
+     * Checks folded lines, escapes, UTC and TZID times, DURATION and alarms are all read.
+     *
+     * @throws IOException Never, as the file is in memory
+     */
+    @Test
+    public void readsEvents() throws IOException {
+        ICalendarReader reader = reader(
+                "BEGIN:VCALENDAR",
+                "BEGIN:VEVENT",
+                "UID:a@example.com",
+                "SUMMARY:Team\\, weekly sy",
+                " nc",
+                "DTSTART:20240115T140000Z",
+                "DTEND:20240115T150000Z",
+                "BEGIN:VALARM",
+                "SUMMARY:Reminder",
+                "TRIGGER:-PT15M",
+                "END:VALARM",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "UID:b@example.com",
+                "DTSTART;TZID=\"Europe/Paris\":20240301T180000",
+                "DURATION:PT1H30M",
+                "END:VEVENT",
+                "END:VCALENDAR");
+
+        ICalendarReader.Entry first = reader.next();
+        assertEquals("a@example.com", first.getUID());
+        assertEquals("Team, weekly sync", first.getName());
+        assertEquals(LocalDateTime.of(2024, 1, 15, 9, 0), first.getStart());
+        assertEquals(60, first.getLength());
+        assertEquals(RecurrenceRule.ONCE, first.getRule());
+
+        ICalendarReader.Entry second = reader.next();
+        assertEquals("Untitled", second.getName());
+        assertEquals(LocalDateTime.of(2024, 3, 1, 12, 0), second.getStart());
+        assertEquals(90, second.getLength());
+
+        assertNull(reader.next());
+        assertEquals(0, reader.getSkipped());
+    }
+
+    /**
+     * Checks all-day events, changed occurrences and events without a UID are skipped and
+     * counted, and floating times are kept as they are.
+     *
+     * @throws IOException Never, as the file is in memory
+     */
+    @Test
+    public void skipsEventsTheScheduleCantHold() throws IOException {
+        ICalendarReader reader = reader(
+                "BEGIN:VEVENT",
+                "UID:all-day",
+                "DTSTART;VALUE=DATE:20240115",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "UID:moved",
+                "RECURRENCE-ID:20240115T140000Z",
+                "DTSTART:20240116T140000Z",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "DTSTART:20240116T140000Z",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "UID:floating",
+                "SUMMARY:Lunch",
+                "DTSTART:20240116T120000",
+                "END:VEVENT");
+
+        ICalendarReader.Entry entry = reader.next();
+        assertEquals("floating", entry.getUID());
+        assertEquals(LocalDateTime.of(2024, 1, 16, 12, 0), entry.getStart());
+        assertEquals(0, entry.getLength());
+        assertNull(reader.next());
+        assertEquals(3, reader.getSkipped());
+    }
+
+    /**
+     * Checks EXDATEs, as DATE-TIMEs or DATEs, are left out of a recurring event while still
+     * counting towards its COUNT, and that events with an RRULE that can't be expressed are
+     * skipped and counted rather than cut down to their first occurrence.
+     *
+     * @throws IOException Never, as the file is in memory
+     */
+    @Test
+    public void honoursExDatesAndSkipsUnusableRules() throws IOException {
+        ICalendarReader reader = reader(
+                "BEGIN:VEVENT",
+                "UID:last-monday",
+                "DTSTART:20240129T140000Z",
+                "RRULE:FREQ=MONTHLY;BYDAY=MO;BYSETPOS=-1",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "UID:standup",
+                "DTSTART:20240115T140000Z",
+                "DTEND:20240115T143000Z",
+                "RRULE:FREQ=WEEKLY;COUNT=4",
+                "EXDATE:20240122T140000Z",
+                "EXDATE;VALUE=DATE:20240129",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "UID:standup",
+                "RECURRENCE-ID:20240205T140000Z",
+                "DTSTART:20240206T140000Z",
+                "END:VEVENT");
+
+        ICalendarReader.Entry entry = reader.next();
+        LocalDate start = entry.getStart().toLocalDate();
+        assertEquals("standup", entry.getUID());
+        assertEquals(Arrays.asList(start, LocalDate.of(2024, 2, 5)),
+                entry.getRule().getDates(start, start, LocalDate.of(2024, 12, 31)));
+
+        assertNull(reader.next());
+        assertEquals(2, reader.getSkipped());
+    }
+
+    /**
+     * Checks RRULEs become the RecurrenceRule with the same occurrences, and ones that can't be
+     * expressed are rejected.
+     */
+    @Test
+    public void convertsRules() {
+        LocalDate monday = LocalDate.of(2024, 1, 15);
+
+        assertEquals(new RecurrenceRule(RecurrenceRule.WEEKLY, RecurrenceRule.ON_DATE, 2,
+                        (1 << 1) | (1 << 3), 0, 0, LocalDate.of(2024, 6, 30), Integer.MAX_VALUE),
+                ICalendarReader.toRule("FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE;UNTIL=20240630T235959Z",
+                        monday));
+        assertEquals(new RecurrenceRule(RecurrenceRule.WEEKLY, RecurrenceRule.ON_DATE, 1,
+                        1 << 1, 0, 0, null, 10),
+                ICalendarReader.toRule("FREQ=WEEKLY;COUNT=10", monday));
+        assertEquals(new RecurrenceRule(RecurrenceRule.MONTHLY, RecurrenceRule.ON_WEEKDAY, 1,
+                        0, 0, 0, null, Integer.MAX_VALUE),
+                ICalendarReader.toRule("FREQ=MONTHLY;BYDAY=3MO", monday));
+        assertEquals(new RecurrenceRule(RecurrenceRule.MONTHLY, RecurrenceRule.ON_DATES, 1,
+                        0, 0, (1L << 1) | (1L << 15), null, Integer.MAX_VALUE),
+                ICalendarReader.toRule("FREQ=MONTHLY;BYMONTHDAY=1,15", monday));
+
+        String[] unsupported = {"FREQ=MONTHLY;BYDAY=MO;BYSETPOS=-1", "FREQ=MONTHLY;BYMONTHDAY=-1",
+                "FREQ=HOURLY", "FREQ=MONTHLY;BYDAY=2TU", "FREQ=MONTHLY;BYDAY=1MO"};
+        for (String rule : unsupported) {
+            try {
+                ICalendarReader.toRule(rule, monday);
+                throw new AssertionError("Converted " + rule);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+
+        assertEquals(5400, ICalendarReader.parseDuration("PT1H30M"));
+        assertEquals(7 * 86400 + 60, ICalendarReader.parseDuration("P1WT1M"));
+    }
+
+    /**
+     * Create a reader for a file.
+     *
+     * @param lines The lines of the file
+     *
+     * @return A reader for the file
+     */
+    private static ICalendarReader reader(String... lines) {
+        StringBuilder file = new StringBuilder();
+        for (String line : lines) {
+            file.append(line).append("\r\n");
+        }
+
+        return new ICalendarReader(new StringReader(file.toString()), ZONE, "Untitled");
+    }
+}
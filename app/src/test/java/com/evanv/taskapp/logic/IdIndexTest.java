@@ -0,0 +1,169 @@
+package com.evanv.taskapp.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests for IdIndex, checking lookups survive deletes from the middle of a probe sequence,
+ * including ones that wrap around the end of the table, and that resizes keep every item and its
+ * position.
+ *
+ * @author Evan Voogd
+ */
+public class IdIndexTest {
+    private static final long SEED = 20230402L; // Seed so failures can be reproduced
+    private static final int CAPACITY = 16;     // Capacity of an empty index
+
+    /**
+     * Deletes the head, middle and tail of a run of colliding IDs and checks the rest can still
+     * be found.
+     */
+    @Test
+    public void deleteWithCollisions() {
+        for (int victim = 0; victim < 4; victim++) {
+            List<Item> items = colliding(3, 4);
+            IdIndex<Item> index = new IdIndex<>(items);
+            assertEquals(CAPACITY, index.getCapacity());
+
+            index.remove(items.get(victim));
+
+            assertNull(index.get(items.get(victim).getID()));
+            assertEquals(3, index.size());
+            for (int i = 0; i < items.size(); i++) {
+                if (i != victim) {
+                    assertSame(items.get(i), index.get(items.get(i).getID()));
+                    assertEquals(i, index.getPosition(items.get(i)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills the last slots of the table so a probe sequence wraps around to the start, then
+     * deletes from it and checks every item can still be found.
+     */
+    @Test
+    public void deleteWrapsAround() {
+        List<Item> items = colliding(CAPACITY - 2, 5);
+
+        // An item whose home is slot 0, which the wrapped run pushes out of place
+        items.addAll(colliding(0, 1));
+        IdIndex<Item> index = new IdIndex<>(items);
+        assertEquals(CAPACITY, index.getCapacity());
+
+        for (int i = 0; i < items.size(); i++) {
+            index.remove(items.get(i));
+
+            assertNull(index.get(items.get(i).getID()));
+            for (int j = i + 1; j < items.size(); j++) {
+                assertSame(items.get(j), index.get(items.get(j).getID()));
+            }
+        }
+        assertEquals(0, index.size());
+    }
+
+    /**
+     * Grows the index well past its starting size with random adds and removes, and checks it
+     * matches a HashMap throughout.
+     */
+    @Test
+    public void resizeKeepsItems() {
+        Random random = new Random(SEED);
+        IdIndex<Item> index = new IdIndex<>();
+        Map<Long, Item> expected = new HashMap<>();
+
+        for (int i = 0; i < 5000; i++) {
+            long id = 1 + random.nextInt(3000);
+            Item item = new Item(id);
+
+            if (random.nextInt(3) == 0) {
+                index.remove(expected.containsKey(id) ? expected.remove(id) : item);
+            }
+            else {
+                index.add(item, (int) id);
+                expected.put(id, item);
+            }
+        }
+
+        assertTrue(index.getCapacity() > CAPACITY);
+        assertEquals(expected.size(), index.size());
+        for (long id = 1; id <= 3000; id++) {
+            Item item = expected.get(id);
+
+            assertSame(item, index.get(id));
+            if (item != null) {
+                assertEquals((int) id, index.getPosition(item));
+            }
+        }
+    }
+
+    /**
+     * Checks an item replaced by another with the same ID is neither removed nor given a
+     * position.
+     */
+    @Test
+    public void replacedItemIsIgnored() {
+        IdIndex<Item> index = new IdIndex<>();
+        Item oldItem = new Item(7);
+        Item newItem = new Item(7);
+
+        index.add(oldItem, 0);
+        index.add(newItem, 3);
+        index.remove(oldItem);
+
+        assertSame(newItem, index.get(7));
+        assertEquals(-1, index.getPosition(oldItem));
+        assertEquals(3, index.getPosition(newItem));
+    }
+
+    /**
+     * Find IDs that all hash to the same slot of an empty index.
+     *
+     * @param home The slot every ID hashes to
+     * @param count Number of IDs to find
+     *
+     * @return An item for each ID
+     */
+    private static List<Item> colliding(int home, int count) {
+        List<Item> items = new ArrayList<>();
+
+        for (long id = 1; items.size() < count; id++) {
+            if ((IdIndex.hash(id) & (CAPACITY - 1)) == home) {
+                items.add(new Item(id));
+            }
+        }
+
+        return items;
+    }
+
+    /**
+     * An item with nothing but an ID.
+     */
+    private static class Item implements Identifiable {
+        private final long mID; // ID of the item
+
+        /**
+         * Creates an item.
+         *
+         * @param id ID of the item
+         */
+        Item(long id) {
+            mID = id;
+        }
+
+        @Override
+        public long getID() {
+            return mID;
+        }
+    }
+}
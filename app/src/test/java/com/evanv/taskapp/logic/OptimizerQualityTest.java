@@ -0,0 +1,272 @@
+package com.evanv.taskapp.logic;
+
+import static com.evanv.taskapp.logic.Task.getDiff;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.evanv.taskapp.TestReport;
+
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the quality of the Optimizer's schedules against the ExactScheduler on thousands of
+ * small random instances, so a change that speeds up the Optimizer can't quietly make the
+ * schedules it produces worse.
+ *
+ * The gap for an instance is how much larger the standard deviation of the daily commitment is in
+ * the Optimizer's schedule than in an optimal one, in minutes.
+ *
+ * @author Evan Voogd
+ */
+public class OptimizerQualityTest {
+    private static final int NUM_INSTANCES = 2000; // Number of random instances to compare
+    private static final long SEED = 20230219L;    // Seed so failures can be reproduced
+    private static final LocalDate START = LocalDate.of(2024, 1, 15); // Day instances start on
+
+    // Quality floor for the Optimizer. Set with some headroom above the values measured when the
+    // harness was written, so only a real regression will trip them.
+    private static final double MAX_MEAN_GAP = 4.0;   // Max mean gap (minutes)
+    private static final double MAX_P90_GAP = 12.0;   // Max 90th percentile gap (minutes)
+    private static final double MIN_OPTIMAL = 0.65;   // Min fraction of instances solved optimally
+
+    /**
+     * Compares the Optimizer to the exact solution on random instances, checks the distribution
+     * of the gaps between them and saves it as a report.
+     *
+     * @throws IOException If the report couldn't be saved
+     */
+    @Test
+    public void optimizerIsCloseToOptimal() throws IOException {
+        Random random = new Random(SEED);
+        ExactScheduler exact = new ExactScheduler();
+        double[] gaps = new double[NUM_INSTANCES];
+        int optimal = 0;
+        long nodes = 0;
+
+        for (int i = 0; i < NUM_INSTANCES; i++) {
+            Instance instance = new Instance(random);
+
+            int[] best = exact.solve(instance.mTasks, instance.mEventSchedule, instance.mStartDate,
+                    instance.mTodayTime);
+            assertNotNull("Instance " + i + " has no valid schedule", best);
+            nodes += exact.getNodes();
+
+            new Optimizer().Optimize(instance.mTasks, new ArrayList<>(), instance.mEventSchedule,
+                    instance.mStartDate, instance.mTodayTime, false);
+
+            int[] produced = new int[instance.mTasks.size()];
+            for (int j = 0; j < produced.length; j++) {
+                produced[j] = getDiff(instance.mTasks.get(j).getWorkingDoDate(),
+                        instance.mStartDate);
+            }
+
+            assertTrue("Optimizer produced an invalid schedule for instance " + i,
+                    instance.isValid(produced));
+
+            int[] optimalLoad = instance.load(best);
+            int[] producedLoad = instance.load(produced);
+            long optimalCost = ExactScheduler.cost(optimalLoad);
+            long producedCost = ExactScheduler.cost(producedLoad);
+
+            assertFalse("Optimizer beat the exact solution for instance " + i,
+                    producedCost < optimalCost);
+
+            if (producedCost == optimalCost) {
+                optimal++;
+            }
+
+            gaps[i] = standardDeviation(producedLoad) - standardDeviation(optimalLoad);
+        }
+
+        Arrays.sort(gaps);
+        double mean = 0;
+        for (double gap : gaps) {
+            mean += gap;
+        }
+        mean /= gaps.length;
+
+        double optimalFraction = (double) optimal / NUM_INSTANCES;
+        double p90 = percentile(gaps, 0.90);
+
+        TestReport report = new TestReport("OptimizerQuality");
+        report.line("Optimizer quality over %d instances (%d search nodes)", NUM_INSTANCES, nodes);
+        report.line("  optimal: %.1f%%", optimalFraction * 100);
+        report.line("  gap (min): mean %.2f, p50 %.2f, p90 %.2f, p99 %.2f, max %.2f", mean,
+                percentile(gaps, 0.50), p90, percentile(gaps, 0.99), gaps[gaps.length - 1]);
+        report.save();
+
+        assertTrue("Mean gap " + mean + " exceeds " + MAX_MEAN_GAP, mean <= MAX_MEAN_GAP);
+        assertTrue("90th percentile gap " + p90 + " exceeds " + MAX_P90_GAP, p90 <= MAX_P90_GAP);
+        assertTrue("Only " + optimalFraction + " of schedules were optimal",
+                optimalFraction >= MIN_OPTIMAL);
+    }
+
+    /**
+     * Makes sure the exact solver finds the optimum of an instance small enough to check by hand.
+     */
+    @Test
+    public void exactSchedulerFindsOptimum() {
+        LocalDate today = START;
+        List<Task> tasks = new ArrayList<>();
+
+        // Two days of room: the 90 minute task goes on its own day, the other two share
+        Task big = new Task("big", today, today.plusDays(1), 90, 0);
+        Task small1 = new Task("small1", today, today.plusDays(1), 40, 0);
+        Task small2 = new Task("small2", today, today.plusDays(1), 50, 0);
+        tasks.add(big);
+        tasks.add(small1);
+        tasks.add(small2);
+
+        ExactScheduler exact = new ExactScheduler();
+        int[] best = exact.solve(tasks, new ArrayList<>(), today, 0);
+
+        assertNotNull(best);
+        assertTrue(best[1] == best[2] && best[0] != best[1]);
+        assertTrue(exact.getBestCost() == 90L * 90 + 90L * 90);
+    }
+
+    /**
+     * Standard deviation of the daily commitment.
+     *
+     * @param load Array where load[i] is the time committed i days past the start date
+     *
+     * @return The population standard deviation of load
+     */
+    private static double standardDeviation(int[] load) {
+        double mean = 0;
+        for (int l : load) {
+            mean += l;
+        }
+        mean /= load.length;
+
+        double variance = (double) ExactScheduler.cost(load) / load.length - mean * mean;
+
+        return Math.sqrt(Math.max(0, variance));
+    }
+
+    /**
+     * Get a percentile from a sorted array.
+     *
+     * @param sorted The sorted values
+     * @param p The percentile, between 0 and 1
+     *
+     * @return The value at the given percentile
+     */
+    private static double percentile(double[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * A small random scheduling problem with dependencies and events.
+     */
+    private static class Instance {
+        private final LocalDate mStartDate;               // Index 0 of the schedule
+        private final List<Task> mTasks;                  // Tasks to schedule
+        private final List<List<Event>> mEventSchedule;   // Events for each day
+        private final int mTodayTime;                     // Time already spent today
+        private final int mDays;                          // Number of days in the schedule
+
+        /**
+         * Generates a random instance. Dependencies only point from tasks due earlier to tasks due
+         * later, so a valid schedule always exists.
+         *
+         * @param random Source of randomness
+         */
+        Instance(Random random) {
+            // Fixed so runs are reproducible. The Optimizer is given it as today's date, so tasks
+            // due on it are still ordered first, as they are in the app.
+            mStartDate = START;
+            mDays = 3 + random.nextInt(12);
+            mTodayTime = random.nextInt(5) * 30;
+
+            mTasks = new ArrayList<>();
+            int numTasks = 2 + random.nextInt(13);
+            for (int i = 0; i < numTasks; i++) {
+                int early = random.nextInt(mDays);
+                int due = Math.min(mDays - 1, early + random.nextInt(7));
+                int ttc = 15 * (1 + random.nextInt(16));
+
+                Task t = new Task("Task " + i, mStartDate.plusDays(early),
+                        mStartDate.plusDays(due), ttc, random.nextInt(4));
+                t.setID(i + 1);
+
+                for (Task other : mTasks) {
+                    if (random.nextInt(6) == 0 && !other.getDueDate().isAfter(t.getDueDate())) {
+                        t.addParent(other);
+                        other.addChild(t);
+                    }
+                }
+
+                mTasks.add(t);
+            }
+
+            mEventSchedule = new ArrayList<>();
+            for (int d = 0; d < mDays; d++) {
+                List<Event> events = new ArrayList<>();
+                int numEvents = random.nextInt(3);
+
+                for (int e = 0; e < numEvents; e++) {
+                    events.add(new Event("Event", 30 * (1 + random.nextInt(6)),
+                            mStartDate.plusDays(d).atTime(8 + random.nextInt(10), 0)));
+                }
+
+                // Optimizer.calculateTotalTime expects each day's events sorted by start time
+                Collections.sort(events);
+                mEventSchedule.add(events);
+            }
+        }
+
+        /**
+         * Check that a schedule respects every early date, due date and dependency.
+         *
+         * @param days days[i] is the do date index of mTasks.get(i)
+         *
+         * @return true if the schedule is valid
+         */
+        boolean isValid(int[] days) {
+            for (int i = 0; i < mTasks.size(); i++) {
+                Task t = mTasks.get(i);
+
+                if (days[i] < getDiff(t.getEarlyDate(), mStartDate)
+                        || days[i] > getDiff(t.getDueDate(), mStartDate)) {
+                    return false;
+                }
+
+                for (Task parent : t.getParents()) {
+                    if (days[mTasks.indexOf(parent)] > days[i]) {
+                        return false;
+                    }
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Daily commitment for a schedule.
+         *
+         * @param days days[i] is the do date index of mTasks.get(i)
+         *
+         * @return Array where the ith entry is the time committed i days past the start date
+         */
+        int[] load(int[] days) {
+            int[] load = ExactScheduler.baseLoad(mDays, mEventSchedule, mTodayTime);
+
+            for (int i = 0; i < mTasks.size(); i++) {
+                load[days[i]] += mTasks.get(i).getTimeToComplete();
+            }
+
+            return load;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.evanv.taskapp.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for the skip-ahead of RecurrenceExpander's iterators, checking skipping to a date lands on
+ * the same date, after the same number of dates, as stepping to it one date at a time, and that
+ * recurrences on days of certain months land on the right dates.
+ *
+ * @author Evan Voogd
+ */
+public class RecurrenceExpanderTest {
+    private static final int TRIALS = 500;                       // Random starts tried per type
+    private static final LocalDate START = LocalDate.of(2014, 1, 1); // Earliest start tried
+
+    /**
+     * Supplies a new iterator for a random recurrence, so one can be skipped and one stepped.
+     */
+    private interface Factory {
+        /**
+         * Make an iterator for the recurrence.
+         *
+         * @return A new iterator at the start of the recurrence
+         */
+        RecurrenceExpander.RecurIterator make();
+    }
+
+    /**
+     * Checks daily recurrences skip to the same date as stepping.
+     */
+    @Test
+    public void dailySkipsLikeStepping() {
+        Random random = new Random(1);
+
+        for (int i = 0; i < TRIALS; i++) {
+            LocalDate start = START.plusDays(random.nextInt(3000));
+            int interval = 1 + random.nextInt(10);
+
+            check(() -> new RecurrenceExpander.DailyIterator(start, interval), start, random);
+        }
+    }
+
+    /**
+     * Checks weekly recurrences skip to the same date as stepping, including from weeks without
+     * any dates when the interval is more than a week.
+     */
+    @Test
+    public void weeklySkipsLikeStepping() {
+        Random random = new Random(2);
+
+        for (int i = 0; i < TRIALS; i++) {
+            LocalDate start = START.plusDays(random.nextInt(3000));
+            int interval = 1 + random.nextInt(4);
+            boolean[] days = new boolean[7];
+            days[random.nextInt(7)] = true;
+            for (int j = 0; j < 7; j++) {
+                days[j] |= random.nextBoolean();
+            }
+
+            check(() -> new RecurrenceExpander.WeeklyIterator(start, days, interval), start,
+                    random);
+        }
+    }
+
+    /**
+     * Checks monthly recurrences on the same date skip to the same date as stepping.
+     */
+    @Test
+    public void monthlySkipsLikeStepping() {
+        Random random = new Random(3);
+
+        for (int i = 0; i < TRIALS; i++) {
+            LocalDate start = START.plusDays(random.nextInt(3000)).withDayOfMonth(
+                    1 + random.nextInt(28));
+            int interval = 1 + random.nextInt(6);
+
+            check(() -> new RecurrenceExpander.MonthlyStaticIterator(start, interval), start,
+                    random);
+        }
+    }
+
+    /**
+     * Checks yearly recurrences on the same date skip to the same date as stepping.
+     */
+    @Test
+    public void yearlySkipsLikeStepping() {
+        Random random = new Random(4);
+
+        for (int i = 0; i < TRIALS; i++) {
+            LocalDate start = START.plusDays(random.nextInt(3000));
+            if (start.getMonthValue() == 2 && start.getDayOfMonth() == 29) {
+                start = start.plusDays(1);
+            }
+            LocalDate first = start;
+            int interval = 1 + random.nextInt(3);
+
+            check(() -> new RecurrenceExpander.YearlyStaticIterator(first, interval), start,
+                    random);
+        }
+    }
+
+    /**
+     * Checks recurrences on certain days of certain months skip to the same date as stepping,
+     * for each kind of monthly and yearly pattern.
+     */
+    @Test
+    public void monthByMonthSkipsLikeStepping() {
+        Random random = new Random(5);
+
+        for (int i = 0; i < TRIALS; i++) {
+            LocalDate start = START.plusDays(random.nextInt(3000));
+            int interval = 1 + random.nextInt(3);
+            boolean[] months = new boolean[12];
+            months[random.nextInt(12)] = true;
+            months[start.getMonthValue() - 1] = true;
+            List<Integer> days = new ArrayList<>();
+            for (int d = 1; d <= 31; d++) {
+                // The start's day is always in, so every pattern has dates
+                if (random.nextInt(8) == 0 || d == start.getDayOfMonth()) {
+                    days.add(d);
+                }
+            }
+
+            check(() -> new RecurrenceExpander.MonthlyDynamicIterator(start, interval), start,
+                    random);
+            check(() -> new RecurrenceExpander.MonthlySpecificIterator(start, days, interval),
+                    start, random);
+            check(() -> new RecurrenceExpander.YearlyDynamicIterator(start, interval), start,
+                    random);
+            check(() -> new RecurrenceExpander.YearlyMultipleStaticIterator(start, months,
+                    interval), start, random);
+            check(() -> new RecurrenceExpander.YearlyMultipleDynamicIterator(start, months,
+                    interval), start, random);
+            check(() -> new RecurrenceExpander.YearlySpecificIterator(start, months, days,
+                    interval), start, random);
+        }
+    }
+
+    /**
+     * Checks recurrences on certain days of certain months are on the right dates, passing over
+     * months without them.
+     */
+    @Test
+    public void monthByMonthDates() {
+        // The 1st, 15th and 31st of every other month, from the 10th of January
+        assertDates(new RecurrenceExpander.MonthlySpecificIterator(LocalDate.of(2024, 1, 10),
+                Arrays.asList(31, 1, 15), 2), "2024-01-15", "2024-01-31", "2024-03-01",
+                "2024-03-15", "2024-03-31", "2024-05-01");
+
+        // Every 5th Monday
+        assertDates(new RecurrenceExpander.MonthlyDynamicIterator(LocalDate.of(2024, 1, 29), 1),
+                "2024-01-29", "2024-04-29", "2024-07-29", "2024-09-30", "2024-12-30");
+
+        // The 3rd Thursday of November
+        assertDates(new RecurrenceExpander.YearlyDynamicIterator(LocalDate.of(2024, 11, 21), 1),
+                "2024-11-21", "2025-11-20", "2026-11-19");
+
+        // The 31st of January, March and December, every other year
+        boolean[] months = new boolean[12];
+        months[0] = months[2] = months[11] = true;
+        assertDates(new RecurrenceExpander.YearlyMultipleStaticIterator(
+                LocalDate.of(2024, 3, 31), months, 2), "2024-03-31", "2024-12-31",
+                "2026-01-31", "2026-03-31");
+
+        // February 29th
+        boolean[] february = new boolean[12];
+        february[1] = true;
+        assertDates(new RecurrenceExpander.YearlySpecificIterator(LocalDate.of(2023, 1, 1),
+                february, Arrays.asList(29), 1), "2024-02-29", "2028-02-29", "2032-02-29");
+    }
+
+    /**
+     * Check an iterator's first dates.
+     *
+     * @param iterator The iterator
+     * @param expected The dates it should return first, as yyyy-mm-dd
+     */
+    private static void assertDates(RecurrenceExpander.RecurIterator iterator,
+                                    String... expected) {
+        for (String date : expected) {
+            assertEquals(LocalDate.parse(date), iterator.next());
+        }
+    }
+
+    /**
+     * Skip one iterator and step another to a random date, then check they agree on how many
+     * dates came before it and on the dates after it.
+     *
+     * @param factory Makes iterators for the recurrence
+     * @param start The start of the recurrence
+     * @param random Chooses the date to skip to
+     */
+    private static void check(Factory factory, LocalDate start, Random random) {
+        LocalDate from = start.plusDays(random.nextInt(4000) - 30);
+
+        RecurrenceExpander.RecurIterator skipping = factory.make();
+        long skipped = skipping.skipTo(from);
+        assertTrue(skipped >= 0);
+
+        RecurrenceExpander.RecurIterator stepping = factory.make();
+        LocalDate next = stepping.next();
+        long stepped = 0;
+        while (next.isBefore(from)) {
+            next = stepping.next();
+            stepped++;
+        }
+
+        String message = "start " + start + ", from " + from;
+        assertEquals(message, stepped, skipped);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(message, next, skipping.next());
+            next = stepping.next();
+        }
+    }
+}
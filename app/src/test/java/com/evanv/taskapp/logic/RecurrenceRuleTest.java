@@ -0,0 +1,102 @@
+package com.evanv.taskapp.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for RecurrenceRule, checking rules survive a round trip through their String form, can be
+ * used as keys, and expand into the same dates whichever window they're expanded in.
+ *
+ * @author Evan Voogd
+ */
+public class RecurrenceRuleTest {
+    private static final LocalDate START = LocalDate.of(2024, 1, 1); // A Monday
+
+    /**
+     * Checks each kind of rule is read back from its String form as it was written.
+     */
+    @Test
+    public void roundTrip() {
+        List<RecurrenceRule> rules = Arrays.asList(
+                RecurrenceRule.ONCE,
+                new RecurrenceRule(RecurrenceRule.DAILY, RecurrenceRule.ON_DATE, 3, 0, 0, 0,
+                        null, 12),
+                new RecurrenceRule(RecurrenceRule.WEEKLY, RecurrenceRule.ON_DATE, 2, 0b0001010,
+                        0, 0, LocalDate.of(2030, 6, 1), 0),
+                new RecurrenceRule(RecurrenceRule.MONTHLY, RecurrenceRule.ON_DATES, 1, 0, 0,
+                        (1L << 2) | (1L << 31), null, 5),
+                new RecurrenceRule(RecurrenceRule.YEARLY, RecurrenceRule.ON_WEEKDAY, 1, 0,
+                        0b100000000001, 0, null, 4),
+                new RecurrenceRule(RecurrenceRule.DAILY, RecurrenceRule.ON_DATE, 1, 0, 0, 0,
+                        null, 10).excluding(Arrays.asList(START.plusDays(2), START.plusDays(1))));
+
+        for (RecurrenceRule rule : rules) {
+            RecurrenceRule read = RecurrenceRule.parse(rule.toString());
+
+            assertEquals(rule, read);
+            assertEquals(rule.hashCode(), read.hashCode());
+            assertEquals(rule.toString(), read.toString());
+        }
+
+        assertEquals("FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE;UNTIL=20300601",
+                rules.get(2).toString());
+        assertEquals("FREQ=DAILY;INTERVAL=1;COUNT=10;EXDATE=20240102,20240103",
+                rules.get(5).toString());
+        assertNotEquals(rules.get(5), new RecurrenceRule(RecurrenceRule.DAILY,
+                RecurrenceRule.ON_DATE, 1, 0, 0, 0, null, 10));
+    }
+
+    /**
+     * Checks equal rules find each other in a map, and rules that differ don't.
+     */
+    @Test
+    public void equalRulesShareKeys() {
+        Map<RecurrenceRule, String> cache = new HashMap<>();
+        cache.put(new RecurrenceRule(RecurrenceRule.DAILY, RecurrenceRule.ON_DATE, 1, 0, 0, 0,
+                null, 10), "ten days");
+
+        assertEquals("ten days", cache.get(RecurrenceRule.parse("FREQ=DAILY;INTERVAL=1;COUNT=10")));
+        assertNotEquals(RecurrenceRule.parse("FREQ=DAILY;INTERVAL=1;COUNT=10"),
+                RecurrenceRule.parse("FREQ=DAILY;INTERVAL=1;COUNT=11"));
+    }
+
+    /**
+     * Checks a rule expanded window by window gives the same dates as expanding it all at once,
+     * and that a count still ends it on the same date.
+     */
+    @Test
+    public void windowsMatchFullExpansion() {
+        // Mondays and Wednesdays every other week, 25 times
+        RecurrenceRule rule = RecurrenceRule.parse("FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE;COUNT=25");
+        List<LocalDate> all = rule.getDates(START, LocalDate.MIN, LocalDate.MAX);
+        assertEquals(25, all.size());
+        assertEquals(START, all.get(0));
+        assertEquals(START.plusDays(2), all.get(1));
+        assertEquals(START.plusWeeks(2), all.get(2));
+
+        LocalDate through = START.minusDays(1);
+        int found = 0;
+        while (rule.hasOccurrenceAfter(START, through)) {
+            List<LocalDate> window = rule.getDates(START, through.plusDays(1),
+                    through.plusDays(10));
+            assertEquals(all.subList(found, found + window.size()), window);
+
+            found += window.size();
+            through = through.plusDays(10);
+        }
+
+        assertEquals(all.size(), found);
+        assertFalse(rule.hasOccurrenceAfter(START, all.get(24)));
+        assertTrue(RecurrenceRule.ONCE.hasOccurrenceAfter(START, START.minusDays(1)));
+    }
+}
@@ -0,0 +1,99 @@
+package com.evanv.taskapp.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for Series, checking occurrences are stored a horizon at a time without gaps or repeats,
+ * and that an edited occurrence is matched back to the series it came from.
+ *
+ * @author Evan Voogd
+ */
+public class SeriesTest {
+    private static final int HORIZON_DAYS = 90;                      // Days stored ahead
+    private static final LocalDate TODAY = LocalDate.of(2024, 1, 15); // Day the series starts
+    private static final LocalDateTime START = TODAY.atTime(9, 30);  // First occurrence
+
+    /**
+     * Checks moving the horizon forward a day at a time stores each occurrence once, at the
+     * series' time, and only the ones the horizon just reached.
+     */
+    @Test
+    public void extendsWithHorizon() {
+        Series series = series("Standup", "FREQ=DAILY;UNTIL=20300101",
+                TODAY.plusDays(HORIZON_DAYS));
+
+        for (int day = 1; day <= 30; day++) {
+            LocalDate today = TODAY.plusDays(day);
+            LocalDate horizon = today.plusDays(HORIZON_DAYS);
+            List<LocalDateTime> added = series.extend(today, horizon);
+
+            assertEquals(1, added.size());
+            assertEquals(horizon.atTime(9, 30), added.get(0));
+            assertEquals(horizon, series.getThrough());
+
+            // Starting again the same day adds nothing
+            assertTrue(series.extend(today, horizon).isEmpty());
+        }
+
+        assertTrue(series.hasMore());
+    }
+
+    /**
+     * Checks occurrences that passed while the app wasn't opened are skipped, and a series
+     * limited to a number of occurrences finishes on the same day however it's extended.
+     */
+    @Test
+    public void skipsPassedAndFinishes() {
+        Series series = series("Physio", "FREQ=WEEKLY;BYDAY=MO;COUNT=20",
+                TODAY.plusDays(HORIZON_DAYS));
+
+        // Opened again 100 days in: the 14th and 15th passed unseen, so only the rest are stored
+        LocalDate today = TODAY.plusDays(100);
+        List<LocalDateTime> added = series.extend(today, today.plusDays(HORIZON_DAYS));
+
+        assertEquals(5, added.size());
+        assertEquals(START.plusWeeks(15), added.get(0));
+        assertEquals(START.plusWeeks(19), added.get(4));
+        assertFalse(series.hasMore());
+    }
+
+    /**
+     * Checks an occurrence being edited again is matched to its series by kind, name and day,
+     * so the edit can replace the series rather than add another.
+     */
+    @Test
+    public void findsSeriesOfEditedOccurrence() {
+        Series series = series("Review", "FREQ=WEEKLY;INTERVAL=2;BYDAY=MO;UNTIL=20300101",
+                TODAY.plusDays(HORIZON_DAYS));
+
+        assertTrue(series.hasOccurrence(true, "Review", TODAY));
+        assertTrue(series.hasOccurrence(true, "Review", TODAY.plusWeeks(10)));
+        assertFalse(series.hasOccurrence(true, "Review", TODAY.plusWeeks(1)));
+        assertFalse(series.hasOccurrence(true, "Retro", TODAY));
+        assertFalse(series.hasOccurrence(false, "Review", TODAY));
+        assertFalse(series.hasOccurrence(true, "Review", TODAY.minusWeeks(2)));
+    }
+
+    /**
+     * Create a series of events starting at START.
+     *
+     * @param name Name of each occurrence
+     * @param rule The recurrence rule, in its String form
+     * @param through The day occurrences are already stored through
+     *
+     * @return The series
+     */
+    private static Series series(String name, String rule, LocalDate through) {
+        return new Series(true, name, RecurrenceRule.parse(rule), START, 30, 0, 0, 0,
+                new ArrayList<>(), new ArrayList<>(), through);
+    }
+}
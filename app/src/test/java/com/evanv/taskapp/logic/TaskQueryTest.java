@@ -0,0 +1,270 @@
+package com.evanv.taskapp.logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for TaskQuery, checking it returns the same tasks in the same order as filtering with a
+ * separate pass per condition and sorting every match.
+ *
+ * @author Evan Voogd
+ */
+public class TaskQueryTest {
+    private static final long SEED = 20230305L; // Seed so failures can be reproduced
+    private static final int NUM_TASKS = 3000;  // Tasks in the random data set
+    private static final int PAGE_SIZE = 50;    // Page size to read results with
+
+    /**
+     * Runs a query with every condition and checks the paged results against a straightforward
+     * filter and sort.
+     */
+    @Test
+    public void matchesPerConditionFilter() {
+        LocalDate today = LocalDate.now();
+        List<Task> tasks = generateTasks(today);
+        List<Long> labels = Collections.singletonList(2L);
+
+        TaskQuery query = new TaskQuery().nameContains("TASK 1").minPriority(1)
+                .dueOnOrAfter(today.plusDays(3)).dueOnOrBefore(today.plusDays(40))
+                .minTime(30).maxTime(150).hasLabels(labels).inProject(1);
+
+        List<Task> expected = new ArrayList<>();
+        for (Task t : tasks) {
+            if (t.getName().toLowerCase().contains("task 1") && t.getPriority() >= 1
+                    && !t.getDueDate().isBefore(today.plusDays(3))
+                    && !t.getDueDate().isAfter(today.plusDays(40))
+                    && t.getTimeToComplete() >= 30 && t.getTimeToComplete() <= 150
+                    && findLabel(t, 2L) != null && t.getProject() != null
+                    && t.getProject().getID() == 1) {
+                expected.add(t);
+            }
+        }
+        Collections.sort(expected);
+        assertFalse("Data set should have some matches", expected.isEmpty());
+
+        TaskQuery.Cursor cursor = query.execute(tasks);
+        assertEquals(expected.size(), cursor.getCount());
+
+        List<Task> actual = new ArrayList<>();
+        while (cursor.hasNext()) {
+            List<Task> page = cursor.nextPage(PAGE_SIZE);
+            assertTrue(page.size() <= PAGE_SIZE);
+            actual.addAll(page);
+        }
+
+        // Ties in the sort order may come out in either order, so compare by sort key
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(0, expected.get(i).compareTo(actual.get(i)));
+        }
+        assertTrue(actual.containsAll(expected));
+    }
+
+    /**
+     * Checks an empty query matches everything and a completable query only matches tasks without
+     * prerequisites that can be done today.
+     */
+    @Test
+    public void completableAndEmptyQueries() {
+        LocalDate today = LocalDate.now();
+        List<Task> tasks = generateTasks(today);
+
+        assertEquals(tasks.size(), new TaskQuery().execute(tasks).getCount());
+
+        TaskQuery.Cursor cursor = new TaskQuery().completable(today).execute(tasks);
+        for (Task t : cursor.nextPage(tasks.size())) {
+            assertTrue(t.getParents().isEmpty());
+            assertTrue(t.getEarlyDate().isEqual(today));
+        }
+    }
+
+    /**
+     * Checks a cancelled query stops returning results.
+     */
+    @Test
+    public void cancelStopsResults() {
+        LocalDate today = LocalDate.now();
+        List<Task> tasks = generateTasks(today);
+
+        TaskQuery query = new TaskQuery();
+        TaskQuery.Cursor cursor = query.execute(tasks);
+        assertEquals(PAGE_SIZE, cursor.nextPage(PAGE_SIZE).size());
+
+        query.cancel();
+        assertFalse(cursor.hasNext());
+        assertTrue(cursor.nextPage(PAGE_SIZE).isEmpty());
+        assertEquals(0, query.execute(tasks).getCount());
+    }
+
+    /**
+     * Checks that answering the indexed conditions from a TaskFilterIndex gives the same matches
+     * as checking every condition against every task, including after tasks change.
+     */
+    @Test
+    public void indexedQueryMatchesScan() {
+        LocalDate today = LocalDate.now();
+        List<Task> tasks = generateTasks(today);
+        TaskFilterIndex index = new TaskFilterIndex(tasks);
+
+        // Change and remove some tasks, keeping the index up to date
+        for (int i = 0; i < 300; i++) {
+            Task t = tasks.get(i * 7);
+            t.setPriority((t.getPriority() + 1) % 4);
+            t.setDueDate(t.getDueDate().plusDays(5));
+            index.update(t);
+        }
+        for (int i = 0; i < 200; i++) {
+            index.remove(tasks.remove(i * 5));
+        }
+        assertEquals(tasks.size(), index.size());
+
+        List<TaskQuery> queries = new ArrayList<>();
+        queries.add(new TaskQuery());
+        queries.add(new TaskQuery().inProject(2).minPriority(2));
+        queries.add(new TaskQuery().hasLabels(Arrays.asList(1L, 3L)).maxTime(90));
+        queries.add(new TaskQuery().dueOnOrAfter(today.plusDays(10))
+                .dueOnOrBefore(today.plusDays(20)).nameContains("2"));
+        queries.add(new TaskQuery().inProject(1).hasLabels(Collections.singletonList(4L))
+                .minPriority(3).dueOnOrBefore(today.plusDays(30)).completable(today));
+
+        for (TaskQuery query : queries) {
+            List<Task> scanned = query.execute(tasks).nextPage(tasks.size());
+            List<Task> indexed = query.executeSelected(query.select(index))
+                    .nextPage(tasks.size());
+
+            assertEquals(scanned.size(), indexed.size());
+            assertTrue(indexed.containsAll(scanned));
+        }
+    }
+
+    /**
+     * Checks a task replaced by an edit stays out of the index when its old copy is updated
+     * afterwards, as deleting a label or project that still lists the old copy would do.
+     */
+    @Test
+    public void editedTaskLeavesNoGhost() {
+        LocalDate today = LocalDate.now();
+        Project project = new Project("Project", 1, "");
+        project.setID(1);
+        Label label = new Label("Label", 1);
+        label.setID(1);
+
+        Task oldTask = new Task("Old name", today, today.plusDays(3), 30, 1);
+        oldTask.setID(1);
+        oldTask.setProject(project);
+        oldTask.addLabel(label);
+        project.addTask(oldTask);
+        label.addTask(oldTask);
+        TaskFilterIndex index = new TaskFilterIndex(Collections.singletonList(oldTask));
+
+        // Edit the task, replacing it with a new copy like LogicSubsystem.editTask does
+        Task newTask = new Task("New name", today, today.plusDays(3), 30, 1);
+        newTask.setID(1);
+        newTask.setProject(project);
+        newTask.addLabel(label);
+        project.addTask(newTask);
+        label.addTask(newTask);
+        index.remove(oldTask);
+        index.add(newTask);
+
+        // Delete the label, then the project, updating every task they list
+        for (Task t : label.getTasks()) {
+            t.removeLabel(label);
+            index.update(t);
+        }
+        for (Task t : project.getTasks()) {
+            t.removeProject();
+            index.update(t);
+        }
+
+        assertEquals(1, index.size());
+        assertEquals(Collections.singletonList(newTask), index.getTasks(index.all()));
+        assertTrue(index.nameContains("Old").isEmpty());
+        assertTrue(index.withLabels(new long[]{1}).isEmpty());
+        assertTrue(index.inProject(1).isEmpty());
+    }
+
+    /**
+     * Find a label on a task by ID.
+     *
+     * @param t The task
+     * @param id ID of the label
+     *
+     * @return The label with the given ID, or null if the task doesn't have it
+     */
+    private static Label findLabel(Task t, long id) {
+        for (Label l : t.getLabels()) {
+            if (l.getID() == id) {
+                return l;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Generate a random data set of tasks with projects, labels and dependencies.
+     *
+     * @param today Today's date
+     *
+     * @return The generated tasks
+     */
+    private static List<Task> generateTasks(LocalDate today) {
+        Random random = new Random(SEED);
+
+        List<Project> projects = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Project p = new Project("Project " + i, i, "");
+            p.setID(i + 1);
+            projects.add(p);
+        }
+
+        List<Label> labels = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Label l = new Label("Label " + i, i);
+            l.setID(i + 1);
+            labels.add(l);
+        }
+
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < NUM_TASKS; i++) {
+            LocalDate early = today.plusDays(random.nextInt(3));
+            Task t = new Task("Task " + i, early, early.plusDays(random.nextInt(60)),
+                    15 * (1 + random.nextInt(12)), random.nextInt(4));
+            t.setID(i + 1);
+
+            if (random.nextBoolean()) {
+                Project p = projects.get(random.nextInt(projects.size()));
+                t.setProject(p);
+                p.addTask(t);
+            }
+
+            for (Label l : labels) {
+                if (random.nextInt(3) == 0) {
+                    t.addLabel(l);
+                    l.addTask(t);
+                }
+            }
+
+            if (i > 0 && random.nextInt(4) == 0) {
+                Task parent = tasks.get(random.nextInt(i));
+                t.addParent(parent);
+                parent.addChild(t);
+            }
+
+            tasks.add(t);
+        }
+
+        return tasks;
+    }
+}
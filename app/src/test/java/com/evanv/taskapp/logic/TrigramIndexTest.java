@@ -0,0 +1,178 @@
+package com.evanv.taskapp.logic;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for TrigramIndex, comparing substring search against a naive scan, checking typos still
+ * find the intended name, and checking searches for common words stay cheap.
+ *
+ * @author Evan Voogd
+ */
+public class TrigramIndexTest {
+    private static final long SEED = 20230311L; // Seed so failures can be reproduced
+    private static final String[] WORDS = {"team", "meeting", "notes", "grocery", "shopping",
+            "essay", "draft", "physics", "homework", "call", "mom", "dentist", "appointment",
+            "laundry", "review", "pull", "request", "budget", "taxes", "gym"};
+
+    /**
+     * Checks containing returns exactly the names a naive scan finds, for short and long queries,
+     * including after names are removed and replaced.
+     */
+    @Test
+    public void containingMatchesScan() {
+        Random random = new Random(SEED);
+        TrigramIndex index = new TrigramIndex();
+        String[] names = new String[2000];
+
+        for (int i = 0; i < names.length; i++) {
+            names[i] = randomName(random);
+            index.add(i, names[i]);
+        }
+
+        // Remove some names and replace others
+        for (int i = 0; i < names.length; i += 7) {
+            index.remove(i);
+            names[i] = null;
+        }
+        for (int i = 3; i < names.length; i += 11) {
+            names[i] = randomName(random);
+            index.add(i, names[i]);
+        }
+
+        String[] queries = {"m", "Te", "eet", "MEETING", "ing no", "y ap", "s e", "zzz",
+                "homework homework", "taxes gym"};
+        for (String query : queries) {
+            assertArrayEquals(query, scan(names, query), index.containing(query).toArray());
+        }
+    }
+
+    /**
+     * Checks typos still find the intended name, with exact substring matches ranked first.
+     */
+    @Test
+    public void searchToleratesTypos() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(0, "Team meeting notes");
+        index.add(1, "Grocery shopping");
+        index.add(2, "Physics homework");
+        index.add(3, "Meet with advisor");
+
+        assertEquals(0, index.search("meting")[0]);
+        assertEquals(1, index.search("grocey")[0]);
+        assertEquals(2, index.search("Phisics")[0]);
+
+        // Both contain "meet", so both come before anything that's only similar
+        int[] results = index.search("meet");
+        assertEquals(2, results.length);
+        assertEquals(3, results[0]);
+        assertEquals(0, results[1]);
+
+        index.remove(0);
+        assertEquals(0, index.search("meting").length);
+    }
+
+    /**
+     * Checks a search for a common word, and one too short to have a trigram, look at no more
+     * names however many share the search's trigrams, while still finding matches.
+     */
+    @Test
+    public void searchWorkIsCapped() {
+        Random random = new Random(SEED);
+        TrigramIndex index = new TrigramIndex();
+
+        for (int i = 0; i < 50000; i++) {
+            index.add(i, randomName(random));
+        }
+
+        // About one name in eight contains "meeting", and most contain an "e"
+        for (String query : new String[]{"meeting", "meetign", "e", "gy"}) {
+            int[] results = index.search(query);
+
+            assertTrue(query, results.length > 0);
+            assertTrue(query, index.getLastChecked() <= 2 * TrigramIndex.MAX_CANDIDATES);
+        }
+    }
+
+    /**
+     * Checks duplicate names are dropped before a page of suggestions is cut, so a page is only
+     * short when there aren't enough distinct matches.
+     */
+    @Test
+    public void suggestionsAreDistinct() {
+        TrigramIndex index = new TrigramIndex();
+
+        // Recurring tasks share a name, and the shorter copies rank first
+        for (int i = 0; i < 10; i++) {
+            index.add(i, "Laundry");
+        }
+        index.add(10, "Laundry and ironing");
+        index.add(11, "Fold laundry");
+        index.add(12, "Laundry room cleanup");
+
+        List<String> first = index.suggest("laundry", 0, 3);
+        assertEquals(3, first.size());
+        assertEquals("Laundry", first.get(0));
+        assertEquals(new HashSet<>(first).size(), first.size());
+
+        List<String> second = index.suggest("laundry", 3, 3);
+        assertEquals(1, second.size());
+        assertFalse(first.contains(second.get(0)));
+    }
+
+    /**
+     * Make a random task name of one to four words.
+     *
+     * @param random Source of randomness
+     *
+     * @return A random task name
+     */
+    private static String randomName(Random random) {
+        StringBuilder name = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+        int words = random.nextInt(4);
+
+        for (int i = 0; i < words; i++) {
+            name.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+        }
+
+        if (random.nextBoolean()) {
+            name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        }
+
+        return name.toString();
+    }
+
+    /**
+     * Find the slots of every name containing a query by checking each one.
+     *
+     * @param names The name in each slot, or null if the slot is empty
+     * @param query The query
+     *
+     * @return The slots of the names containing query, in order
+     */
+    private static int[] scan(String[] names, String query) {
+        List<Integer> slots = new ArrayList<>();
+
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] != null && names[i].toLowerCase().contains(query.toLowerCase())) {
+                slots.add(i);
+            }
+        }
+
+        int[] toReturn = new int[slots.size()];
+        for (int i = 0; i < toReturn.length; i++) {
+            toReturn[i] = slots.get(i);
+        }
+
+        return toReturn;
+    }
+}
@@ -0,0 +1,89 @@
+package com.evanv.taskapp.logic;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.evanv.taskapp.ui.main.recycler.EventItem;
+import com.evanv.taskapp.ui.main.recycler.TaskItem;
+
+import org.junit.Test;
+import org.threeten.bp.LocalDate;
+import org.threeten.bp.LocalDateTime;
+
+import java.util.ArrayList;
+
+/**
+ * Tests for ViewItemCache, checking items are reused until their Task or Event changes.
+ *
+ * @author Evan Voogd
+ */
+public class ViewItemCacheTest {
+    /**
+     * Checks a TaskItem is reused after unrelated changes, and rebuilt after the task changes,
+     * moves or starts being timed.
+     */
+    @Test
+    public void reusesTaskItemUntilTaskChanges() {
+        ViewItemCache cache = new ViewItemCache();
+        LocalDate today = LocalDate.of(2023, 3, 3);
+        Task task = new Task("Essay", today, today.plusDays(2), 30, 1);
+        Task other = new Task("Homework", today, today.plusDays(1), 60, 2);
+        TaskItem item = item(task);
+
+        cache.putTaskItem(task, 0, false, item);
+        assertSame(item, cache.getTaskItem(task, 0, false));
+
+        // Editing another task doesn't touch this one's item
+        other.setName("Physics homework");
+        other.addParent(task);
+        assertSame(item, cache.getTaskItem(task, 0, false));
+
+        // Moving or timing the task needs a new item
+        assertNull(cache.getTaskItem(task, 1, false));
+        assertNull(cache.getTaskItem(task, 0, true));
+
+        // So does any change to the task
+        task.addLabel(new Label("School", 3));
+        assertNull(cache.getTaskItem(task, 0, false));
+
+        cache.putTaskItem(task, 0, false, item);
+        task.setPriority(3);
+        assertNull(cache.getTaskItem(task, 0, false));
+
+        cache.putTaskItem(task, 0, false, item);
+        cache.remove(task);
+        assertNull(cache.getTaskItem(task, 0, false));
+    }
+
+    /**
+     * Checks an EventItem is reused until the event changes or the cache is cleared.
+     */
+    @Test
+    public void reusesEventItemUntilEventChanges() {
+        ViewItemCache cache = new ViewItemCache();
+        Event event = new Event("Staff Meeting", 60, LocalDateTime.of(2023, 3, 3, 14, 0));
+        EventItem item = new EventItem("Staff Meeting", "02:00 PM-03:00 PM", 0);
+
+        cache.putEventItem(event, item);
+        assertSame(item, cache.getEventItem(event));
+
+        event.setLength(90);
+        assertNull(cache.getEventItem(event));
+
+        cache.putEventItem(event, item);
+        cache.clear();
+        assertNull(cache.getEventItem(event));
+    }
+
+    /**
+     * Make a TaskItem for a task.
+     *
+     * @param task The task
+     *
+     * @return A TaskItem for the task
+     */
+    private static TaskItem item(Task task) {
+        return new TaskItem(task.getName(), 0, true, task.getPriority(), null, -1,
+                new ArrayList<>(), new ArrayList<>(), task.getID());
+    }
+}
@@ -0,0 +1,97 @@
+package com.evanv.taskapp.ui.main.recycler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+/**
+ * Tests for PagedDayList, checking days are only built when they're asked for and that memory
+ * stays bounded however far the user scrolls.
+ *
+ * @author Evan Voogd
+ */
+public class PagedDayListTest {
+    private int mLoads; // Number of DayItems built by the loader
+
+    /**
+     * Checks creating a list of years of days builds nothing, and showing a day only builds the
+     * days around it.
+     */
+    @Test
+    public void buildsOnlyVisibleWindow() {
+        PagedDayList list = new PagedDayList(3650, this::load);
+        assertEquals(3650, list.size());
+        assertEquals(0, mLoads);
+
+        assertEquals(0, list.get(0).getIndex());
+        assertTrue(mLoads > 0 && mLoads < 10);
+
+        // Already built days are reused
+        DayItem day = list.get(2);
+        int loads = mLoads;
+        assertSame(day, list.get(2));
+        assertEquals(loads, mLoads);
+    }
+
+    /**
+     * Checks scrolling through every day keeps a bounded number of them built, and that trim drops
+     * everything outside the visible window.
+     */
+    @Test
+    public void boundsBuiltDays() {
+        PagedDayList list = new PagedDayList(3650, this::load);
+
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals(i, list.get(i).getIndex());
+        }
+        assertEquals(3650, mLoads);
+        assertTrue(list.getBuiltCount() < 200);
+
+        list.trim(3640, 3645);
+        assertTrue(list.getBuiltCount() <= 32);
+
+        // Dropped days are rebuilt when they're shown again
+        assertEquals(10, list.get(10).getIndex());
+    }
+
+    /**
+     * Checks invalidated days are rebuilt, and days can be added and removed at the end.
+     */
+    @Test
+    public void invalidateAndResize() {
+        PagedDayList list = new PagedDayList(20, this::load);
+
+        DayItem day = list.get(5);
+        list.invalidate(5);
+        assertNotSame(day, list.get(5));
+
+        list.setSize(30);
+        assertEquals(29, list.get(29).getIndex());
+
+        list.setSize(10);
+        assertEquals(10, list.size());
+
+        list.add(load(10));
+        assertEquals(11, list.size());
+        assertEquals(10, list.remove(10).getIndex());
+        assertEquals(10, list.size());
+    }
+
+    /**
+     * Build an empty DayItem for a day.
+     *
+     * @param index How many days past today's date the day is
+     *
+     * @return An empty DayItem for the day
+     */
+    private DayItem load(int index) {
+        mLoads++;
+        return new DayItem("Day " + index + "\n0 minutes", new ArrayList<>(), new ArrayList<>(),
+                index);
+    }
+}